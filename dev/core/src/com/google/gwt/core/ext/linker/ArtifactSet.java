@@ -24,11 +24,14 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
- * Provides stable ordering and de-duplication of artifacts.
+ * Provides stable ordering and de-duplication of artifacts. An ArtifactSet is
+ * not synchronized, but once {@link #freeze() frozen} it may be read from
+ * several threads; this is how the shardable linkers share the precompile
+ * artifacts while permutations are linked concurrently.
  */
 public final class ArtifactSet implements SortedSet<Artifact<?>>, Serializable {
 
-  private SortedSet<Artifact<?>> treeSet = new TreeSet<Artifact<?>>();
+  private volatile SortedSet<Artifact<?>> treeSet = new TreeSet<Artifact<?>>();
 
   public ArtifactSet() {
   }
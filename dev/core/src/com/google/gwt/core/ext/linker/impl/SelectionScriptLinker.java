@@ -76,11 +76,6 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
    */
   protected static final String FRAGMENT_SUBDIR = "deferredjs";
 
-  /**
-   * Utility class to handle insertion of permutations code.
-   */
-  protected static PermutationsUtil permutationsUtil = new PermutationsUtil();
-
   /**
    * File name for processMetas.js.
    */
@@ -92,6 +87,12 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
    */
   private static final String PROP_FRAGMENT_SUBDIR_OVERRIDE = "iframe.linker.deferredjs.subdir";
 
+  /**
+   * Utility class to handle insertion of permutations code. This is per
+   * instance so that linkers for different permutations can run concurrently.
+   */
+  protected final PermutationsUtil permutationsUtil = new PermutationsUtil();
+
   protected static void replaceAll(StringBuffer buf, String search,
       String replace) {
     int len = search.length();
@@ -63,7 +63,9 @@ public class SplitPointRecorder {
         for (JRunAsync runAsync : runAsyncs) {
           int sp = runAsync.getSplitPoint();
           String name = runAsync.getName();
-          curLine = "<splitpoint id=\"" + sp + "\" location=\"" + name + "\"/>";
+          Integer mergedInto = jprogram.getMergedSplitPoints().get(sp);
+          curLine = "<splitpoint id=\"" + sp + "\" location=\"" + name + "\""
+              + (mergedInto == null ? "" : " fragment=\"" + mergedInto + "\"") + "/>";
           htmlOut.printRaw(curLine);
           htmlOut.newline();
           if (logger.isLoggable(TreeLogger.TRACE)) {
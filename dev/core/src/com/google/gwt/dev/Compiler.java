@@ -25,6 +25,7 @@ import com.google.gwt.dev.cfg.ModuleDefLoader;
 import com.google.gwt.dev.javac.CompilationStateBuilder;
 import com.google.gwt.dev.jjs.JJSOptions;
 import com.google.gwt.dev.jjs.PermutationResult;
+import com.google.gwt.dev.resource.impl.ZipFileClassPathEntry;
 import com.google.gwt.dev.shell.CheckForUpdates;
 import com.google.gwt.dev.shell.CheckForUpdates.UpdateResult;
 import com.google.gwt.dev.util.FileBackedObject;
@@ -214,6 +215,7 @@ public class Compiler {
       if (options.getWarDir() != null && !options.getWarDir().getName().endsWith(".jar")) {
         persistentUnitCacheDir = new File(options.getWarDir(), "../");
       }
+      ZipFileClassPathEntry.setIndexCacheDir(persistentUnitCacheDir);
       CompilationStateBuilder.init(logger, persistentUnitCacheDir);
 
       for (ModuleDef module : modules) {
@@ -24,6 +24,7 @@ import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.linker.impl.StandardLinkerContext;
 import com.google.gwt.dev.cfg.ModuleDef;
 import com.google.gwt.dev.resource.impl.ResourceOracleImpl;
+import com.google.gwt.dev.resource.impl.ZipFileClassPathEntry;
 import com.google.gwt.dev.shell.jetty.JettyLauncher;
 import com.google.gwt.dev.ui.RestartServerCallback;
 import com.google.gwt.dev.ui.RestartServerEvent;
@@ -406,6 +407,12 @@ public class DevMode extends DevModeBase implements RestartServerCallback {
 
   @Override
   protected boolean doStartup() {
+    File persistentCacheDir = null;
+    if (options.getWarDir() != null && !options.getWarDir().getName().endsWith(".jar")) {
+      persistentCacheDir = new File(options.getWarDir(), "../");
+    }
+    ZipFileClassPathEntry.setIndexCacheDir(persistentCacheDir);
+
     // Background scan the classpath to warm the cache.
     Thread scanThread = new Thread(new Runnable() {
       public void run() {
@@ -416,11 +423,6 @@ public class DevMode extends DevModeBase implements RestartServerCallback {
     scanThread.setPriority((Thread.MIN_PRIORITY + Thread.NORM_PRIORITY) / 2);
     scanThread.start();
 
-    File persistentCacheDir = null;
-    if (options.getWarDir() != null && !options.getWarDir().getName().endsWith(".jar")) {
-      persistentCacheDir = new File(options.getWarDir(), "../");
-    }
-
     if (!super.doStartup(persistentCacheDir)) {
       return false;
     }
@@ -36,18 +36,38 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Implementation of RebindPermutationOracle used by Precompile.
  */
 class DistillerRebindPermutationOracle implements RebindPermutationOracle {
+
+  /**
+   * If true, the permutations of a rebind request are answered on several
+   * threads, each against its own fork of the generator context. Off by
+   * default because generators are free to keep static state.
+   */
+  private static final boolean PARALLEL_GENERATORS = Boolean.getBoolean("gwt.parallelGenerators");
+
+  private static final int GENERATOR_THREADS = Math.max(1, Runtime.getRuntime()
+      .availableProcessors());
+
   private CompilationState compilationState;
   private StandardGeneratorContext generatorContext;
+  private ExecutorService generatorExecutor;
   private final Permutation[] permutations;
   private final StaticPropertyOracle[] propertyOracles;
-  private final RebindOracle[] rebindOracles;
+  private final StandardRebindOracle[] rebindOracles;
 
   public DistillerRebindPermutationOracle(ModuleDef module,
       CompilationState compilationState, ArtifactSet generatorArtifacts,
@@ -55,7 +75,7 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
     this.compilationState = compilationState;
     permutations = new Permutation[perms.size()];
     propertyOracles = new StaticPropertyOracle[perms.size()];
-    rebindOracles = new RebindOracle[perms.size()];
+    rebindOracles = new StandardRebindOracle[perms.size()];
     generatorContext = new StandardGeneratorContext(compilationState, module,
         genDir, generatorArtifacts, true);
     BindingProperty[] orderedProps = perms.getOrderedProperties();
@@ -73,6 +93,10 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
   }
 
   public void clear() {
+    if (generatorExecutor != null) {
+      generatorExecutor.shutdown();
+      generatorExecutor = null;
+    }
     generatorContext.clear();
     compilationState = null;
     generatorContext = null;
@@ -87,15 +111,25 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
 
     Set<String> answers = new HashSet<String>();
     Event getAllRebindsEvent = SpeedTracerLogger.start(CompilerEventType.GET_ALL_REBINDS);
-    for (int i = 0; i < getPermuationCount(); ++i) {
-      String resultTypeName = rebindOracles[i].rebind(logger, requestTypeName);
-      answers.add(resultTypeName);
-      // Record the correct answer into each permutation.
-      permutations[i].putRebindAnswer(requestTypeName, resultTypeName);
+    try {
+      String[] resultTypeNames;
+      if (PARALLEL_GENERATORS && GENERATOR_THREADS > 1 && getPermuationCount() > 1) {
+        resultTypeNames = rebindConcurrently(logger, requestTypeName);
+      } else {
+        resultTypeNames = new String[getPermuationCount()];
+        for (int i = 0; i < getPermuationCount(); ++i) {
+          resultTypeNames[i] = rebindOracles[i].rebind(logger, requestTypeName);
+        }
+      }
+      for (int i = 0; i < getPermuationCount(); ++i) {
+        answers.add(resultTypeNames[i]);
+        // Record the correct answer into each permutation.
+        permutations[i].putRebindAnswer(requestTypeName, resultTypeNames[i]);
+      }
+    } finally {
+      getAllRebindsEvent.end();
     }
-    String[] result = Util.toArray(String.class, answers);
-    getAllRebindsEvent.end();
-    return result;
+    return Util.toArray(String.class, answers);
   }
 
   public CompilationState getCompilationState() {
@@ -121,4 +155,64 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
   public RebindOracle getRebindOracle(int permNumber) {
     return rebindOracles[permNumber];
   }
+
+  /**
+   * Runs each permutation's rebind of a type on its own fork of the generator
+   * context, then merges the forks back in permutation order so that the
+   * generated units and artifacts do not depend on thread scheduling.
+   */
+  private String[] rebindConcurrently(final TreeLogger logger, final String requestTypeName)
+      throws UnableToCompleteException {
+    if (generatorExecutor == null) {
+      generatorExecutor = Executors.newFixedThreadPool(GENERATOR_THREADS, new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "Generator");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    int count = getPermuationCount();
+    final StandardGeneratorContext[] forks = new StandardGeneratorContext[count];
+    List<Future<String>> futures = new ArrayList<Future<String>>(count);
+    for (int i = 0; i < count; ++i) {
+      final StandardRebindOracle rebindOracle = rebindOracles[i];
+      final StandardGeneratorContext fork = generatorContext.fork();
+      forks[i] = fork;
+      futures.add(generatorExecutor.submit(new Callable<String>() {
+        public String call() throws UnableToCompleteException {
+          return rebindOracle.rebindInContext(logger, requestTypeName, fork);
+        }
+      }));
+    }
+
+    // Wait for every permutation, even after a failure, so no generator is
+    // still running against the type oracle when we return.
+    String[] resultTypeNames = new String[count];
+    boolean failed = false;
+    for (int i = 0; i < count; ++i) {
+      try {
+        resultTypeNames[i] = futures.get(i).get();
+      } catch (ExecutionException e) {
+        failed = true;
+        if (!(e.getCause() instanceof UnableToCompleteException)) {
+          logger.log(TreeLogger.ERROR, "Unexpected error while rebinding '" + requestTypeName
+              + "'", e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failed = true;
+      }
+    }
+    if (failed) {
+      throw new UnableToCompleteException();
+    }
+
+    for (StandardGeneratorContext fork : forks) {
+      generatorContext.merge(logger, fork);
+      fork.clear();
+    }
+    return resultTypeNames;
+  }
 }
@@ -36,9 +36,9 @@ import com.google.gwt.dev.jjs.JJSOptions;
 import com.google.gwt.dev.jjs.PermutationResult;
 import com.google.gwt.dev.jjs.impl.CodeSplitter;
 import com.google.gwt.dev.util.FileBackedObject;
+import com.google.gwt.dev.util.IncrementalOutputFileSetOnDirectory;
 import com.google.gwt.dev.util.NullOutputFileSet;
 import com.google.gwt.dev.util.OutputFileSet;
-import com.google.gwt.dev.util.OutputFileSetOnDirectory;
 import com.google.gwt.dev.util.OutputFileSetOnJar;
 import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.arg.ArgHandlerDeployDir;
@@ -61,6 +61,11 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -171,6 +176,12 @@ public class Link {
     }
   }
 
+  /**
+   * System property giving the number of threads used to run the shardable
+   * linkers over the permutations; defaults to the number of processors.
+   */
+  private static final String PROP_LINK_THREADS = "gwt.link.threads";
+
   public static void legacyLink(TreeLogger logger, ModuleDef module,
       ArtifactSet generatedArtifacts, Permutation[] permutations,
       List<FileBackedObject<PermutationResult>> resultFiles, File outDir,
@@ -199,17 +210,11 @@ public class Link {
         module, precompileOptions);
     ArtifactSet artifacts = doSimulatedShardingLink(logger, module,
         linkerContext, generatedArtifacts, permutations, resultFiles);
-    OutputFileSet extrasFileSet = chooseOutputFileSet(extrasDir,
-        module.getName() + "/");
-    // allow -deploy and -extra to point to the same directory/jar
-    OutputFileSet deployFileSet;
-    if (deployDir.equals(extrasDir)) {
-      deployFileSet = extrasFileSet;
-    } else {
-      deployFileSet = chooseOutputFileSet(deployDir, module.getName() + "/");
-    }
-    doProduceOutput(logger, artifacts, linkerContext, chooseOutputFileSet(
-        outDir, module.getName() + "/"), deployFileSet, extrasFileSet);
+    // allow -war, -deploy and -extra to point to the same directory/jar
+    OutputFileSet[] fileSets = chooseOutputFileSets(module.getName() + "/",
+        outDir, deployDir, extrasDir);
+    doProduceOutput(logger, artifacts, linkerContext, fileSets[0],
+        fileSets[1], fileSets[2]);
   }
 
   /**
@@ -333,6 +338,32 @@ public class Link {
     return thinnedArtifacts;
   }
 
+  /**
+   * Choose an output file set for each of <code>dirsOrJars</code>, all under
+   * <code>pathPrefix</code>. Entries that resolve to the same directory or jar
+   * share one file set, since two file sets writing to the same place would
+   * each delete the other's output.
+   */
+  static OutputFileSet[] chooseOutputFileSets(String pathPrefix,
+      File... dirsOrJars) throws IOException {
+    OutputFileSet[] fileSets = new OutputFileSet[dirsOrJars.length];
+    Map<File, OutputFileSet> fileSetsByLocation = new HashMap<File, OutputFileSet>();
+    for (int i = 0; i < dirsOrJars.length; i++) {
+      if (dirsOrJars[i] == null) {
+        fileSets[i] = chooseOutputFileSet(null, pathPrefix);
+        continue;
+      }
+      File location = dirsOrJars[i].getCanonicalFile();
+      OutputFileSet fileSet = fileSetsByLocation.get(location);
+      if (fileSet == null) {
+        fileSet = chooseOutputFileSet(dirsOrJars[i], pathPrefix);
+        fileSetsByLocation.put(location, fileSet);
+      }
+      fileSets[i] = fileSet;
+    }
+    return fileSets;
+  }
+
   /**
    * Add to a compilation result all of the selection permutations from its
    * associated permutation.
@@ -363,8 +394,7 @@ public class Link {
         || name.endsWith(".jar") || name.endsWith(".zip"))) {
       return new OutputFileSetOnJar(dirOrJar, pathPrefix);
     } else {
-      Util.recursiveDelete(new File(dirOrJar, pathPrefix), true);
-      return new OutputFileSetOnDirectory(dirOrJar, pathPrefix);
+      return new IncrementalOutputFileSetOnDirectory(dirOrJar, pathPrefix);
     }
   }
 
@@ -445,9 +475,8 @@ public class Link {
       List<FileBackedObject<PermutationResult>> resultFiles)
       throws UnableToCompleteException {
     ArtifactSet combinedArtifacts = new ArtifactSet();
-    for (int i = 0; i < perms.length; ++i) {
-      ArtifactSet newArtifacts = finishPermutation(logger, perms[i],
-          resultFiles.get(i), linkerContext, generatedArtifacts);
+    for (ArtifactSet newArtifacts : finishPermutations(logger, perms,
+        resultFiles, linkerContext, generatedArtifacts)) {
       combinedArtifacts.addAll(newArtifacts);
     }
 
@@ -488,6 +517,63 @@ public class Link {
         permArtifacts);
   }
 
+  /**
+   * Run {@link #finishPermutation} for every permutation, on several threads
+   * if allowed. Each permutation is linked into its own {@link ArtifactSet},
+   * so the only state shared between threads is the frozen set of generated
+   * artifacts and the read-only parts of the linker context.
+   * 
+   * @return the new artifacts for each permutation, in permutation order
+   */
+  private static List<ArtifactSet> finishPermutations(final TreeLogger logger,
+      Permutation[] perms, List<FileBackedObject<PermutationResult>> resultFiles,
+      final StandardLinkerContext linkerContext,
+      final ArtifactSet generatedArtifacts) throws UnableToCompleteException {
+    List<ArtifactSet> results = new ArrayList<ArtifactSet>();
+    int numThreads = Integer.getInteger(PROP_LINK_THREADS,
+        Runtime.getRuntime().availableProcessors());
+    if (numThreads <= 1 || perms.length <= 1) {
+      for (int i = 0; i < perms.length; ++i) {
+        results.add(finishPermutation(logger, perms[i], resultFiles.get(i),
+            linkerContext, generatedArtifacts));
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+        numThreads, perms.length));
+    try {
+      List<Future<ArtifactSet>> futures = new ArrayList<Future<ArtifactSet>>();
+      for (int i = 0; i < perms.length; ++i) {
+        final Permutation perm = perms[i];
+        final FileBackedObject<PermutationResult> resultFile = resultFiles.get(i);
+        futures.add(executor.submit(new Callable<ArtifactSet>() {
+          public ArtifactSet call() throws UnableToCompleteException {
+            return finishPermutation(logger, perm, resultFile, linkerContext,
+                generatedArtifacts);
+          }
+        }));
+      }
+      for (Future<ArtifactSet> future : futures) {
+        results.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UnableToCompleteException) {
+        throw (UnableToCompleteException) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unexpected error linking permutations",
+          e.getCause());
+      throw new UnableToCompleteException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while linking permutations", e);
+      throw new UnableToCompleteException();
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
   private static String getFullArtifactPath(EmittedArtifact emittedArtifact,
       StandardLinkerContext context) {
     String path = emittedArtifact.getPartialPath();
@@ -706,18 +792,12 @@ public class Link {
         module, precompileOptions);
 
     try {
-      OutputFileSet outFileSet = chooseOutputFileSet(options.getWarDir(),
-          module.getName() + "/");
-      OutputFileSet extraFileSet = chooseOutputFileSet(options.getExtraDir(),
-          module.getName() + "/");
-      // allow -deploy and -extra to point to the same directory/jar
-      OutputFileSet deployFileSet;
-      if (options.getDeployDir().equals(options.getExtraDir())) {
-        deployFileSet = extraFileSet;
-      } else {
-        deployFileSet = chooseOutputFileSet(options.getDeployDir(),
-            module.getName() + "/");
-      }
+      // allow -war, -deploy and -extra to point to the same directory/jar
+      OutputFileSet[] fileSets = chooseOutputFileSets(module.getName() + "/",
+          options.getWarDir(), options.getDeployDir(), options.getExtraDir());
+      OutputFileSet outFileSet = fileSets[0];
+      OutputFileSet deployFileSet = fileSets[1];
+      OutputFileSet extraFileSet = fileSets[2];
 
       ArtifactSet artifacts = scanCompilePermResults(logger, resultFiles);
       artifacts.addAll(linkerContext.getArtifactsForPublicResources(logger,
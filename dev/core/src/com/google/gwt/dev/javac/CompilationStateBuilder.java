@@ -80,12 +80,20 @@ public class CompilationStateBuilder {
       @Override
       public void process(CompilationUnitBuilder builder, CompilationUnitDeclaration cud,
           List<CompiledClass> compiledClasses) {
+        /*
+         * Everything here reads the JDT bindings of the unit, which JDT frees
+         * once this method returns, so it has to run on the compiler thread.
+         * Building the unit from the results happens on the build threads.
+         */
         Event event = SpeedTracerLogger.start(DevModeEventType.CSB_PROCESS);
         try {
+          Event jsniEvent = SpeedTracerLogger.start(DevModeEventType.CSB_COLLECT_JSNI);
           Map<MethodDeclaration, JsniMethod> jsniMethods =
               JsniCollector.collectJsniMethods(cud, builder.getSource(), JsRootScope.INSTANCE,
                   DummyCorrelationFactory.INSTANCE);
+          jsniEvent.end();
 
+          Event checkEvent = SpeedTracerLogger.start(DevModeEventType.CSB_CHECK);
           JSORestrictionsChecker.check(jsoState, cud);
 
           // JSNI check + collect dependencies.
@@ -106,6 +114,7 @@ public class CompilationStateBuilder {
               new HashMap<TypeDeclaration, Binding[]>();
           ArtificialRescueChecker.check(cud, builder.isGenerated(), artificialRescues);
           BinaryTypeReferenceRestrictionsChecker.check(cud);
+          checkEvent.end();
 
           MethodArgNamesLookup methodArgs = MethodParamCollector.collect(cud);
 
@@ -134,7 +143,9 @@ public class CompilationStateBuilder {
           List<JDeclaredType> types = Collections.emptyList();
           if (!cud.compilationResult().hasErrors()) {
             // Make a GWT AST.
+            Event astEvent = SpeedTracerLogger.start(DevModeEventType.CSB_BUILD_AST);
             types = astBuilder.process(cud, artificialRescues, jsniMethods, jsniRefs);
+            astEvent.end();
           }
 
           for (CompiledClass cc : compiledClasses) {
@@ -211,29 +222,46 @@ public class CompilationStateBuilder {
       do {
         // Compile anything that needs to be compiled.
         buildQueue = new LinkedBlockingQueue<CompilationUnitBuilder>();
-        final ArrayList<CompilationUnit> newlyBuiltUnits = new ArrayList<CompilationUnit>();
+        final List<CompilationUnit> newlyBuiltUnits =
+            Collections.synchronizedList(new ArrayList<CompilationUnit>());
         final CompilationUnitBuilder sentinel = CompilationUnitBuilder.create((GeneratedUnit) null);
         final Throwable[] workerException = new Throwable[1];
-        Thread buildThread = new Thread() {
-          @Override
-          public void run() {
-            try {
-              do {
-                CompilationUnitBuilder builder = buildQueue.take();
-                if (builder == sentinel) {
-                  return;
+        Thread[] buildThreads = new Thread[BUILD_THREADS];
+        for (int i = 0; i < buildThreads.length; ++i) {
+          buildThreads[i] = new Thread() {
+            @Override
+            public void run() {
+              try {
+                do {
+                  CompilationUnitBuilder builder = buildQueue.take();
+                  if (builder == sentinel) {
+                    return;
+                  }
+                  Event buildEvent = SpeedTracerLogger.start(DevModeEventType.CSB_BUILD_UNIT);
+                  try {
+                    // Expensive, must serialize GWT AST types to bytes.
+                    CompilationUnit unit = builder.build();
+                    // Also expensive, and needed to resolve dependencies below.
+                    for (CompiledClass cc : unit.getCompiledClasses()) {
+                      cc.getSignatureHash();
+                    }
+                    newlyBuiltUnits.add(unit);
+                  } finally {
+                    buildEvent.end();
+                  }
+                } while (true);
+              } catch (Throwable e) {
+                synchronized (workerException) {
+                  if (workerException[0] == null) {
+                    workerException[0] = e;
+                  }
                 }
-                // Expensive, must serialize GWT AST types to bytes.
-                CompilationUnit unit = builder.build();
-                newlyBuiltUnits.add(unit);
-              } while (true);
-            } catch (Throwable e) {
-              workerException[0] = e;
+              }
             }
-          }
-        };
-        buildThread.setName("CompilationUnitBuilder");
-        buildThread.start();
+          };
+          buildThreads[i].setName("CompilationUnitBuilder-" + i);
+          buildThreads[i].start();
+        }
         stealJribbleUnits(logger, builders);
         Event jdtCompilerEvent = SpeedTracerLogger.start(eventType);
         try {
@@ -241,9 +269,13 @@ public class CompilationStateBuilder {
         } finally {
           jdtCompilerEvent.end();
         }
-        buildQueue.add(sentinel);
+        for (int i = 0; i < buildThreads.length; ++i) {
+          buildQueue.add(sentinel);
+        }
         try {
-          buildThread.join();
+          for (Thread buildThread : buildThreads) {
+            buildThread.join();
+          }
           if (workerException[0] != null) {
             throw workerException[0];
           }
@@ -383,6 +415,13 @@ public class CompilationStateBuilder {
     }
   }
 
+  /**
+   * The number of threads that build units while JDT compiles. The compiler
+   * itself keeps one processor busy.
+   */
+  private static final int BUILD_THREADS =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
   private static final CompilationStateBuilder instance = new CompilationStateBuilder();
 
   /**
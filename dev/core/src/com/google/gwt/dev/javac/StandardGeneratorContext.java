@@ -51,6 +51,7 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -97,6 +98,16 @@ public class StandardGeneratorContext implements GeneratorContext {
       this.sw = sw;
     }
 
+    /**
+     * Creates a unit that shares the source of an already committed unit.
+     */
+    protected GeneratedUnitImpl(GeneratedUnitImpl committed) {
+      this(null, committed.typeName);
+      this.sourceToken = committed.sourceToken;
+      this.strongHash = committed.strongHash;
+      this.creationTime = committed.creationTime;
+    }
+
     @Override
     public void abort() {
       sw = null;
@@ -165,9 +176,28 @@ public class StandardGeneratorContext implements GeneratorContext {
       this.file = file;
     }
 
+    /**
+     * Creates a file-backed copy of a unit committed by a forked context and
+     * writes its source out immediately.
+     */
+    public GeneratedUnitWithFile(TreeLogger logger, File file, GeneratedUnitImpl committed) {
+      super(committed);
+      this.file = file;
+      writeFile(logger);
+    }
+
     @Override
     public void commit(TreeLogger logger) {
       super.commit(logger);
+      writeFile(logger);
+    }
+
+    @Override
+    public String optionalFileLocation() {
+      return file.exists() ? file.getAbsolutePath() : null;
+    }
+
+    private void writeFile(TreeLogger logger) {
       FileOutputStream fos = null;
       try {
         fos = new FileOutputStream(file);
@@ -179,11 +209,6 @@ public class StandardGeneratorContext implements GeneratorContext {
         Utility.close(fos);
       }
     }
-
-    @Override
-    public String optionalFileLocation() {
-      return file.exists() ? file.getAbsolutePath() : null;
-    }
   }
 
   /**
@@ -268,7 +293,7 @@ public class StandardGeneratorContext implements GeneratorContext {
   private final ArtifactSet allGeneratedArtifacts;
 
   private final Map<String, GeneratedUnit> committedGeneratedCups =
-      new HashMap<String, GeneratedUnit>();
+      new LinkedHashMap<String, GeneratedUnit>();
 
   private CompilationState compilationState;
 
@@ -481,19 +506,7 @@ public class StandardGeneratorContext implements GeneratorContext {
       }
       return newlyGeneratedArtifacts;
     } finally {
-
-      // Remind the user if there uncommitted cups.
-      if (!uncommittedGeneratedCupsByPrintWriter.isEmpty()) {
-        String msg =
-            "For the following type(s), generated source was never committed (did you forget to call commit()?)";
-        logger = logger.branch(TreeLogger.WARN, msg, null);
-
-        for (Generated unit : uncommittedGeneratedCupsByPrintWriter.values()) {
-          logger.log(TreeLogger.WARN, unit.getTypeName(), null);
-        }
-      }
-
-      uncommittedGeneratedCupsByPrintWriter.clear();
+      abortUncommittedUnits(logger);
       committedGeneratedCups.clear();
       newlyGeneratedTypeNames.clear();
       newlyGeneratedArtifacts = new ArtifactSet();
@@ -501,6 +514,23 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
   }
 
+  /**
+   * Creates a context that runs generators independently of this one, so that
+   * several rebinds can proceed on different threads. The fork starts out
+   * knowing every type and artifact generated so far, but keeps its own
+   * generator instances and writes nothing to the generated-source directory.
+   * Its results become visible only once passed to {@link #merge}.
+   */
+  public StandardGeneratorContext fork() {
+    StandardGeneratorContext fork =
+        new StandardGeneratorContext(compilationState, module, null, new ArtifactSet(
+            allGeneratedArtifacts), isProdMode);
+    fork.generatorResultCachingEnabled = generatorResultCachingEnabled;
+    fork.newlyGeneratedTypeNames.addAll(newlyGeneratedTypeNames);
+    fork.newlyGeneratedTypeNames.addAll(committedGeneratedCups.keySet());
+    return fork;
+  }
+
   public Set<String> getActiveLinkerNames() {
     return module.getActiveLinkerNames();
   }
@@ -560,6 +590,35 @@ public class StandardGeneratorContext implements GeneratorContext {
     return isProdMode;
   }
 
+  /**
+   * Adopts the units and artifacts committed by a context created with
+   * {@link #fork}. Forks must be merged on the thread that owns this context;
+   * when several forks generate the same type, the unit merged first wins.
+   */
+  public void merge(TreeLogger logger, StandardGeneratorContext fork) {
+    fork.abortUncommittedResources(logger);
+    fork.abortUncommittedUnits(logger);
+
+    for (GeneratedUnit unit : fork.committedGeneratedCups.values()) {
+      String typeName = unit.getTypeName();
+      if (committedGeneratedCups.containsKey(typeName)
+          || newlyGeneratedTypeNames.contains(typeName)) {
+        continue;
+      }
+      if (genDir != null && unit instanceof GeneratedUnitImpl) {
+        File srcFile = new File(genDir, typeName.replace('.', File.separatorChar) + ".java");
+        srcFile.getParentFile().mkdirs();
+        unit = new GeneratedUnitWithFile(logger, srcFile, (GeneratedUnitImpl) unit);
+      }
+      committedGeneratedCups.put(typeName, unit);
+      newlyGeneratedTypeNames.add(typeName);
+    }
+
+    for (Artifact<?> artifact : fork.newlyGeneratedArtifacts) {
+      commitArtifact(logger, artifact);
+    }
+  }
+
   /**
    * This method is maintained for backwards compatibility.
    * {@link #runGeneratorIncrementally} should be used instead.
@@ -858,4 +917,19 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
     pendingResources.clear();
   }
+
+  private void abortUncommittedUnits(TreeLogger logger) {
+    // Remind the user if there uncommitted cups.
+    if (!uncommittedGeneratedCupsByPrintWriter.isEmpty()) {
+      String msg =
+          "For the following type(s), generated source was never committed (did you forget to call commit()?)";
+      logger = logger.branch(TreeLogger.WARN, msg, null);
+
+      for (Generated unit : uncommittedGeneratedCupsByPrintWriter.values()) {
+        logger.log(TreeLogger.WARN, unit.getTypeName(), null);
+      }
+    }
+
+    uncommittedGeneratedCupsByPrintWriter.clear();
+  }
 }
@@ -149,7 +149,7 @@ public class TypeOracleMediator extends TypeOracleBuilder {
    * {@link TypeOracleMediator#addNewTypes(TreeLogger, Collection, MethodArgNamesLookup)}
    * .
    */
-  private class TypeOracleBuildContext {
+  private class TypeOracleBuildContext implements LazyMemberResolver {
     private final MethodArgNamesLookup allMethodArgs;
 
     // map of internal names to class visitors.
@@ -157,11 +157,28 @@ public class TypeOracleMediator extends TypeOracleBuilder {
     // map of JRealType instances to lookup class visitors.
     private final HashMap<JRealClassType, CollectClassData> classMapType = new HashMap<JRealClassType, CollectClassData>();
 
+    /**
+     * Where to log problems found while lazily resolving members.
+     */
+    private final TreeLogger logger;
+
     private final Resolver resolver = new TypeOracleMediatorResolver(this);
 
-    private TypeOracleBuildContext(MethodArgNamesLookup allMethodArgs) {
+    /**
+     * Class visitors of the types whose members have not been resolved yet.
+     * Outlives the pass that created it, until all such types are resolved.
+     */
+    private final Map<JRealClassType, CollectClassData> unresolvedMembers = new HashMap<JRealClassType, CollectClassData>();
+
+    private TypeOracleBuildContext(TreeLogger logger,
+        MethodArgNamesLookup allMethodArgs) {
+      this.logger = logger;
       this.allMethodArgs = allMethodArgs;
     }
+
+    public void resolveMembers(JRealClassType type) {
+      resolveLazyMembers(type, this);
+    }
   };
 
   private class TypeOracleMediatorResolver implements Resolver {
@@ -250,6 +267,13 @@ public class TypeOracleMediator extends TypeOracleBuilder {
 
   private static final JTypeParameter[] NO_TYPE_PARAMETERS = new JTypeParameter[0];
 
+  /**
+   * Whether to resolve the methods and fields of a type only when they are
+   * first asked for. Disable with -Dgwt.typeoracle.lazyMembers=false.
+   */
+  private static final boolean LAZY_MEMBERS = Boolean.parseBoolean(System.getProperty(
+      "gwt.typeoracle.lazyMembers", "true"));
+
   /**
    * Turn on to trace class processing.
    */
@@ -375,14 +399,14 @@ public class TypeOracleMediator extends TypeOracleBuilder {
    * @param argsLookup Allows the caller to pass the method argument names which
    *          are not normally available in bytecode.
    */
-  public void addNewTypes(TreeLogger logger, Collection<TypeData> typeDataList,
+  public synchronized void addNewTypes(TreeLogger logger, Collection<TypeData> typeDataList,
       MethodArgNamesLookup argsLookup) {
     Event typeOracleMediatorEvent = SpeedTracerLogger.start(CompilerEventType.TYPE_ORACLE_MEDIATOR);
 
     // First collect all class data.
     Event visitClassFileEvent = SpeedTracerLogger.start(
         CompilerEventType.TYPE_ORACLE_MEDIATOR, "phase", "Visit Class Files");
-    TypeOracleBuildContext context = new TypeOracleBuildContext(argsLookup);
+    TypeOracleBuildContext context = new TypeOracleBuildContext(logger, argsLookup);
 
     for (TypeData typeData : typeDataList) {
       CollectClassData cv = typeData.getCollectClassData();
@@ -446,7 +470,9 @@ public class TypeOracleMediator extends TypeOracleBuilder {
     super.finish();
     finishEvent.end();
 
-    // no longer needed
+    // No longer needed, except for types whose members are still unresolved.
+    context.classMap.clear();
+    context.classMapType.clear();
     context = null;
     typeOracleMediatorEvent.end();
   }
@@ -464,7 +490,8 @@ public class TypeOracleMediator extends TypeOracleBuilder {
    * @return a mocked up version of this mediator's resolver.
    */
   public Resolver getMockResolver() {
-    return new TypeOracleMediatorResolver(new TypeOracleBuildContext(new MethodArgNamesLookup()));
+    return new TypeOracleMediatorResolver(new TypeOracleBuildContext(TreeLogger.NULL,
+        new MethodArgNamesLookup()));
   }
 
   /**
@@ -854,25 +881,12 @@ public class TypeOracleMediator extends TypeOracleBuilder {
       assert "java/lang/Object".equals(classData.getName());
     }
 
-    // Process methods
-    for (CollectMethodData method : classData.getMethods()) {
-      if (!resolveMethod(logger, type, method, typeParamLookup, context)) {
-        logger.log(TreeLogger.WARN, "Unable to resolve method " + method);
-        return false;
-      }
-    }
-
-    // Process fields
-    // Track the next enum ordinal across resolveField calls.
-    int[] nextEnumOrdinal = new int[]{0};
-    for (CollectFieldData field : classData.getFields()) {
-      if (!resolveField(logger, type, field, typeParamLookup, nextEnumOrdinal, context)) {
-        logger.log(TreeLogger.WARN, "Unable to resolve field " + field);
-        return false;
-      }
+    if (LAZY_MEMBERS) {
+      context.unresolvedMembers.put(type, classData);
+      setLazyMemberResolver(type, context);
+      return true;
     }
-
-    return true;
+    return resolveMembers(logger, type, classData, typeParamLookup, context);
   }
 
   private boolean resolveClass(TreeLogger logger, JType type, TypeOracleBuildContext context) {
@@ -996,6 +1010,48 @@ public class TypeOracleMediator extends TypeOracleBuilder {
     return true;
   }
 
+  /**
+   * Resolves the members of a type whose resolution was deferred.
+   */
+  private synchronized void resolveLazyMembers(JRealClassType type,
+      TypeOracleBuildContext context) {
+    CollectClassData classData = context.unresolvedMembers.remove(type);
+    if (classData == null) {
+      // Already resolved, or being resolved further up this thread's stack.
+      return;
+    }
+    TreeLogger logger = context.logger.branch(TreeLogger.SPAM,
+        "Resolving members of " + type.getQualifiedSourceName());
+    TypeParameterLookup typeParamLookup = new TypeParameterLookup();
+    typeParamLookup.pushEnclosingScopes(type);
+    resolveMembers(logger, type, classData, typeParamLookup, context);
+    setLazyMemberResolver(type, null);
+  }
+
+  private boolean resolveMembers(TreeLogger logger, JRealClassType type,
+      CollectClassData classData, TypeParameterLookup typeParamLookup,
+      TypeOracleBuildContext context) {
+    // Process methods
+    for (CollectMethodData method : classData.getMethods()) {
+      if (!resolveMethod(logger, type, method, typeParamLookup, context)) {
+        logger.log(TreeLogger.WARN, "Unable to resolve method " + method);
+        return false;
+      }
+    }
+
+    // Process fields
+    // Track the next enum ordinal across resolveField calls.
+    int[] nextEnumOrdinal = new int[]{0};
+    for (CollectFieldData field : classData.getFields()) {
+      if (!resolveField(logger, type, field, typeParamLookup, nextEnumOrdinal, context)) {
+        logger.log(TreeLogger.WARN, "Unable to resolve field " + field);
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   private boolean resolveMethod(TreeLogger logger, JRealClassType type,
       CollectMethodData methodData, TypeParameterLookup typeParamLookup,
       TypeOracleBuildContext context) {
@@ -72,13 +72,13 @@ public class JParameterizedType extends JMaybeParameterizedType implements
 
   private final JClassType enclosingType;
 
-  private List<JClassType> interfaces;
+  private volatile List<JClassType> interfaces;
 
   /**
    * This map records the JClassType that should be used in place of a given
    * {@link JTypeParameter}.
    */
-  private Map<JTypeParameter, JClassType> lazySubstitutionMap;
+  private volatile Map<JTypeParameter, JClassType> lazySubstitutionMap;
 
   private JClassType lazySuperclass;
 
@@ -157,13 +157,13 @@ public class JParameterizedType extends JMaybeParameterizedType implements
   @Override
   public JClassType[] getImplementedInterfaces() {
     if (interfaces == null) {
-      interfaces = new ArrayList<JClassType>();
+      List<JClassType> newInterfaces = new ArrayList<JClassType>();
       JClassType[] intfs = getBaseType().getImplementedInterfaces();
       for (JClassType intf : intfs) {
         JClassType newIntf = intf.getSubstitutedType(this);
-        interfaces.add(newIntf);
+        newInterfaces.add(newIntf);
       }
-      interfaces = Lists.normalize(interfaces);
+      interfaces = Lists.normalize(newInterfaces);
     }
     return interfaces.toArray(TypeOracle.NO_JCLASSES);
   }
@@ -442,7 +442,8 @@ public class JParameterizedType extends JMaybeParameterizedType implements
     if (lazySubstitutionMap != null) {
       return;
     }
-    lazySubstitutionMap = new IdentityHashMap<JTypeParameter, JClassType>();
+    Map<JTypeParameter, JClassType> substitutionMap =
+        new IdentityHashMap<JTypeParameter, JClassType>();
 
     JParameterizedType currentParameterizedType = this;
 
@@ -452,7 +453,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
       JClassType[] typeArguments = currentParameterizedType.getTypeArgs();
 
       for (JTypeParameter typeParameter : typeParameters) {
-        lazySubstitutionMap.put(typeParameter,
+        substitutionMap.put(typeParameter,
             typeArguments[typeParameter.getOrdinal()]);
       }
 
@@ -467,7 +468,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
       }
       currentParameterizedType = maybeParameterizedType.isParameterized();
     }
-    lazySubstitutionMap = Maps.normalize(lazySubstitutionMap);
+    lazySubstitutionMap = Maps.normalize(substitutionMap);
   }
 
   void setTypeArguments(JClassType[] typeArgs) {
@@ -32,7 +32,7 @@ public class JRawType extends JMaybeParameterizedType implements
     }
   };
 
-  private List<JClassType> interfaces;
+  private volatile List<JClassType> interfaces;
 
   private final AbstractMembers members;
 
@@ -93,12 +93,13 @@ public class JRawType extends JMaybeParameterizedType implements
   @Override
   public JClassType[] getImplementedInterfaces() {
     if (interfaces == null) {
-      interfaces = new ArrayList<JClassType>();
+      List<JClassType> newInterfaces = new ArrayList<JClassType>();
       JClassType[] intfs = getBaseType().getImplementedInterfaces();
       for (JClassType intf : intfs) {
         JClassType newIntf = intf.getErasedType();
-        interfaces.add(newIntf);
+        newInterfaces.add(newIntf);
       }
+      interfaces = newInterfaces;
     }
     return interfaces.toArray(TypeOracle.NO_JCLASSES);
   }
@@ -52,6 +52,12 @@ public class JRealClassType extends JClassType implements
 
   private String lazyQualifiedName;
 
+  /**
+   * Adds this type's members on first access; <code>null</code> once they have
+   * been added.
+   */
+  private volatile TypeOracleBuilder.LazyMemberResolver lazyMemberResolver;
+
   private final Members members = new Members(this);
 
   private int modifierBits;
@@ -112,16 +118,19 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public JConstructor findConstructor(JType[] paramTypes) {
+    ensureMembersResolved();
     return members.findConstructor(paramTypes);
   }
 
   @Override
   public JField findField(String name) {
+    ensureMembersResolved();
     return members.findField(name);
   }
 
   @Override
   public JMethod findMethod(String name, JType[] paramTypes) {
+    ensureMembersResolved();
     return members.findMethod(name, paramTypes);
   }
 
@@ -142,11 +151,13 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public JConstructor getConstructor(JType[] paramTypes) throws NotFoundException {
+    ensureMembersResolved();
     return members.getConstructor(paramTypes);
   }
 
   @Override
   public JConstructor[] getConstructors() {
+    ensureMembersResolved();
     return members.getConstructors();
   }
 
@@ -167,11 +178,13 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public JField getField(String name) {
+    ensureMembersResolved();
     return members.getField(name);
   }
 
   @Override
   public JField[] getFields() {
+    ensureMembersResolved();
     return members.getFields();
   }
 
@@ -182,6 +195,7 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public JMethod[] getInheritableMethods() {
+    ensureMembersResolved();
     return members.getInheritableMethods();
   }
 
@@ -202,11 +216,13 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public JMethod getMethod(String name, JType[] paramTypes) throws NotFoundException {
+    ensureMembersResolved();
     return members.getMethod(name, paramTypes);
   }
 
   @Override
   public JMethod[] getMethods() {
+    ensureMembersResolved();
     return members.getMethods();
   }
 
@@ -232,11 +248,13 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public JMethod[] getOverloads(String name) {
+    ensureMembersResolved();
     return members.getOverloads(name);
   }
 
   @Override
   public JMethod[] getOverridableMethods() {
+    ensureMembersResolved();
     return members.getOverridableMethods();
   }
 
@@ -455,6 +473,7 @@ public class JRealClassType extends JClassType implements
   @Override
   protected void getInheritableMethodsOnSuperclassesAndThisClass(
       Map<String, JMethod> methodsBySignature) {
+    ensureMembersResolved();
     members.getInheritableMethodsOnSuperclassesAndThisClass(methodsBySignature);
   }
 
@@ -469,6 +488,7 @@ public class JRealClassType extends JClassType implements
   @Override
   protected void getInheritableMethodsOnSuperinterfacesAndMaybeThisInterface(
       Map<String, JMethod> methodsBySignature) {
+    ensureMembersResolved();
     members.getInheritableMethodsOnSuperinterfacesAndMaybeThisInterface(methodsBySignature);
   }
 
@@ -549,6 +569,10 @@ public class JRealClassType extends JClassType implements
     enclosingType.addNestedType(this);
   }
 
+  void setLazyMemberResolver(TypeOracleBuilder.LazyMemberResolver resolver) {
+    lazyMemberResolver = resolver;
+  }
+
   @Override
   void setSuperclass(JClassType type) {
     assert (type != null);
@@ -566,4 +590,11 @@ public class JRealClassType extends JClassType implements
     }
     annotations.setParent(realSuperType.annotations);
   }
+
+  private void ensureMembersResolved() {
+    TypeOracleBuilder.LazyMemberResolver resolver = lazyMemberResolver;
+    if (resolver != null) {
+      resolver.resolveMembers(this);
+    }
+  }
 }
@@ -53,6 +53,8 @@ import java.util.Set;
  * {@link com.google.gwt.core.ext.typeinfo.JClassType} and others, have a stable
  * identity relative to this type oracle instance. Consequently, you can
  * reliably compare object identity of any objects this type oracle produces.
+ * Derived types (arrays, parameterizations, wildcards) keep that identity even
+ * when generators running on several threads ask for them at the same time.
  * For example, the following code relies on this stable identity guarantee:
  * 
  * <pre>
@@ -412,7 +414,7 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
    * @return a type object representing an array of the component type
    */
   @Override
-  public JArrayType getArrayType(JType componentType) {
+  public synchronized JArrayType getArrayType(JType componentType) {
     JArrayType arrayType = arrayTypes.get(componentType);
     if (arrayType == null) {
       arrayType = new JArrayType(componentType, this);
@@ -497,7 +499,7 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
    * @throws NullPointerException if genericType is <code>null</code>
    */
   @Override
-  public JParameterizedType getParameterizedType(
+  public synchronized JParameterizedType getParameterizedType(
       com.google.gwt.core.ext.typeinfo.JGenericType extGenericType,
       com.google.gwt.core.ext.typeinfo.JClassType extEnclosingType,
       com.google.gwt.core.ext.typeinfo.JClassType[] extTypeArgs) {
@@ -650,7 +652,7 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
   }
 
   @Override
-  public JWildcardType getWildcardType(
+  public synchronized JWildcardType getWildcardType(
       com.google.gwt.core.ext.typeinfo.JWildcardType.BoundType boundType,
       com.google.gwt.core.ext.typeinfo.JClassType extTypeBound) {
     // Special fast case for <? extends Object>
@@ -29,6 +29,18 @@ import java.util.Map;
  * stable. It is subject to change.
  */
 public class TypeOracleBuilder {
+  /**
+   * Adds the members of a type the first time any of them are asked for.
+   */
+  protected interface LazyMemberResolver {
+    /**
+     * Adds the constructors, methods and fields of <code>type</code>, then
+     * clears the type's resolver. May be called more than once, and from
+     * several threads.
+     */
+    void resolveMembers(JRealClassType type);
+  }
+
   /**
    * The TypeOracle being built.
    */
@@ -127,6 +139,15 @@ public class TypeOracleBuilder {
     jfield.setType(fieldType);
   }
 
+  /**
+   * Defers adding the members of <code>type</code> until one of them is asked
+   * for. Pass <code>null</code> once the members have been added.
+   */
+  protected void setLazyMemberResolver(JRealClassType type,
+      LazyMemberResolver resolver) {
+    type.setLazyMemberResolver(resolver);
+  }
+
   protected void setReturnType(JAbstractMethod method, JType returnType) {
     ((JMethod) method).setReturnType(returnType);
   }
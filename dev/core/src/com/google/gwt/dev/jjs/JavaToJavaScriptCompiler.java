@@ -339,7 +339,7 @@ public class JavaToJavaScriptCompiler {
       if (options.isRunAsyncEnabled()) {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         CodeSplitter.exec(logger, jprogram, jsProgram, jjsmap, chooseDependencyRecorder(options
-            .isSoycEnabled(), baos));
+            .isSoycEnabled(), baos), propertyOracles);
         if (baos.size() == 0 && options.isSoycEnabled()) {
           recordNonSplitDependencies(jprogram, baos);
         }
@@ -524,6 +524,10 @@ public class JavaToJavaScriptCompiler {
     JsProgram jsProgram = new JsProgram();
 
     try {
+      if (module != null && options.isRunAsyncEnabled()) {
+        CodeSplitter.pickSplitPointMerging(logger, jprogram, module.getProperties());
+      }
+
       // (2) Assemble the Java AST.
       UnifyAst unifyAst = new UnifyAst(jprogram, jsProgram, options, rpo);
       unifyAst.addRootTypes(allRootTypes);
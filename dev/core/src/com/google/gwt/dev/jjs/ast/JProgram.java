@@ -342,6 +342,12 @@ public class JProgram extends JNode {
 
   private final Map<JMethod, JMethod> instanceToStaticMap = new IdentityHashMap<JMethod, JMethod>();
 
+  /**
+   * Filled in by CodeSplitter when it merges the exclusive code of several
+   * split points into a single fragment.
+   */
+  private Map<Integer, Integer> mergedSplitPoints = Collections.emptyMap();
+
   private Map<JReferenceType, Integer> queryIdsByType;
 
   /**
@@ -351,6 +357,11 @@ public class JProgram extends JNode {
 
   private List<Integer> splitPointInitialSequence = Lists.create();
 
+  /**
+   * Whether CodeSplitter may merge the exclusive code of several split points.
+   */
+  private boolean splitPointMergingEnabled;
+
   private final Map<JMethod, JMethod> staticToInstanceMap = new IdentityHashMap<JMethod, JMethod>();
 
   private JClassType typeClass;
@@ -616,7 +627,10 @@ public class JProgram extends JNode {
    * over without introducing nondeterminism.
    */
   public List<JArrayType> getAllArrayTypes() {
-    ArrayList<JArrayType> result = new ArrayList<JArrayType>(arrayTypes.values());
+    ArrayList<JArrayType> result;
+    synchronized (arrayTypes) {
+      result = new ArrayList<JArrayType>(arrayTypes.values());
+    }
     Collections.sort(result, ARRAYTYPE_COMPARATOR);
     return result;
   }
@@ -733,6 +747,14 @@ public class JProgram extends JNode {
     return new JStringLiteral(sourceInfo, s, typeString);
   }
 
+  /**
+   * Returns a map from each split point whose exclusive code was merged into
+   * another split point's fragment to the number of that fragment.
+   */
+  public Map<Integer, Integer> getMergedSplitPoints() {
+    return mergedSplitPoints;
+  }
+
   public JField getNullField() {
     return JField.NULL_FIELD;
   }
@@ -763,13 +785,20 @@ public class JProgram extends JNode {
     return instanceToStaticMap.get(method);
   }
 
+  /**
+   * Returns the array type of <code>elementType</code>, creating it if
+   * necessary. Safe to call from concurrent analyses, such as the liveness
+   * analyses of {@link com.google.gwt.dev.jjs.impl.CodeSplitter}.
+   */
   public JArrayType getTypeArray(JType elementType) {
-    JArrayType arrayType = arrayTypes.get(elementType);
-    if (arrayType == null) {
-      arrayType = new JArrayType(elementType);
-      arrayTypes.put(elementType, arrayType);
+    synchronized (arrayTypes) {
+      JArrayType arrayType = arrayTypes.get(elementType);
+      if (arrayType == null) {
+        arrayType = new JArrayType(elementType);
+        arrayTypes.put(elementType, arrayType);
+      }
+      return arrayType;
     }
-    return arrayType;
   }
 
   public JArrayType getTypeArray(JType leafType, int dimensions) {
@@ -890,6 +919,10 @@ public class JProgram extends JNode {
     return false;
   }
 
+  public boolean isSplitPointMergingEnabled() {
+    return splitPointMergingEnabled;
+  }
+
   public boolean isStaticImpl(JMethod method) {
     return staticToInstanceMap.containsKey(method);
   }
@@ -939,6 +972,10 @@ public class JProgram extends JNode {
     }
   }
 
+  public void setMergedSplitPoints(Map<Integer, Integer> mergedSplitPoints) {
+    this.mergedSplitPoints = new HashMap<Integer, Integer>(mergedSplitPoints);
+  }
+
   public void setRunAsyncs(List<JRunAsync> runAsyncs) {
     this.runAsyncs = Lists.normalizeUnmodifiable(runAsyncs);
   }
@@ -948,6 +985,10 @@ public class JProgram extends JNode {
     splitPointInitialSequence = new ArrayList<Integer>(list);
   }
 
+  public void setSplitPointMergingEnabled(boolean splitPointMergingEnabled) {
+    this.splitPointMergingEnabled = splitPointMergingEnabled;
+  }
+
   /**
    * If <code>method</code> is a static impl method, returns the instance method
    * that <code>method</code> is the implementation of. Otherwise, returns
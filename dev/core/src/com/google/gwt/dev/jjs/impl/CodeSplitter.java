@@ -15,6 +15,8 @@
  */
 package com.google.gwt.dev.jjs.impl;
 
+import com.google.gwt.core.ext.BadPropertyValueException;
+import com.google.gwt.core.ext.PropertyOracle;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.dev.cfg.ConfigurationProperty;
@@ -48,6 +50,7 @@ import com.google.gwt.dev.js.ast.JsBlock;
 import com.google.gwt.dev.js.ast.JsExprStmt;
 import com.google.gwt.dev.js.ast.JsExpression;
 import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsName;
 import com.google.gwt.dev.js.ast.JsProgram;
 import com.google.gwt.dev.js.ast.JsStatement;
 import com.google.gwt.dev.js.ast.JsVars;
@@ -61,12 +64,20 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * <p>
@@ -159,6 +170,64 @@ public class CodeSplitter {
     }
   }
 
+  /**
+   * Densely numbers the atoms of one kind that are live in the complete
+   * program, so that the atoms live in any other control flow analysis can be
+   * recorded as a {@link BitSet}.
+   */
+  private static class AtomIndex<T> {
+    private final List<T> atoms = new ArrayList<T>();
+    private final Map<T, Integer> indexes = new HashMap<T, Integer>();
+
+    public AtomIndex(Iterable<? extends T> all) {
+      for (T atom : all) {
+        if (!indexes.containsKey(atom)) {
+          indexes.put(atom, atoms.size());
+          atoms.add(atom);
+        }
+      }
+    }
+
+    public T get(int index) {
+      return atoms.get(index);
+    }
+
+    /**
+     * Sets the bit of each atom in <code>live</code>. Anything that is not
+     * indexed is ignored.
+     */
+    public void setLive(BitSet bits, Iterable<?> live) {
+      for (Object atom : live) {
+        Integer index = indexes.get(atom);
+        if (index != null) {
+          bits.set(index);
+        }
+      }
+    }
+
+    public int size() {
+      return atoms.size();
+    }
+
+    /**
+     * Map every indexed atom whose bit is clear in <code>liveWithoutEntry</code>
+     * to <code>entry</code>.
+     */
+    public void updateMap(int entry, Map<T, Integer> map, BitSet liveWithoutEntry) {
+      for (int i = liveWithoutEntry.nextClearBit(0); i < atoms.size(); i =
+          liveWithoutEntry.nextClearBit(i + 1)) {
+        /*
+         * Note that it is fine to overwrite a preexisting entry in the map. If
+         * an atom is dead until split point i has been reached, and is also
+         * dead until entry j has been reached, then it is dead until both have
+         * been reached. Thus, it can be downloaded along with either i's or j's
+         * code.
+         */
+        map.put(atoms.get(i), entry);
+      }
+    }
+  }
+
   /**
    * A map from program atoms to the split point, if any, that they are
    * exclusive to. Atoms not exclusive to any split point are either mapped to 0
@@ -216,6 +285,110 @@ public class CodeSplitter {
     }
   }
 
+  /**
+   * The atoms that are live in one control flow analysis, as bits in the
+   * indexes of a {@link ProgramAtoms}. This is much smaller than the analysis
+   * itself, so one can be kept for every split point.
+   */
+  private static class LiveAtoms {
+    public final BitSet fields = new BitSet();
+    public final BitSet methods = new BitSet();
+    public final BitSet strings = new BitSet();
+    public final BitSet types = new BitSet();
+  }
+
+  /**
+   * Indexes of all the atoms that are live in the complete program.
+   */
+  private static class ProgramAtoms {
+    private final AtomIndex<JField> fields;
+    private final AtomIndex<JMethod> methods;
+    private final AtomIndex<String> strings;
+    private final AtomIndex<JDeclaredType> types;
+
+    public ProgramAtoms(ControlFlowAnalyzer everything) {
+      List<JField> allFields = new ArrayList<JField>();
+      List<JMethod> allMethods = new ArrayList<JMethod>();
+      for (JNode node : everything.getLiveFieldsAndMethods()) {
+        if (node instanceof JField) {
+          allFields.add((JField) node);
+        }
+        if (node instanceof JMethod) {
+          allMethods.add((JMethod) node);
+        }
+      }
+      allFields.addAll(everything.getFieldsWritten());
+      fields = new AtomIndex<JField>(allFields);
+      methods = new AtomIndex<JMethod>(allMethods);
+      strings = new AtomIndex<String>(everything.getLiveStrings());
+      types = new AtomIndex<JDeclaredType>(declaredTypesIn(everything.getInstantiatedTypes()));
+    }
+
+    /**
+     * Estimates the size in characters of JavaScript of each atom, numbered as
+     * in {@link #toBitSet(LiveAtoms)}. Methods are measured by their generated
+     * functions and strings by their length; fields and types are small in
+     * comparison and count as one.
+     */
+    public int[] estimateSizes(JavaToJavaScriptMap map) {
+      int[] sizes = new int[fields.size() + methods.size() + strings.size() + types.size()];
+      Arrays.fill(sizes, 1);
+      int offset = fields.size();
+      for (int i = 0; i < methods.size(); i++) {
+        JsName name = map.nameForMethod(methods.get(i));
+        if (name != null && name.getStaticRef() instanceof JsFunction) {
+          sizes[offset + i] = name.getStaticRef().toSource().length();
+        }
+      }
+      offset += methods.size();
+      for (int i = 0; i < strings.size(); i++) {
+        sizes[offset + i] = Math.max(1, strings.get(i).length());
+      }
+      return sizes;
+    }
+
+    public LiveAtoms liveIn(ControlFlowAnalyzer cfa) {
+      LiveAtoms live = new LiveAtoms();
+      fields.setLive(live.fields, cfa.getLiveFieldsAndMethods());
+      fields.setLive(live.fields, cfa.getFieldsWritten());
+      methods.setLive(live.methods, cfa.getLiveFieldsAndMethods());
+      strings.setLive(live.strings, cfa.getLiveStrings());
+      types.setLive(live.types, cfa.getInstantiatedTypes());
+      return live;
+    }
+
+    /**
+     * Returns all the bits of <code>live</code> in a single set, with fields,
+     * methods, strings and types numbered in that order.
+     */
+    public BitSet toBitSet(LiveAtoms live) {
+      BitSet bits = new BitSet();
+      int offset = append(bits, 0, live.fields, fields.size());
+      offset = append(bits, offset, live.methods, methods.size());
+      offset = append(bits, offset, live.strings, strings.size());
+      append(bits, offset, live.types, types.size());
+      return bits;
+    }
+
+    /**
+     * Map every atom that is not live without <code>entry</code> to
+     * <code>entry</code>.
+     */
+    public void updateMap(int entry, ExclusivityMap fragmentMap, LiveAtoms liveWithoutEntry) {
+      fields.updateMap(entry, fragmentMap.fields, liveWithoutEntry.fields);
+      methods.updateMap(entry, fragmentMap.methods, liveWithoutEntry.methods);
+      strings.updateMap(entry, fragmentMap.strings, liveWithoutEntry.strings);
+      types.updateMap(entry, fragmentMap.types, liveWithoutEntry.types);
+    }
+
+    private int append(BitSet bits, int offset, BitSet part, int partSize) {
+      for (int i = part.nextSetBit(0); i >= 0; i = part.nextSetBit(i + 1)) {
+        bits.set(offset + i);
+      }
+      return offset + partSize;
+    }
+  }
+
   /**
    * A {@link MultipleDependencyGraphRecorder} that does nothing.
    */
@@ -239,6 +412,17 @@ public class CodeSplitter {
 
   private static final String PROP_INITIAL_SEQUENCE = "compiler.splitpoint.initial.sequence";
 
+  private static final String PROP_MERGE_COUNT = "compiler.splitpoint.merge.count";
+
+  private static final String PROP_MERGE_MIN_SIZE = "compiler.splitpoint.merge.minsize";
+
+  /**
+   * A Java property that sets how many threads compute the per-split point
+   * analyses. Permutations may already be compiled in parallel, so this
+   * defaults to at most four.
+   */
+  private static final String PROP_ANALYSIS_THREADS = "gwt.jjs.codeSplitterThreads";
+
   /**
    * A Java property that causes the fragment map to be logged.
    */
@@ -249,14 +433,18 @@ public class CodeSplitter {
   }
 
   public static void exec(TreeLogger logger, JProgram jprogram, JsProgram jsprogram,
-      JavaToJavaScriptMap map, MultipleDependencyGraphRecorder dependencyRecorder) {
+      JavaToJavaScriptMap map, MultipleDependencyGraphRecorder dependencyRecorder,
+      PropertyOracle[] propertyOracles) {
     if (jprogram.getRunAsyncs().size() == 0) {
       // Don't do anything if there is no call to runAsync
       return;
     }
     Event codeSplitterEvent = SpeedTracerLogger.start(CompilerEventType.CODE_SPLITTER);
+    int mergeCount = getIntConfigurationProperty(logger, propertyOracles, PROP_MERGE_COUNT, -1);
+    int mergeMinSize = getIntConfigurationProperty(logger, propertyOracles, PROP_MERGE_MIN_SIZE, 0);
     dependencyRecorder.open();
-    new CodeSplitter(logger, jprogram, jsprogram, map, dependencyRecorder).execImpl();
+    new CodeSplitter(logger, jprogram, jsprogram, map, dependencyRecorder, mergeCount,
+        mergeMinSize).execImpl();
     dependencyRecorder.close();
     codeSplitterEvent.end();
   }
@@ -396,6 +584,19 @@ public class CodeSplitter {
     codeSplitterEvent.end();
   }
 
+  /**
+   * Record in the program whether the module allows split points to be merged.
+   * If it doesn't, nothing ever calls
+   * {@link com.google.gwt.core.client.impl.AsyncFragmentLoader#setFragmentForSplitPoint(int, int)}
+   * and it can be pruned.
+   */
+  public static void pickSplitPointMerging(TreeLogger logger, JProgram program,
+      Properties properties) {
+    int mergeCount = getIntConfigurationProperty(logger, properties, PROP_MERGE_COUNT, -1);
+    int mergeMinSize = getIntConfigurationProperty(logger, properties, PROP_MERGE_MIN_SIZE, 0);
+    program.setSplitPointMergingEnabled(mergeCount >= 0 || mergeMinSize > 0);
+  }
+
   /**
    * <p>
    * Computes the "maximum total script size" for one permutation. The total
@@ -469,6 +670,39 @@ public class CodeSplitter {
     return method.getEnclosingType().getName() + "." + JProgram.getJsniSig(method);
   }
 
+  /**
+   * Reads an integer configuration property, which is the same in every
+   * permutation.
+   */
+  private static int getIntConfigurationProperty(TreeLogger logger,
+      PropertyOracle[] propertyOracles, String name, int defaultValue) {
+    if (propertyOracles.length == 0) {
+      return defaultValue;
+    }
+    List<String> values;
+    try {
+      values = propertyOracles[0].getConfigurationProperty(name).getValues();
+    } catch (BadPropertyValueException e) {
+      // Not defined by this module
+      return defaultValue;
+    }
+    return parseIntConfigurationProperty(logger, name, values, defaultValue);
+  }
+
+  /**
+   * Reads an integer configuration property from the module's properties.
+   */
+  private static int getIntConfigurationProperty(TreeLogger logger, Properties properties,
+      String name, int defaultValue) {
+    Property p = properties.find(name);
+    if (!(p instanceof ConfigurationProperty)) {
+      // Not defined by this module
+      return defaultValue;
+    }
+    return parseIntConfigurationProperty(logger, name, ((ConfigurationProperty) p).getValues(),
+        defaultValue);
+  }
+
   private static <T> int getOrZero(Map<T, Integer> map, T key) {
     Integer value = map.get(key);
     return (value == null) ? 0 : value;
@@ -532,6 +766,20 @@ public class CodeSplitter {
     logger.log(TreeLogger.TRACE, message.toString());
   }
 
+  private static int parseIntConfigurationProperty(TreeLogger logger, String name,
+      List<String> values, int defaultValue) {
+    if (values.isEmpty() || values.get(0) == null) {
+      return defaultValue;
+    }
+    String value = values.get(0).trim();
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      logger.log(TreeLogger.WARN, "Ignoring non-integer value '" + value + "' of " + name);
+      return defaultValue;
+    }
+  }
+
   private static Map<String, List<Integer>> reverseByName(List<JRunAsync> runAsyncs) {
     Map<String, List<Integer>> revmap = new HashMap<String, List<Integer>>();
     for (JRunAsync replacement : runAsyncs) {
@@ -584,29 +832,6 @@ public class CodeSplitter {
     }
   }
 
-  private static <T> Set<T> union(Set<? extends T> set1, Set<? extends T> set2) {
-    Set<T> union = new HashSet<T>();
-    union.addAll(set1);
-    union.addAll(set2);
-    return union;
-  }
-
-  private static <T> void updateMap(int entry, Map<T, Integer> map, Set<?> liveWithoutEntry,
-      Iterable<T> all) {
-    for (T each : all) {
-      if (!liveWithoutEntry.contains(each)) {
-        /*
-         * Note that it is fine to overwrite a preexisting entry in the map. If
-         * an atom is dead until split point i has been reached, and is also
-         * dead until entry j has been reached, then it is dead until both have
-         * been reached. Thus, it can be downloaded along with either i's or j's
-         * code.
-         */
-        map.put(each, entry);
-      }
-    }
-  }
-
   private final MultipleDependencyGraphRecorder dependencyRecorder;
   private final FragmentExtractor fragmentExtractor;
   private final LinkedHashSet<Integer> initialLoadSequence;
@@ -626,16 +851,36 @@ public class CodeSplitter {
   private final TreeLogger logger;
   private final boolean logging;
   private final JavaToJavaScriptMap map;
+
+  /**
+   * Split points whose exclusive code was merged into the fragment of another
+   * split point, mapped to that split point.
+   */
+  private final Map<Integer, Integer> mergedSplitPoints = new TreeMap<Integer, Integer>();
+
+  /**
+   * The maximum number of exclusive fragments, or -1 for one per split point.
+   */
+  private final int mergeCount;
+
+  /**
+   * The estimated size below which exclusive fragments are merged, or 0 to
+   * never merge small fragments.
+   */
+  private final int mergeMinSize;
   private final Set<JMethod> methodsInJavaScript;
   private final int numEntries;
 
   private CodeSplitter(TreeLogger logger, JProgram jprogram, JsProgram jsprogram,
-      JavaToJavaScriptMap map, MultipleDependencyGraphRecorder dependencyRecorder) {
+      JavaToJavaScriptMap map, MultipleDependencyGraphRecorder dependencyRecorder,
+      int mergeCount, int mergeMinSize) {
     this.logger = logger.branch(TreeLogger.TRACE, "Splitting JavaScript for incremental download");
     this.jprogram = jprogram;
     this.jsprogram = jsprogram;
     this.map = map;
     this.dependencyRecorder = dependencyRecorder;
+    this.mergeCount = mergeCount;
+    this.mergeMinSize = mergeMinSize;
     this.initialLoadSequence = new LinkedHashSet<Integer>(jprogram.getSplitPointInitialSequence());
 
     numEntries = jprogram.getRunAsyncs().size() + 1;
@@ -674,38 +919,67 @@ public class CodeSplitter {
   }
 
   /**
-   * For each split point other than those in the initial load sequence, compute
-   * a CFA that traces every other split point. For those that are in the
-   * initial load sequence, add a <code>null</code> to the list.
+   * Compute a CFA that traces every split point other than
+   * <code>runAsync</code> and those in the initial load sequence.
    */
-  private List<ControlFlowAnalyzer> computeAllButOneCfas() {
-    String dependencyGraphNameAfterInitialSequence = dependencyGraphNameAfterInitialSequence();
-
-    List<ControlFlowAnalyzer> allButOnes = new ArrayList<ControlFlowAnalyzer>();
-    for (JRunAsync runAsync : jprogram.getRunAsyncs()) {
-      int splitPoint = runAsync.getSplitPoint();
-      if (isInitial(splitPoint)) {
-        allButOnes.add(null);
+  private ControlFlowAnalyzer computeAllButOneCfa(JRunAsync runAsync,
+      DependencyRecorder recorder) {
+    ControlFlowAnalyzer cfa = new ControlFlowAnalyzer(liveAfterInitialSequence);
+    cfa.setDependencyRecorder(recorder);
+    for (JRunAsync otherRunAsync : jprogram.getRunAsyncs()) {
+      if (isInitial(otherRunAsync.getSplitPoint())) {
         continue;
       }
-      dependencyRecorder.startDependencyGraph("sp" + splitPoint,
-          dependencyGraphNameAfterInitialSequence);
-      ControlFlowAnalyzer cfa = new ControlFlowAnalyzer(liveAfterInitialSequence);
-      cfa.setDependencyRecorder(dependencyRecorder);
-      for (JRunAsync otherRunAsync : jprogram.getRunAsyncs()) {
-        if (isInitial(otherRunAsync.getSplitPoint())) {
-          continue;
-        }
-        if (otherRunAsync == runAsync) {
+      if (otherRunAsync == runAsync) {
+        continue;
+      }
+      cfa.traverseFromRunAsync(otherRunAsync);
+    }
+    return cfa;
+  }
+
+  /**
+   * For each split point other than those in the initial load sequence, compute
+   * the atoms that are live when every other split point has been traced. For
+   * those that are in the initial load sequence, add a <code>null</code> to the
+   * list. The analyses are independent of each other, so unless dependencies
+   * are being recorded they are run on several threads. Besides reading the
+   * AST they only create array types, which {@link JProgram#getTypeArray} does
+   * under a lock.
+   */
+  private List<LiveAtoms> computeAllButOneLiveness(final ProgramAtoms atoms) {
+    List<JRunAsync> runAsyncs = jprogram.getRunAsyncs();
+    if (dependencyRecorder != NULL_RECORDER) {
+      List<LiveAtoms> allButOnes = new ArrayList<LiveAtoms>();
+      String dependencyGraphNameAfterInitialSequence = dependencyGraphNameAfterInitialSequence();
+      for (JRunAsync runAsync : runAsyncs) {
+        int splitPoint = runAsync.getSplitPoint();
+        if (isInitial(splitPoint)) {
+          allButOnes.add(null);
           continue;
         }
-        cfa.traverseFromRunAsync(otherRunAsync);
+        dependencyRecorder.startDependencyGraph("sp" + splitPoint,
+            dependencyGraphNameAfterInitialSequence);
+        ControlFlowAnalyzer cfa = computeAllButOneCfa(runAsync, dependencyRecorder);
+        dependencyRecorder.endDependencyGraph();
+        allButOnes.add(atoms.liveIn(cfa));
       }
-      dependencyRecorder.endDependencyGraph();
-      allButOnes.add(cfa);
+      return allButOnes;
     }
 
-    return allButOnes;
+    List<Callable<LiveAtoms>> analyses = new ArrayList<Callable<LiveAtoms>>();
+    for (final JRunAsync runAsync : runAsyncs) {
+      if (isInitial(runAsync.getSplitPoint())) {
+        analyses.add(null);
+        continue;
+      }
+      analyses.add(new Callable<LiveAtoms>() {
+        public LiveAtoms call() {
+          return atoms.liveIn(computeAllButOneCfa(runAsync, null));
+        }
+      });
+    }
+    return runAnalyses(analyses);
   }
 
   /**
@@ -798,6 +1072,11 @@ public class CodeSplitter {
       if (isInitial(i)) {
         continue;
       }
+      if (mergedSplitPoints.containsKey(i)) {
+        // Its code is downloaded with the fragment it was merged into
+        fragmentStats.put(i, new ArrayList<JsStatement>());
+        continue;
+      }
       LivenessPredicate alreadyLoaded = new ExclusivityMapLivenessPredicate(fragmentMap, 0);
       LivenessPredicate liveNow = new ExclusivityMapLivenessPredicate(fragmentMap, i);
       List<JsStatement> statsToAppend = fragmentExtractor.createOnLoadedCall(i);
@@ -808,9 +1087,22 @@ public class CodeSplitter {
      * Compute the leftovers fragment.
      */
     {
-      LivenessPredicate alreadyLoaded = new CfaLivenessPredicate(liveAfterInitialSequence);
+      ControlFlowAnalyzer loadedBeforeLeftovers = liveAfterInitialSequence;
+      if (jprogram.isSplitPointMergingEnabled() && mergedSplitPoints.isEmpty()) {
+        /*
+         * Nothing was merged, so nothing calls setFragmentForSplitPoint().
+         * Treating it as loaded keeps it out of the leftovers, the only
+         * fragment it would otherwise land in.
+         */
+        loadedBeforeLeftovers = new ControlFlowAnalyzer(liveAfterInitialSequence);
+        loadedBeforeLeftovers.traverseFrom(jprogram
+            .getIndexedMethod("AsyncFragmentLoader.setFragmentForSplitPoint"));
+      }
+      LivenessPredicate alreadyLoaded = new CfaLivenessPredicate(loadedBeforeLeftovers);
       LivenessPredicate liveNow = new ExclusivityMapLivenessPredicate(fragmentMap, 0);
-      List<JsStatement> statsToAppend = fragmentExtractor.createOnLoadedCall(numEntries);
+      List<JsStatement> statsToAppend =
+          new ArrayList<JsStatement>(fragmentExtractor.createSetFragmentCalls(mergedSplitPoints));
+      statsToAppend.addAll(fragmentExtractor.createOnLoadedCall(numEntries));
       addFragment(numEntries, alreadyLoaded, liveNow, statsToAppend, fragmentStats);
     }
 
@@ -970,38 +1262,133 @@ public class CodeSplitter {
    * exclusively live fragment associated with that split point.
    */
   private void mapExclusiveAtoms(ExclusivityMap fragmentMap) {
-    List<ControlFlowAnalyzer> allButOnes = computeAllButOneCfas();
+    ProgramAtoms atoms = new ProgramAtoms(computeCompleteCfa());
 
-    ControlFlowAnalyzer everything = computeCompleteCfa();
+    List<LiveAtoms> allButOnes = computeAllButOneLiveness(atoms);
 
-    Set<JField> allFields = new HashSet<JField>();
-    Set<JMethod> allMethods = new HashSet<JMethod>();
-
-    for (JNode node : everything.getLiveFieldsAndMethods()) {
-      if (node instanceof JField) {
-        allFields.add((JField) node);
-      }
-      if (node instanceof JMethod) {
-        allMethods.add((JMethod) node);
+    for (JRunAsync runAsync : jprogram.getRunAsyncs()) {
+      int splitPoint = runAsync.getSplitPoint();
+      if (isInitial(splitPoint)) {
+        continue;
       }
+      atoms.updateMap(splitPoint, fragmentMap, allButOnes.get(splitPoint - 1));
+    }
+
+    // Without the loader's setFragmentForSplitPoint(), merges can't be recorded
+    if (jprogram.isSplitPointMergingEnabled() && (mergeCount >= 0 || mergeMinSize > 0)) {
+      mergeFragments(atoms, fragmentMap);
     }
-    allFields.addAll(everything.getFieldsWritten());
+  }
 
+  /**
+   * Merge the exclusive fragments of split points that share code, until there
+   * are at most {@link #mergeCount} of them and none is smaller than
+   * {@link #mergeMinSize}. Code that is shared only by the split points of a
+   * group then moves out of the leftovers fragment and into the fragment of the
+   * group's first split point; the other split points of the group are
+   * recorded in {@link #mergedSplitPoints} and get empty fragments.
+   */
+  private void mergeFragments(final ProgramAtoms atoms, ExclusivityMap fragmentMap) {
+    final List<JRunAsync> candidates = new ArrayList<JRunAsync>();
+    List<Integer> splitPoints = new ArrayList<Integer>();
     for (JRunAsync runAsync : jprogram.getRunAsyncs()) {
-      int splitPoint = runAsync.getSplitPoint();
-      if (isInitial(splitPoint)) {
+      if (!isInitial(runAsync.getSplitPoint())) {
+        candidates.add(runAsync);
+        splitPoints.add(runAsync.getSplitPoint());
+      }
+    }
+    if (candidates.size() < 2) {
+      return;
+    }
+
+    // What each split point reaches beyond the initial load sequence
+    final BitSet base = atoms.toBitSet(atoms.liveIn(liveAfterInitialSequence));
+    List<Callable<LiveAtoms>> analyses = new ArrayList<Callable<LiveAtoms>>();
+    for (final JRunAsync runAsync : candidates) {
+      analyses.add(new Callable<LiveAtoms>() {
+        public LiveAtoms call() {
+          ControlFlowAnalyzer cfa = new ControlFlowAnalyzer(liveAfterInitialSequence);
+          cfa.traverseFromRunAsync(runAsync);
+          return atoms.liveIn(cfa);
+        }
+      });
+    }
+    List<BitSet> reaches = new ArrayList<BitSet>();
+    for (LiveAtoms live : runAnalyses(analyses)) {
+      BitSet reach = atoms.toBitSet(live);
+      reach.andNot(base);
+      reaches.add(reach);
+    }
+
+    FragmentMerger merger = new FragmentMerger(splitPoints, reaches, atoms.estimateSizes(map));
+    List<List<Integer>> groups = merger.merge(mergeCount, mergeMinSize);
+
+    for (List<Integer> group : groups) {
+      if (group.size() < 2) {
         continue;
       }
-      ControlFlowAnalyzer allButOne = allButOnes.get(splitPoint - 1);
-      Set<JNode> allLiveNodes =
-          union(allButOne.getLiveFieldsAndMethods(), allButOne.getFieldsWritten());
-      updateMap(splitPoint, fragmentMap.fields, allLiveNodes, allFields);
-      updateMap(splitPoint, fragmentMap.methods, allButOne.getLiveFieldsAndMethods(), allMethods);
-      updateMap(splitPoint, fragmentMap.strings, allButOne.getLiveStrings(), everything
-          .getLiveStrings());
-      updateMap(splitPoint, fragmentMap.types, declaredTypesIn(allButOne.getInstantiatedTypes()),
-          declaredTypesIn(everything.getInstantiatedTypes()));
+      ControlFlowAnalyzer liveWithoutGroup = new ControlFlowAnalyzer(liveAfterInitialSequence);
+      for (JRunAsync runAsync : candidates) {
+        if (!group.contains(runAsync.getSplitPoint())) {
+          liveWithoutGroup.traverseFromRunAsync(runAsync);
+        }
+      }
+      int representative = group.get(0);
+      atoms.updateMap(representative, fragmentMap, atoms.liveIn(liveWithoutGroup));
+      for (int splitPoint : group.subList(1, group.size())) {
+        mergedSplitPoints.put(splitPoint, representative);
+      }
+      logger.log(TreeLogger.DEBUG, "Merged the fragments of split points " + group);
+    }
+    jprogram.setMergedSplitPoints(mergedSplitPoints);
+  }
+
+  /**
+   * Run independent liveness analyses, on several threads if allowed. A
+   * <code>null</code> analysis gives a <code>null</code> result.
+   */
+  private List<LiveAtoms> runAnalyses(List<Callable<LiveAtoms>> analyses) {
+    List<LiveAtoms> results = new ArrayList<LiveAtoms>();
+    int numThreads = Integer.getInteger(PROP_ANALYSIS_THREADS,
+        Math.min(4, Runtime.getRuntime().availableProcessors()));
+    int numAnalyses = 0;
+    for (Callable<LiveAtoms> analysis : analyses) {
+      if (analysis != null) {
+        numAnalyses++;
+      }
+    }
+
+    if (numThreads <= 1 || numAnalyses <= 1) {
+      try {
+        for (Callable<LiveAtoms> analysis : analyses) {
+          results.add(analysis == null ? null : analysis.call());
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new InternalCompilerException("Error computing split point liveness", e);
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, numAnalyses));
+    try {
+      List<Future<LiveAtoms>> futures = new ArrayList<Future<LiveAtoms>>();
+      for (Callable<LiveAtoms> analysis : analyses) {
+        futures.add(analysis == null ? null : executor.submit(analysis));
+      }
+      for (Future<LiveAtoms> future : futures) {
+        results.add(future == null ? null : future.get());
+      }
+    } catch (ExecutionException e) {
+      throw new InternalCompilerException("Error computing split point liveness", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalCompilerException("Interrupted computing split point liveness", e);
+    } finally {
+      executor.shutdownNow();
     }
+    return results;
   }
 
   /**
@@ -45,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -223,6 +224,29 @@ public class FragmentExtractor {
     return newStats;
   }
 
+  /**
+   * Create calls to {@link AsyncFragmentLoader#setFragmentForSplitPoint} that
+   * record the fragment holding the code of each merged split point.
+   */
+  public List<JsStatement> createSetFragmentCalls(Map<Integer, Integer> mergedSplitPoints) {
+    if (mergedSplitPoints.isEmpty()) {
+      return Collections.emptyList();
+    }
+    JMethod setFragmentMethod =
+        jprogram.getIndexedMethod("AsyncFragmentLoader.setFragmentForSplitPoint");
+    JsName setFragmentMethodName = map.nameForMethod(setFragmentMethod);
+    SourceInfo sourceInfo = jsprogram.getSourceInfo();
+    List<JsStatement> newStats = new ArrayList<JsStatement>();
+    for (Map.Entry<Integer, Integer> entry : mergedSplitPoints.entrySet()) {
+      JsInvocation call = new JsInvocation(sourceInfo);
+      call.setQualifier(setFragmentMethodName.makeRef(sourceInfo));
+      call.getArguments().add(new JsNumberLiteral(sourceInfo, entry.getKey()));
+      call.getArguments().add(new JsNumberLiteral(sourceInfo, entry.getValue()));
+      newStats.add(call.makeStmt());
+    }
+    return newStats;
+  }
+
   /**
    * Assume that all code described by <code>alreadyLoadedPredicate</code> has
    * been downloaded. Extract enough JavaScript statements that the code
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses which split points should share a fragment, so that programs with
+ * many split points download fewer, larger fragments. Each split point is
+ * described by the program atoms it reaches beyond the initial load sequence.
+ * Split points that share the most code reached by no other split point are
+ * merged first, because that code then moves out of the leftovers fragment and
+ * into the merged one.
+ */
+class FragmentMerger {
+
+  /**
+   * Split points that will share a fragment.
+   */
+  private static class Group {
+    /**
+     * The weight of the atoms that only this group reaches.
+     */
+    long exclusiveSize;
+
+    final BitSet reach;
+
+    final List<Integer> splitPoints = new ArrayList<Integer>();
+
+    public Group(int splitPoint, BitSet reach) {
+      splitPoints.add(splitPoint);
+      this.reach = reach;
+    }
+  }
+
+  private final List<Group> groups = new ArrayList<Group>();
+
+  /**
+   * The number of groups that reach each atom.
+   */
+  private final int[] reachCount;
+
+  /**
+   * The weight of the atoms reached by exactly the two groups indexed, and by
+   * no other group.
+   */
+  private final long[][] shared;
+
+  private final int[] weights;
+
+  /**
+   * @param splitPoints the split points that may be merged
+   * @param reaches for each split point, the atoms it reaches
+   * @param weights the weight of each atom, or <code>null</code> to count
+   *          every atom as one
+   */
+  FragmentMerger(List<Integer> splitPoints, List<BitSet> reaches, int[] weights) {
+    assert splitPoints.size() == reaches.size();
+    this.weights = weights;
+    int numAtoms = 0;
+    for (int i = 0; i < splitPoints.size(); i++) {
+      groups.add(new Group(splitPoints.get(i), reaches.get(i)));
+      numAtoms = Math.max(numAtoms, reaches.get(i).length());
+    }
+
+    reachCount = new int[numAtoms];
+    for (Group group : groups) {
+      BitSet reach = group.reach;
+      for (int atom = reach.nextSetBit(0); atom >= 0; atom = reach.nextSetBit(atom + 1)) {
+        reachCount[atom]++;
+      }
+    }
+
+    int numGroups = groups.size();
+    shared = new long[numGroups][numGroups];
+    for (int i = 0; i < numGroups; i++) {
+      Group group = groups.get(i);
+      group.exclusiveSize = weightReachedBy(group.reach, null, 1);
+      for (int j = i + 1; j < numGroups; j++) {
+        shared[i][j] = shared[j][i] = weightReachedBy(group.reach, groups.get(j).reach, 2);
+      }
+    }
+  }
+
+  /**
+   * Merge split points until there are at most <code>maxFragments</code>
+   * groups and no group's exclusive code weighs less than
+   * <code>minFragmentSize</code>.
+   * 
+   * @param maxFragments the maximum number of groups, or -1 for no limit
+   * @param minFragmentSize the minimum weight of a group's exclusive code, or 0
+   *          for no minimum
+   * @return the groups of split points, each in ascending order, ordered by
+   *         their first split point
+   */
+  List<List<Integer>> merge(int maxFragments, long minFragmentSize) {
+    boolean[] merged = new boolean[groups.size()];
+    int numGroups = groups.size();
+    while (numGroups > 1) {
+      int first = -1;
+      int second = -1;
+      if (maxFragments >= 0 && numGroups > maxFragments) {
+        // Merge the closest pair of groups.
+        for (int i = 0; i < groups.size(); i++) {
+          for (int j = i + 1; j < groups.size(); j++) {
+            if (!merged[i] && !merged[j]
+                && (first < 0 || isBetterMerge(i, j, first, second))) {
+              first = i;
+              second = j;
+            }
+          }
+        }
+      } else if (minFragmentSize > 0) {
+        // Merge the smallest group that is too small with its closest group.
+        for (int i = 0; i < groups.size(); i++) {
+          if (!merged[i] && groups.get(i).exclusiveSize < minFragmentSize
+              && (first < 0 || groups.get(i).exclusiveSize < groups.get(first).exclusiveSize)) {
+            first = i;
+          }
+        }
+        if (first < 0) {
+          break;
+        }
+        for (int j = 0; j < groups.size(); j++) {
+          if (j != first && !merged[j] && (second < 0 || isBetterMerge(first, j, first, second))) {
+            second = j;
+          }
+        }
+      } else {
+        break;
+      }
+
+      mergeInto(Math.min(first, second), Math.max(first, second), merged);
+      numGroups--;
+    }
+
+    List<List<Integer>> result = new ArrayList<List<Integer>>();
+    for (int i = 0; i < groups.size(); i++) {
+      if (!merged[i]) {
+        List<Integer> splitPoints = groups.get(i).splitPoints;
+        Collections.sort(splitPoints);
+        result.add(splitPoints);
+      }
+    }
+    Collections.sort(result, new Comparator<List<Integer>>() {
+      public int compare(List<Integer> a, List<Integer> b) {
+        return a.get(0).compareTo(b.get(0));
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Whether merging groups <code>i</code> and <code>j</code> is better than
+   * merging <code>bestI</code> and <code>bestJ</code>: more shared code, or as
+   * much shared code but a smaller merged fragment.
+   */
+  private boolean isBetterMerge(int i, int j, int bestI, int bestJ) {
+    if (shared[i][j] != shared[bestI][bestJ]) {
+      return shared[i][j] > shared[bestI][bestJ];
+    }
+    long size = groups.get(i).exclusiveSize + groups.get(j).exclusiveSize;
+    long bestSize = groups.get(bestI).exclusiveSize + groups.get(bestJ).exclusiveSize;
+    return size < bestSize;
+  }
+
+  /**
+   * Merge group <code>j</code> into group <code>i</code>. Only the shared
+   * weights involving the merged group change: an atom reached by two other
+   * groups as well as by both merged groups is still reached by more than two.
+   */
+  private void mergeInto(int i, int j, boolean[] merged) {
+    Group into = groups.get(i);
+    Group from = groups.get(j);
+    into.exclusiveSize += from.exclusiveSize + shared[i][j];
+    BitSet both = (BitSet) into.reach.clone();
+    both.and(from.reach);
+    for (int atom = both.nextSetBit(0); atom >= 0; atom = both.nextSetBit(atom + 1)) {
+      reachCount[atom]--;
+    }
+    into.reach.or(from.reach);
+    into.splitPoints.addAll(from.splitPoints);
+    merged[j] = true;
+
+    for (int k = 0; k < groups.size(); k++) {
+      if (k != i && !merged[k]) {
+        shared[i][k] = shared[k][i] = weightReachedBy(into.reach, groups.get(k).reach, 2);
+      }
+    }
+  }
+
+  /**
+   * Sums the weights of the atoms in <code>reach</code>, and in
+   * <code>otherReach</code> if it is not <code>null</code>, that are reached
+   * by exactly <code>count</code> groups.
+   */
+  private long weightReachedBy(BitSet reach, BitSet otherReach, int count) {
+    long total = 0;
+    for (int atom = reach.nextSetBit(0); atom >= 0; atom = reach.nextSetBit(atom + 1)) {
+      if (reachCount[atom] == count && (otherReach == null || otherReach.get(atom))) {
+        total += (weights == null) ? 1 : weights[atom];
+      }
+    }
+    return total;
+  }
+}
@@ -1290,11 +1290,11 @@ public class GenerateJavaScriptAST {
 
       if (program.getRunAsyncs().size() > 0) {
         // Prevent onLoad from being pruned.
-        JMethod onLoadMethod = program.getIndexedMethod("AsyncFragmentLoader.onLoad");
-        JsName name = names.get(onLoadMethod);
-        assert name != null;
-        JsFunction func = (JsFunction) name.getStaticRef();
-        func.setArtificiallyRescued(true);
+        rescueLoaderMethod("AsyncFragmentLoader.onLoad");
+        if (program.isSplitPointMergingEnabled()) {
+          // CodeSplitter may call this from the leftovers fragment
+          rescueLoaderMethod("AsyncFragmentLoader.setFragmentForSplitPoint");
+        }
       }
     }
 
@@ -2092,6 +2092,17 @@ public class GenerateJavaScriptAST {
       jsInvocation.setQualifier(names.get(clinitMethod).makeRef(sourceInfo));
       return jsInvocation;
     }
+
+    /**
+     * Keeps an AsyncFragmentLoader method that is only called from code
+     * generated later on from being pruned.
+     */
+    private void rescueLoaderMethod(String indexedName) {
+      JsName name = names.get(program.getIndexedMethod(indexedName));
+      assert name != null;
+      JsFunction func = (JsFunction) name.getStaticRef();
+      func.setArtificiallyRescued(true);
+    }
   }
 
   private static class JavaToJsOperatorMap {
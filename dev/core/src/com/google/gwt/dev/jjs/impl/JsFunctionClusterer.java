@@ -27,17 +27,50 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
  * Re-orders function declarations according to a given metric and clustering
- * algorithm in order to boost gzip/deflation compression efficiency. This
- * version uses the edit-distance algorithm as a metric, and a semi-greedy
- * strategy for grouping functions together.
+ * algorithm in order to boost gzip/deflation compression efficiency. By
+ * default this uses the edit-distance algorithm as a metric, and a semi-greedy
+ * strategy for grouping functions together. Setting the system property
+ * {@value #PROP_STRATEGY} to <code>minhash</code> instead compares MinHash
+ * signatures of the shingles of each function, indexed by locality-sensitive
+ * hashing, so that similar functions are found anywhere in the program in
+ * roughly linear time.
  */
 public class JsFunctionClusterer extends JsAbstractTextTransformer {
 
+  /**
+   * The algorithm used to choose the function to output next.
+   */
+  public enum Strategy {
+    /**
+     * Search the next few functions by size for the smallest edit distance.
+     */
+    EDIT_DISTANCE,
+
+    /**
+     * Search functions sharing a locality-sensitive hash bucket for the most
+     * similar MinHash signature.
+     */
+    MIN_HASH
+  }
+
+  /**
+   * System property selecting the {@link Strategy}, by its name in lower case
+   * and without underscores: <code>editdistance</code> or
+   * <code>minhash</code>.
+   */
+  public static final String PROP_STRATEGY = "gwt.jjs.functionClustering";
+
+  /**
+   * Maximum number of unplaced functions to examine in each bucket.
+   */
+  private static final int BUCKET_SEARCH_LIMIT = 32;
+
   /**
    * Used by isFunctionDeclaration to check a statement is a function
    * declaration or not. This should match standard declarations, such as
@@ -53,18 +86,91 @@ public class JsFunctionClusterer extends JsAbstractTextTransformer {
    */
   private static final int MAX_DISTANCE_LIMIT = 100;
 
+  /**
+   * Number of bands the MinHash signatures are split into; two functions are
+   * candidates for each other if any band matches.
+   */
+  private static final int NUM_BANDS = 8;
+
+  /**
+   * Number of signature entries in each band.
+   */
+  private static final int ROWS_PER_BAND = 2;
+
   /**
    * Maximum number of functions to search for minimal edit-distance before
    * giving up.
    */
   private static final int SEARCH_LIMIT = 10;
 
+  /**
+   * Length of the substrings of a function whose hashes make up its MinHash
+   * signature.
+   */
+  private static final int SHINGLE_LENGTH = 6;
+
+  /**
+   * Number of entries in a MinHash signature.
+   */
+  private static final int SIGNATURE_LENGTH = NUM_BANDS * ROWS_PER_BAND;
+
+  /**
+   * Returns the strategy selected by {@link #PROP_STRATEGY}.
+   */
+  public static Strategy getDefaultStrategy() {
+    String value = System.getProperty(PROP_STRATEGY);
+    if (value != null) {
+      for (Strategy strategy : Strategy.values()) {
+        if (strategy.name().replace("_", "").equalsIgnoreCase(value)) {
+          return strategy;
+        }
+      }
+    }
+    return Strategy.EDIT_DISTANCE;
+  }
+
   /**
    * Tells whether a statement is a function declaration or not.
    */
   private static boolean isFunctionDeclaration(String code) {
     return functionDeclarationPattern.matcher(code).lookingAt();
   }
+
+  /**
+   * The finalizer of MurmurHash3, used to derive independent hash functions
+   * from one shingle hash.
+   */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * Computes the MinHash signature of the shingles of <code>code</code>.
+   */
+  private static int[] signature(String code) {
+    int[] signature = new int[SIGNATURE_LENGTH];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    int numShingles = Math.max(1, code.length() - SHINGLE_LENGTH + 1);
+    for (int i = 0; i < numShingles; i++) {
+      int shingle = 0;
+      int end = Math.min(code.length(), i + SHINGLE_LENGTH);
+      for (int j = i; j < end; j++) {
+        shingle = 31 * shingle + code.charAt(j);
+      }
+      for (int k = 0; k < SIGNATURE_LENGTH; k++) {
+        int h = mix(shingle ^ (k * 0x9e3779b9));
+        if (h < signature[k]) {
+          signature[k] = h;
+        }
+      }
+    }
+    return signature;
+  }
   
   /**
    * Number of function declarations found.
@@ -78,13 +184,22 @@ public class JsFunctionClusterer extends JsAbstractTextTransformer {
    */
   private int[] reorderedIndices;
 
+  private final Strategy strategy;
+
   public JsFunctionClusterer(JsAbstractTextTransformer xformer) {
+    this(xformer, getDefaultStrategy());
+  }
+
+  public JsFunctionClusterer(JsAbstractTextTransformer xformer,
+      Strategy strategy) {
     super(xformer);
+    this.strategy = strategy;
   }
 
   public JsFunctionClusterer(String js, StatementRanges statementRanges, 
       Map<Range, SourceInfo> sourceInfoMap) {
     super(js, statementRanges, sourceInfoMap);
+    this.strategy = getDefaultStrategy();
   }
 
   @Override
@@ -113,46 +228,17 @@ public class JsFunctionClusterer extends JsAbstractTextTransformer {
       }
     });
 
-    // used to hold the new output order
-    int[] clusteredIndices = new int[functionIndices.size()];
-    int currentFunction = 0;
-
-    // remove the first function and stick it in the output array
-    clusteredIndices[currentFunction] = functionIndices.get(0);
-    functionIndices.remove(0);
-    while (!functionIndices.isEmpty()) {
-      // get the last outputted function to match against
-      String currentCode = getJsForRange(clusteredIndices[currentFunction]);
-      final GeneralEditDistance editDistance =
-          GeneralEditDistances.getLevenshteinDistance(currentCode);
-
-      int bestIndex = 0;
-      int bestFunction = functionIndices.getFirst();
-      int bestDistance = MAX_DISTANCE_LIMIT;
-
-      int count = 0;
-      for (int functionIndex : functionIndices) {
-        if (count >= SEARCH_LIMIT) {
-          break;
-        }
-        String testCode = getJsForRange(functionIndex);
-        int dist = editDistance.getDistance(testCode, bestDistance);
-        if (dist < bestDistance) {
-          bestDistance = dist;
-          bestIndex = count;
-          bestFunction = functionIndex;
-        }
-        count++;
-      }
-      // output the best match and remove it from worklist of functions
-      currentFunction++;
-      clusteredIndices[currentFunction] = bestFunction;
-      functionIndices.remove(bestIndex);
+    int[] clusteredIndices;
+    if (strategy == Strategy.MIN_HASH) {
+      clusteredIndices = clusterByMinHash(functionIndices);
+    } else {
+      clusteredIndices = clusterByEditDistance(functionIndices);
     }
 
     reorderedIndices = Arrays.copyOf(clusteredIndices, statementRanges.numStatements());
     recomputeJsAndStatementRanges(clusteredIndices);
   }
+
   /**
    * Returns the array of reordered statement indices after clustering.
    * @return The array of indices, where the element at index j represents
@@ -238,6 +324,132 @@ public class JsFunctionClusterer extends JsAbstractTextTransformer {
     }
   }
 
+  /**
+   * Orders functions by repeatedly choosing, among the next few functions by
+   * size, the one with the smallest edit distance to the last one output.
+   */
+  private int[] clusterByEditDistance(LinkedList<Integer> functionIndices) {
+    // used to hold the new output order
+    int[] clusteredIndices = new int[functionIndices.size()];
+    int currentFunction = 0;
+
+    // remove the first function and stick it in the output array
+    clusteredIndices[currentFunction] = functionIndices.get(0);
+    functionIndices.remove(0);
+    while (!functionIndices.isEmpty()) {
+      // get the last outputted function to match against
+      String currentCode = getJsForRange(clusteredIndices[currentFunction]);
+      final GeneralEditDistance editDistance =
+          GeneralEditDistances.getLevenshteinDistance(currentCode);
+
+      int bestIndex = 0;
+      int bestFunction = functionIndices.getFirst();
+      int bestDistance = MAX_DISTANCE_LIMIT;
+
+      int count = 0;
+      for (int functionIndex : functionIndices) {
+        if (count >= SEARCH_LIMIT) {
+          break;
+        }
+        String testCode = getJsForRange(functionIndex);
+        int dist = editDistance.getDistance(testCode, bestDistance);
+        if (dist < bestDistance) {
+          bestDistance = dist;
+          bestIndex = count;
+          bestFunction = functionIndex;
+        }
+        count++;
+      }
+      // output the best match and remove it from worklist of functions
+      currentFunction++;
+      clusteredIndices[currentFunction] = bestFunction;
+      functionIndices.remove(bestIndex);
+    }
+
+    return clusteredIndices;
+  }
+
+  /**
+   * Orders functions by repeatedly choosing, among the functions sharing a
+   * band of their MinHash signature with the last one output, the one whose
+   * signature agrees most; if there is none, the next function by size.
+   */
+  private int[] clusterByMinHash(List<Integer> functionIndices) {
+    int n = functionIndices.size();
+    int[] functions = new int[n];
+    int index = 0;
+    for (int functionIndex : functionIndices) {
+      functions[index++] = functionIndex;
+    }
+
+    int[][] signatures = new int[n][];
+    Map<Long, List<Integer>> buckets = new HashMap<Long, List<Integer>>();
+    long[][] bucketKeys = new long[n][NUM_BANDS];
+    for (int i = 0; i < n; i++) {
+      signatures[i] = signature(getJsForRange(functions[i]));
+      for (int band = 0; band < NUM_BANDS; band++) {
+        int h = band;
+        for (int row = 0; row < ROWS_PER_BAND; row++) {
+          h = 31 * h + signatures[i][band * ROWS_PER_BAND + row];
+        }
+        long key = ((long) band << 32) | (h & 0xffffffffL);
+        bucketKeys[i][band] = key;
+        List<Integer> bucket = buckets.get(key);
+        if (bucket == null) {
+          bucket = new ArrayList<Integer>();
+          buckets.put(key, bucket);
+        }
+        bucket.add(i);
+      }
+    }
+
+    int[] clusteredIndices = new int[n];
+    boolean[] placed = new boolean[n];
+    int nextBySize = 0;
+    int current = 0;
+    for (int out = 0; out < n; out++) {
+      int best = -1;
+      if (out > 0) {
+        int bestScore = 0;
+        for (long key : bucketKeys[current]) {
+          List<Integer> bucket = buckets.get(key);
+          int examined = 0;
+          for (int i = 0; i < bucket.size() && examined < BUCKET_SEARCH_LIMIT;) {
+            int candidate = bucket.get(i);
+            if (placed[candidate]) {
+              // drop placed functions so that buckets only shrink
+              bucket.set(i, bucket.get(bucket.size() - 1));
+              bucket.remove(bucket.size() - 1);
+              continue;
+            }
+            int score = 0;
+            for (int k = 0; k < SIGNATURE_LENGTH; k++) {
+              if (signatures[candidate][k] == signatures[current][k]) {
+                score++;
+              }
+            }
+            if (score > bestScore || (score == bestScore && candidate < best)) {
+              bestScore = score;
+              best = candidate;
+            }
+            examined++;
+            i++;
+          }
+        }
+      }
+      if (best == -1) {
+        while (placed[nextBySize]) {
+          nextBySize++;
+        }
+        best = nextBySize;
+      }
+      placed[best] = true;
+      clusteredIndices[out] = functions[best];
+      current = best;
+    }
+    return clusteredIndices;
+  }
+
   private int stmtSize(int index1) {
     return statementRanges.end(index1) - statementRanges.start(index1);
   }
@@ -621,6 +621,15 @@ public class Pruner {
     }
     livenessAnalyzer.traverseEverything();
 
+    if (program.isSplitPointMergingEnabled() && program.getRunAsyncs().size() > 0) {
+      /*
+       * SPECIAL: CodeSplitter calls setFragmentForSplitPoint() from the
+       * leftovers fragment if it merges split points.
+       */
+      livenessAnalyzer.traverseFrom(program
+          .getIndexedMethod("AsyncFragmentLoader.setFragmentForSplitPoint"));
+    }
+
     program.typeOracle.setInstantiatedTypes(livenessAnalyzer.getInstantiatedTypes());
 
     PruneVisitor pruner =
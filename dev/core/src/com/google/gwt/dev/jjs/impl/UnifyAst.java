@@ -604,6 +604,9 @@ public class UnifyAst {
     // ReplaceRunAsyncs
     if (options.isRunAsyncEnabled()) {
       flowInto(program.getIndexedMethod("AsyncFragmentLoader.onLoad"));
+      if (program.isSplitPointMergingEnabled()) {
+        flowInto(program.getIndexedMethod("AsyncFragmentLoader.setFragmentForSplitPoint"));
+      }
       flowInto(program.getIndexedMethod("AsyncFragmentLoader.runAsync"));
     }
 
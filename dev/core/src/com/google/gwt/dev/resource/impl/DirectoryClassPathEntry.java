@@ -24,12 +24,54 @@ import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A {@link ClassPathEntry} for a directory on the file system.
+ *
+ * <p>Directory listings are remembered between scans and reused while a
+ * directory's modification time is unchanged, which is the case unless a
+ * child was added, removed or renamed. A rescan therefore only stats the
+ * directories of the tree and lists the ones that changed, instead of listing
+ * and stat'ing every file.
  */
 public class DirectoryClassPathEntry extends ClassPathEntry {
 
+  /**
+   * The children of one directory at the time it was listed.
+   */
+  private static class DirectoryListing {
+    final File[] children;
+    final boolean[] isDirectory;
+    final long lastModified;
+    final long listedAt;
+
+    /**
+     * Lazily created resources for the file children, reused across scans.
+     */
+    final FileResource[] resources;
+
+    DirectoryListing(File[] children, boolean[] isDirectory,
+        long lastModified, long listedAt) {
+      this.children = children;
+      this.isDirectory = isDirectory;
+      this.lastModified = lastModified;
+      this.listedAt = listedAt;
+      this.resources = new FileResource[children.length];
+    }
+
+    /**
+     * A listing can be trusted if the directory has not been modified since,
+     * and it was taken long enough after the last modification that a change
+     * within the same timestamp tick cannot have been missed.
+     */
+    boolean isCurrent(long dirLastModified) {
+      return dirLastModified == lastModified
+          && listedAt - lastModified > TIMESTAMP_GRANULARITY_MILLIS;
+    }
+  }
+
   private static class Messages {
     static final Message1String DESCENDING_INTO_DIR = new Message1String(
         TreeLogger.SPAM, "Descending into dir: $0");
@@ -38,11 +80,21 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
         TreeLogger.DEBUG, "Including file: $0");
   }
 
+  /**
+   * The coarsest file system timestamp resolution we expect to see.
+   */
+  private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
   /**
    * Absolute directory.
    */
   private final File dir;
 
+  /**
+   * Listings from previous scans, by directory.
+   */
+  private final ConcurrentMap<File, DirectoryListing> listings = new ConcurrentHashMap<File, DirectoryListing>();
+
   private final String location;
 
   /**
@@ -98,10 +150,12 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
 
     // Assert: this directory is included in the path prefix set.
 
-    File[] children = dir.listFiles();
-    for (File child : children) {
+    DirectoryListing listing = getListing(dir);
+    File[] children = listing.children;
+    for (int c = 0; c < children.length; ++c) {
+      File child = children[c];
       String childPath = dirPath + child.getName();
-      if (child.isDirectory()) {
+      if (listing.isDirectory[c]) {
         String childDirPath = childPath + "/";
         for (int i = 0; i < len; ++i) {
           if (pathPrefixSets.get(i).includesDirectory(childDirPath)) {
@@ -111,16 +165,56 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
             break;
           }
         }
-      } else if (child.isFile()) {
+      } else {
         for (int i = 0; i < len; ++i) {
           PathPrefix prefix = null;
           if ((prefix = pathPrefixSets.get(i).includesResource(childPath)) != null) {
             Messages.INCLUDING_FILE.log(logger, childPath, null);
-            FileResource r = new FileResource(this, childPath, child);
+            FileResource r = listing.resources[c];
+            if (r == null) {
+              r = new FileResource(this, childPath, child);
+              listing.resources[c] = r;
+            }
             results.get(i).put(r, prefix);
           }
         }
       }
     }
   }
+
+  /**
+   * Returns the children of a directory, listing it only if it changed since
+   * the last scan.
+   */
+  private DirectoryListing getListing(File dir) {
+    long lastModified = dir.lastModified();
+    DirectoryListing listing = listings.get(dir);
+    if (listing != null && listing.isCurrent(lastModified)) {
+      return listing;
+    }
+    long listedAt = System.currentTimeMillis();
+    File[] all = dir.listFiles();
+    if (all == null) {
+      all = new File[0];
+    }
+    List<File> children = new ArrayList<File>(all.length);
+    List<Boolean> isDirectory = new ArrayList<Boolean>(all.length);
+    for (File child : all) {
+      if (child.isDirectory()) {
+        children.add(child);
+        isDirectory.add(Boolean.TRUE);
+      } else if (child.isFile()) {
+        children.add(child);
+        isDirectory.add(Boolean.FALSE);
+      }
+    }
+    boolean[] isDirectoryArray = new boolean[isDirectory.size()];
+    for (int i = 0; i < isDirectoryArray.length; ++i) {
+      isDirectoryArray[i] = isDirectory.get(i);
+    }
+    listing = new DirectoryListing(children.toArray(new File[children.size()]),
+        isDirectoryArray, lastModified, listedAt);
+    listings.put(dir, listing);
+    return listing;
+  }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.resource.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists the entry names of zip files in a directory, so that a later
+ * process can index an unchanged zip file without reading its central
+ * directory. A saved index is keyed by the zip file's absolute path, last
+ * modified time and size, and is ignored if any of them changed.
+ */
+class PersistentZipIndex {
+
+  /**
+   * The subdirectory of the cache directory that holds the index files.
+   */
+  static final String INDEX_DIR_NAME = "gwt-zipIndex";
+
+  /**
+   * Bump this whenever the file format changes.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private final File indexDir;
+
+  PersistentZipIndex(File cacheDir) {
+    this.indexDir = new File(cacheDir, INDEX_DIR_NAME);
+  }
+
+  /**
+   * Returns the saved entry names for a zip file, or <code>null</code> if
+   * there is no saved index or the zip file changed since it was saved.
+   */
+  List<String> read(TreeLogger logger, File zipFile, long lastModified,
+      long size) {
+    File indexFile = getIndexFile(zipFile);
+    if (!indexFile.isFile()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+          indexFile)));
+      if (in.readInt() != FORMAT_VERSION
+          || !in.readUTF().equals(zipFile.getAbsolutePath())
+          || in.readLong() != lastModified || in.readLong() != size) {
+        return null;
+      }
+      int count = in.readInt();
+      List<String> entryNames = new ArrayList<String>(count);
+      for (int i = 0; i < count; ++i) {
+        entryNames.add(in.readUTF());
+      }
+      return entryNames;
+    } catch (IOException e) {
+      logger.log(TreeLogger.DEBUG, "Ignoring unreadable zip index "
+          + indexFile, e);
+      return null;
+    } finally {
+      Utility.close(in);
+    }
+  }
+
+  /**
+   * Saves the entry names of a zip file, replacing any earlier index for it.
+   * Failures are logged and otherwise ignored, since the index is only an
+   * optimization.
+   */
+  void write(TreeLogger logger, File zipFile, long lastModified, long size,
+      List<String> entryNames) {
+    if (!indexDir.isDirectory() && !indexDir.mkdirs()) {
+      logger.log(TreeLogger.DEBUG, "Unable to create zip index directory "
+          + indexDir);
+      return;
+    }
+    File indexFile = getIndexFile(zipFile);
+    File tempFile = null;
+    DataOutputStream out = null;
+    try {
+      // Write a temp file and rename it, so readers never see a partial index.
+      tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexDir);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+          tempFile)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(zipFile.getAbsolutePath());
+      out.writeLong(lastModified);
+      out.writeLong(size);
+      out.writeInt(entryNames.size());
+      for (String entryName : entryNames) {
+        out.writeUTF(entryName);
+      }
+      out.close();
+      out = null;
+      indexFile.delete();
+      if (tempFile.renameTo(indexFile)) {
+        tempFile = null;
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.DEBUG, "Unable to write zip index " + indexFile,
+          e);
+    } finally {
+      Utility.close(out);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  File getIndexFile(File zipFile) {
+    String key = Util.computeStrongName(Util.getBytes(zipFile.getAbsolutePath()));
+    return new File(indexDir, zipFile.getName() + "-" + key);
+  }
+}
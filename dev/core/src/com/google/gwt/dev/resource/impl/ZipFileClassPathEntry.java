@@ -28,7 +28,9 @@ import org.apache.commons.collections.map.ReferenceMap;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
@@ -36,6 +38,11 @@ import java.util.zip.ZipFile;
 
 /**
  * A classpath entry that is a jar or zip file.
+ *
+ * <p>Entries are shared by every {@link ResourceOracleImpl} in the process. If
+ * an index cache directory has been set, the entry names of each zip file are
+ * also saved there, and a later process indexing the same unchanged file reads
+ * them back instead of opening the zip file.
  */
 public class ZipFileClassPathEntry extends ClassPathEntry {
 
@@ -79,6 +86,17 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
   private static final Map<String, ZipFileClassPathEntry> entryCache = new ReferenceMap(
       AbstractReferenceMap.HARD, AbstractReferenceMap.SOFT);
 
+  /**
+   * Persistent indexes may be disabled with -Dgwt.persistentzipindex=false.
+   */
+  private static final boolean usePersistentIndex = Boolean.parseBoolean(System.getProperty(
+      "gwt.persistentzipindex", "true"));
+
+  /**
+   * Where zip file indexes are saved across processes, or <code>null</code>.
+   */
+  private static volatile PersistentZipIndex persistentIndex;
+
   /**
    * @return the {@link ZipFileClassPathEntry} instance for given jar or zip
    *         file, may be shared with other users.
@@ -86,13 +104,27 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
   public static synchronized ZipFileClassPathEntry get(File zipFile) throws IOException {
     String location = zipFile.toURI().toString();
     ZipFileClassPathEntry entry = entryCache.get(location);
-    if (entry == null) {
+    if (entry == null || entry.lastModified != zipFile.lastModified()
+        || entry.size != zipFile.length()) {
       entry = new ZipFileClassPathEntry(zipFile);
       entryCache.put(location, entry);
     }
     return entry;
   }
 
+  /**
+   * Sets the directory in which zip file indexes are saved, so that later
+   * processes can skip scanning unchanged zip files. Only affects entries
+   * created afterwards.
+   *
+   * @param cacheDir the cache directory, or <code>null</code> to stop saving
+   *          indexes
+   */
+  public static void setIndexCacheDir(File cacheDir) {
+    persistentIndex = (usePersistentIndex && cacheDir != null)
+        ? new PersistentZipIndex(cacheDir) : null;
+  }
+
   private Set<ZipFileResource> allZipFileResources;
 
   /**
@@ -105,15 +137,38 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
   private final Map<PathPrefixSet, ZipFileSnapshot> cachedSnapshots = new ReferenceIdentityMap(
       AbstractReferenceMap.WEAK, AbstractReferenceMap.HARD, true);
 
+  private final File file;
   private final long lastModified;
   private final String location;
-  private final ZipFile zipFile;
+
+  /**
+   * Entry names read from the persistent index; cleared once indexed.
+   */
+  private List<String> persistedEntryNames;
+
+  private final PersistentZipIndex persistentIndexAtCreation;
+  private final long size;
+
+  /**
+   * Opened lazily if the entry names came from the persistent index.
+   */
+  private ZipFile zipFile;
 
   private ZipFileClassPathEntry(File zipFile) throws IOException {
     assert zipFile.isAbsolute();
+    this.file = zipFile;
     this.lastModified = zipFile.lastModified();
-    this.zipFile = new ZipFile(zipFile);
+    this.size = zipFile.length();
     this.location = zipFile.toURI().toString();
+    this.persistentIndexAtCreation = persistentIndex;
+    if (persistentIndexAtCreation != null) {
+      persistedEntryNames = persistentIndexAtCreation.read(TreeLogger.NULL,
+          zipFile, lastModified, size);
+    }
+    if (persistedEntryNames == null) {
+      // Fail now if this is not a zip file.
+      this.zipFile = new ZipFile(zipFile);
+    }
   }
 
   /**
@@ -137,7 +192,10 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
     return location;
   }
 
-  public ZipFile getZipFile() {
+  public synchronized ZipFile getZipFile() throws IOException {
+    if (zipFile == null) {
+      zipFile = new ZipFile(file);
+    }
     return zipFile;
   }
 
@@ -153,24 +211,23 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
   }
 
   private Set<ZipFileResource> buildIndex(TreeLogger logger) {
-    logger = Messages.BUILDING_INDEX.branch(logger, zipFile.getName(), null);
+    logger = Messages.BUILDING_INDEX.branch(logger, file.getPath(), null);
 
-    Set<ZipFileResource> results = new IdentityHashSet<ZipFileResource>();
-    Enumeration<? extends ZipEntry> e = zipFile.entries();
-    while (e.hasMoreElements()) {
-      ZipEntry zipEntry = e.nextElement();
-      if (zipEntry.isDirectory()) {
-        // Skip directories.
-        continue;
+    List<String> entryNames = persistedEntryNames;
+    persistedEntryNames = null;
+    if (entryNames == null) {
+      entryNames = readEntryNames();
+      if (persistentIndexAtCreation != null) {
+        persistentIndexAtCreation.write(logger, file, lastModified, size,
+            entryNames);
       }
-      if (zipEntry.getName().startsWith("META-INF/")) {
-        // Skip META-INF since classloaders normally make this invisible.
-        continue;
-      }
-      ZipFileResource zipResource = new ZipFileResource(this,
-          zipEntry.getName());
+    }
+
+    Set<ZipFileResource> results = new IdentityHashSet<ZipFileResource>();
+    for (String entryName : entryNames) {
+      ZipFileResource zipResource = new ZipFileResource(this, entryName);
       results.add(zipResource);
-      Messages.READ_ZIP_ENTRY.log(logger, zipEntry.getName(), null);
+      Messages.READ_ZIP_ENTRY.log(logger, entryName, null);
     }
     return Sets.normalize(results);
   }
@@ -178,7 +235,7 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
   private Map<AbstractResource, PathPrefix> computeApplicableResources(
       TreeLogger logger, PathPrefixSet pathPrefixSet) {
     logger = Messages.FINDING_INCLUDED_RESOURCES.branch(logger,
-        zipFile.getName(), null);
+        file.getPath(), null);
 
     Map<AbstractResource, PathPrefix> results = new IdentityHashMap<AbstractResource, PathPrefix>();
     for (ZipFileResource r : allZipFileResources) {
@@ -194,4 +251,25 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
     }
     return IdentityMaps.normalize(results);
   }
+
+  /**
+   * Lists the names of the resources in the zip file.
+   */
+  private List<String> readEntryNames() {
+    List<String> entryNames = new ArrayList<String>();
+    Enumeration<? extends ZipEntry> e = zipFile.entries();
+    while (e.hasMoreElements()) {
+      ZipEntry zipEntry = e.nextElement();
+      if (zipEntry.isDirectory()) {
+        // Skip directories.
+        continue;
+      }
+      if (zipEntry.getName().startsWith("META-INF/")) {
+        // Skip META-INF since classloaders normally make this invisible.
+        continue;
+      }
+      entryNames.add(zipEntry.getName());
+    }
+    return entryNames;
+  }
 }
@@ -755,7 +755,6 @@ public abstract class BrowserChannel {
       for (int id : ids) {
         stream.writeInt(id);
       }
-      stream.flush();
     }
 
     private final int ids[];
@@ -838,7 +837,6 @@ public abstract class BrowserChannel {
       for (int i = 0; i < args.length; i++) {
         getBrowserChannel().writeValue(stream, args[i]);
       }
-      stream.flush();
     }
   }
 
@@ -901,7 +899,6 @@ public abstract class BrowserChannel {
       for (int i = 0; i < args.length; i++) {
         getBrowserChannel().writeValue(stream, args[i]);
       }
-      stream.flush();
     }
   }
 
@@ -956,7 +953,6 @@ public abstract class BrowserChannel {
       for (int i = 0; i < args.length; i++) {
         getBrowserChannel().writeValue(stream, args[i]);
       }
-      stream.flush();
     }
   }
 
@@ -978,7 +974,6 @@ public abstract class BrowserChannel {
       DataOutputStream stream = channel.getStreamToOtherSide();
       stream.write(MessageType.LOAD_JSNI.getId());
       writeUtf8String(stream, js);
-      stream.flush();
     }
 
     private final String js;
@@ -1125,6 +1120,12 @@ public abstract class BrowserChannel {
     }
 
     /**
+     * Writes this message to the channel. Messages that are part of the
+     * invoke/return cycle (Invoke, InvokeSpecial, Return, Free and LoadJsni)
+     * are only buffered; the side that is about to block waiting for the
+     * other side flushes, so a run of messages goes out as a single write.
+     * Handshake messages are flushed immediately.
+     *
      * @throws IOException if a subclass encounters an I/O error
      */
     public void send() throws IOException {
@@ -1307,7 +1308,6 @@ public abstract class BrowserChannel {
       stream.writeByte(MessageType.RETURN.getId());
       stream.writeBoolean(isException);
       channel.writeValue(stream, returnValue);
-      stream.flush();
     }
 
     public static void send(BrowserChannel channel,
@@ -1578,6 +1578,9 @@ public abstract class BrowserChannel {
         new BufferedOutputStream(socket.getOutputStream()),
         objectRefFactory);
     this.socket = socket;
+    // Writes are already coalesced by flushing only before blocking on the
+    // other side, so Nagle's algorithm would only add latency.
+    socket.setTcpNoDelay(true);
   }
 
   protected BrowserChannel(InputStream inputStream, OutputStream outputStream,
@@ -202,6 +202,8 @@ public class BrowserChannelClient extends BrowserChannel {
       boolean expectReturn) throws IOException, BrowserChannelException {
     while (true) {
       ExceptionOrReturnValue returnValue;
+      // Everything buffered so far goes out in one write before we block.
+      getStreamToOtherSide().flush();
       MessageType type = Message.readMessageType(getStreamFromOtherSide());
       if (logger.isLoggable(TreeLogger.INFO)) {
         logger.log(TreeLogger.INFO, "client: received " + type + ", thread: "
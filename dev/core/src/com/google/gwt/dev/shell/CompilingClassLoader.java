@@ -55,6 +55,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -62,6 +63,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -70,7 +72,15 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * An isolated {@link ClassLoader} for running all user code. All user files are
@@ -93,33 +103,49 @@ public final class CompilingClassLoader extends ClassLoader implements
   private final class DispatchClassInfoOracle {
 
     /**
-     * Class identifier to DispatchClassInfo mapping.
+     * Class identifier to DispatchClassInfo mapping. The array is replaced
+     * rather than mutated, so dispatch from the browser can read it without
+     * taking the lock.
      */
-    private final ArrayList<DispatchClassInfo> classIdToClassInfo = new ArrayList<DispatchClassInfo>();
+    private volatile DispatchClassInfo[] classIdToClassInfo = new DispatchClassInfo[0];
 
     /**
-     * Binary or source class name to DispatchClassInfo map.
+     * Binary or source class name to DispatchClassInfo map. Guarded by this.
      */
     private final Map<String, DispatchClassInfo> classNameToClassInfo = new HashMap<String, DispatchClassInfo>();
 
+    /**
+     * JSNI member references that resolved successfully, so repeated lookups
+     * of the same reference skip parsing and class resolution.
+     */
+    private final ConcurrentMap<String, Integer> memberRefToDispId = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * When counting of dispatches started, for computing rates.
+     */
+    private long startNanos = System.nanoTime();
+
     /**
      * Clears out the contents of this oracle.
      */
     public synchronized void clear() {
-      classIdToClassInfo.clear();
+      classIdToClassInfo = new DispatchClassInfo[0];
       classNameToClassInfo.clear();
+      memberRefToDispId.clear();
+      startNanos = System.nanoTime();
     }
 
     /**
      * Returns the {@link DispatchClassInfo} for a given dispatch id.
      * 
      * @param dispId dispatch id
-     * @return DispatchClassInfo for the requested dispatch id
+     * @return DispatchClassInfo for the requested dispatch id, or null if
+     *         there is none
      */
-    public synchronized DispatchClassInfo getClassInfoByDispId(int dispId) {
+    public DispatchClassInfo getClassInfoByDispId(int dispId) {
       int classId = extractClassIdFromDispId(dispId);
-
-      return classIdToClassInfo.get(classId);
+      DispatchClassInfo[] snapshot = classIdToClassInfo;
+      return classId < snapshot.length ? snapshot[classId] : null;
     }
 
     /**
@@ -129,62 +155,55 @@ public final class CompilingClassLoader extends ClassLoader implements
      * @param jsniMemberRef a string encoding a JSNI member to use
      * @return integer encoded as ((classId << 16) | memberId)
      */
-    public synchronized int getDispId(String jsniMemberRef) {
-      /*
-       * Map JS toString() onto the Java toString() method.
-       */
-      if (jsniMemberRef.equals("toString")) {
-        jsniMemberRef = "@java.lang.Object::toString()";
+    public int getDispId(String jsniMemberRef) {
+      Integer dispId = memberRefToDispId.get(jsniMemberRef);
+      if (dispId != null) {
+        return dispId;
       }
+      return resolveDispId(jsniMemberRef);
+    }
 
-      JsniRef parsed = JsniRef.parse(jsniMemberRef);
-      if (parsed == null) {
-        logger.log(TreeLogger.ERROR, "Malformed JSNI reference '"
-            + jsniMemberRef + "'; expect subsequent failures",
-            new NoSuchFieldError(jsniMemberRef));
-        return -1;
+    /**
+     * Logs the classes that the browser dispatched into most often since the
+     * oracle was last cleared.
+     * 
+     * @param logger logger to write the summary to
+     * @param maxClasses maximum number of classes to list
+     */
+    public synchronized void logDispatchCounts(TreeLogger logger,
+        int maxClasses) {
+      if (!logger.isLoggable(TreeLogger.DEBUG)) {
+        return;
       }
-
-      // Do the lookup by class name.
-      String className = parsed.className();
-      DispatchClassInfo dispClassInfo = getClassInfoFromClassName(className);
-      if (dispClassInfo != null) {
-        String memberName = parsed.memberSignature();
-
-        /*
-         * Disallow the use of JSNI references to SingleJsoImpl interface
-         * methods. This policy is due to web-mode dispatch implementation
-         * details; resolving the JSNI reference wouldn't be just be a name
-         * replacement, instead it would be necessary to significantly alter the
-         * semantics of the hand-written JS.
-         */
-        if (singleJsoImplTypes.contains(canonicalizeClassName(className))) {
-          logger.log(TreeLogger.ERROR,
-              "Invalid JSNI reference to SingleJsoImpl interface (" + className
-                  + "); consider using a trampoline. "
-                  + "Expect subsequent failures.", new NoSuchFieldError(
-                  jsniMemberRef));
-          return -1;
+      List<DispatchClassInfo> classes = new ArrayList<DispatchClassInfo>();
+      long total = 0;
+      for (DispatchClassInfo classInfo : classIdToClassInfo) {
+        if (classInfo.getDispatchCount() > 0) {
+          classes.add(classInfo);
+          total += classInfo.getDispatchCount();
         }
-
-        int memberId = dispClassInfo.getMemberId(memberName);
-        if (memberId < 0) {
-          if (!className.startsWith("java.")) {
-            logger.log(TreeLogger.ERROR, "Member '" + memberName
-                + "' in JSNI reference '" + jsniMemberRef
-                + "' could not be found; expect subsequent failures",
-                new NoSuchFieldError(memberName));
-          }
+      }
+      if (total == 0) {
+        return;
+      }
+      Collections.sort(classes, new Comparator<DispatchClassInfo>() {
+        public int compare(DispatchClassInfo a, DispatchClassInfo b) {
+          long countA = a.getDispatchCount();
+          long countB = b.getDispatchCount();
+          return countA < countB ? 1 : (countA == countB ? 0 : -1);
         }
-
-        return synthesizeDispId(dispClassInfo.getClassId(), memberId);
+      });
+      double seconds = Math.max(1e-3,
+          (System.nanoTime() - startNanos) / 1000000000.0);
+      TreeLogger branch = logger.branch(TreeLogger.DEBUG, total
+          + " JS to Java dispatches into " + classes.size() + " classes over "
+          + Math.round(seconds) + "s", null);
+      for (DispatchClassInfo classInfo : classes.subList(0,
+          Math.min(maxClasses, classes.size()))) {
+        long count = classInfo.getDispatchCount();
+        branch.log(TreeLogger.DEBUG, classInfo.getWrappedClass().getName()
+            + ": " + count + " (" + Math.round(count / seconds) + "/s)", null);
       }
-
-      logger.log(TreeLogger.ERROR, "Class '" + className
-          + "' in JSNI reference '" + jsniMemberRef
-          + "' could not be found; expect subsequent failures",
-          new ClassNotFoundException(className));
-      return -1;
     }
 
     /**
@@ -293,10 +312,14 @@ public final class CompilingClassLoader extends ClassLoader implements
        * we need to create a new DispatchClassInfo since we have never seen this
        * class before under any source or binary class name
        */
-      int classId = classIdToClassInfo.size();
+      DispatchClassInfo[] snapshot = classIdToClassInfo;
+      int classId = snapshot.length;
 
       dispClassInfo = new DispatchClassInfo(cls, classId);
-      classIdToClassInfo.add(dispClassInfo);
+      DispatchClassInfo[] newSnapshot = new DispatchClassInfo[classId + 1];
+      System.arraycopy(snapshot, 0, newSnapshot, 0, classId);
+      newSnapshot[classId] = dispClassInfo;
+      classIdToClassInfo = newSnapshot;
 
       /*
        * Whether we created a new DispatchClassInfo or not, we need to add a
@@ -333,6 +356,74 @@ public final class CompilingClassLoader extends ClassLoader implements
       }
     }
 
+    /**
+     * Resolves a member reference that is not in the cache yet.
+     * 
+     * @param memberRef a string encoding a JSNI member to use
+     * @return integer encoded as ((classId << 16) | memberId)
+     */
+    private synchronized int resolveDispId(String memberRef) {
+      /*
+       * Map JS toString() onto the Java toString() method.
+       */
+      String jsniMemberRef = memberRef;
+      if (jsniMemberRef.equals("toString")) {
+        jsniMemberRef = "@java.lang.Object::toString()";
+      }
+
+      JsniRef parsed = JsniRef.parse(jsniMemberRef);
+      if (parsed == null) {
+        logger.log(TreeLogger.ERROR, "Malformed JSNI reference '"
+            + jsniMemberRef + "'; expect subsequent failures",
+            new NoSuchFieldError(jsniMemberRef));
+        return -1;
+      }
+
+      // Do the lookup by class name.
+      String className = parsed.className();
+      DispatchClassInfo dispClassInfo = getClassInfoFromClassName(className);
+      if (dispClassInfo != null) {
+        String memberName = parsed.memberSignature();
+
+        /*
+         * Disallow the use of JSNI references to SingleJsoImpl interface
+         * methods. This policy is due to web-mode dispatch implementation
+         * details; resolving the JSNI reference wouldn't be just be a name
+         * replacement, instead it would be necessary to significantly alter the
+         * semantics of the hand-written JS.
+         */
+        if (singleJsoImplTypes.contains(canonicalizeClassName(className))) {
+          logger.log(TreeLogger.ERROR,
+              "Invalid JSNI reference to SingleJsoImpl interface (" + className
+                  + "); consider using a trampoline. "
+                  + "Expect subsequent failures.", new NoSuchFieldError(
+                  jsniMemberRef));
+          return -1;
+        }
+
+        int memberId = dispClassInfo.getMemberId(memberName);
+        if (memberId < 0) {
+          if (!className.startsWith("java.")) {
+            logger.log(TreeLogger.ERROR, "Member '" + memberName
+                + "' in JSNI reference '" + jsniMemberRef
+                + "' could not be found; expect subsequent failures",
+                new NoSuchFieldError(memberName));
+          }
+          return synthesizeDispId(dispClassInfo.getClassId(), memberId);
+        }
+
+        int dispId = synthesizeDispId(dispClassInfo.getClassId(), memberId);
+        memberRefToDispId.put(memberRef, dispId);
+        return dispId;
+      }
+
+      logger.log(TreeLogger.ERROR, "Class '" + className
+          + "' in JSNI reference '" + jsniMemberRef
+          + "' could not be found; expect subsequent failures",
+          new ClassNotFoundException(className));
+      return -1;
+    }
+
     /**
      * Synthesizes a dispatch identifier for the given class and member ids.
      * 
@@ -714,6 +805,22 @@ public final class CompilingClassLoader extends ClassLoader implements
     }
   }
 
+  /**
+   * Class bytes rewritten ahead of time, along with the compiled class they
+   * were rewritten from. The bytes are softly held, so that precomputing a
+   * large module's rewrites cannot exhaust the heap; a collected rewrite is
+   * simply redone when its class loads.
+   */
+  private static class PrecomputedRewrite {
+    final SoftReference<byte[]> bytes;
+    final CompiledClass source;
+
+    PrecomputedRewrite(CompiledClass source, byte[] bytes) {
+      this.source = source;
+      this.bytes = new SoftReference<byte[]>(bytes);
+    }
+  }
+
   /**
    * Only loads bootstrap classes, specifically excluding classes from the classpath. 
    */
@@ -738,6 +845,19 @@ public final class CompilingClassLoader extends ClassLoader implements
 
   private static boolean emmaAvailable = false;
 
+  /**
+   * How many of the most frequently dispatched classes are logged when a
+   * module is unloaded.
+   */
+  private static final int MAX_CLASSES_IN_DISPATCH_LOG = 20;
+
+  /**
+   * Whether to rewrite a module's classes on background threads as soon as
+   * the class loader is created, instead of one at a time as they load.
+   */
+  private static final boolean PRECOMPUTE_REWRITES = Boolean.parseBoolean(
+      System.getProperty("gwt.dev.precomputeRewrites", "true"));
+
   private static EmmaStrategy emmaStrategy;
 
   /**
@@ -759,6 +879,22 @@ public final class CompilingClassLoader extends ClassLoader implements
     primitiveTypes.put(void.class.getSimpleName(), boolean.class);
   }
 
+  static {
+    /*
+     * Loading is serialized by loadLock, not by the loader's monitor, so let
+     * the VM resolve classes from several threads without locking the whole
+     * loader. findClass() checks again for a loaded class under loadLock, since
+     * several threads may miss on the same class. ClassLoader.registerAsParallelCapable() only exists on Java 7+.
+     */
+    try {
+      Method register = ClassLoader.class.getDeclaredMethod(
+          "registerAsParallelCapable");
+      register.invoke(null);
+    } catch (Exception ignored) {
+      // Older JRE; loading still works, just with the loader's monitor held.
+    }
+  }
+
   static {
     for (Class<?> c : BRIDGE_CLASSES) {
       BRIDGE_CLASS_NAMES.put(c.getName(), c);
@@ -909,6 +1045,12 @@ public final class CompilingClassLoader extends ClassLoader implements
 
   private final DispatchClassInfoOracle dispClassInfoOracle = new DispatchClassInfoOracle();
 
+  /**
+   * Rewritten bytes computed by {@link #precomputeRewrites()}, by binary class
+   * name. An entry is removed once its class has been defined.
+   */
+  private final ConcurrentMap<String, PrecomputedRewrite> precomputedRewrites = new ConcurrentHashMap<String, PrecomputedRewrite>();
+
   private Class<?> gwtClass, javaScriptHostClass;
 
   /**
@@ -920,6 +1062,8 @@ public final class CompilingClassLoader extends ClassLoader implements
   
   private final TreeLogger logger;
 
+  private ExecutorService rewriteExecutor;
+
   private final Set<String> scriptOnlyClasses = new HashSet<String>();
 
   private ClassLoader scriptOnlyClassLoader;
@@ -928,6 +1072,12 @@ public final class CompilingClassLoader extends ClassLoader implements
 
   private final Set<String> singleJsoImplTypes = new HashSet<String>();
 
+  /**
+   * Held for reading by each background rewrite, which reads the type oracle,
+   * and for writing while the type oracle may change.
+   */
+  private final ReadWriteLock typeOracleLock = new ReentrantReadWriteLock();
+
   /**
    * Used by {@link #findClass(String)} to prevent reentrant JSNI injection.
    */
@@ -991,6 +1141,8 @@ public final class CompilingClassLoader extends ClassLoader implements
       // If we couldn't find the JSO class, we don't need to do any rewrites.
       classRewriter = null;
     }
+
+    precomputeRewrites();
   }
 
   /**
@@ -1075,6 +1227,11 @@ public final class CompilingClassLoader extends ClassLoader implements
 
     loadLock.lock();
     try {
+      // Another thread may have defined the class while this one waited
+      Class<?> loaded = findLoadedClass(className);
+      if (loaded != null) {
+        return loaded;
+      }
 
       if (scriptOnlyClasses.contains(className)) {
         // Allow the child ClassLoader to handle this
@@ -1213,9 +1370,35 @@ public final class CompilingClassLoader extends ClassLoader implements
     updateJavaScriptHost();
     weakJsoCache.clear();
     weakJavaWrapperCache.clear();
+    stopPrecomputingRewrites();
+    dispClassInfoOracle.logDispatchCounts(logger, MAX_CLASSES_IN_DISPATCH_LOG);
     dispClassInfoOracle.clear();
   }
 
+  /**
+   * Returns the number of rewrites computed in the background and not yet
+   * used. Visible for testing.
+   */
+  int getPrecomputedRewriteCount() {
+    return precomputedRewrites.size();
+  }
+
+  /**
+   * Waits for background rewrites in progress, and holds off new ones until
+   * {@link #resumeRewrites()}, so that the type oracle can be changed. A
+   * rebind does that when it adds generated types.
+   */
+  void pauseRewrites() {
+    typeOracleLock.writeLock().lock();
+  }
+
+  /**
+   * Lets background rewrites continue after {@link #pauseRewrites()}.
+   */
+  void resumeRewrites() {
+    typeOracleLock.writeLock().unlock();
+  }
+
   /**
    * Convert a binary class name into a resource-like name.
    */
@@ -1307,12 +1490,15 @@ public final class CompilingClassLoader extends ClassLoader implements
       }
     }
     if (classBytes != null && classRewriter != null) {
-      Map<String, String> anonymousClassMap = Collections.emptyMap();
-      if (unit != null) {
-        anonymousClassMap = unit.getAnonymousClassMap();
+      byte[] newBytes = takePrecomputedRewrite(className, compiledClass);
+      if (newBytes == null) {
+        Map<String, String> anonymousClassMap = Collections.emptyMap();
+        if (unit != null) {
+          anonymousClassMap = unit.getAnonymousClassMap();
+        }
+        newBytes = classRewriter.rewrite(typeOracle, className, classBytes,
+            anonymousClassMap);
       }
-      byte[] newBytes = classRewriter.rewrite(typeOracle, className,
-          classBytes, anonymousClassMap);
       if (CLASS_DUMP) {
         if (!Arrays.equals(classBytes, newBytes)) {
           classDump(className, newBytes);
@@ -1391,6 +1577,105 @@ public final class CompilingClassLoader extends ClassLoader implements
     }
   }
 
+  /**
+   * Rewrites the module's compiled classes on background threads, so that
+   * {@link #findClass(String)} mostly finds rewritten bytes ready instead of
+   * rewriting each class on the loading thread.
+   */
+  private void precomputeRewrites() {
+    if (!PRECOMPUTE_REWRITES || classRewriter == null || emmaAvailable
+        || CLASS_DUMP) {
+      return;
+    }
+    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    rewriteExecutor = Executors.newFixedThreadPool(threads,
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Class rewriter");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          }
+        });
+    for (final CompiledClass compiledClass : compilationState.getClassFileMap().values()) {
+      if (compiledClass.getUnit().isSuperSource()) {
+        continue;
+      }
+      String binaryName = InternalName.toBinaryName(compiledClass.getInternalName());
+      if (BRIDGE_CLASS_NAMES.containsKey(binaryName)) {
+        continue;
+      }
+      if (classRewriter.isJsoIntf(binaryName)) {
+        // The interface is synthesized; the impl is rewritten from these bytes.
+        binaryName += "$";
+        if (!classRewriter.isJsoImpl(binaryName)) {
+          continue;
+        }
+      }
+      final String className = binaryName;
+      rewriteExecutor.execute(new Runnable() {
+        public void run() {
+          typeOracleLock.readLock().lock();
+          try {
+            if (findLoadedClass(className) != null) {
+              return;
+            }
+            byte[] bytes = classRewriter.rewrite(typeOracle, className,
+                compiledClass.getBytes(),
+                compiledClass.getUnit().getAnonymousClassMap());
+            precomputedRewrites.putIfAbsent(className, new PrecomputedRewrite(
+                compiledClass, bytes));
+          } catch (Throwable e) {
+            // Leave it to findClass(), which reports problems on the thread
+            // that actually needs the class.
+          } finally {
+            typeOracleLock.readLock().unlock();
+          }
+        }
+      });
+    }
+    rewriteExecutor.shutdown();
+  }
+
+  /**
+   * Stops background rewriting and waits for rewrites in progress to finish,
+   * so nothing reads the type oracle once the compilation state is refreshed.
+   */
+  private void stopPrecomputingRewrites() {
+    if (rewriteExecutor != null) {
+      rewriteExecutor.shutdownNow();
+      boolean interrupted = false;
+      while (true) {
+        try {
+          if (rewriteExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+            break;
+          }
+        } catch (InterruptedException e) {
+          // A rewrite still in progress must not outlive the type oracle
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      rewriteExecutor = null;
+    }
+    precomputedRewrites.clear();
+  }
+
+  /**
+   * Returns the precomputed rewrite of a class, if there is one and it was
+   * made from the same compiled class.
+   */
+  private byte[] takePrecomputedRewrite(String className,
+      CompiledClass compiledClass) {
+    PrecomputedRewrite rewrite = precomputedRewrites.remove(className);
+    if (rewrite == null || rewrite.source != compiledClass) {
+      return null;
+    }
+    return rewrite.bytes.get();
+  }
+
   private boolean typeHasCompilationUnit(String className) {
     return getUnitForClassName(className) != null;
   }
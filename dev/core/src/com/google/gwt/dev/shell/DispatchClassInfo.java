@@ -27,20 +27,31 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Helper class for dispatching methods to Java objects. It takes methods on
  * various Java classes and assigns DISPID's to them.
+ *
+ * <p>Instances are safe to use from multiple threads. The member tables are
+ * built once, on first use, and never change afterwards.
  */
 public class DispatchClassInfo {
   private Class<?> cls;
 
   private final int clsId;
 
-  private ArrayList<Member> memberById;
+  private final AtomicLong dispatchCount = new AtomicLong();
 
-  private HashMap<String, Integer> memberIdByName;
+  /**
+   * Written last during initialization; a non-null value means
+   * {@link #memberIdByName} is also ready.
+   */
+  private volatile ArrayList<Member> memberById;
+
+  private Map<String, Integer> memberIdByName;
 
   public DispatchClassInfo(Class<?> cls, int classId) {
     this.cls = cls;
@@ -51,6 +62,14 @@ public class DispatchClassInfo {
     return clsId;
   }
 
+  /**
+   * Returns the number of times the browser has dispatched into a member of
+   * this class.
+   */
+  public long getDispatchCount() {
+    return dispatchCount.get();
+  }
+
   public Member getMember(int id) {
     lazyInitTargetMembers();
     id &= 0xffff;
@@ -68,6 +87,17 @@ public class DispatchClassInfo {
     return id.intValue();
   }
 
+  public Class<?> getWrappedClass() {
+    return cls;
+  }
+
+  /**
+   * Records one dispatch from the browser into a member of this class.
+   */
+  public void recordDispatch() {
+    dispatchCount.incrementAndGet();
+  }
+
   private void addMember(
       LinkedHashMap<String, LinkedHashMap<String, Member>> members,
       Member member, String sig) {
@@ -80,11 +110,11 @@ public class DispatchClassInfo {
     membersWithSig.put(fullSig, member);
   }
 
-  private void addMemberIfUnique(String name, List<Member> membersForName) {
+  private void addMemberIfUnique(ArrayList<Member> byId,
+      Map<String, Integer> idByName, String name, List<Member> membersForName) {
     if (membersForName.size() == 1) {
-      memberById.add(membersForName.get(0));
-      memberIdByName.put(
-          StringInterner.get().intern(name), memberById.size() - 1);
+      byId.add(membersForName.get(0));
+      idByName.put(StringInterner.get().intern(name), byId.size() - 1);
     }
   }
 
@@ -228,10 +258,16 @@ public class DispatchClassInfo {
   }
 
   private void lazyInitTargetMembers() {
-    if (memberById == null) {
-      memberById = new ArrayList<Member>();
-      memberById.add(null); // 0 is reserved; it's magic on Win32
-      memberIdByName = new HashMap<String, Integer>();
+    if (memberById != null) {
+      return;
+    }
+    synchronized (this) {
+      if (memberById != null) {
+        return;
+      }
+      ArrayList<Member> byId = new ArrayList<Member>();
+      byId.add(null); // 0 is reserved; it's magic on Win32
+      HashMap<String, Integer> idByName = new HashMap<String, Integer>();
 
       LinkedHashMap<String, LinkedHashMap<String, Member>> members = findMostDerivedMembers(
           cls, true);
@@ -240,9 +276,13 @@ public class DispatchClassInfo {
 
         List<Member> membersForName = new ArrayList<Member>(
             entry.getValue().values());
-        addMemberIfUnique(name, membersForName); // backward compatibility
-        addMemberIfUnique(name, filterOutSyntheticMembers(membersForName));
+        // backward compatibility
+        addMemberIfUnique(byId, idByName, name, membersForName);
+        addMemberIfUnique(byId, idByName, name,
+            filterOutSyntheticMembers(membersForName));
       }
+      memberIdByName = idByName;
+      memberById = byId;
     }
   }
 }
@@ -76,10 +76,16 @@ public class OophmSessionHandler extends SessionHandlerServer {
       CompilingClassLoader ccl = moduleSpace.getIsolatedClassLoader();
       obj.setWrappedJavaObject(ccl, localObjects.get(refId));
       dispObj = obj.getJavaObjectWrapper();
-      TreeLogger branch = logger.branch(TreeLogger.SPAM,
-          "Client special invoke of getProperty(" + dispId + " ["
-              + ccl.getClassInfoByDispId(dispId).getMember(dispId) + "]) on "
-              + obj.toString(), null);
+      DispatchClassInfo clsInfo = ccl.getClassInfoByDispId(dispId);
+      if (clsInfo != null) {
+        clsInfo.recordDispatch();
+      }
+      TreeLogger branch = TreeLogger.NULL;
+      if (logger.isLoggable(TreeLogger.SPAM)) {
+        branch = logger.branch(TreeLogger.SPAM,
+            "Client special invoke of getProperty(" + dispId + " ["
+                + clsInfo.getMember(dispId) + "]) on " + obj.toString(), null);
+      }
       JsValueOOPHM jsval = (JsValueOOPHM) dispObj.getField(dispId);
       Value retVal = channel.convertFromJsValue(localObjects, jsval);
       if (logger.isLoggable(TreeLogger.SPAM)) {
@@ -115,11 +121,15 @@ public class OophmSessionHandler extends SessionHandlerServer {
       methodDispatchId = cl.getDispId("java.lang.Object::toString()");
     }
 
+    DispatchClassInfo clsInfo = cl.getClassInfoByDispId(methodDispatchId);
+    if (clsInfo != null) {
+      clsInfo.recordDispatch();
+    }
+
     JsValueOOPHM jsThis = new JsValueOOPHM();
     channel.convertToJsValue(cl, localObjects, thisVal, jsThis);
 
     if (SpeedTracerLogger.jsniCallLoggingEnabled()) {
-      DispatchClassInfo clsInfo = cl.getClassInfoByDispId(methodDispatchId);
       if (clsInfo != null) {
         Member member = clsInfo.getMember(methodDispatchId);
         if (member != null) {
@@ -133,9 +143,8 @@ public class OophmSessionHandler extends SessionHandlerServer {
       StringBuffer logMsg = new StringBuffer();
       logMsg.append("Client invoke of ");
       logMsg.append(methodDispatchId);
-      DispatchClassInfo classInfo = cl.getClassInfoByDispId(methodDispatchId);
-      if (classInfo != null) {
-        Member member = classInfo.getMember(methodDispatchId);
+      if (clsInfo != null) {
+        Member member = clsInfo.getMember(methodDispatchId);
         if (member != null) {
           logMsg.append(" (");
           logMsg.append(member.getName());
@@ -238,6 +247,11 @@ public class OophmSessionHandler extends SessionHandlerServer {
       obj.setWrappedJavaObject(moduleSpace.getIsolatedClassLoader(),
           localObjects.get(refId));
       dispObj = obj.getJavaObjectWrapper();
+      DispatchClassInfo clsInfo =
+          moduleSpace.getIsolatedClassLoader().getClassInfoByDispId(dispId);
+      if (clsInfo != null) {
+        clsInfo.recordDispatch();
+      }
       if (logger.isLoggable(TreeLogger.SPAM)) {
         logger.log(TreeLogger.SPAM, "Client special invoke of setProperty(id="
             + dispId + ", newValue=" + newValue + ") on " + obj.toString(), null);
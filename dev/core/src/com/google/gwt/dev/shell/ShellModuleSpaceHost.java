@@ -138,12 +138,18 @@ public class ShellModuleSpaceHost implements ModuleSpaceHost {
       throws UnableToCompleteException {
     synchronized (rebindLock) {
       checkForModuleSpace();
-      return rebindOracle.rebind(logger, sourceTypeName, new ArtifactAcceptor() {
-        public void accept(TreeLogger logger, ArtifactSet newlyGeneratedArtifacts)
-        throws UnableToCompleteException {
-          artifactAcceptor.accept(logger, newlyGeneratedArtifacts);
-        }
-      });
+      // Generated types are added to the type oracle that rewrites read
+      classLoader.pauseRewrites();
+      try {
+        return rebindOracle.rebind(logger, sourceTypeName, new ArtifactAcceptor() {
+          public void accept(TreeLogger logger, ArtifactSet newlyGeneratedArtifacts)
+          throws UnableToCompleteException {
+            artifactAcceptor.accept(logger, newlyGeneratedArtifacts);
+          }
+        });
+      } finally {
+        classLoader.resumeRewrites();
+      }
     }
   }
 
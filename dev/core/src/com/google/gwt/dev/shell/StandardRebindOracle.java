@@ -47,6 +47,12 @@ public class StandardRebindOracle implements RebindOracle {
    */
   private final class Rebinder implements RebindRuleResolver {
 
+    private final StandardGeneratorContext context;
+
+    public Rebinder(StandardGeneratorContext context) {
+      this.context = context;
+    }
+
     @Override
     public boolean checkRebindRuleResolvable(String typeName) {
       try {
@@ -62,8 +68,8 @@ public class StandardRebindOracle implements RebindOracle {
         throws UnableToCompleteException {
       Event rebindEvent = SpeedTracerLogger.start(DevModeEventType.REBIND, "Type Name", typeName);
       try {
-        genCtx.setPropertyOracle(propOracle);
-        genCtx.setRebindRuleResolver(this);
+        context.setPropertyOracle(propOracle);
+        context.setRebindRuleResolver(this);
         Rule rule = getRebindRule(logger, typeName);
 
         if (rule == null) {
@@ -72,11 +78,11 @@ public class StandardRebindOracle implements RebindOracle {
 
         CachedGeneratorResult cachedResult = rebindCacheGet(rule, typeName);
         if (cachedResult != null) {
-          genCtx.setCachedGeneratorResult(cachedResult);
+          context.setCachedGeneratorResult(cachedResult);
         }
 
         // realize the rule (call a generator, or do type replacement, etc.)
-        RebindResult result = rule.realize(logger, genCtx, typeName);
+        RebindResult result = rule.realize(logger, context, typeName);
 
         // handle rebind result caching (if enabled)
         String resultTypeName =
@@ -87,7 +93,7 @@ public class StandardRebindOracle implements RebindOracle {
          */
         if (artifactAcceptor != null) {
           // Go ahead and call finish() to accept new artifacts.
-          ArtifactSet newlyGeneratedArtifacts = genCtx.finish(logger);
+          ArtifactSet newlyGeneratedArtifacts = context.finish(logger);
           if (!newlyGeneratedArtifacts.isEmpty()) {
             artifactAcceptor.accept(logger, newlyGeneratedArtifacts);
           }
@@ -118,7 +124,7 @@ public class StandardRebindOracle implements RebindOracle {
         //
         TreeLogger branch = Messages.TRACE_CHECKING_RULE.branch(logger, rule, null);
 
-        if (rule.isApplicable(branch, genCtx, typeName)) {
+        if (rule.isApplicable(branch, context, typeName)) {
           Messages.TRACE_RULE_MATCHED.log(logger, null);
           return rule;
         } else {
@@ -169,7 +175,7 @@ public class StandardRebindOracle implements RebindOracle {
 
       String resultTypeName = newResult.getResultTypeName();
 
-      if (!genCtx.isGeneratorResultCachingEnabled()) {
+      if (!context.isGeneratorResultCachingEnabled()) {
         return resultTypeName;
       }
 
@@ -191,8 +197,8 @@ public class StandardRebindOracle implements RebindOracle {
         case USE_ALL_NEW:
           // use all new results, add a new cache entry
           cachedResult =
-              new CachedGeneratorResultImpl(newResult.getResultTypeName(), genCtx.getArtifacts(),
-                  genCtx.getGeneratedUnitMap(), System.currentTimeMillis(), newResult
+              new CachedGeneratorResultImpl(newResult.getResultTypeName(), context.getArtifacts(),
+                  context.getGeneratedUnitMap(), System.currentTimeMillis(), newResult
                       .getClientDataMap());
           rebindCachePut(rule, typeName, cachedResult);
           break;
@@ -201,8 +207,8 @@ public class StandardRebindOracle implements RebindOracle {
           // use all cached results
           assert (cachedResult != null);
 
-          genCtx.commitArtifactsFromCache(logger);
-          genCtx.addGeneratedUnitsFromCache();
+          context.commitArtifactsFromCache(logger);
+          context.addGeneratedUnitsFromCache();
 
           // use cached type name
           resultTypeName = cachedResult.getResultTypeName();
@@ -214,22 +220,22 @@ public class StandardRebindOracle implements RebindOracle {
            * TODO(jbrosenberg): add support for reusing artifacts as well as
            * GeneratedUnits.
            */
-          genCtx.addGeneratedUnitsMarkedForReuseFromCache();
+          context.addGeneratedUnitsMarkedForReuseFromCache();
 
           /*
            * Create a new cache entry using the composite set of new and reused
-           * cached results currently in genCtx.
+           * cached results currently in context.
            */
           cachedResult =
-              new CachedGeneratorResultImpl(newResult.getResultTypeName(), genCtx.getArtifacts(),
-                  genCtx.getGeneratedUnitMap(), System.currentTimeMillis(), newResult
+              new CachedGeneratorResultImpl(newResult.getResultTypeName(), context.getArtifacts(),
+                  context.getGeneratedUnitMap(), System.currentTimeMillis(), newResult
                       .getClientDataMap());
           rebindCachePut(rule, typeName, cachedResult);
           break;
       }
 
       // clear the current cached result
-      genCtx.setCachedGeneratorResult(null);
+      context.setCachedGeneratorResult(null);
 
       return resultTypeName;
     }
@@ -267,12 +273,31 @@ public class StandardRebindOracle implements RebindOracle {
 
   public String rebind(TreeLogger logger, String typeName, ArtifactAcceptor artifactAcceptor)
       throws UnableToCompleteException {
+    return rebind(logger, typeName, artifactAcceptor, genCtx);
+  }
+
+  /**
+   * Rebinds a type using the given generator context rather than the one this
+   * oracle was constructed with, typically a {@link StandardGeneratorContext#fork
+   * fork} of it. Calls for a single oracle must not overlap.
+   */
+  public String rebindInContext(TreeLogger logger, String typeName,
+      StandardGeneratorContext context) throws UnableToCompleteException {
+    return rebind(logger, typeName, null, context);
+  }
+
+  public void setRebindCache(RebindCache cache) {
+    this.rebindCache = cache;
+  }
+
+  private String rebind(TreeLogger logger, String typeName, ArtifactAcceptor artifactAcceptor,
+      StandardGeneratorContext context) throws UnableToCompleteException {
 
     String resultTypeName = typeNameBindingMap.get(typeName);
     if (resultTypeName == null) {
       logger = Messages.TRACE_TOPLEVEL_REBIND.branch(logger, typeName, null);
 
-      Rebinder rebinder = new Rebinder();
+      Rebinder rebinder = new Rebinder(context);
       resultTypeName = rebinder.rebind(logger, typeName, artifactAcceptor);
       typeNameBindingMap.put(typeName, resultTypeName);
 
@@ -281,10 +306,6 @@ public class StandardRebindOracle implements RebindOracle {
     return resultTypeName;
   }
 
-  public void setRebindCache(RebindCache cache) {
-    this.rebindCache = cache;
-  }
-
   private CachedGeneratorResult rebindCacheGet(Rule rule, String typeName) {
     if (rebindCache != null) {
       return rebindCache.get(rule, typeName);
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link OutputFileSet} on a directory that only rewrites files whose
+ * content has changed. The content hash and modification time of every file
+ * written are recorded in a manifest next to the output directory, so that it
+ * is never served along with the output (see {@link #getManifest}). On the
+ * next build, a file whose content hashes the same as its manifest entry, and
+ * which has not been modified since, or whose content on disk hashes the same,
+ * is left untouched, including its timestamp. Files from the previous manifest
+ * that are no longer produced are deleted.
+ * 
+ * <p>
+ * If there is no manifest, the state of the directory is unknown, so it is
+ * cleared first, as {@link OutputFileSetOnDirectory} users have always done.
+ * Files are hashed and written on a pool of threads; {@link #close()} waits
+ * for them to finish. Two instances must not share the same output root.
+ * </p>
+ */
+public class IncrementalOutputFileSetOnDirectory extends OutputFileSet {
+
+  /**
+   * Buffers the content of one file until it is closed, then hands it to the
+   * write pool.
+   */
+  private final class BufferedFileOutputStream extends ByteArrayOutputStream {
+    private boolean closed;
+    private final long lastModifiedTime;
+    private final String path;
+
+    BufferedFileOutputStream(String path, long lastModifiedTime) {
+      this.path = path;
+      this.lastModifiedTime = lastModifiedTime;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        submitWrite(path, toByteArray(), lastModifiedTime);
+      }
+    }
+  }
+
+  /**
+   * What the manifest records about one file.
+   */
+  private static final class ManifestEntry {
+    final String hash;
+    final long lastModified;
+
+    ManifestEntry(String hash, long lastModified) {
+      this.hash = hash;
+      this.lastModified = lastModified;
+    }
+  }
+
+  /**
+   * The prefix of the name of each manifest file.
+   */
+  public static final String MANIFEST_PREFIX = ".gwt-output-hashes-";
+
+  private final Set<String> createdDirs = new HashSet<String>();
+  private ExecutorService executor;
+  private final Map<String, Future<?>> lastWrites = new HashMap<String, Future<?>>();
+  private final File manifest;
+  private final Map<String, ManifestEntry> newEntries = Collections.synchronizedMap(new TreeMap<String, ManifestEntry>());
+  private final Map<String, ManifestEntry> oldEntries;
+  private final List<Future<?>> pendingWrites = new ArrayList<Future<?>>();
+  private final File root;
+  private final AtomicInteger skippedCount = new AtomicInteger();
+  private final AtomicInteger writtenCount = new AtomicInteger();
+
+  public IncrementalOutputFileSetOnDirectory(File dir, String prefix) {
+    super(dir.getAbsolutePath());
+    root = new File(dir, prefix);
+    manifest = getManifest(dir, prefix);
+    oldEntries = readManifest(manifest);
+    if (oldEntries.isEmpty()) {
+      Util.recursiveDelete(root, true);
+    }
+    executor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Output writer");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  /**
+   * Waits for all pending writes, deletes the files that were produced by the
+   * previous build but not by this one, and records the new manifest.
+   */
+  @Override
+  public void close() throws IOException {
+    if (executor == null) {
+      return;
+    }
+    try {
+      for (Future<?> write : pendingWrites) {
+        write.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException("Unexpected error writing output",
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted writing output");
+    } finally {
+      executor.shutdownNow();
+      executor = null;
+    }
+
+    for (String path : oldEntries.keySet()) {
+      if (!newEntries.containsKey(path)) {
+        pathToFile(path).delete();
+      }
+    }
+    writeManifest();
+  }
+
+  /**
+   * Returns the manifest of the output written under <code>prefix</code> in
+   * <code>dir</code>. It sits beside <code>dir</code> rather than in it, as the
+   * persistent unit cache sits beside the war directory, so that it is not
+   * deployed. The root of the file system has no such place, so the manifest
+   * is put in <code>dir</code> itself there.
+   */
+  public static File getManifest(File dir, String prefix) {
+    dir = dir.getAbsoluteFile();
+    String name = MANIFEST_PREFIX + dir.getName() + "-"
+        + prefix.replaceAll("[/\\\\]+$", "").replaceAll("[/\\\\]", "-");
+    File parent = dir.getParentFile();
+    return new File(parent == null ? dir : parent, name);
+  }
+
+  /**
+   * Returns the number of files left untouched because their content had not
+   * changed. Only meaningful after {@link #close()}.
+   */
+  public int getSkippedCount() {
+    return skippedCount.get();
+  }
+
+  /**
+   * Returns the number of files actually written. Only meaningful after
+   * {@link #close()}.
+   */
+  public int getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  @Override
+  protected OutputStream createNewOutputStream(String path,
+      long lastModifiedTime) {
+    if (executor == null) {
+      throw new IllegalStateException("Output has already been closed");
+    }
+    return new BufferedFileOutputStream(path, lastModifiedTime);
+  }
+
+  /**
+   * Reads a manifest of lines of the form
+   * <code>&lt;hash&gt; &lt;lastModified&gt; &lt;path&gt;</code>, ignoring
+   * any malformed lines.
+   */
+  private static Map<String, ManifestEntry> readManifest(File manifest) {
+    Map<String, ManifestEntry> entries = new HashMap<String, ManifestEntry>();
+    if (!manifest.isFile()) {
+      return entries;
+    }
+    String contents = Util.readFileAsString(manifest);
+    if (contents == null) {
+      return entries;
+    }
+    for (String line : contents.split("\n")) {
+      String[] parts = line.split(" ", 3);
+      if (parts.length == 3) {
+        try {
+          entries.put(parts[2], new ManifestEntry(parts[0],
+              Long.parseLong(parts[1])));
+        } catch (NumberFormatException e) {
+          // Ignore the line, so the file is hashed on disk
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * A faster bulk version of {@link File#mkdirs()} that avoids recreating the
+   * same directory multiple times.
+   */
+  private synchronized void mkdirs(File dir) {
+    if (dir == null) {
+      return;
+    }
+    String path = dir.getPath();
+    if (createdDirs.contains(path)) {
+      return;
+    }
+    createdDirs.add(path);
+    if (!dir.exists()) {
+      mkdirs(dir.getParentFile());
+      dir.mkdir();
+    }
+  }
+
+  private File pathToFile(String path) {
+    File file = root;
+    for (String part : path.split("/")) {
+      file = new File(file, part);
+    }
+    return file;
+  }
+
+  /**
+   * Queues the write of one file. A later write of the same path waits for the
+   * earlier one, so the last content written wins, as it would on disk.
+   */
+  private void submitWrite(final String path, final byte[] bytes,
+      final long lastModifiedTime) {
+    final Future<?> previous = lastWrites.get(path);
+    Future<?> write = executor.submit(new Callable<Void>() {
+      public Void call() throws Exception {
+        if (previous != null) {
+          previous.get();
+        }
+        writeIfChanged(path, bytes, lastModifiedTime);
+        return null;
+      }
+    });
+    lastWrites.put(path, write);
+    pendingWrites.add(write);
+  }
+
+  /**
+   * Writes a file unless it already has the given content. The manifest entry
+   * is trusted only if the file has not been modified since it was recorded;
+   * otherwise the file on disk is hashed.
+   */
+  private void writeIfChanged(String path, byte[] bytes, long lastModifiedTime)
+      throws IOException {
+    String hash = Util.computeStrongName(bytes);
+
+    File file = pathToFile(path);
+    if (file.isFile() && file.length() == bytes.length) {
+      ManifestEntry old = oldEntries.get(path);
+      String oldHash;
+      if (old != null && old.lastModified == file.lastModified()) {
+        oldHash = old.hash;
+      } else {
+        byte[] onDisk = Util.readFileAsBytes(file);
+        oldHash = onDisk == null ? null : Util.computeStrongName(onDisk);
+      }
+      if (hash.equals(oldHash)) {
+        newEntries.put(path, new ManifestEntry(hash, file.lastModified()));
+        skippedCount.incrementAndGet();
+        return;
+      }
+    }
+
+    mkdirs(file.getParentFile());
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+    if (lastModifiedTime >= 0) {
+      file.setLastModified(lastModifiedTime);
+    }
+    newEntries.put(path, new ManifestEntry(hash, file.lastModified()));
+    writtenCount.incrementAndGet();
+  }
+
+  private void writeManifest() throws IOException {
+    StringBuilder contents = new StringBuilder();
+    synchronized (newEntries) {
+      for (Map.Entry<String, ManifestEntry> entry : newEntries.entrySet()) {
+        contents.append(entry.getValue().hash).append(' ').append(
+            entry.getValue().lastModified).append(' ').append(entry.getKey()).append(
+            '\n');
+      }
+    }
+    mkdirs(manifest.getParentFile());
+    if (!Util.writeStringAsFile(manifest, contents.toString())) {
+      throw new IOException("Unable to write " + manifest);
+    }
+  }
+}
@@ -25,7 +25,11 @@ public enum DevModeEventType implements EventType {
   CLASS_BYTES_REWRITE("Class bytes rewrite", "DarkBlue"), //
   CREATE_UI("Create UI", "BlueViolet"), //
   CSB_ADD_GENERATED_TYPES("CSB Add Generated Types", "SteelBlue"), //
+  CSB_BUILD_AST("CSB Build AST", "CadetBlue"), //
   CSB_BUILD_FROM_ORACLE("CSB Build From Oracle", "SlateGray"), //
+  CSB_BUILD_UNIT("CSB Build Unit", "LightSteelBlue"), //
+  CSB_CHECK("CSB Check", "DarkCyan"), //
+  CSB_COLLECT_JSNI("CSB Collect JSNI", "MediumAquamarine"), //
   CSB_PROCESS("CSB Process", "Teal"), //
   COMP_STATE_ADD_GENERATED_UNITS("Comp State Add Generated Units", "Brown"), //
   DELETE_CACHE("Delete Persistent Cache", "summersky"), //
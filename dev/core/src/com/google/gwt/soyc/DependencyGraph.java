@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.soyc;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * One dependency graph of a Compile Report, mapping each live method to the
+ * method that made it live. Keys iterate in alphabetical order.
+ * <p>
+ * A graph that extends another graph shares that graph's entries instead of
+ * copying them, so that the many split point graphs extending the same base
+ * graph cost only their own entries. An entry in the extended graph takes
+ * precedence over one recorded in the extending graph.
+ */
+public class DependencyGraph extends AbstractMap<String, String> {
+
+  /**
+   * Merges two disjoint, sorted entry iterators into one sorted iterator.
+   */
+  private static class MergingIterator implements
+      Iterator<Entry<String, String>> {
+    private final Iterator<Entry<String, String>> a;
+    private final Iterator<Entry<String, String>> b;
+    private Entry<String, String> nextA;
+    private Entry<String, String> nextB;
+
+    public MergingIterator(Iterator<Entry<String, String>> a,
+        Iterator<Entry<String, String>> b) {
+      this.a = a;
+      this.b = b;
+      nextA = advance(a);
+      nextB = advance(b);
+    }
+
+    public boolean hasNext() {
+      return nextA != null || nextB != null;
+    }
+
+    public Entry<String, String> next() {
+      Entry<String, String> toReturn;
+      if (nextA == null && nextB == null) {
+        throw new NoSuchElementException();
+      } else if (nextB == null
+          || (nextA != null && nextA.getKey().compareTo(nextB.getKey()) < 0)) {
+        toReturn = nextA;
+        nextA = advance(a);
+      } else {
+        toReturn = nextB;
+        nextB = advance(b);
+      }
+      return toReturn;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private Entry<String, String> advance(Iterator<Entry<String, String>> it) {
+      return it.hasNext() ? it.next() : null;
+    }
+  }
+
+  private final Map<String, String> ownEntries = new TreeMap<String, String>();
+
+  private final DependencyGraph extended;
+
+  /**
+   * Creates a graph extending <code>extended</code>, which may be
+   * <code>null</code>. The extended graph must not be modified afterwards.
+   */
+  public DependencyGraph(DependencyGraph extended) {
+    this.extended = extended;
+  }
+
+  /**
+   * Records that <code>method</code> is live because of
+   * <code>dependsOn</code>. Has no effect if a dependency is already known
+   * for <code>method</code>, in this graph or in the one it extends.
+   */
+  public void addDependency(String method, String dependsOn) {
+    if (!containsKey(method)) {
+      ownEntries.put(method, dependsOn);
+    }
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return ownEntries.containsKey(key)
+        || (extended != null && extended.containsKey(key));
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        Iterator<Entry<String, String>> own = Collections.unmodifiableMap(
+            ownEntries).entrySet().iterator();
+        if (extended == null) {
+          return own;
+        }
+        return new MergingIterator(own, extended.entrySet().iterator());
+      }
+
+      @Override
+      public int size() {
+        return DependencyGraph.this.size();
+      }
+    };
+  }
+
+  @Override
+  public String get(Object key) {
+    String value = ownEntries.get(key);
+    if (value == null && extended != null) {
+      value = extended.get(key);
+    }
+    return value;
+  }
+
+  @Override
+  public int size() {
+    return ownEntries.size() + (extended == null ? 0 : extended.size());
+  }
+}
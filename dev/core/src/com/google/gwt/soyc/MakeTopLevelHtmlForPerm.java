@@ -975,11 +975,43 @@ public class MakeTopLevelHtmlForPerm {
     outFile.close();
   }
 
-  public void makeDependenciesHtml() throws IOException {
-    for (String depGraphName : globalInformation.dependencies.keySet()) {
-      makeDependenciesHtml(depGraphName,
-          globalInformation.dependencies.get(depGraphName));
+  /**
+   * Produces an HTML file that displays dependencies.
+   *
+   * @param depGraphName name of dependency graph
+   * @param dependencies map of dependencies
+   * @throws IOException
+   */
+  public void makeDependenciesHtml(String depGraphName,
+      Map<String, String> dependencies) throws IOException {
+    String curPackageName = "";
+
+    HtmlInterner interner = new HtmlInterner();
+
+    for (String reportMethod : dependencies.keySet()) {
+      interner.intern(getPackageSubstring(reportMethod));
+      interner.intern(getClassSubstring(reportMethod));
+      interner.intern(getMethodSubstring(reportMethod));
+
+      String depMethod = dependencies.get(reportMethod);
+      while (depMethod != null) {
+        interner.intern(getPackageSubstring(depMethod));
+        interner.intern(getClassSubstring(depMethod));
+        interner.intern(getMethodSubstring(depMethod));
+        depMethod = dependencies.get(depMethod);
+      }
     }
+    interner.freeze();
+
+    // Write out the interned data values as a script element
+    String jsFileName = "methodDependencies-" + depGraphName + "-"
+        + getPermutationId() + ".js";
+    PrintWriter outFile = new PrintWriter(getOutFile(jsFileName));
+    interner.printInternedDataAsJs(outFile);
+    outFile.close();
+
+    makeDependenciesInternedHtml(depGraphName, dependencies, interner,
+        jsFileName);
   }
 
   public void makeLeftoverStatusPages() throws IOException {
@@ -1639,49 +1671,6 @@ public class MakeTopLevelHtmlForPerm {
     outFile.close();
   }
 
-  /**
-   * Produces an HTML file that displays dependencies.
-   *
-   * @param depGraphName name of dependency graph
-   * @param dependencies map of dependencies
-   * @throws IOException
-   */
-  private void makeDependenciesHtml(String depGraphName,
-      Map<String, String> dependencies) throws IOException {
-    String curPackageName = "";
-
-    HtmlInterner interner = new HtmlInterner();
-
-    for (String reportMethod : dependencies.keySet()) {
-      interner.intern(getPackageSubstring(reportMethod));
-      interner.intern(getClassSubstring(reportMethod));
-      interner.intern(getMethodSubstring(reportMethod));
-
-      String depMethod = dependencies.get(reportMethod);
-      while (depMethod != null) {
-        interner.intern(getPackageSubstring(depMethod));
-        interner.intern(getClassSubstring(depMethod));
-        interner.intern(getMethodSubstring(depMethod));
-        depMethod = dependencies.get(depMethod);
-      }
-    }
-    interner.freeze();
-
-    // Write out the interned data values as a script element
-    String jsFileName = "methodDependencies-" + depGraphName + "-"
-        + getPermutationId() + ".js";
-    PrintWriter outFile = new PrintWriter(getOutFile(jsFileName));
-    interner.printInternedDataAsJs(outFile);
-    outFile.close();
-
-    List<String> classesInPackage = new ArrayList<String>();
-    for (String method : dependencies.keySet()) {
-      classesInPackage.add(method);
-    }
-    makeDependenciesInternedHtml(depGraphName, 
-        classesInPackage, dependencies, interner, jsFileName);
-  }
-
   /**
    * Produces an HTML file that displays dependencies.
    *
@@ -1690,7 +1679,6 @@ public class MakeTopLevelHtmlForPerm {
    * @throws IOException
    */
   private void makeDependenciesInternedHtml(String depGraphName,
-      List<String> classesInSplitPoint,
       Map<String, String> dependencies, HtmlInterner interner, String jsFileName)
       throws IOException {
     String depGraphDescription = inferDepGraphDescription(depGraphName);
@@ -1709,7 +1697,8 @@ public class MakeTopLevelHtmlForPerm {
 
     // Write out the HTML
     outFile.print("<script>");
-    for (String method : classesInSplitPoint) {
+    boolean first = true;
+    for (String method : dependencies.keySet()) {
       // this key set is already in alphabetical order
       // get the package of this method, i.e., everything up to .[A-Z]
 
@@ -1717,12 +1706,13 @@ public class MakeTopLevelHtmlForPerm {
       String depMethod = dependencies.get(method);
       if (curClassName.compareTo(className) != 0) {
         curClassName = className;
-        if (method != classesInSplitPoint.get(0)) {
+        if (!first) {
           outFile.print("j();"); // close the previous table if not the first
         }
         interner.printDependencyClassHeader(outFile, className);
       }
       interner.printDependency(outFile, dependencies, method, depMethod);
+      first = false;
     }
     outFile.println("</script>");
 
@@ -41,10 +41,14 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Scanner;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -69,6 +73,12 @@ public class SoycDashboard {
     }
   }
 
+  /**
+   * System property naming the number of permutations whose reports are
+   * generated at once.
+   */
+  public static final String PROP_THREADS = "gwt.soyc.threads";
+
   public static void main(final String[] args) throws InterruptedException {
 
     System.out.println("WARNING: The direct use of the SoycDashboard is deprecated and will be removed. " +
@@ -99,24 +109,9 @@ public class SoycDashboard {
 
     try {
       Map<String, List<String>> permInfo = readPermutationInfo(settings);
-      SoycDashboard dashboard = new SoycDashboard(outDir);
-      for (String permutationId : permInfo.keySet()) {
-        dashboard.startNewPermutation(permutationId);
-        if (settings.symbolMapsDir.get() == null) {
-          dashboard.readFromFilesNamed(settings.storiesFileName,
-              settings.depFileName, settings.splitPointsFileName);
-        } else {
-          String soycDir = settings.soycDir.get();
-          dashboard.readFromFilesNamed(soycInputFile(soycDir, "stories",
-              permutationId), soycInputFile(soycDir, "dependencies",
-              permutationId), soycInputFile(soycDir, "splitPoints",
-              permutationId));
-        }
-        dashboard.generateForOnePermutation();
-        System.out.println("Finished creating reports for permutation.");
-      }
+      generateForAllPermutations(settings, outDir, permInfo.keySet());
 
-      dashboard.generateCrossPermutationFiles(permInfo);
+      new SoycDashboard(outDir).generateCrossPermutationFiles(permInfo);
       System.out.println("Finished creating reports. To see the dashboard, open index.html in your browser.");
     } catch (ParserConfigurationException e) {
       System.err.println("Could not parse document. " + e.getMessage());
@@ -181,62 +176,70 @@ public class SoycDashboard {
     }
   }
 
-  private static DefaultHandler parseXMLDocumentDependencies(
-      final Map<String, Map<String, String>> allDependencies) {
-    DefaultHandler handler = new DefaultHandler() {
-
-      // may want to create a class for this later
-      String curMethod;
-      Map<String, String> dependencies = new TreeMap<String, String>();
-      String graphExtends = null;
-      StringBuilder valueBuilder = new StringBuilder();
-
-      @Override
-      public void endElement(String uri, String localName, String qName) {
-        if (localName.compareTo("table") == 0) {
-          if (graphExtends != null) {
-            // Add in elements from the extended graph
-            for (Entry<String, String> entry : allDependencies.get(graphExtends).entrySet()) {
-              dependencies.put(entry.getKey(), entry.getValue());
+  /**
+   * Generates the reports for each permutation, reading and writing several
+   * permutations at once. The number of threads defaults to the number of
+   * processors and can be set with the {@value #PROP_THREADS} system property.
+   */
+  private static void generateForAllPermutations(final Settings settings,
+      final OutputDirectory outDir, Collection<String> permutationIds)
+      throws ParserConfigurationException, SAXException, IOException {
+    if (permutationIds.isEmpty()) {
+      return;
+    }
+    int numThreads = Math.min(permutationIds.size(), Integer.getInteger(
+        PROP_THREADS, Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+        numThreads));
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (final String permutationId : permutationIds) {
+        futures.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            SoycDashboard dashboard = new SoycDashboard(outDir);
+            dashboard.startNewPermutation(permutationId);
+            if (settings.symbolMapsDir.get() == null) {
+              dashboard.readFromFilesNamed(settings.storiesFileName,
+                  settings.depFileName, settings.splitPointsFileName);
+            } else {
+              String soycDir = settings.soycDir.get();
+              dashboard.readFromFilesNamed(soycInputFile(soycDir, "stories",
+                  permutationId), soycInputFile(soycDir, "dependencies",
+                  permutationId), soycInputFile(soycDir, "splitPoints",
+                  permutationId));
             }
+            dashboard.generateForOnePermutation();
+            System.out.println("Finished creating reports for permutation "
+                + permutationId + ".");
+            return null;
           }
-        }
+        }));
       }
-
-      @Override
-      public void startElement(String nsUri, String strippedName,
-          String tagName, final Attributes attributes) {
-
-        valueBuilder.delete(0, valueBuilder.length());
-
-        if (strippedName.compareTo("table") == 0
-            && (attributes.getValue("name") != null)) {
-          String name = attributes.getValue("name");
-          dependencies = new TreeMap<String, String>();
-          allDependencies.put(StringInterner.get().intern(name), dependencies);
-          if (attributes.getValue("extends") != null) {
-            graphExtends = StringInterner.get().intern(attributes.getValue("extends"));
-            if (!allDependencies.containsKey(graphExtends)) {
-              throw new FormatException("Graph " + name
-                  + " extends an unknown graph " + graphExtends);
-            }
-          } else {
-            graphExtends = null;
-          }
-        } else if ((strippedName.compareTo("method") == 0)
-            && (attributes.getValue("name") != null)) {
-          curMethod = StringInterner.get().intern(attributes.getValue("name"));
-        } else if ((strippedName.compareTo("called") == 0)
-            && (attributes.getValue("by") != null)) {
-          String curDepMethod = attributes.getValue("by");
-          if (!dependencies.containsKey(curMethod)) {
-            dependencies.put(StringInterner.get().intern(curMethod),
-                StringInterner.get().intern(curDepMethod));
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof ParserConfigurationException) {
+            throw (ParserConfigurationException) cause;
+          } else if (cause instanceof SAXException) {
+            throw (SAXException) cause;
+          } else if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
           }
+          throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while creating reports");
         }
       }
-    };
-    return handler;
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   private static Map<String, List<String>> readPermutationInfo(Settings settings)
@@ -326,11 +329,11 @@ public class SoycDashboard {
     MakeTopLevelHtmlForPerm.makeTopLevelHtmlForAllPerms(permInfo, outDir);
   }
 
+  /**
+   * Generates the reports for the current permutation other than the
+   * dependency pages, which {@link #readDependencies} writes as it reads them.
+   */
   public void generateForOnePermutation() throws IOException {
-    if (globalInformation.dependencies != null) {
-      makeTopLevelHtmlForPerm.makeDependenciesHtml();
-    }
-
     if (globalInformation.getNumSplitPoints() > 0) {
       makeTopLevelHtmlForPerm.makeSplitStatusPages();
       makeTopLevelHtmlForPerm.makeLeftoverStatusPages();
@@ -341,14 +344,27 @@ public class SoycDashboard {
     }
   }
 
+  /**
+   * Reads the dependency graphs of the current permutation, writing the page
+   * for each graph as soon as it has been read. Graphs that extend another
+   * graph share its entries rather than copying them. Split points should be
+   * read first, because the pages describe split points as initial or not.
+   */
   public void readDependencies(InputStream stream)
       throws ParserConfigurationException, SAXException, IOException {
-    globalInformation.dependencies = new TreeMap<String, Map<String, String>>();
+    globalInformation.dependencies = new TreeMap<String, DependencyGraph>();
     DefaultHandler depHandler = parseXMLDocumentDependencies(globalInformation.dependencies);
     SAXParserFactory depFactoryMain = SAXParserFactory.newInstance();
     depFactoryMain.setNamespaceAware(true);
     SAXParser saxParser = depFactoryMain.newSAXParser();
-    saxParser.parse(stream, depHandler);
+    try {
+      saxParser.parse(stream, depHandler);
+    } catch (SAXException e) {
+      if (e.getException() instanceof IOException) {
+        throw (IOException) e.getException();
+      }
+      throw e;
+    }
   }
 
   public void readSizeMaps(InputStream stream)
@@ -438,6 +454,62 @@ public class SoycDashboard {
     makeTopLevelHtmlForPerm.makeTopLevelShell();
   }
 
+  private DefaultHandler parseXMLDocumentDependencies(
+      final Map<String, DependencyGraph> allDependencies) {
+    DefaultHandler handler = new DefaultHandler() {
+
+      // may want to create a class for this later
+      String curMethod;
+      String curGraph;
+      DependencyGraph dependencies;
+
+      @Override
+      public void endElement(String uri, String localName, String qName)
+          throws SAXException {
+        if (localName.compareTo("table") == 0 && dependencies != null) {
+          // The graph is complete, so its page can be written right away
+          try {
+            makeTopLevelHtmlForPerm.makeDependenciesHtml(curGraph,
+                dependencies);
+          } catch (IOException e) {
+            throw new SAXException(e);
+          }
+          dependencies = null;
+        }
+      }
+
+      @Override
+      public void startElement(String nsUri, String strippedName,
+          String tagName, final Attributes attributes) {
+        if (strippedName.compareTo("table") == 0
+            && (attributes.getValue("name") != null)) {
+          String name = attributes.getValue("name");
+          DependencyGraph extended = null;
+          if (attributes.getValue("extends") != null) {
+            String graphExtends = attributes.getValue("extends");
+            extended = allDependencies.get(graphExtends);
+            if (extended == null) {
+              throw new FormatException("Graph " + name
+                  + " extends an unknown graph " + graphExtends);
+            }
+          }
+          curGraph = StringInterner.get().intern(name);
+          dependencies = new DependencyGraph(extended);
+          allDependencies.put(curGraph, dependencies);
+        } else if ((strippedName.compareTo("method") == 0)
+            && (attributes.getValue("name") != null)) {
+          curMethod = StringInterner.get().intern(attributes.getValue("name"));
+        } else if ((strippedName.compareTo("called") == 0)
+            && (attributes.getValue("by") != null)) {
+          String curDepMethod = attributes.getValue("by");
+          dependencies.addDependency(curMethod,
+              StringInterner.get().intern(curDepMethod));
+        }
+      }
+    };
+    return handler;
+  }
+
   private DefaultHandler parseXMLDocumentSizeMap(
       final GlobalInformation globalInformation) {
     return new DefaultHandler() {
@@ -646,15 +718,15 @@ public class SoycDashboard {
   private void readFromFilesNamed(String storiesFileName,
       String dependenciesFileName, String splitPointsFileName)
       throws ParserConfigurationException, SAXException, IOException {
-    if (dependenciesFileName != null && new File(dependenciesFileName).exists()) {
-      readDependencies(openPossiblyGzippedFile(dependenciesFileName));
-    }
-
     if (splitPointsFileName != null && new File(splitPointsFileName).exists()) {
       readSplitPoints(openPossiblyGzippedFile(splitPointsFileName));
     }
 
     readSizeMaps(openPossiblyGzippedFile(storiesFileName));
+
+    if (dependenciesFileName != null && new File(dependenciesFileName).exists()) {
+      readDependencies(openPossiblyGzippedFile(dependenciesFileName));
+    }
   }
 
   /*
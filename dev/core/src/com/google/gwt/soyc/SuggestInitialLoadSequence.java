@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.soyc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * The command-line entry point for turning a recorded sequence of split points
+ * into an initial load sequence for the compiler. The sequence is given as the
+ * split point numbers of one compilation, for example from
+ * {@link com.google.gwt.core.client.prefetch.LoadSequencePredictor#getLikelySequence(int)},
+ * and is translated into the names the compiler accepts using the
+ * <code>splitPoints</code> compile report of that compilation. The result is
+ * printed as module file entries for the
+ * <code>compiler.splitpoint.initial.sequence</code> property.
+ */
+public class SuggestInitialLoadSequence {
+
+  private static final String PROP_INITIAL_SEQUENCE = "compiler.splitpoint.initial.sequence";
+
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.err.println("Usage: java com.google.gwt.soyc.SuggestInitialLoadSequence "
+          + "splitPoints0.xml[.gz] splitPoint,splitPoint,...");
+      System.exit(1);
+      return; // not reached
+    }
+
+    Map<Integer, String> locations;
+    try {
+      locations = readSplitPointLocations(SoycDashboard.openPossiblyGzippedFile(args[0]));
+    } catch (IOException e) {
+      System.err.println("Cannot read " + args[0] + ": " + e.getMessage());
+      System.exit(1);
+      return; // not reached
+    } catch (SAXException e) {
+      System.err.println("Could not parse " + args[0] + ": " + e.getMessage());
+      System.exit(1);
+      return; // not reached
+    } catch (ParserConfigurationException e) {
+      System.err.println("Could not create SAX parser. " + e.getMessage());
+      System.exit(1);
+      return; // not reached
+    }
+
+    for (String splitPoint : args[1].split(",")) {
+      String location = null;
+      try {
+        location = locations.get(Integer.parseInt(splitPoint.trim()));
+      } catch (NumberFormatException e) {
+        // Reported below
+      }
+      if (location == null) {
+        System.err.println("Unknown split point: " + splitPoint);
+        System.exit(1);
+      }
+      System.out.println("<extend-configuration-property name=\"" + PROP_INITIAL_SEQUENCE
+          + "\" value=\"" + location + "\" />");
+    }
+  }
+
+  /**
+   * Reads the location of each split point from a <code>splitPoints</code>
+   * compile report.
+   */
+  static Map<Integer, String> readSplitPointLocations(InputStream stream)
+      throws ParserConfigurationException, SAXException, IOException {
+    final Map<Integer, String> locations = new HashMap<Integer, String>();
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    try {
+      factory.newSAXParser().parse(stream, new DefaultHandler() {
+        @Override
+        public void startElement(String nsUri, String strippedName, String tagName,
+            Attributes attributes) {
+          if ("splitpoint".equals(strippedName) && attributes.getValue("id") != null
+              && attributes.getValue("location") != null) {
+            locations.put(Integer.valueOf(attributes.getValue("id")),
+                attributes.getValue("location"));
+          }
+        }
+      });
+    } finally {
+      stream.close();
+    }
+    return locations;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev;
+
+import com.google.gwt.dev.util.OutputFileSet;
+import com.google.gwt.dev.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Tests the choice of output file sets in {@link Link}.
+ */
+public class LinkTest extends TestCase {
+  private File dir;
+
+  public void testDistinctDirectoriesGetDistinctFileSets() throws IOException {
+    OutputFileSet[] fileSets = Link.chooseOutputFileSets("mod/", new File(dir,
+        "war"), new File(dir, "deploy"), new File(dir, "extra"));
+    assertNotSame(fileSets[0], fileSets[1]);
+    assertNotSame(fileSets[0], fileSets[2]);
+    assertNotSame(fileSets[1], fileSets[2]);
+    close(fileSets);
+  }
+
+  public void testWarAndDeployInSameDirectory() throws IOException {
+    File war = new File(dir, "war");
+    // Written twice, as the second build is the one that used to delete files
+    for (int i = 0; i < 2; i++) {
+      OutputFileSet[] fileSets = Link.chooseOutputFileSets("mod/", war,
+          new File(war, "../war"), new File(dir, "extra"));
+      assertSame(fileSets[0], fileSets[1]);
+      assertNotSame(fileSets[0], fileSets[2]);
+      write(fileSets[0], "mod.nocache.js");
+      write(fileSets[1], "deployed.txt");
+      close(fileSets);
+    }
+    assertTrue(new File(war, "mod/mod.nocache.js").isFile());
+    assertTrue(new File(war, "mod/deployed.txt").isFile());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    dir = File.createTempFile("link", "");
+    dir.delete();
+    dir.mkdir();
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(dir, false);
+  }
+
+  private void close(OutputFileSet[] fileSets) throws IOException {
+    for (OutputFileSet fileSet : fileSets) {
+      fileSet.close();
+    }
+  }
+
+  private void write(OutputFileSet fileSet, String path) throws IOException {
+    OutputStream out = fileSet.openForWrite(path);
+    out.write(Util.getBytes(path));
+    out.close();
+  }
+}
@@ -1172,6 +1172,42 @@ public abstract class TypeOracleMediatorTestBase extends TestCase {
     assertEquals(3, types.length);
   }
 
+  /**
+   * Members may be resolved lazily, so make sure that racing first accesses
+   * all see the same, complete set of methods.
+   */
+  public void testMethodsFromSeveralThreads() throws TypeOracleException,
+      InterruptedException {
+    addTestResource(CU_Object);
+    addTestResource(CU_Throwable);
+    addTestResource(CU_MethodsAndParams);
+    buildTypeOracle();
+    final JClassType type = typeOracle.getType(CU_MethodsAndParams.getTypeName());
+    final JMethod[][] results = new JMethod[4][];
+    Thread[] threads = new Thread[results.length];
+    for (int i = 0; i < threads.length; ++i) {
+      final int index = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          results[index] = type.getMethods();
+        }
+      };
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (JMethod[] methods : results) {
+      assertEquals(6, methods.length);
+      for (int i = 0; i < methods.length; ++i) {
+        assertSame(results[0][i], methods[i]);
+      }
+    }
+  }
+
   public void testOuterInner() throws TypeOracleException {
     addTestResource(CU_Object);
     addTestResource(CU_OuterInner);
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tests {@link FragmentMerger}.
+ */
+public class FragmentMergerTest extends TestCase {
+
+  public void testMergeByCount() {
+    /*
+     * Split points 1 and 3 share atoms 4-7, and 2 and 4 share atom 8; 1 and 2
+     * share atom 9, but so does 4.
+     */
+    FragmentMerger merger = new FragmentMerger(Arrays.asList(1, 2, 3, 4),
+        Arrays.asList(bits(0, 4, 5, 6, 7, 9), bits(1, 8, 9), bits(2, 4, 5, 6, 7), bits(3, 8, 9)),
+        null);
+    assertEquals(groups(new int[] {1, 3}, new int[] {2, 4}), merger.merge(2, 0));
+  }
+
+  public void testMergeToOne() {
+    FragmentMerger merger = new FragmentMerger(Arrays.asList(1, 2, 3),
+        Arrays.asList(bits(0), bits(1), bits(2)), null);
+    assertEquals(groups(new int[] {1, 2, 3}), merger.merge(1, 0));
+  }
+
+  public void testMinSize() {
+    /*
+     * Split point 2 is small and shares the most with 3; split point 1 is big
+     * enough on its own.
+     */
+    FragmentMerger merger = new FragmentMerger(Arrays.asList(1, 2, 3),
+        Arrays.asList(bits(0, 4), bits(1, 3), bits(2, 3)), new int[] {10, 1, 10, 1, 1});
+    assertEquals(groups(new int[] {1}, new int[] {2, 3}), merger.merge(-1, 5));
+  }
+
+  public void testNoMerging() {
+    FragmentMerger merger = new FragmentMerger(Arrays.asList(1, 2),
+        Arrays.asList(bits(0, 2), bits(1, 2)), null);
+    assertEquals(groups(new int[] {1}, new int[] {2}), merger.merge(-1, 0));
+    merger = new FragmentMerger(Arrays.asList(1, 2), Arrays.asList(bits(0, 2), bits(1, 2)), null);
+    assertEquals(groups(new int[] {1}, new int[] {2}), merger.merge(2, 0));
+  }
+
+  private static BitSet bits(int... atoms) {
+    BitSet bits = new BitSet();
+    for (int atom : atoms) {
+      bits.set(atom);
+    }
+    return bits;
+  }
+
+  private static List<List<Integer>> groups(int[]... groups) {
+    List<List<Integer>> result = new ArrayList<List<Integer>>();
+    for (int[] group : groups) {
+      List<Integer> list = new ArrayList<Integer>();
+      for (int splitPoint : group) {
+        list.add(splitPoint);
+      }
+      result.add(list);
+    }
+    return result;
+  }
+}
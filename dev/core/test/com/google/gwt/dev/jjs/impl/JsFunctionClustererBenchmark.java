@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.core.ext.linker.impl.StandardStatementRanges;
+import com.google.gwt.dev.jjs.impl.JsFunctionClusterer.Strategy;
+import com.google.gwt.dev.js.JsParser;
+import com.google.gwt.dev.js.JsSourceGenerationVisitor;
+import com.google.gwt.dev.js.ast.JsBlock;
+import com.google.gwt.dev.js.ast.JsContext;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsProgram;
+import com.google.gwt.dev.js.ast.JsStatement;
+import com.google.gwt.dev.js.ast.JsVisitor;
+import com.google.gwt.dev.jjs.SourceInfo;
+import com.google.gwt.dev.util.DefaultTextOutput;
+import com.google.gwt.dev.util.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reports the time taken by each {@link JsFunctionClusterer.Strategy} on the
+ * JavaScript of a compiled permutation, and the gzipped size of the result.
+ * Each argument is a JavaScript file, such as the script of a permutation
+ * compiled in obfuscated mode. If the functions are wrapped in a function, as
+ * some linkers do, the largest block of statements in the file is clustered.
+ */
+public class JsFunctionClustererBenchmark {
+
+  /**
+   * Finds the list of statements, at top level or in a function body, with the
+   * most statements.
+   */
+  private static class LargestBlockFinder extends JsVisitor {
+    private List<JsStatement> largest;
+
+    LargestBlockFinder(List<JsStatement> topLevel) {
+      largest = topLevel;
+    }
+
+    @Override
+    public boolean visit(JsFunction x, JsContext ctx) {
+      List<JsStatement> statements = x.getBody().getStatements();
+      if (statements.size() > largest.size()) {
+        largest = statements;
+      }
+      return true;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println("Usage: java " + JsFunctionClustererBenchmark.class.getName()
+          + " <permutation.js>...");
+      System.exit(1);
+    }
+    for (String arg : args) {
+      benchmark(new File(arg));
+    }
+  }
+
+  private static void benchmark(File file) throws Exception {
+    JsProgram program = new JsProgram();
+    SourceInfo sourceInfo = program.createSourceInfo(1, file.getPath());
+    List<JsStatement> topLevel = JsParser.parse(sourceInfo, program.getScope(),
+        new StringReader(Util.readFileAsString(file)));
+    LargestBlockFinder finder = new LargestBlockFinder(topLevel);
+    finder.acceptList(topLevel);
+
+    // Print each statement on its own so that the ranges cover the output
+    DefaultTextOutput out = new DefaultTextOutput(true);
+    JsSourceGenerationVisitor v = new JsSourceGenerationVisitor(out);
+    ArrayList<Integer> starts = new ArrayList<Integer>();
+    ArrayList<Integer> ends = new ArrayList<Integer>();
+    for (JsStatement statement : finder.largest) {
+      JsBlock block = new JsBlock(sourceInfo);
+      block.getStatements().add(statement);
+      starts.add(out.getPosition());
+      v.accept(block);
+      ends.add(out.getPosition());
+    }
+    final String js = out.toString();
+    final StandardStatementRanges ranges = new StandardStatementRanges(starts,
+        ends);
+
+    System.out.println(file + ": " + starts.size() + " statements, "
+        + js.length() + " chars, " + gzipSize(js) + " bytes gzipped");
+    for (Strategy strategy : Strategy.values()) {
+      JsAbstractTextTransformer original = new JsAbstractTextTransformer(js,
+          ranges, null) {
+        @Override
+        public void exec() {
+        }
+
+        @Override
+        protected void updateSourceInfoMap() {
+        }
+      };
+      JsFunctionClusterer clusterer = new JsFunctionClusterer(original,
+          strategy);
+      long start = System.nanoTime();
+      clusterer.exec();
+      long millis = (System.nanoTime() - start) / 1000000;
+      System.out.println("  " + strategy + ": " + millis + " ms, "
+          + gzipSize(clusterer.getJs()) + " bytes gzipped");
+    }
+  }
+
+  private static int gzipSize(String js) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+    gzip.write(Util.getBytes(js));
+    gzip.close();
+    return bytes.size();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.core.ext.linker.StatementRanges;
+import com.google.gwt.core.ext.linker.impl.StandardStatementRanges;
+import com.google.gwt.dev.jjs.impl.JsFunctionClusterer.Strategy;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link JsFunctionClusterer}.
+ */
+public class JsFunctionClustererTest extends TestCase {
+
+  private static final String[] STATEMENTS = {
+      "function a(b){return b.foo.bar.baz(b.qux,b.quux,'hello world')}\n",
+      "function c(){throw new Error('completely different message here')}\n",
+      "function d(e,f,g){this.x=e;this.y=f;this.z=g;return this}\n",
+      "function h(b){return b.foo.bar.baz(b.qux,b.quux,'hello world!')}\n",
+      "var i=1;\n"};
+
+  public void testMinHashGroupsSimilarFunctions() {
+    JsFunctionClusterer clusterer = cluster(Strategy.MIN_HASH);
+    List<Integer> order = toList(clusterer.getReorderedIndices());
+    assertEquals(1, Math.abs(order.indexOf(0) - order.indexOf(3)));
+  }
+
+  public void testStatementsArePreserved() {
+    for (Strategy strategy : Strategy.values()) {
+      JsFunctionClusterer clusterer = cluster(strategy);
+      int[] order = clusterer.getReorderedIndices();
+      StatementRanges ranges = clusterer.getStatementRanges();
+      assertEquals(STATEMENTS.length, ranges.numStatements());
+      for (int i = 0; i < order.length; i++) {
+        assertEquals(STATEMENTS[order[i]], clusterer.getJs().substring(
+            ranges.start(i), ranges.end(i)));
+      }
+
+      // functions first, then everything else
+      assertEquals(4, order[STATEMENTS.length - 1]);
+      int[] sorted = order.clone();
+      Arrays.sort(sorted);
+      assertEquals(toList(new int[] {0, 1, 2, 3, 4}), toList(sorted));
+    }
+  }
+
+  private static JsFunctionClusterer cluster(Strategy strategy) {
+    StringBuilder js = new StringBuilder();
+    ArrayList<Integer> starts = new ArrayList<Integer>();
+    ArrayList<Integer> ends = new ArrayList<Integer>();
+    for (String statement : STATEMENTS) {
+      starts.add(js.length());
+      js.append(statement);
+      ends.add(js.length());
+    }
+    JsAbstractTextTransformer original = new JsAbstractTextTransformer(
+        js.toString(), new StandardStatementRanges(starts, ends), null) {
+      @Override
+      public void exec() {
+      }
+
+      @Override
+      protected void updateSourceInfoMap() {
+      }
+    };
+    JsFunctionClusterer clusterer = new JsFunctionClusterer(original, strategy);
+    clusterer.exec();
+    return clusterer;
+  }
+
+  private static List<Integer> toList(int[] values) {
+    List<Integer> list = new ArrayList<Integer>();
+    for (int value : values) {
+      list.add(value);
+    }
+    return list;
+  }
+}
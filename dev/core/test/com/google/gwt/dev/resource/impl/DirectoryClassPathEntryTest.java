@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.resource.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Tests that {@link DirectoryClassPathEntry} rescans pick up changes while
+ * reusing what has not changed.
+ */
+public class DirectoryClassPathEntryTest extends TestCase {
+
+  private File root;
+
+  public void testAddedFileIsFound() throws IOException {
+    File pkg = makeDir("com/example");
+    makeFile(pkg, "Foo.java");
+    DirectoryClassPathEntry cpe = new DirectoryClassPathEntry(root);
+    assertNotNull(find(cpe, "com/example/Foo.java"));
+    assertNull(find(cpe, "com/example/Bar.java"));
+
+    makeFile(pkg, "Bar.java");
+    assertNotNull(find(cpe, "com/example/Foo.java"));
+    assertNotNull(find(cpe, "com/example/Bar.java"));
+  }
+
+  public void testRemovedFileIsNotFound() throws IOException {
+    File pkg = makeDir("com/example");
+    File foo = makeFile(pkg, "Foo.java");
+    DirectoryClassPathEntry cpe = new DirectoryClassPathEntry(root);
+    assertNotNull(find(cpe, "com/example/Foo.java"));
+
+    assertTrue(foo.delete());
+    assertNull(find(cpe, "com/example/Foo.java"));
+  }
+
+  public void testUnchangedDirectoryIsReused() throws IOException {
+    File pkg = makeDir("com/example");
+    makeFile(pkg, "Foo.java");
+    // Make every directory look like it was last changed a while ago.
+    long past = System.currentTimeMillis() - 60 * 1000;
+    for (File dir = pkg; !dir.equals(root.getParentFile());
+        dir = dir.getParentFile()) {
+      assertTrue(dir.setLastModified(past));
+    }
+    DirectoryClassPathEntry cpe = new DirectoryClassPathEntry(root);
+    AbstractResource first = find(cpe, "com/example/Foo.java");
+    assertNotNull(first);
+    assertSame(first, find(cpe, "com/example/Foo.java"));
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    root = File.createTempFile("DirectoryClassPathEntryTest", "");
+    assertTrue(root.delete());
+    assertTrue(root.mkdir());
+    root = root.getAbsoluteFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    Util.recursiveDelete(root, false);
+  }
+
+  private AbstractResource find(DirectoryClassPathEntry cpe, String path) {
+    PathPrefixSet pathPrefixSet = new PathPrefixSet();
+    pathPrefixSet.add(new PathPrefix("", null));
+    Map<AbstractResource, PathPrefix> resources = cpe.findApplicableResources(
+        TreeLogger.NULL, pathPrefixSet);
+    for (AbstractResource resource : resources.keySet()) {
+      if (resource.getPath().equals(path)) {
+        return resource;
+      }
+    }
+    return null;
+  }
+
+  private File makeDir(String path) {
+    File dir = new File(root, path);
+    assertTrue(dir.mkdirs());
+    return dir;
+  }
+
+  private File makeFile(File dir, String name) {
+    File file = new File(dir, name);
+    Util.writeStringAsFile(file, "class " + name + " {}");
+    return file;
+  }
+}
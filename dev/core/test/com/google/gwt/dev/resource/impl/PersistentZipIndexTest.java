@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.resource.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link PersistentZipIndex}.
+ */
+public class PersistentZipIndexTest extends TestCase {
+
+  private static final List<String> ENTRY_NAMES = Arrays.asList(
+      "com/example/Foo.java", "com/example/Foo.class", "com/example/Foo.gwt.xml");
+
+  private File cacheDir;
+  private File zipFile;
+
+  public void testChangedZipFileIsNotRead() {
+    PersistentZipIndex index = new PersistentZipIndex(cacheDir);
+    index.write(TreeLogger.NULL, zipFile, 1000L, 200L, ENTRY_NAMES);
+    assertNull(index.read(TreeLogger.NULL, zipFile, 2000L, 200L));
+    assertNull(index.read(TreeLogger.NULL, zipFile, 1000L, 300L));
+    assertNull(index.read(TreeLogger.NULL, new File(zipFile.getParentFile(),
+        "other.jar"), 1000L, 200L));
+  }
+
+  public void testCorruptIndexIsNotRead() {
+    PersistentZipIndex index = new PersistentZipIndex(cacheDir);
+    index.write(TreeLogger.NULL, zipFile, 1000L, 200L, ENTRY_NAMES);
+    Util.writeStringAsFile(index.getIndexFile(zipFile), "garbage");
+    assertNull(index.read(TreeLogger.NULL, zipFile, 1000L, 200L));
+  }
+
+  public void testMissingIndexIsNotRead() {
+    PersistentZipIndex index = new PersistentZipIndex(cacheDir);
+    assertNull(index.read(TreeLogger.NULL, zipFile, 1000L, 200L));
+  }
+
+  public void testRoundTrip() {
+    new PersistentZipIndex(cacheDir).write(TreeLogger.NULL, zipFile, 1000L,
+        200L, ENTRY_NAMES);
+    // A fresh instance, as a later process would have.
+    List<String> entryNames = new PersistentZipIndex(cacheDir).read(
+        TreeLogger.NULL, zipFile, 1000L, 200L);
+    assertEquals(ENTRY_NAMES, entryNames);
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    cacheDir = File.createTempFile("PersistentZipIndexTest", "");
+    assertTrue(cacheDir.delete());
+    assertTrue(cacheDir.mkdir());
+    zipFile = new File(cacheDir, "lib.jar").getAbsoluteFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    Util.recursiveDelete(cacheDir, false);
+  }
+}
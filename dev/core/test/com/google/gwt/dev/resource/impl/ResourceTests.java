@@ -28,8 +28,10 @@ public class ResourceTests {
     TestSuite suite = new TestSuite("Resource tests");
     suite.addTestSuite(ClassPathEntryTest.class);
     suite.addTestSuite(DefaultFiltersTest.class);
+    suite.addTestSuite(DirectoryClassPathEntryTest.class);
     suite.addTestSuite(FileResourceTest.class);
     suite.addTestSuite(PathPrefixSetTest.class);
+    suite.addTestSuite(PersistentZipIndexTest.class);
     suite.addTestSuite(ResourceOracleImplRealClasspathTest.class);
     suite.addTestSuite(ResourceOracleImplTest.class);
     return suite;
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.shell;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.shell.BrowserChannel.ReturnMessage;
+import com.google.gwt.dev.shell.BrowserChannel.SessionHandler.ExceptionOrReturnValue;
+import com.google.gwt.dev.shell.BrowserChannel.Value;
+import com.google.gwt.dev.shell.BrowserChannelClient.SessionHandlerClient;
+import com.google.gwt.dev.shell.BrowserChannelServer.SessionHandlerServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Measures the cost of a DevMode JS/Java round trip at the protocol level,
+ * using a {@link BrowserChannelClient} over a loopback socket as a stand-in
+ * for the browser plugin.
+ *
+ * <p>Each round trip mirrors what a widget-heavy page does while loading: the
+ * server loads some JSNI, frees a JS reference, then invokes a method on the
+ * client and waits for its return value.
+ */
+public class BrowserChannelBenchmark {
+
+  /**
+   * Client that answers every invoke immediately.
+   */
+  private static class StandInClient extends SessionHandlerClient {
+
+    private final Object lock = new Object();
+
+    @Override
+    public void freeValue(BrowserChannelClient channel, int[] ids) {
+    }
+
+    @Override
+    public Object getSynchronizationObject() {
+      return lock;
+    }
+
+    @Override
+    public String getUserAgent() {
+      return "BrowserChannelBenchmark";
+    }
+
+    @Override
+    public ExceptionOrReturnValue invoke(BrowserChannelClient channel,
+        Value thisObj, String methodName, Value[] args) {
+      return new ExceptionOrReturnValue(false, args.length > 0 ? args[0]
+          : new Value());
+    }
+
+    @Override
+    public void loadJsni(BrowserChannelClient channel, String jsniString) {
+    }
+  }
+
+  /**
+   * Server that runs the timed round trips while loading the module.
+   */
+  private static class TimingServer extends SessionHandlerServer {
+
+    private volatile long bestNanos = Long.MAX_VALUE;
+    private volatile Throwable failure;
+    private final int passes;
+    private final int roundTrips;
+
+    public TimingServer(int passes, int roundTrips) {
+      this.passes = passes;
+      this.roundTrips = roundTrips;
+    }
+
+    @Override
+    public void freeValue(BrowserChannelServer channel, int[] ids) {
+    }
+
+    @Override
+    public ExceptionOrReturnValue getProperty(BrowserChannelServer channel,
+        int refId, int dispId) {
+      return new ExceptionOrReturnValue(false, new Value());
+    }
+
+    @Override
+    public ExceptionOrReturnValue invoke(BrowserChannelServer channel,
+        Value thisObj, int dispId, Value[] args) {
+      return new ExceptionOrReturnValue(false, new Value());
+    }
+
+    @Override
+    public TreeLogger loadModule(BrowserChannelServer channel,
+        String moduleName, String userAgent, String url, String tabKey,
+        String sessionKey, byte[] userAgentIcon) {
+      try {
+        // The first pass warms up the JIT and is not counted.
+        for (int pass = 0; pass <= passes; ++pass) {
+          long start = System.nanoTime();
+          for (int i = 0; i < roundTrips; ++i) {
+            channel.loadJsni("function f" + i + "() { }");
+            channel.freeJsValue(new int[] {i});
+            Value arg = new Value();
+            arg.setInt(i);
+            ReturnMessage ret = channel.invoke("f" + i, new Value(),
+                new Value[] {arg}, this);
+            if (ret.isException() || ret.getReturnValue().getInt() != i) {
+              throw new IllegalStateException("Bad return for round trip "
+                  + i);
+            }
+          }
+          long elapsed = System.nanoTime() - start;
+          if (pass > 0 && elapsed < bestNanos) {
+            bestNanos = elapsed;
+          }
+        }
+      } catch (Throwable e) {
+        failure = e;
+      }
+      return TreeLogger.NULL;
+    }
+
+    @Override
+    public ExceptionOrReturnValue setProperty(BrowserChannelServer channel,
+        int refId, int dispId, Value newValue) {
+      return new ExceptionOrReturnValue(false, new Value());
+    }
+
+    @Override
+    public void unloadModule(BrowserChannelServer channel, String moduleName) {
+    }
+  }
+
+  /**
+   * @param args optional number of timed passes and round trips per pass
+   */
+  public static void main(String[] args) throws IOException,
+      BrowserChannelException {
+    int passes = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int roundTrips = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+    TimingServer server = new TimingServer(passes, roundTrips);
+    ServerSocket serverSocket = new ServerSocket(0, 1,
+        InetAddress.getByName("localhost"));
+    try {
+      BrowserChannelClient client = new BrowserChannelClient(new String[] {
+          "localhost", String.valueOf(serverSocket.getLocalPort())},
+          "http://localhost/", "session", "benchmark",
+          HostedHtmlVersion.EXPECTED_GWT_ONLOAD_VERSION, new StandInClient());
+      Socket socket = serverSocket.accept();
+      new BrowserChannelServer(TreeLogger.NULL, socket, server, true);
+      client.process();
+      client.disconnectFromHost();
+    } finally {
+      serverSocket.close();
+    }
+
+    if (server.failure != null) {
+      server.failure.printStackTrace();
+      System.exit(1);
+    }
+    double micros = server.bestNanos / 1000.0 / roundTrips;
+    System.out.println(roundTrips + " round trips (LoadJsni + Free + Invoke), "
+        + "best of " + passes + ": " + (server.bestNanos / 1000000) + " ms, "
+        + String.format("%.1f", micros) + " us per round trip");
+  }
+}
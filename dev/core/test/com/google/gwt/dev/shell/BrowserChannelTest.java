@@ -42,7 +42,9 @@ import junit.framework.TestCase;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 /**
@@ -190,6 +192,40 @@ public class BrowserChannelTest extends TestCase {
     }
   }
 
+  public void testInvokeCycleMessagesAreBuffered() throws IOException,
+      BrowserChannelException {
+    final int[] flushCount = new int[1];
+    OutputStream countingStream = new FilterOutputStream(
+        bufferStream.getOutputStream()) {
+      @Override
+      public void flush() throws IOException {
+        ++flushCount[0];
+        super.flush();
+      }
+    };
+    TestBrowserChannel bufferedChannel = new TestBrowserChannel(
+        bufferStream.getInputStream(), countingStream);
+    new FreeMessage(bufferedChannel, new int[] { 42 }).send();
+    new LoadJsniMessage(bufferedChannel, "function foo() { }").send();
+    new InvokeOnClientMessage(bufferedChannel, "foo", new Value(),
+        new Value[0]).send();
+    assertEquals(0, flushCount[0]);
+
+    // Blocking for the reply is what pushes the batch out.
+    MessageType type = bufferedChannel.readMessageType();
+    assertEquals(1, flushCount[0]);
+    assertEquals(MessageType.FREE_VALUE, type);
+    FreeMessage.receive(bufferedChannel);
+    type = bufferedChannel.readMessageType();
+    assertEquals(MessageType.LOAD_JSNI, type);
+    LoadJsniMessage.receive(bufferedChannel);
+    type = bufferedChannel.readMessageType();
+    assertEquals(MessageType.INVOKE, type);
+    InvokeOnClientMessage message = InvokeOnClientMessage.receive(
+        bufferedChannel);
+    assertEquals("foo", message.getMethodName());
+  }
+
   public void testLoadJsniMessage() throws IOException,
       BrowserChannelException {
     String jsni = "function foo() { }";
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.shell;
+
+import com.google.gwt.dev.javac.CompilationStateTestBase;
+import com.google.gwt.dev.javac.testing.impl.MockJavaResource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Tests the concurrency of {@link CompilingClassLoader}.
+ */
+public class CompilingClassLoaderTest extends CompilationStateTestBase {
+
+  private static final MockJavaResource GENERATED = new MockJavaResource(
+      "test.Generated") {
+    @Override
+    public CharSequence getContent() {
+      StringBuilder code = new StringBuilder();
+      code.append("package test;\n");
+      code.append("public class Generated extends Foo {\n");
+      code.append("}\n");
+      return code;
+    }
+  };
+
+  /**
+   * Creates a host that ignores everything, since no JSNI runs in these tests.
+   */
+  private static ShellJavaScriptHost createHost() {
+    return (ShellJavaScriptHost) Proxy.newProxyInstance(
+        ShellJavaScriptHost.class.getClassLoader(),
+        new Class<?>[] {ShellJavaScriptHost.class}, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return null;
+          }
+        });
+  }
+
+  private CompilingClassLoader loader;
+
+  public void testFindClassAfterClassIsLoaded() throws Exception {
+    Class<?> foo = loader.loadClass("test.Foo");
+    // As if another thread had missed on the class at the same time
+    assertSame(foo, loader.findClass("test.Foo"));
+  }
+
+  public void testTypesAddedWhileRewritesArePaused() throws Exception {
+    loader.pauseRewrites();
+    try {
+      int precomputed = loader.getPrecomputedRewriteCount();
+      addGeneratedUnits(GENERATED);
+      assertEquals(precomputed, loader.getPrecomputedRewriteCount());
+    } finally {
+      loader.resumeRewrites();
+    }
+
+    Class<?> generated = loader.loadClass("test.Generated");
+    assertSame(loader.loadClass("test.Foo"), generated.getSuperclass());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    loader = new CompilingClassLoader(createTreeLogger(), state, createHost());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    loader.clear();
+    super.tearDown();
+  }
+}
@@ -65,6 +65,42 @@ public class DispatchClassInfoTest extends TestCase {
     assertNonExistent(dci, "bogometh(*)");
   }
 
+  public void testConcurrentLookups() throws InterruptedException {
+    @SuppressWarnings("unused")
+    class Foo {
+      int field;
+
+      void method(int x) {
+      }
+    }
+
+    final DispatchClassInfo dci = new DispatchClassInfo(Foo.class, 7);
+    final int[] ids = new int[8];
+    Thread[] threads = new Thread[ids.length];
+    for (int i = 0; i < threads.length; ++i) {
+      final int index = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          ids[index] = dci.getMemberId("method(I)");
+          dci.recordDispatch();
+        }
+      };
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int id : ids) {
+      assertEquals(ids[0], id);
+    }
+    assertMethod(dci, "method(I)", Foo.class, "method", Integer.TYPE);
+    assertEquals(threads.length, dci.getDispatchCount());
+    assertSame(Foo.class, dci.getWrappedClass());
+  }
+
   public void testInheritance() {
     /*
      * In these two classes, foo is overloaded in the superclass but not the
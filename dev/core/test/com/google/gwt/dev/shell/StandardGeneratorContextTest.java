@@ -28,6 +28,7 @@ import com.google.gwt.core.ext.linker.GeneratedResource;
 import com.google.gwt.dev.cfg.MockModuleDef;
 import com.google.gwt.dev.javac.CompilationState;
 import com.google.gwt.dev.javac.CompilationStateBuilder;
+import com.google.gwt.dev.javac.GeneratedUnit;
 import com.google.gwt.dev.javac.StandardGeneratorContext;
 import com.google.gwt.dev.resource.Resource;
 import com.google.gwt.dev.util.Util;
@@ -40,6 +41,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -98,6 +100,50 @@ public class StandardGeneratorContextTest extends TestCase {
     genCtx.setCurrentGenerator(Generator.class);
   }
 
+  /**
+   * Tests that a type generated by two forks is merged from the first one.
+   */
+  public void testFork_firstMergedUnitWins() {
+    StandardGeneratorContext fork1 = genCtx.fork();
+    StandardGeneratorContext fork2 = genCtx.fork();
+    PrintWriter pw1 = fork1.tryCreate(mockLogger, "test", "Generated");
+    PrintWriter pw2 = fork2.tryCreate(mockLogger, "test", "Generated");
+    assertNotNull(pw1);
+    assertNotNull(pw2);
+    pw1.print("class Generated { /* 1 */ }");
+    pw2.print("class Generated { /* 2 */ }");
+    fork2.commit(mockLogger, pw2);
+    fork1.commit(mockLogger, pw1);
+
+    genCtx.merge(mockLogger, fork1);
+    genCtx.merge(mockLogger, fork2);
+    GeneratedUnit unit = genCtx.getGeneratedUnitMap().get("test.Generated");
+    assertEquals("class Generated { /* 1 */ }", unit.getSource());
+    assertEquals(1, genCtx.getGeneratedUnitMap().size());
+
+    // The merged type is now known to later forks.
+    assertNull(genCtx.fork().tryCreate(mockLogger, "test", "Generated"));
+  }
+
+  /**
+   * Tests that resources committed by a fork only reach the artifact set once
+   * merged, and are then visible to later forks.
+   */
+  public void testFork_resourcesMerged() throws UnableToCompleteException, IOException {
+    String path = "testFork/resourcesMerged";
+    StandardGeneratorContext fork = genCtx.fork();
+    fork.setCurrentGenerator(MockGenerator.class);
+    OutputStream os = fork.tryCreateResource(mockLogger, path);
+    os.write(new byte[] {0, 1, 2});
+    GeneratedResource res = fork.commitResource(mockLogger, os);
+    assertEquals(0, artifactSet.size());
+
+    genCtx.merge(mockLogger, fork);
+    assertTrue(artifactSet.contains(res));
+    assertTrue(genCtx.getArtifacts().contains(res));
+    assertNull(genCtx.fork().tryCreateResource(mockLogger, path));
+  }
+
   public void testTryCreateResource_badFileName() {
     try {
       genCtx.tryCreateResource(mockLogger, null);
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Tests {@link IncrementalOutputFileSetOnDirectory}.
+ */
+public class IncrementalOutputFileSetOnDirectoryTest extends TestCase {
+  private File dir;
+  private File war;
+
+  public void testFirstBuildClearsDirectory() throws IOException {
+    File stale = new File(war, "mod/stale.txt");
+    stale.getParentFile().mkdirs();
+    Util.writeStringAsFile(stale, "stale");
+
+    IncrementalOutputFileSetOnDirectory output = build("a.js", "a");
+    assertFalse(stale.exists());
+    assertEquals(1, output.getWrittenCount());
+  }
+
+  public void testManifestIsOutsideOutput() throws IOException {
+    build("a.js", "a");
+    File manifest = IncrementalOutputFileSetOnDirectory.getManifest(war,
+        "mod/");
+    assertEquals(dir.getAbsoluteFile(), manifest.getParentFile());
+    assertTrue(manifest.isFile());
+    assertEquals(1, new File(war, "mod").list().length);
+  }
+
+  public void testModifiedFileOfSameLengthIsRewritten() throws IOException {
+    build("a.js", "a");
+    File a = new File(war, "mod/a.js");
+    Util.writeStringAsFile(a, "x");
+    a.setLastModified(a.lastModified() - 10000);
+
+    IncrementalOutputFileSetOnDirectory output = build("a.js", "a");
+    assertEquals(1, output.getWrittenCount());
+    assertEquals("a", Util.readFileAsString(a));
+  }
+
+  public void testRemovedFilesAreDeleted() throws IOException {
+    build("a.js", "a", "sub/b.js", "b");
+    build("a.js", "a");
+    assertTrue(new File(war, "mod/a.js").exists());
+    assertFalse(new File(war, "mod/sub/b.js").exists());
+  }
+
+  public void testUnchangedFilesAreSkipped() throws IOException {
+    build("a.js", "a", "sub/b.js", "b");
+    File a = new File(war, "mod/a.js");
+    a.setLastModified(1000);
+
+    IncrementalOutputFileSetOnDirectory output = build("a.js", "a", "sub/b.js",
+        "c");
+    assertEquals(1, output.getSkippedCount());
+    assertEquals(1, output.getWrittenCount());
+    assertEquals(1000, a.lastModified());
+    assertEquals("c", Util.readFileAsString(new File(war, "mod/sub/b.js")));
+  }
+
+  public void testUnknownFileIsHashedOnDisk() throws IOException {
+    build("a.js", "a");
+    File b = new File(war, "mod/b.js");
+    Util.writeStringAsFile(b, "b");
+    b.setLastModified(1000);
+
+    IncrementalOutputFileSetOnDirectory output = build("a.js", "a", "b.js", "b");
+    assertEquals(2, output.getSkippedCount());
+    assertEquals(1000, b.lastModified());
+  }
+
+  public void testLastWriteWins() throws IOException {
+    build("a.js", "first", "a.js", "second");
+    assertEquals("second", Util.readFileAsString(new File(war, "mod/a.js")));
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    dir = File.createTempFile("incremental", "");
+    dir.delete();
+    dir.mkdir();
+    war = new File(dir, "war");
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(dir, false);
+  }
+
+  /**
+   * Writes pairs of paths and contents into a new output on <code>war</code>.
+   */
+  private IncrementalOutputFileSetOnDirectory build(String... pathsAndContents)
+      throws IOException {
+    IncrementalOutputFileSetOnDirectory output = new IncrementalOutputFileSetOnDirectory(
+        war, "mod/");
+    for (int i = 0; i < pathsAndContents.length; i += 2) {
+      OutputStream out = output.openForWrite(pathsAndContents[i]);
+      out.write(Util.getBytes(pathsAndContents[i + 1]));
+      out.close();
+    }
+    output.close();
+    return output;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.soyc;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test cases for {@link DependencyGraph}.
+ */
+public class DependencyGraphTest extends TestCase {
+
+  public void testAddDependencyKeepsFirst() {
+    DependencyGraph graph = new DependencyGraph(null);
+    graph.addDependency("a::m", "b::m");
+    graph.addDependency("a::m", "c::m");
+
+    assertEquals(1, graph.size());
+    assertEquals("b::m", graph.get("a::m"));
+  }
+
+  public void testExtendedEntriesTakePrecedence() {
+    DependencyGraph base = new DependencyGraph(null);
+    base.addDependency("b::m", "a::m");
+    DependencyGraph graph = new DependencyGraph(base);
+    graph.addDependency("b::m", "z::m");
+    graph.addDependency("c::m", "b::m");
+
+    assertEquals("a::m", graph.get("b::m"));
+    assertEquals("b::m", graph.get("c::m"));
+    assertEquals(2, graph.size());
+
+    // The extended graph is shared, not modified
+    assertEquals(1, base.size());
+    assertFalse(base.containsKey("c::m"));
+  }
+
+  public void testKeysAreSortedAcrossGraphs() {
+    DependencyGraph base = new DependencyGraph(null);
+    base.addDependency("b", "x");
+    base.addDependency("d", "x");
+    DependencyGraph middle = new DependencyGraph(base);
+    middle.addDependency("a", "x");
+    middle.addDependency("e", "x");
+    DependencyGraph graph = new DependencyGraph(middle);
+    graph.addDependency("c", "x");
+
+    List<String> keys = new ArrayList<String>(graph.keySet());
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e"), keys);
+    assertEquals(5, graph.entrySet().size());
+  }
+}
@@ -36,6 +36,13 @@ import com.google.gwt.core.client.RunAsyncCallback;
  * </ul>
  * 
  * <p>
+ * The compiler may merge the code of several split points into the fragment
+ * of one of them, to cut down the number of downloads. The leftovers fragment
+ * then records each such split point with
+ * {@link #setFragmentForSplitPoint(int, int)}, and loading the merged fragment
+ * satisfies requests for all of them.
+ * 
+ * <p>
  * Since the precise way to load code depends on the linker, linkers should
  * specify a rebind of {@link LoadingStrategy}. 
  */
@@ -71,6 +78,18 @@ public class AsyncFragmentLoader {
     void logEventProgress(String eventGroup, String type, int fragment, int size);
   }
 
+  /**
+   * Notified of the code an application asks for, so that it can be predicted
+   * and prefetched next time.
+   */
+  public interface RequestObserver {
+    /**
+     * Called when the code for a split point outside the initial load sequence
+     * is first requested.
+     */
+    void splitPointRequested(int splitPoint);
+  }
+
   /**
    * Labels used for runAsync lightweight metrics.
    */
@@ -286,6 +305,17 @@ public class AsyncFragmentLoader {
     BROWSER_LOADER.runAsyncImpl(fragment, callback);
   }
 
+  /**
+   * Called by compiler-generated code in the leftovers fragment when the code
+   * for a split point has been merged into another fragment.
+   * 
+   * @param splitPoint the split point whose code was merged
+   * @param fragment the fragment number that holds its code
+   */
+  public static void setFragmentForSplitPoint(int splitPoint, int fragment) {
+    BROWSER_LOADER.setFragmentForSplitPointImpl(splitPoint, fragment);
+  }
+
   /**
    * Creates the loader stored as {@link #BROWSER_LOADER}.
    * 
@@ -307,6 +337,13 @@ public class AsyncFragmentLoader {
    */
   private final Object[][] allCallbacks;
 
+  /**
+   * For split points whose code was merged into another fragment, the number of
+   * that fragment; zero for all others. This is <code>null</code> if no split
+   * points were merged.
+   */
+  private int[] fragmentForSplitPoint = null;
+
   /**
    * The fragment currently loading, or -1 if there aren't any.
    */
@@ -368,6 +405,11 @@ public class AsyncFragmentLoader {
    */
   private final BoundedIntQueue requestedExclusives;
 
+  /**
+   * Told about each requested split point, if not <code>null</code>.
+   */
+  private RequestObserver requestObserver = null;
+
   public AsyncFragmentLoader(int numEntries, int[] initialLoadSequence,
       LoadingStrategy loadingStrategy, Logger logger) {
     this.numEntries = numEntries;
@@ -385,6 +427,14 @@ public class AsyncFragmentLoader {
     return isLoaded[splitPoint];
   }
 
+  /**
+   * Set the observer to tell about requested split points, or
+   * <code>null</code> for none.
+   */
+  public void setRequestObserver(RequestObserver observer) {
+    this.requestObserver = observer;
+  }
+
   /**
    * Request that a sequence of split points be prefetched. Code for the split
    * points in <code>splitPoints</code> will be downloaded and installed
@@ -431,6 +481,15 @@ public class AsyncFragmentLoader {
     assert !isLoaded[fragment];
     isLoaded[fragment] = true;
 
+    if (fragmentForSplitPoint != null) {
+      for (int sp = 0; sp < fragmentForSplitPoint.length; sp++) {
+        if (fragmentForSplitPoint[sp] == fragment) {
+          pendingDownloadErrorHandlers[sp] = null;
+          isLoaded[sp] = true;
+        }
+      }
+    }
+
     startLoadingNextFragment();
   }
 
@@ -447,6 +506,9 @@ public class AsyncFragmentLoader {
     pendingDownloadErrorHandlers[splitPoint] = loadErrorHandler;
     if (!isInitial(splitPoint)) {
       requestedExclusives.add(splitPoint);
+      if (requestObserver != null) {
+        requestObserver.splitPointRequested(splitPoint);
+      }
     }
     startLoadingNextFragment();
   }
@@ -455,6 +517,13 @@ public class AsyncFragmentLoader {
     onLoadImpl(leftoversFragment());
   }
 
+  void setFragmentForSplitPointImpl(int splitPoint, int fragment) {
+    if (fragmentForSplitPoint == null) {
+      fragmentForSplitPoint = new int[numEntries + 1];
+    }
+    fragmentForSplitPoint[splitPoint] = fragment;
+  }
+
   private boolean anyPrefetchesRequested() {
     return prefetching && prefetchQueue != null && prefetchQueue.size() > 0;
   }
@@ -564,23 +633,13 @@ public class AsyncFragmentLoader {
 
   private void onLoadImpl(int fragment) {
     fragmentHasLoaded(fragment);
-    Object[] callbacks = allCallbacks[fragment];
-    if (callbacks != null) {
-      logEventProgress("runCallbacks" + fragment, "begin");
-      allCallbacks[fragment] = null;
-      GWT.UncaughtExceptionHandler handler = GWT.getUncaughtExceptionHandler();
-      for (Object callback : callbacks) {
-        if (handler == null) {
-          ((RunAsyncCallback) callback).onSuccess();
-        } else {
-          try {
-            ((RunAsyncCallback) callback).onSuccess();
-          } catch (Throwable e) {
-            handler.onUncaughtException(e);
-          }
+    runCallbacks(fragment);
+    if (fragmentForSplitPoint != null) {
+      for (int sp = 0; sp < fragmentForSplitPoint.length; sp++) {
+        if (fragmentForSplitPoint[sp] == fragment) {
+          runCallbacks(sp);
         }
       }
-      logEventProgress("runCallbacks" + fragment, "end");
     }
   }
 
@@ -615,7 +674,36 @@ public class AsyncFragmentLoader {
     }
   }
 
-  private void startLoadingFragment(int fragment) {
+  private void runCallbacks(int splitPoint) {
+    Object[] callbacks = allCallbacks[splitPoint];
+    if (callbacks != null) {
+      logEventProgress("runCallbacks" + splitPoint, "begin");
+      allCallbacks[splitPoint] = null;
+      GWT.UncaughtExceptionHandler handler = GWT.getUncaughtExceptionHandler();
+      for (Object callback : callbacks) {
+        if (handler == null) {
+          ((RunAsyncCallback) callback).onSuccess();
+        } else {
+          try {
+            ((RunAsyncCallback) callback).onSuccess();
+          } catch (Throwable e) {
+            handler.onUncaughtException(e);
+          }
+        }
+      }
+      logEventProgress("runCallbacks" + splitPoint, "end");
+    }
+  }
+
+  /**
+   * Start downloading the code for a split point, which is the split point's
+   * own fragment unless its code was merged into another.
+   */
+  private void startLoadingFragment(int splitPoint) {
+    int fragment = splitPoint;
+    if (fragmentForSplitPoint != null && fragmentForSplitPoint[splitPoint] != 0) {
+      fragment = fragmentForSplitPoint[splitPoint];
+    }
     assert (fragmentLoading < 0);
     fragmentLoading = fragment;
     logDownloadStart(fragment);
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.client.prefetch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Learns the order in which an application requests its split points and
+ * predicts which ones it will request next. For each split point, it counts
+ * how often each other split point was the next one requested; the most
+ * frequent successors of the last requested split point are the predictions.
+ * The counts can be saved as a string with {@link #serialize()} and restored
+ * with {@link #LoadSequencePredictor(String)}, so that they accumulate across
+ * visits.
+ * 
+ * <p>
+ * Split point numbers change whenever the application is recompiled, so saved
+ * counts should only be restored into the same compilation of the
+ * application.
+ * </p>
+ */
+public class LoadSequencePredictor {
+
+  /**
+   * Saves the counts of a predictor between visits.
+   */
+  public interface Store {
+    /**
+     * Returns what was last saved, or <code>null</code> if nothing was.
+     */
+    String load();
+
+    void save(String data);
+  }
+
+  /**
+   * Counts are halved once one of them reaches this, so that recent behavior
+   * outweighs old behavior and the saved counts stay short.
+   */
+  static final int MAX_COUNT = 256;
+
+  /**
+   * The state before any split point has been requested. Split points are
+   * numbered from 1.
+   */
+  private static final int START = 0;
+
+  /**
+   * The split point most recently recorded.
+   */
+  private int lastRequested = START;
+
+  /**
+   * The split points recorded so far.
+   */
+  private final Set<Integer> requested = new HashSet<Integer>();
+
+  /**
+   * How often each split point followed each split point, or
+   * {@link #START}.
+   */
+  private final Map<Integer, Map<Integer, Integer>> successors =
+      new TreeMap<Integer, Map<Integer, Integer>>();
+
+  /**
+   * Creates a predictor that has not seen any requests.
+   */
+  public LoadSequencePredictor() {
+  }
+
+  /**
+   * Creates a predictor from the output of {@link #serialize()}. Malformed
+   * entries are ignored, so a <code>null</code> or corrupted string gives a
+   * predictor that has not seen any requests.
+   */
+  public LoadSequencePredictor(String data) {
+    if (data == null) {
+      return;
+    }
+    for (String entry : data.split(",")) {
+      int arrow = entry.indexOf('>');
+      int equals = entry.indexOf('=');
+      if (arrow < 0 || equals < arrow) {
+        continue;
+      }
+      try {
+        int from = Integer.parseInt(entry.substring(0, arrow));
+        int to = Integer.parseInt(entry.substring(arrow + 1, equals));
+        int count = Integer.parseInt(entry.substring(equals + 1));
+        if (from >= START && to > START && count > 0) {
+          getSuccessors(from).put(to, Math.min(count, MAX_COUNT));
+        }
+      } catch (NumberFormatException e) {
+        // Skip it
+      }
+    }
+  }
+
+  /**
+   * Returns the likeliest sequence of split points from the start of the
+   * application, following the most frequent successor of each split point in
+   * turn. Such a sequence is a candidate initial load sequence for the
+   * compiler.
+   * 
+   * @param maxLength the longest sequence to return
+   */
+  public int[] getLikelySequence(int maxLength) {
+    List<Integer> sequence = new ArrayList<Integer>();
+    Set<Integer> seen = new HashSet<Integer>();
+    int current = START;
+    while (sequence.size() < maxLength) {
+      int[] next = mostFrequent(current, seen, 1);
+      if (next.length == 0) {
+        break;
+      }
+      current = next[0];
+      seen.add(current);
+      sequence.add(current);
+    }
+    return toArray(sequence);
+  }
+
+  /**
+   * Predicts the split points that will be requested next, likeliest first.
+   * Split points that have already been recorded are not predicted.
+   * 
+   * @param maxPredictions the most predictions to return
+   */
+  public int[] predictNext(int maxPredictions) {
+    return mostFrequent(lastRequested, requested, maxPredictions);
+  }
+
+  /**
+   * Records that a split point has been requested. Only the first request for
+   * each split point counts.
+   */
+  public void record(int splitPoint) {
+    if (splitPoint <= START || !requested.add(splitPoint)) {
+      return;
+    }
+    Map<Integer, Integer> counts = getSuccessors(lastRequested);
+    Integer count = counts.get(splitPoint);
+    int newCount = (count == null ? 0 : count) + 1;
+    counts.put(splitPoint, newCount);
+    if (newCount >= MAX_COUNT) {
+      age(counts);
+    }
+    lastRequested = splitPoint;
+  }
+
+  /**
+   * Returns the counts in a form that {@link #LoadSequencePredictor(String)}
+   * reads.
+   */
+  public String serialize() {
+    StringBuilder sb = new StringBuilder();
+    for (Entry<Integer, Map<Integer, Integer>> from : successors.entrySet()) {
+      for (Entry<Integer, Integer> to : from.getValue().entrySet()) {
+        if (sb.length() > 0) {
+          sb.append(',');
+        }
+        sb.append(from.getKey()).append('>').append(to.getKey()).append('=').append(to.getValue());
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Halves the counts, forgetting those that drop to zero.
+   */
+  private void age(Map<Integer, Integer> counts) {
+    for (Integer to : new ArrayList<Integer>(counts.keySet())) {
+      int count = counts.get(to) / 2;
+      if (count == 0) {
+        counts.remove(to);
+      } else {
+        counts.put(to, count);
+      }
+    }
+  }
+
+  private Map<Integer, Integer> getSuccessors(int from) {
+    Map<Integer, Integer> counts = successors.get(from);
+    if (counts == null) {
+      counts = new TreeMap<Integer, Integer>();
+      successors.put(from, counts);
+    }
+    return counts;
+  }
+
+  /**
+   * Returns the most frequent successors of <code>from</code> that are not in
+   * <code>exclude</code>, most frequent first. Ties go to the lower split
+   * point.
+   */
+  private int[] mostFrequent(int from, Set<Integer> exclude, int max) {
+    List<Integer> result = new ArrayList<Integer>();
+    Map<Integer, Integer> counts = successors.get(from);
+    if (counts == null) {
+      return toArray(result);
+    }
+    Set<Integer> chosen = new HashSet<Integer>();
+    while (result.size() < max) {
+      int best = -1;
+      int bestCount = 0;
+      for (Entry<Integer, Integer> entry : counts.entrySet()) {
+        int to = entry.getKey();
+        if (entry.getValue() > bestCount && !exclude.contains(to) && !chosen.contains(to)) {
+          best = to;
+          bestCount = entry.getValue();
+        }
+      }
+      if (best < 0) {
+        break;
+      }
+      chosen.add(best);
+      result.add(best);
+    }
+    return toArray(result);
+  }
+
+  private int[] toArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+}
@@ -16,7 +16,10 @@
 package com.google.gwt.core.client.prefetch;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.core.client.impl.AsyncFragmentLoader;
+import com.google.gwt.core.client.impl.AsyncFragmentLoader.RequestObserver;
 
 import java.util.Arrays;
 
@@ -24,8 +27,41 @@ import java.util.Arrays;
  * This class allows requesting the download of resources before they are
  * strictly needed. See the classes that implement {@link PrefetchableResource}.
  * Currently, the only supported resource type is {@link RunAsyncCode}.
+ * Alternatively, {@link #predict(LoadSequencePredictor.Store)} chooses what to
+ * prefetch from the order in which split points were requested on earlier
+ * visits.
  */
 public class Prefetcher {
+  /**
+   * The most split points to prefetch ahead of a request.
+   */
+  private static final int MAX_PREDICTIONS = 2;
+
+  /**
+   * Prefetch the split points that are likely to be requested next, based on
+   * the split points requested on earlier visits. The requests of this visit
+   * are recorded in <code>store</code> as they happen. Predictions replace any
+   * resources passed to {@link #prefetch(Iterable)}, and are only downloaded
+   * when no requested code is downloading.
+   * 
+   * @param store where the recorded requests are kept between visits
+   */
+  public static void predict(final LoadSequencePredictor.Store store) {
+    if (!GWT.isScript()) {
+      // Nothing to do in development mode
+      return;
+    }
+
+    final LoadSequencePredictor predictor = new LoadSequencePredictor(store.load());
+    AsyncFragmentLoader.BROWSER_LOADER.setRequestObserver(new RequestObserver() {
+      public void splitPointRequested(int splitPoint) {
+        predictor.record(splitPoint);
+        store.save(predictor.serialize());
+        prefetchPredictions(predictor);
+      }
+    });
+    prefetchPredictions(predictor);
+  }
   /**
    * Specify which resources should be prefetched.
    */
@@ -85,4 +121,17 @@ public class Prefetcher {
 
     AsyncFragmentLoader.BROWSER_LOADER.stopPrefetching();
   }
+
+  /**
+   * Queue the predicted split points once the current event is done, so that
+   * predicting never delays the code that is actually needed.
+   */
+  private static void prefetchPredictions(final LoadSequencePredictor predictor) {
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      public void execute() {
+        AsyncFragmentLoader.BROWSER_LOADER.setPrefetchQueue(predictor.predictNext(MAX_PREDICTIONS));
+        AsyncFragmentLoader.BROWSER_LOADER.startPrefetching();
+      }
+    });
+  }
 }
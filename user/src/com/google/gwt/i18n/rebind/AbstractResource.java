@@ -467,7 +467,11 @@ public abstract class AbstractResource {
 
   protected GwtLocale matchLocale;
 
-  private Set<String> keySet;
+  /**
+   * Built lazily; resources loaded from files may be shared by concurrent
+   * generators, so the set is published only once fully populated.
+   */
+  private volatile Set<String> keySet;
 
   private String path;
 
@@ -546,11 +550,13 @@ public abstract class AbstractResource {
    * @return keys
    */
   public Set<String> keySet() {
-    if (keySet == null) {
-      keySet = new HashSet<String>();
-      addToKeySet(keySet);
+    Set<String> keys = keySet;
+    if (keys == null) {
+      keys = new HashSet<String>();
+      addToKeySet(keys);
+      keySet = keys;
     }
-    return keySet;
+    return keys;
   }
 
   /**
@@ -20,15 +20,21 @@ import com.google.gwt.codegen.server.CodeGenContext;
 import com.google.gwt.codegen.server.CodeGenUtils;
 import com.google.gwt.codegen.server.JavaSourceWriterBuilder;
 import com.google.gwt.codegen.server.SourceWriter;
-import com.google.gwt.core.ext.Generator;
+import com.google.gwt.core.ext.CachedGeneratorResult;
+import com.google.gwt.core.ext.CachedPropertyInformation;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.IncrementalGenerator;
 import com.google.gwt.core.ext.PropertyOracle;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JParameterizedType;
 import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
+import com.google.gwt.core.ext.typeinfo.JRealClassType;
 import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.core.ext.typeinfo.NotFoundException;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
@@ -38,9 +44,12 @@ import com.google.gwt.i18n.client.LocaleInfo;
 import com.google.gwt.i18n.client.Messages;
 import com.google.gwt.i18n.shared.GwtLocale;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -51,7 +60,7 @@ import java.util.TreeSet;
  * Generator used to bind classes extending the <code>Localizable</code> and
  * <code>Constants</code> interfaces.
  */
-public class LocalizableGenerator extends Generator {
+public class LocalizableGenerator extends IncrementalGenerator {
 
   /**
    * Comparator for methods - sorts first by visibility, then name, then number
@@ -101,27 +110,71 @@ public class LocalizableGenerator extends Generator {
 
   public static final String MESSAGES_NAME = Messages.class.getName();
 
+  private static final String CACHED_PROPERTY_INFORMATION = "cached-property-info";
+  private static final String CACHED_RESOURCE_INFORMATION = "cached-resource-info";
+  private static final String CACHED_TYPE_INFORMATION = "cached-type-info";
+
+  private static final long GENERATOR_VERSION_ID = 1L;
+
   private LocalizableLinkageCreator linkageCreator = new LocalizableLinkageCreator();
 
   /**
-   * Generate an implementation for the given type.
+   * Generate an implementation for the given type, reusing the previous result
+   * if the target's type hierarchy, the properties files its bundles are read
+   * from and the locale properties are all unchanged.
    * 
    * @param logger error logger
    * @param context generator context
    * @param typeName target type name
-   * @return a fully-qualified classname of the generated implementation, or
-   *     null to use the base class
+   * @return the rebind result
    * @throws UnableToCompleteException
    */
   @Override
-  public final String generate(TreeLogger logger, GeneratorContext context,
+  public RebindResult generateIncrementally(TreeLogger logger, GeneratorContext context,
       String typeName) throws UnableToCompleteException {
     // Get the current locale
     PropertyOracle propertyOracle = context.getPropertyOracle();
     LocaleUtils localeUtils = LocaleUtils.getInstance(logger, propertyOracle,
         context);
     GwtLocale locale = localeUtils.getCompileLocale();
-    return generate(logger, context, typeName, localeUtils, locale);
+
+    Map<String, Long> typeLastModifiedTimes = null;
+    Map<String, String> resourceHashes = null;
+    if (context.isGeneratorResultCachingEnabled()) {
+      JClassType targetClass = context.getTypeOracle().findType(typeName);
+      if (targetClass != null) {
+        Set<GwtLocale> bundleLocales = new HashSet<GwtLocale>(localeUtils.getRuntimeLocales());
+        bundleLocales.add(locale);
+        typeLastModifiedTimes = getTypeLastModifiedTimes(targetClass);
+        resourceHashes = ResourceFactory.getResourceHashes(logger, targetClass, bundleLocales,
+            context.getResourcesOracle().getResourceMap());
+        CachedGeneratorResult lastResult = context.getCachedGeneratorResult();
+        if (lastResult != null && checkCachedGeneratorResult(logger, context, lastResult,
+            typeLastModifiedTimes, resourceHashes)) {
+          if (logger.isLoggable(TreeLogger.TRACE)) {
+            logger.log(TreeLogger.TRACE, "Reusing cached implementation of " + typeName
+                + " for locale " + locale);
+          }
+          return new RebindResult(RebindMode.USE_ALL_CACHED, lastResult.getResultTypeName());
+        }
+      }
+    }
+
+    String resultTypeName = generate(logger, context, typeName, localeUtils, locale);
+    if (resultTypeName == null) {
+      return new RebindResult(RebindMode.USE_EXISTING, typeName);
+    }
+    if (typeLastModifiedTimes == null) {
+      return new RebindResult(RebindMode.USE_ALL_NEW_WITH_NO_CACHING, resultTypeName);
+    }
+
+    RebindResult result = new RebindResult(RebindMode.USE_ALL_NEW, resultTypeName);
+    result.putClientData(CACHED_PROPERTY_INFORMATION, new CachedPropertyInformation(logger,
+        propertyOracle, Collections.singletonList(LocaleUtils.PROP_LOCALE),
+        Collections.singletonList(LocaleUtils.PROP_RUNTIME_LOCALES)));
+    result.putClientData(CACHED_TYPE_INFORMATION, (Serializable) typeLastModifiedTimes);
+    result.putClientData(CACHED_RESOURCE_INFORMATION, (Serializable) resourceHashes);
+    return result;
   }
 
   /**
@@ -182,6 +235,11 @@ public class LocalizableGenerator extends Generator {
     return returnedClass;
   }
 
+  @Override
+  public long getVersionId() {
+    return GENERATOR_VERSION_ID;
+  }
+
   /**
    * Generate a runtime-selection implementation of the target class if needed,
    * delegating all overridable methods to an instance chosen at runtime based
@@ -291,6 +349,35 @@ public class LocalizableGenerator extends Generator {
     writer.close();
   }
 
+  /**
+   * Checks whether the cached result was generated for the same locale
+   * properties, from unchanged types and from identical properties files.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean checkCachedGeneratorResult(TreeLogger logger, GeneratorContext context,
+      CachedGeneratorResult lastResult, Map<String, Long> typeLastModifiedTimes,
+      Map<String, String> resourceHashes) {
+    CachedPropertyInformation cpi =
+        (CachedPropertyInformation) lastResult.getClientData(CACHED_PROPERTY_INFORMATION);
+    if (cpi == null || !cpi.checkPropertiesWithPropertyOracle(logger,
+        context.getPropertyOracle())) {
+      return false;
+    }
+    Map<String, Long> cachedTypeTimes =
+        (Map<String, Long>) lastResult.getClientData(CACHED_TYPE_INFORMATION);
+    if (!typeLastModifiedTimes.equals(cachedTypeTimes)) {
+      logger.log(TreeLogger.TRACE, "Found dependent type that has changed");
+      return false;
+    }
+    Map<String, String> cachedHashes =
+        (Map<String, String>) lastResult.getClientData(CACHED_RESOURCE_INFORMATION);
+    if (!resourceHashes.equals(cachedHashes)) {
+      logger.log(TreeLogger.TRACE, "Found properties file that has changed");
+      return false;
+    }
+    return true;
+  }
+
   /**
    * @param targetClass
    * @return a set of overrideable methods, in the order they should appear in
@@ -348,4 +435,48 @@ public class LocalizableGenerator extends Generator {
     }
     return buf.append(')').toString();
   }
+
+  /**
+   * Records the last modified time of a type, and of the types it is made of
+   * if it is an array or a parameterized type.
+   */
+  private void addTypeLastModifiedTime(Map<String, Long> typeLastModifiedTimes, JType type) {
+    if (type.isArray() != null) {
+      addTypeLastModifiedTime(typeLastModifiedTimes, type.isArray().getComponentType());
+      return;
+    }
+    JParameterizedType parameterized = type.isParameterized();
+    if (parameterized != null) {
+      for (JClassType typeArg : parameterized.getTypeArgs()) {
+        addTypeLastModifiedTime(typeLastModifiedTimes, typeArg);
+      }
+    }
+    JClassType classType = type.isClassOrInterface();
+    if (classType != null) {
+      JClassType erased = classType.getErasedType();
+      if (erased instanceof JRealClassType) {
+        typeLastModifiedTimes.put(erased.getQualifiedSourceName(),
+            ((JRealClassType) erased).getLastModifiedTime());
+      }
+    }
+  }
+
+  /**
+   * Returns the last modified time of each type in the target's hierarchy, as
+   * the annotations on any of them can change the generated code, and of each
+   * type its methods take, such as the enums of {@literal @}Select parameters
+   * and custom {@literal @}PluralCount types.
+   */
+  private Map<String, Long> getTypeLastModifiedTimes(JClassType targetClass) {
+    Map<String, Long> typeLastModifiedTimes = new HashMap<String, Long>();
+    for (JClassType type : targetClass.getFlattenedSupertypeHierarchy()) {
+      addTypeLastModifiedTime(typeLastModifiedTimes, type);
+    }
+    for (JMethod method : targetClass.getOverridableMethods()) {
+      for (JParameter param : method.getParameters()) {
+        addTypeLastModifiedTime(typeLastModifiedTimes, param.getType());
+      }
+    }
+    return typeLastModifiedTimes;
+  }
 }
@@ -22,6 +22,7 @@ import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.dev.resource.Resource;
 import com.google.gwt.dev.util.StringKey;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.IdentityHashSet;
 import com.google.gwt.i18n.client.LocalizableResource.DefaultLocale;
 import com.google.gwt.i18n.rebind.AbstractResource.ResourceList;
@@ -29,10 +30,15 @@ import com.google.gwt.i18n.rebind.AnnotationsResource.AnnotationsError;
 import com.google.gwt.i18n.shared.GwtLocale;
 import com.google.gwt.i18n.shared.GwtLocaleFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,6 +66,14 @@ public abstract class ResourceFactory {
 
   private static List<ResourceFactory> loaders = new ArrayList<ResourceFactory>();
 
+  /**
+   * Parsed file resources, keyed by path, locale and a strong hash of the
+   * file's contents. Unlike the per-context cache below, this survives across
+   * permutations and refreshes, so an unchanged file is parsed only once.
+   */
+  private static final Map<String, SoftReference<AbstractResource>> parsedResources =
+      Collections.synchronizedMap(new HashMap<String, SoftReference<AbstractResource>>());
+
   /**
    * Since multiple generators share the ResourceFactory, we tie the
    * ResourceFactoryContext cache to the GeneratorContext.
@@ -134,43 +148,95 @@ public abstract class ResourceFactory {
     return name;
   }
 
+  /**
+   * Computes a strong hash of every file resource that a bundle for
+   * {@code topClass} would be read from in any of {@code bundleLocales}, keyed
+   * by resource path. Two equal maps mean the bundles would load identically,
+   * which lets generators reuse output derived from them.
+   *
+   * @param logger
+   * @param topClass
+   * @param bundleLocales locales whose complete search lists are considered
+   * @param resourceMap a map of available {@link Resource Resources} by
+   *          partial path
+   * @return map of resource path to content hash
+   */
+  static Map<String, String> getResourceHashes(TreeLogger logger, JClassType topClass,
+      Collection<GwtLocale> bundleLocales, Map<String, Resource> resourceMap) {
+    Set<GwtLocale> locales = new HashSet<GwtLocale>();
+    for (GwtLocale bundleLocale : bundleLocales) {
+      locales.addAll(bundleLocale.getCompleteSearchList());
+    }
+    Map<String, String> hashes = new HashMap<String, String>();
+    for (JClassType clazz : topClass.getFlattenedSupertypeHierarchy()) {
+      for (GwtLocale locale : locales) {
+        String partialPath = getPartialPath(clazz, locale);
+        for (ResourceFactory element : loaders) {
+          String path = findResourcePath(partialPath, element.getExt(), resourceMap);
+          if (path != null && !hashes.containsKey(path)) {
+            hashes.put(path,
+                Util.computeStrongName(readResource(logger, resourceMap.get(path))));
+          }
+        }
+      }
+    }
+    return hashes;
+  }
+
   private static void addFileResources(TreeLogger logger, JClassType clazz, GwtLocale locale,
       Map<String, Resource> resourceMap, ResourceList resources) {
-    // TODO: handle classes in the default package?
-    String targetPath = clazz.getPackage().getName() + '.'
-        + getResourceName(clazz);
-    String localizedPath = targetPath;
-    if (!locale.isDefault()) {
-      localizedPath = targetPath + LOCALE_SEPARATOR + locale.getAsString();
-    }
     // Check for file-based resources.
-    String partialPath = localizedPath.replace('.', '/');
+    String partialPath = getPartialPath(clazz, locale);
     for (int i = 0; i < loaders.size(); i++) {
       ResourceFactory element = loaders.get(i);
-      String ext = "." + element.getExt();
-      String path = partialPath + ext;
-      Resource resource = resourceMap.get(path);
-      if (resource == null && partialPath.contains("$")) {
-        // Also look for A_B for inner classes, as $ in path names
-        // can cause issues for some build tools.
-        path = partialPath.replace('$', '_') + ext;
-        resource = resourceMap.get(path);
-      }
-      if (resource != null) {
-        InputStream resourceStream = null;
-        try {
-          resourceStream = resource.openContents();
-        } catch (IOException ex) {
-          logger.log(TreeLogger.ERROR, "Error opening resource: " + resource.getLocation());
-          throw new RuntimeException(ex);
+      String path = findResourcePath(partialPath, element.getExt(), resourceMap);
+      if (path != null) {
+        byte[] contents = readResource(logger, resourceMap.get(path));
+        String key = path + '/' + locale + '/' + Util.computeStrongName(contents);
+        SoftReference<AbstractResource> ref = parsedResources.get(key);
+        AbstractResource found = ref == null ? null : ref.get();
+        if (found == null) {
+          found = element.load(new ByteArrayInputStream(contents), locale);
+          found.setPath(path);
+          parsedResources.put(key, new SoftReference<AbstractResource>(found));
         }
-        AbstractResource found = element.load(resourceStream, locale);
-        found.setPath(path);
         resources.add(found);
       }
     }
   }
 
+  /**
+   * Returns the path of the file resource with the given extension for a
+   * partial path, or null if there is none.
+   */
+  private static String findResourcePath(String partialPath, String ext,
+      Map<String, Resource> resourceMap) {
+    String path = partialPath + '.' + ext;
+    if (resourceMap.containsKey(path)) {
+      return path;
+    }
+    if (partialPath.contains("$")) {
+      // Also look for A_B for inner classes, as $ in path names
+      // can cause issues for some build tools.
+      path = partialPath.replace('$', '_') + '.' + ext;
+      if (resourceMap.containsKey(path)) {
+        return path;
+      }
+    }
+    return null;
+  }
+
+  private static String getPartialPath(JClassType clazz, GwtLocale locale) {
+    // TODO: handle classes in the default package?
+    String targetPath = clazz.getPackage().getName() + '.'
+        + getResourceName(clazz);
+    String localizedPath = targetPath;
+    if (!locale.isDefault()) {
+      localizedPath = targetPath + LOCALE_SEPARATOR + locale.getAsString();
+    }
+    return localizedPath.replace('.', '/');
+  }
+
   private static synchronized ResourceFactoryContext getResourceFactoryContext(
       GeneratorContext context) {
     if (context instanceof CachedGeneratorContext) {
@@ -184,6 +250,22 @@ public abstract class ResourceFactory {
     return resourceFactoryCtx;
   }
 
+  private static byte[] readResource(TreeLogger logger, Resource resource) {
+    InputStream resourceStream = null;
+    try {
+      resourceStream = resource.openContents();
+    } catch (IOException ex) {
+      logger.log(TreeLogger.ERROR, "Error opening resource: " + resource.getLocation());
+      throw new RuntimeException(ex);
+    }
+    byte[] contents = Util.readStreamAsBytes(resourceStream);
+    if (contents == null) {
+      logger.log(TreeLogger.ERROR, "Error reading resource: " + resource.getLocation());
+      throw new RuntimeException("Unable to read " + resource.getLocation());
+    }
+    return contents;
+  }
+
   private static void walkInheritanceTree(TreeLogger logger, JClassType clazz,
       GwtLocaleFactory factory, GwtLocale defaultLocale,
       List<JClassType> classes,
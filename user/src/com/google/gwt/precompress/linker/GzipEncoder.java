@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.precompress.linker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes artifacts as gzip with the most compression the JRE's deflater
+ * offers. Each artifact is compressed with both the default and the filtered
+ * deflate strategy, and the smaller result is kept.
+ */
+public class GzipEncoder implements PrecompressEncoder {
+
+  /**
+   * A {@link GZIPOutputStream} with a chosen deflate strategy.
+   */
+  private static class TunedGzipOutputStream extends GZIPOutputStream {
+    public TunedGzipOutputStream(OutputStream out, int strategy) throws IOException {
+      super(out);
+      def.setLevel(Deflater.BEST_COMPRESSION);
+      def.setStrategy(strategy);
+    }
+  }
+
+  private static final int[] STRATEGIES = {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED};
+
+  public byte[] encode(byte[] contents) throws IOException {
+    byte[] best = null;
+    for (int strategy : STRATEGIES) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      GZIPOutputStream gzip = new TunedGzipOutputStream(compressed, strategy);
+      gzip.write(contents);
+      gzip.close();
+      if (best == null || compressed.size() < best.length) {
+        best = compressed.toByteArray();
+      }
+    }
+    return best;
+  }
+
+  public String getSuffix() {
+    return ".gz";
+  }
+}
@@ -0,0 +1,629 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.precompress.linker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes artifacts as gzip, spending far more time than {@link GzipEncoder}
+ * to find a smaller encoding, in the manner of the Zopfli compressor. For each
+ * block, the matches to use are chosen by a shortest-path search over the bit
+ * costs of the previous pass's Huffman codes, and the search is repeated
+ * several times, keeping the smallest block. The result is never larger than
+ * what {@link GzipEncoder} produces.
+ * 
+ * <p>
+ * Any gzip decoder can read the output, so it has the same suffix as
+ * {@link GzipEncoder}, and should be configured instead of it. Encoding is
+ * many times slower; consider setting <code>gwt.precompress.cacheDir</code>.
+ */
+public class IterativeGzipEncoder implements PrecompressEncoder {
+
+  /**
+   * Writes bits least significant first, as deflate requires, or only counts
+   * them if there is no stream.
+   */
+  private static class BitWriter {
+    private int bitCount;
+    private int bits;
+    private final ByteArrayOutputStream out;
+    private long totalBits;
+
+    BitWriter(ByteArrayOutputStream out) {
+      this.out = out;
+    }
+
+    void flush() {
+      if (bitCount > 0 && out != null) {
+        out.write(bits);
+      }
+      bits = 0;
+      bitCount = 0;
+    }
+
+    void writeBits(int value, int count) {
+      totalBits += count;
+      if (out == null) {
+        return;
+      }
+      bits |= value << bitCount;
+      bitCount += count;
+      while (bitCount >= 8) {
+        out.write(bits & 0xff);
+        bits >>>= 8;
+        bitCount -= 8;
+      }
+    }
+  }
+
+  /**
+   * A growable list of ints.
+   */
+  private static class IntList {
+    private int size;
+    private int[] values = new int[1024];
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Finds, for each position, the longest match at each distance that is
+   * longer than any match at a shorter distance. Any shorter length can be
+   * had from the first such match that is at least as long.
+   */
+  private static class MatchFinder {
+    private final byte[] data;
+    private final int[] head = new int[HASH_SIZE];
+    private final int[] prev = new int[WINDOW_SIZE];
+
+    MatchFinder(byte[] data) {
+      this.data = data;
+      Arrays.fill(head, -1);
+    }
+
+    /**
+     * Finds the matches at each position from <code>start</code> to
+     * <code>end</code>, which must follow the previous call's range. The
+     * matches at <code>start + i</code> are those from
+     * <code>firstMatch[i]</code> to <code>firstMatch[i + 1]</code>.
+     */
+    void findMatches(int start, int end, int[] firstMatch, IntList lengths,
+        IntList distances) {
+      for (int i = start; i < end; i++) {
+        firstMatch[i - start] = lengths.size();
+        if (i + MIN_MATCH > data.length) {
+          continue;
+        }
+        int hash = hash(i);
+        int maxLength = Math.min(MAX_MATCH, end - i);
+        int best = MIN_MATCH - 1;
+        int candidate = head[hash];
+        for (int chain = MAX_CHAIN; candidate >= 0 && i - candidate <= WINDOW_SIZE
+            && chain > 0 && best < maxLength; chain--) {
+          if (data[candidate + best] == data[i + best]) {
+            int length = 0;
+            while (length < maxLength && data[candidate + length] == data[i + length]) {
+              length++;
+            }
+            if (length > best) {
+              best = length;
+              lengths.add(length);
+              distances.add(i - candidate);
+            }
+          }
+          int next = prev[candidate & WINDOW_MASK];
+          if (next >= candidate) {
+            break;
+          }
+          candidate = next;
+        }
+        prev[i & WINDOW_MASK] = head[hash];
+        head[hash] = i;
+      }
+      firstMatch[end - start] = lengths.size();
+    }
+
+    private int hash(int i) {
+      return (((data[i] & 0xff) << 10) ^ ((data[i + 1] & 0xff) << 5) ^ (data[i + 2] & 0xff))
+          & (HASH_SIZE - 1);
+    }
+  }
+
+  /**
+   * One way of encoding a block: a literal or a match for each step, and the
+   * Huffman codes for them.
+   */
+  private static class Parse {
+    private final byte[] data;
+    private final int[] distanceCodes;
+    private final int[] distanceFreqs = new int[30];
+    private final int[] distanceLengths;
+    private final int[] distances;
+    private final int[] lengths;
+    private final int[] literalCodes;
+    private final int[] literalFreqs = new int[286];
+    private final int[] literalLengths;
+    private final int start;
+
+    Parse(byte[] data, int start, int[] lengths, int[] distances) {
+      this.data = data;
+      this.start = start;
+      this.lengths = lengths;
+      this.distances = distances;
+      int pos = start;
+      for (int i = 0; i < lengths.length; i++) {
+        if (distances[i] == 0) {
+          literalFreqs[data[pos] & 0xff]++;
+        } else {
+          literalFreqs[257 + LENGTH_SYMBOL[lengths[i]]]++;
+          distanceFreqs[distanceSymbol(distances[i])]++;
+        }
+        pos += lengths[i];
+      }
+      literalFreqs[END_OF_BLOCK] = 1;
+      literalLengths = codeLengths(literalFreqs, 15);
+      distanceLengths = codeLengths(distanceFreqs, 15);
+      literalCodes = canonicalCodes(literalLengths);
+      distanceCodes = canonicalCodes(distanceLengths);
+    }
+
+    /**
+     * Writes the block as a dynamic Huffman block.
+     */
+    void write(BitWriter out, boolean last) {
+      int literalCount = 286;
+      while (literalCount > 257 && literalLengths[literalCount - 1] == 0) {
+        literalCount--;
+      }
+      int distanceCount = 30;
+      while (distanceCount > 1 && distanceLengths[distanceCount - 1] == 0) {
+        distanceCount--;
+      }
+      int[] allLengths = new int[literalCount + distanceCount];
+      System.arraycopy(literalLengths, 0, allLengths, 0, literalCount);
+      System.arraycopy(distanceLengths, 0, allLengths, literalCount, distanceCount);
+
+      // Run-length encode the code lengths with symbols 16, 17 and 18
+      IntList symbols = new IntList();
+      IntList extras = new IntList();
+      int[] codeLengthFreqs = new int[19];
+      for (int i = 0; i < allLengths.length;) {
+        int value = allLengths[i];
+        int run = 1;
+        while (i + run < allLengths.length && allLengths[i + run] == value) {
+          run++;
+        }
+        i += run;
+        if (value == 0) {
+          while (run >= 11) {
+            int count = Math.min(138, run);
+            symbols.add(18);
+            extras.add(count - 11);
+            run -= count;
+          }
+          if (run >= 3) {
+            symbols.add(17);
+            extras.add(run - 3);
+            run = 0;
+          }
+        } else {
+          symbols.add(value);
+          extras.add(0);
+          run--;
+          while (run >= 3) {
+            int count = Math.min(6, run);
+            symbols.add(16);
+            extras.add(count - 3);
+            run -= count;
+          }
+        }
+        for (; run > 0; run--) {
+          symbols.add(value);
+          extras.add(0);
+        }
+      }
+      for (int i = 0; i < symbols.size(); i++) {
+        codeLengthFreqs[symbols.get(i)]++;
+      }
+      int[] codeLengthLengths = codeLengths(codeLengthFreqs, 7);
+      int[] codeLengthCodes = canonicalCodes(codeLengthLengths);
+      int codeLengthCount = 19;
+      while (codeLengthCount > 4
+          && codeLengthLengths[CODE_LENGTH_ORDER[codeLengthCount - 1]] == 0) {
+        codeLengthCount--;
+      }
+
+      out.writeBits(last ? 1 : 0, 1);
+      out.writeBits(2, 2);
+      out.writeBits(literalCount - 257, 5);
+      out.writeBits(distanceCount - 1, 5);
+      out.writeBits(codeLengthCount - 4, 4);
+      for (int i = 0; i < codeLengthCount; i++) {
+        out.writeBits(codeLengthLengths[CODE_LENGTH_ORDER[i]], 3);
+      }
+      for (int i = 0; i < symbols.size(); i++) {
+        int symbol = symbols.get(i);
+        out.writeBits(codeLengthCodes[symbol], codeLengthLengths[symbol]);
+        if (symbol >= 16) {
+          out.writeBits(extras.get(i), symbol == 16 ? 2 : symbol == 17 ? 3 : 7);
+        }
+      }
+
+      int pos = start;
+      for (int i = 0; i < lengths.length; i++) {
+        if (distances[i] == 0) {
+          int literal = data[pos] & 0xff;
+          out.writeBits(literalCodes[literal], literalLengths[literal]);
+        } else {
+          int length = lengths[i];
+          int lengthSymbol = LENGTH_SYMBOL[length];
+          out.writeBits(literalCodes[257 + lengthSymbol], literalLengths[257 + lengthSymbol]);
+          out.writeBits(length - LENGTH_BASE[lengthSymbol], LENGTH_EXTRA[lengthSymbol]);
+          int distanceSymbol = distanceSymbol(distances[i]);
+          out.writeBits(distanceCodes[distanceSymbol], distanceLengths[distanceSymbol]);
+          out.writeBits(distances[i] - DISTANCE_BASE[distanceSymbol],
+              DISTANCE_EXTRA[distanceSymbol]);
+        }
+        pos += lengths[i];
+      }
+      out.writeBits(literalCodes[END_OF_BLOCK], literalLengths[END_OF_BLOCK]);
+    }
+  }
+
+  private static final int BLOCK_SIZE = 1 << 16;
+
+  private static final int[] CODE_LENGTH_ORDER = {
+      16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+  private static final int[] DISTANCE_BASE = {
+      1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513,
+      769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+
+  private static final int[] DISTANCE_EXTRA = {
+      0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10,
+      11, 11, 12, 12, 13, 13};
+
+  private static final int END_OF_BLOCK = 256;
+
+  private static final int HASH_SIZE = 1 << 15;
+
+  /**
+   * How many times each block is parsed.
+   */
+  private static final int ITERATIONS = 10;
+
+  private static final int[] LENGTH_BASE = {
+      3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59,
+      67, 83, 99, 115, 131, 163, 195, 227, 258};
+
+  private static final int[] LENGTH_EXTRA = {
+      0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5,
+      5, 5, 5, 0};
+
+  /**
+   * The index into {@link #LENGTH_BASE} of each match length.
+   */
+  private static final int[] LENGTH_SYMBOL = new int[259];
+
+  /**
+   * How many earlier positions with the same hash are tried for each match.
+   */
+  private static final int MAX_CHAIN = 1024;
+
+  private static final int MAX_MATCH = 258;
+
+  private static final int MIN_MATCH = 3;
+
+  private static final int WINDOW_SIZE = 1 << 15;
+
+  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+  static {
+    for (int symbol = 0; symbol < LENGTH_BASE.length; symbol++) {
+      int last = symbol + 1 < LENGTH_BASE.length ? LENGTH_BASE[symbol + 1] - 1 : MAX_MATCH;
+      for (int length = LENGTH_BASE[symbol]; length <= last; length++) {
+        LENGTH_SYMBOL[length] = symbol;
+      }
+    }
+  }
+
+  /**
+   * Returns a gzip encoding of <code>contents</code> made by this encoder's own
+   * deflater alone.
+   */
+  static byte[] gzip(byte[] contents) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    // Magic, deflate, no flags, no time, maximum compression, unknown OS
+    bytes.write(0x1f);
+    bytes.write(0x8b);
+    bytes.write(8);
+    for (int i = 0; i < 5; i++) {
+      bytes.write(0);
+    }
+    bytes.write(2);
+    bytes.write(255);
+
+    BitWriter out = new BitWriter(bytes);
+    MatchFinder finder = new MatchFinder(contents);
+    int start = 0;
+    do {
+      int end = Math.min(contents.length, start + BLOCK_SIZE);
+      writeBlock(out, contents, start, end, finder);
+      start = end;
+    } while (start < contents.length);
+    out.flush();
+
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    writeInt(bytes, (int) crc.getValue());
+    writeInt(bytes, contents.length);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns the deflate codes for the given code lengths, with their bits
+   * reversed to be written least significant first.
+   */
+  private static int[] canonicalCodes(int[] codeLengths) {
+    int[] lengthCounts = new int[16];
+    for (int length : codeLengths) {
+      lengthCounts[length]++;
+    }
+    lengthCounts[0] = 0;
+    int[] nextCode = new int[16];
+    int code = 0;
+    for (int bits = 1; bits < 16; bits++) {
+      code = (code + lengthCounts[bits - 1]) << 1;
+      nextCode[bits] = code;
+    }
+    int[] codes = new int[codeLengths.length];
+    for (int i = 0; i < codes.length; i++) {
+      int length = codeLengths[i];
+      if (length != 0) {
+        codes[i] = Integer.reverse(nextCode[length]++) >>> (32 - length);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Returns the Huffman code lengths for the given symbol frequencies, no
+   * longer than <code>maxBits</code>. At least two symbols get a code, so that
+   * every code is complete.
+   */
+  private static int[] codeLengths(int[] freqs, int maxBits) {
+    long[] weights = new long[freqs.length];
+    int used = 0;
+    for (int i = 0; i < freqs.length; i++) {
+      weights[i] = freqs[i];
+      if (freqs[i] > 0) {
+        used++;
+      }
+    }
+    for (int i = 0; used < 2; i++) {
+      if (weights[i] == 0) {
+        weights[i] = 1;
+        used++;
+      }
+    }
+
+    while (true) {
+      int[] lengths = huffmanLengths(weights);
+      int max = 0;
+      for (int length : lengths) {
+        max = Math.max(max, length);
+      }
+      if (max <= maxBits) {
+        return lengths;
+      }
+      // Flatten the distribution until the tree is shallow enough
+      for (int i = 0; i < weights.length; i++) {
+        if (weights[i] > 0) {
+          weights[i] = (weights[i] + 1) / 2;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the cost in bits of each symbol under an ideal code for the given
+   * frequencies.
+   */
+  private static float[] costs(int[] freqs) {
+    long total = 0;
+    for (int freq : freqs) {
+      total += freq;
+    }
+    double log2Total = Math.log(Math.max(total, 1)) / Math.log(2);
+    float[] costs = new float[freqs.length];
+    for (int i = 0; i < freqs.length; i++) {
+      costs[i] = (float) (freqs[i] == 0 ? log2Total
+          : log2Total - Math.log(freqs[i]) / Math.log(2));
+    }
+    return costs;
+  }
+
+  private static int distanceSymbol(int distance) {
+    int symbol = DISTANCE_BASE.length - 1;
+    while (DISTANCE_BASE[symbol] > distance) {
+      symbol--;
+    }
+    return symbol;
+  }
+
+  /**
+   * Returns the code lengths of an unrestricted Huffman code for the nonzero
+   * weights.
+   */
+  private static int[] huffmanLengths(long[] weights) {
+    int n = weights.length;
+    final long[] nodeWeights = new long[2 * n];
+    int[] parents = new int[2 * n];
+    PriorityQueue<Integer> queue = new PriorityQueue<Integer>(n,
+        new Comparator<Integer>() {
+          public int compare(Integer a, Integer b) {
+            long difference = nodeWeights[a] - nodeWeights[b];
+            return difference < 0 ? -1 : difference > 0 ? 1 : a - b;
+          }
+        });
+    for (int i = 0; i < n; i++) {
+      nodeWeights[i] = weights[i];
+      if (weights[i] > 0) {
+        queue.add(i);
+      }
+    }
+    int next = n;
+    while (queue.size() > 1) {
+      int a = queue.poll();
+      int b = queue.poll();
+      nodeWeights[next] = nodeWeights[a] + nodeWeights[b];
+      parents[a] = next;
+      parents[b] = next;
+      queue.add(next++);
+    }
+    int root = next - 1;
+    int[] lengths = new int[n];
+    for (int i = 0; i < n; i++) {
+      if (weights[i] > 0) {
+        for (int node = i; node != root; node = parents[node]) {
+          lengths[i]++;
+        }
+      }
+    }
+    return lengths;
+  }
+
+  /**
+   * Finds the cheapest way to encode a block under the given symbol costs.
+   */
+  private static Parse parse(byte[] data, int start, int length, int[] firstMatch,
+      IntList matchLengths, IntList matchDistances, float[] literalCosts,
+      float[] distanceCosts) {
+    float[] lengthCosts = new float[MAX_MATCH + 1];
+    for (int i = MIN_MATCH; i <= MAX_MATCH; i++) {
+      int symbol = LENGTH_SYMBOL[i];
+      lengthCosts[i] = literalCosts[257 + symbol] + LENGTH_EXTRA[symbol];
+    }
+
+    float[] cost = new float[length + 1];
+    int[] stepLength = new int[length + 1];
+    int[] stepDistance = new int[length + 1];
+    Arrays.fill(cost, Float.MAX_VALUE);
+    cost[0] = 0;
+    for (int i = 0; i < length; i++) {
+      float literal = cost[i] + literalCosts[data[start + i] & 0xff];
+      if (literal < cost[i + 1]) {
+        cost[i + 1] = literal;
+        stepLength[i + 1] = 1;
+        stepDistance[i + 1] = 0;
+      }
+      int matchLength = MIN_MATCH;
+      for (int m = firstMatch[i]; m < firstMatch[i + 1]; m++) {
+        int distance = matchDistances.get(m);
+        int distanceSymbol = distanceSymbol(distance);
+        float base = cost[i] + distanceCosts[distanceSymbol]
+            + DISTANCE_EXTRA[distanceSymbol];
+        for (int longest = matchLengths.get(m); matchLength <= longest; matchLength++) {
+          float match = base + lengthCosts[matchLength];
+          if (match < cost[i + matchLength]) {
+            cost[i + matchLength] = match;
+            stepLength[i + matchLength] = matchLength;
+            stepDistance[i + matchLength] = distance;
+          }
+        }
+      }
+    }
+
+    int steps = 0;
+    for (int i = length; i > 0; i -= stepLength[i]) {
+      steps++;
+    }
+    int[] lengths = new int[steps];
+    int[] distances = new int[steps];
+    for (int i = length; i > 0; i -= stepLength[i]) {
+      steps--;
+      lengths[steps] = stepLength[i];
+      distances[steps] = stepDistance[i];
+    }
+    return new Parse(data, start, lengths, distances);
+  }
+
+  private static void writeBlock(BitWriter out, byte[] data, int start, int end,
+      MatchFinder finder) {
+    int[] firstMatch = new int[end - start + 1];
+    IntList matchLengths = new IntList();
+    IntList matchDistances = new IntList();
+    finder.findMatches(start, end, firstMatch, matchLengths, matchDistances);
+
+    // Start from the costs of the fixed Huffman codes
+    float[] literalCosts = new float[286];
+    for (int i = 0; i < literalCosts.length; i++) {
+      literalCosts[i] = i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8;
+    }
+    float[] distanceCosts = new float[30];
+    Arrays.fill(distanceCosts, 5);
+
+    Parse best = null;
+    long bestBits = Long.MAX_VALUE;
+    for (int i = 0; i < ITERATIONS; i++) {
+      Parse parse = parse(data, start, end - start, firstMatch, matchLengths,
+          matchDistances, literalCosts, distanceCosts);
+      BitWriter counter = new BitWriter(null);
+      parse.write(counter, false);
+      if (counter.totalBits < bestBits) {
+        best = parse;
+        bestBits = counter.totalBits;
+      }
+      literalCosts = costs(parse.literalFreqs);
+      distanceCosts = costs(parse.distanceFreqs);
+    }
+    best.write(out, end == data.length);
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    for (int i = 0; i < 4; i++) {
+      out.write(value >>> (8 * i));
+    }
+  }
+
+  public byte[] encode(byte[] contents) throws IOException {
+    byte[] iterative = gzip(contents);
+    byte[] standard = new GzipEncoder().encode(contents);
+    return iterative.length <= standard.length ? iterative : standard;
+  }
+
+  public String getSuffix() {
+    return ".gz";
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.precompress.linker;
+
+import java.io.IOException;
+
+/**
+ * An encoding that {@link PrecompressLinker} can precompress artifacts with.
+ * Implementations need a public no-argument constructor so that they can be
+ * named in the <code>precompress.encoders</code> configuration property, and
+ * must be safe to use from several threads at once.
+ */
+public interface PrecompressEncoder {
+
+  /**
+   * Encodes the contents of an artifact.
+   */
+  byte[] encode(byte[] contents) throws IOException;
+
+  /**
+   * Returns the suffix appended to the path of an encoded artifact, such as
+   * <code>".gz"</code>.
+   */
+  String getSuffix();
+}
@@ -26,15 +26,24 @@ import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.linker.LinkerOrder;
 import com.google.gwt.core.ext.linker.Shardable;
 import com.google.gwt.core.ext.linker.LinkerOrder.Order;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.HashSet;
 import com.google.gwt.util.regexfilter.RegexFilter;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
@@ -55,10 +64,52 @@ import java.util.zip.GZIPOutputStream;
  * are left in the artifact set. If the configuration property
  * <code>precompress.leave.originals</code> is set to <code>false</code>,
  * however, then the uncompressed version is removed.
+ * 
+ * <p>
+ * Each artifact is compressed with every {@link PrecompressEncoder} named in
+ * the configuration property <code>precompress.encoders</code>, which by
+ * default is only {@link GzipEncoder}. {@link IterativeGzipEncoder} can be
+ * named instead, for smaller files at a much higher cost in time. No two
+ * encoders may have the same suffix. Artifacts are compressed on several
+ * threads. If the system property <code>gwt.precompress.cacheDir</code> names a
+ * directory, compressed contents are kept there and reused by later links of
+ * identical artifacts.
  */
 @Shardable
 @LinkerOrder(Order.POST)
 public class PrecompressLinker extends AbstractLinker {
+  /**
+   * Compresses one artifact with one encoder.
+   */
+  private static class Compression implements Callable<byte[]> {
+    private final EmittedArtifact artifact;
+    private final byte[] contents;
+    private final PrecompressEncoder encoder;
+
+    public Compression(EmittedArtifact artifact, byte[] contents, PrecompressEncoder encoder) {
+      this.artifact = artifact;
+      this.contents = contents;
+      this.encoder = encoder;
+    }
+
+    public byte[] call() throws IOException {
+      File cacheFile = null;
+      if (CACHE_DIR != null) {
+        cacheFile = new File(new File(CACHE_DIR, encoder.getClass().getName()),
+            Util.computeStrongName(contents) + encoder.getSuffix());
+        byte[] cached = Util.readFileAsBytes(cacheFile);
+        if (cached != null) {
+          return cached;
+        }
+      }
+      byte[] compressed = encoder.encode(contents);
+      if (cacheFile != null) {
+        writeCacheFile(cacheFile, compressed);
+      }
+      return compressed;
+    }
+  }
+
   private static class PrecompressFilter extends RegexFilter {
     public PrecompressFilter(TreeLogger logger, List<String> regexes)
         throws UnableToCompleteException {
@@ -77,15 +128,86 @@ public class PrecompressLinker extends AbstractLinker {
   }
 
   /**
-   * Buffer size to use when streaming data from artifacts and through
-   * {@link GZIPOutputStream}.
+   * Where compressed contents are kept between links, if anywhere.
+   */
+  private static final String CACHE_DIR = System.getProperty("gwt.precompress.cacheDir");
+
+  /**
+   * Runs the compressions of every link. A shardable linker is called once per
+   * permutation, possibly from several link threads at once, so a pool per
+   * call would start a thread per processor for each of them.
    */
-  private static final int BUF_SIZE = 10000;
+  private static final ThreadPoolExecutor COMPRESSION_EXECUTOR = createExecutor();
+
+  private static final String PROP_ENCODERS = "precompress.encoders";
 
   private static final String PROP_LEAVE_ORIGINALS = "precompress.leave.originals";
 
   private static final String PROP_PATH_REGEXES = "precompress.path.regexes";
 
+  /**
+   * Creates the encoders named by {@link #PROP_ENCODERS}, or a
+   * {@link GzipEncoder} if the property is not defined.
+   */
+  private static List<PrecompressEncoder> createEncoders(TreeLogger logger,
+      LinkerContext context) throws UnableToCompleteException {
+    List<PrecompressEncoder> encoders = new ArrayList<PrecompressEncoder>();
+    for (ConfigurationProperty prop : context.getConfigurationProperties()) {
+      if (!prop.getName().equals(PROP_ENCODERS)) {
+        continue;
+      }
+      for (String className : prop.getValues()) {
+        if (className == null || className.trim().length() == 0) {
+          continue;
+        }
+        try {
+          encoders.add(Class.forName(className.trim()).asSubclass(PrecompressEncoder.class)
+              .newInstance());
+        } catch (ClassNotFoundException e) {
+          logger.log(TreeLogger.ERROR, "Could not find encoder class " + className, e);
+          throw new UnableToCompleteException();
+        } catch (ClassCastException e) {
+          logger.log(TreeLogger.ERROR, className + " is not a "
+              + PrecompressEncoder.class.getName(), e);
+          throw new UnableToCompleteException();
+        } catch (InstantiationException e) {
+          logger.log(TreeLogger.ERROR, "Could not create encoder " + className, e);
+          throw new UnableToCompleteException();
+        } catch (IllegalAccessException e) {
+          logger.log(TreeLogger.ERROR, "Could not create encoder " + className, e);
+          throw new UnableToCompleteException();
+        }
+      }
+    }
+    if (encoders.isEmpty()) {
+      encoders.add(new GzipEncoder());
+    }
+    Set<String> suffixes = new HashSet<String>();
+    for (PrecompressEncoder encoder : encoders) {
+      if (!suffixes.add(encoder.getSuffix())) {
+        logger.log(TreeLogger.ERROR, "More than one encoder in " + PROP_ENCODERS
+            + " has the suffix " + encoder.getSuffix());
+        throw new UnableToCompleteException();
+      }
+    }
+    return encoders;
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Precompressor");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   private static ConfigurationProperty findProperty(
       TreeLogger logger,
       Iterable<com.google.gwt.core.ext.linker.ConfigurationProperty> properties,
@@ -101,6 +223,55 @@ public class PrecompressLinker extends AbstractLinker {
     throw new UnableToCompleteException();
   }
 
+  /**
+   * Run the compressions, on the shared pool if there are several of them.
+   */
+  private static List<byte[]> runCompressions(List<Compression> compressions)
+      throws ExecutionException, InterruptedException {
+    List<byte[]> results = new ArrayList<byte[]>();
+    if (compressions.size() <= 1) {
+      for (Compression compression : compressions) {
+        try {
+          results.add(compression.call());
+        } catch (IOException e) {
+          throw new ExecutionException(e);
+        }
+      }
+      return results;
+    }
+
+    for (Future<byte[]> future : COMPRESSION_EXECUTOR.invokeAll(compressions)) {
+      results.add(future.get());
+    }
+    return results;
+  }
+
+  /**
+   * Write a cache file so that concurrent readers never see it half written.
+   * The temporary file has a unique name, since several builds may share the
+   * cache. Failures are ignored, because the cache is only an optimization.
+   */
+  private static void writeCacheFile(File file, byte[] contents) {
+    file.getParentFile().mkdirs();
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      FileOutputStream out = new FileOutputStream(tempFile);
+      try {
+        out.write(contents);
+      } finally {
+        out.close();
+      }
+      if (!tempFile.renameTo(file)) {
+        tempFile.delete();
+      }
+    } catch (IOException e) {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
   @Override
   public String getDescription() {
     return "PrecompressLinker";
@@ -119,63 +290,81 @@ public class PrecompressLinker extends AbstractLinker {
         TreeLogger.TRACE, "Analyzing the path patterns"), findProperty(logger,
         context.getConfigurationProperties(), PROP_PATH_REGEXES).getValues());
 
+    List<PrecompressEncoder> encoders = createEncoders(logger, context);
+
     // Record the list of all paths for later lookup
     Set<String> allPaths = new HashSet<String>();
     for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
       allPaths.add(art.getPartialPath());
     }
 
-    try {
-      // Buffer for streaming data to be compressed
-      byte[] buf = new byte[BUF_SIZE];
-
-      ArtifactSet updated = new ArtifactSet(artifacts);
-      for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
-        if (art.getVisibility() != Visibility.Public) {
-          // only compress things that will be served to the client
-          continue;
-        }
-        if (art.getPartialPath().endsWith(".gz")) {
+    List<Compression> compressions = new ArrayList<Compression>();
+    artifacts : for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
+      if (art.getVisibility() != Visibility.Public) {
+        // only compress things that will be served to the client
+        continue;
+      }
+      if (art.getPartialPath().endsWith(".gz")) {
+        // Already a compressed artifact
+        continue;
+      }
+      for (PrecompressEncoder encoder : encoders) {
+        if (art.getPartialPath().endsWith(encoder.getSuffix())) {
           // Already a compressed artifact
-          continue;
+          continue artifacts;
         }
-        if (allPaths.contains(art.getPartialPath() + ".gz")) {
+      }
+      if (!filter.isIncluded(logger.branch(TreeLogger.TRACE,
+          "Checking the path patterns"), art.getPartialPath())) {
+        continue;
+      }
+
+      byte[] contents = null;
+      for (PrecompressEncoder encoder : encoders) {
+        if (allPaths.contains(art.getPartialPath() + encoder.getSuffix())) {
           // It's already been compressed
           continue;
         }
-        if (!filter.isIncluded(logger.branch(TreeLogger.TRACE,
-            "Checking the path patterns"), art.getPartialPath())) {
-          continue;
+        if (contents == null) {
+          InputStream originalBytes = art.getContents(logger.branch(TreeLogger.TRACE,
+              "Reading " + art.getPartialPath()));
+          contents = Util.readStreamAsBytes(originalBytes);
+          if (contents == null) {
+            logger.log(TreeLogger.ERROR, "Unable to read " + art.getPartialPath());
+            throw new UnableToCompleteException();
+          }
         }
+        compressions.add(new Compression(art, contents, encoder));
+      }
+    }
 
+    List<byte[]> results;
+    try {
+      results = runCompressions(compressions);
+    } catch (ExecutionException e) {
+      logger.log(TreeLogger.ERROR, "Unexpected exception", e.getCause());
+      throw new UnableToCompleteException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while compressing", e);
+      throw new UnableToCompleteException();
+    }
+
+    ArtifactSet updated = new ArtifactSet(artifacts);
+    for (int i = 0; i < compressions.size(); i++) {
+      Compression compression = compressions.get(i);
+      byte[] compressed = results.get(i);
+      EmittedArtifact art = compression.artifact;
+      if (compressed.length < compression.contents.length) {
         TreeLogger compressBranch = logger.branch(TreeLogger.TRACE,
             "Compressing " + art.getPartialPath());
-
-        InputStream originalBytes = art.getContents(compressBranch);
-        ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
-        GZIPOutputStream gzip = new GZIPOutputStream(compressedBytes);
-
-        int originalLength = 0;
-        int n;
-        while ((n = originalBytes.read(buf)) > 0) {
-          originalLength += n;
-          gzip.write(buf, 0, n);
-        }
-        gzip.close();
-
-        byte[] compressed = compressedBytes.toByteArray();
-        if (compressed.length < originalLength) {
-          updated.add(emitBytes(compressBranch, compressed,
-              art.getPartialPath() + ".gz"));
-          if (!leaveOriginals) {
-            updated.remove(art);
-          }
+        updated.add(emitBytes(compressBranch, compressed,
+            art.getPartialPath() + compression.encoder.getSuffix()));
+        if (!leaveOriginals) {
+          updated.remove(art);
         }
       }
-      return updated;
-    } catch (IOException e) {
-      logger.log(TreeLogger.ERROR, "Unexpected exception", e);
-      throw new UnableToCompleteException();
     }
+    return updated;
   }
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.css;
+
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.resources.css.ast.Context;
+import com.google.gwt.resources.css.ast.CssDef;
+import com.google.gwt.resources.css.ast.CssEval;
+import com.google.gwt.resources.css.ast.CssExternalSelectors;
+import com.google.gwt.resources.css.ast.CssIf;
+import com.google.gwt.resources.css.ast.CssMediaRule;
+import com.google.gwt.resources.css.ast.CssNoFlip;
+import com.google.gwt.resources.css.ast.CssPageRule;
+import com.google.gwt.resources.css.ast.CssProperty;
+import com.google.gwt.resources.css.ast.CssRule;
+import com.google.gwt.resources.css.ast.CssSelector;
+import com.google.gwt.resources.css.ast.CssSprite;
+import com.google.gwt.resources.css.ast.CssStylesheet;
+import com.google.gwt.resources.css.ast.CssUnknownAtRule;
+import com.google.gwt.resources.css.ast.CssUrl;
+import com.google.gwt.resources.css.ast.CssVisitor;
+import com.google.gwt.resources.css.ast.CssProperty.Value;
+
+import java.util.List;
+
+/**
+ * Computes a fingerprint of a stylesheet that covers everything the
+ * {@link CssNodeCloner} copies, so that two stylesheets with the same
+ * fingerprint are interchangeable. Unlike the generated CSS text, this
+ * includes the keys of definitions and the Java expressions of values.
+ */
+public class CssFingerprintVisitor extends CssVisitor {
+
+  /**
+   * Returns the fingerprint of <code>sheet</code>.
+   */
+  public static String exec(CssStylesheet sheet) {
+    CssFingerprintVisitor v = new CssFingerprintVisitor();
+    v.accept(sheet);
+    return Util.computeStrongName(Util.getBytes(v.out.toString()));
+  }
+
+  private final StringBuilder out = new StringBuilder();
+
+  private CssFingerprintVisitor() {
+  }
+
+  @Override
+  public void endVisit(CssMediaRule x, Context ctx) {
+    close();
+  }
+
+  @Override
+  public void endVisit(CssNoFlip x, Context ctx) {
+    close();
+  }
+
+  @Override
+  public void endVisit(CssPageRule x, Context ctx) {
+    close();
+  }
+
+  @Override
+  public void endVisit(CssRule x, Context ctx) {
+    close();
+  }
+
+  @Override
+  public void endVisit(CssSprite x, Context ctx) {
+    close();
+  }
+
+  @Override
+  public boolean visit(CssDef x, Context ctx) {
+    open("def").append(x.getKey()).append(x.getValues());
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssEval x, Context ctx) {
+    open("eval").append(x.getKey()).append(x.getValues());
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssExternalSelectors x, Context ctx) {
+    open("external");
+    for (String className : x.getClasses()) {
+      append(className);
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssIf x, Context ctx) {
+    open("if").append(x.getExpression()).append(x.getPropertyName());
+    if (x.getPropertyValues() != null) {
+      for (String value : x.getPropertyValues()) {
+        append(value);
+      }
+    }
+    append(String.valueOf(x.isNegated()));
+    accept(x.getNodes());
+    open("else");
+    accept(x.getElseNodes());
+    close();
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssMediaRule x, Context ctx) {
+    open("media");
+    for (String media : x.getMedias()) {
+      append(media);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean visit(CssNoFlip x, Context ctx) {
+    open("noflip");
+    return true;
+  }
+
+  @Override
+  public boolean visit(CssPageRule x, Context ctx) {
+    open("page").append(x.getPseudoPage());
+    return true;
+  }
+
+  @Override
+  public boolean visit(CssProperty x, Context ctx) {
+    open("property").append(x.getName()).append(
+        x.getValues().getValues()).append(String.valueOf(x.isImportant()));
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssRule x, Context ctx) {
+    open("rule");
+    return true;
+  }
+
+  @Override
+  public boolean visit(CssSelector x, Context ctx) {
+    open("selector").append(x.getSelector());
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssSprite x, Context ctx) {
+    open("sprite").append(x.getResourceFunction().getExpression());
+    return true;
+  }
+
+  @Override
+  public boolean visit(CssUnknownAtRule x, Context ctx) {
+    open("unknown").append(x.getRule());
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean visit(CssUrl x, Context ctx) {
+    open("url").append(x.getKey()).append(x.getValues());
+    close();
+    return false;
+  }
+
+  /**
+   * Appends a length-prefixed string, so that no two sequences of strings
+   * produce the same output.
+   */
+  private CssFingerprintVisitor append(String s) {
+    if (s == null) {
+      out.append('-');
+    } else {
+      out.append(s.length()).append(':').append(s);
+    }
+    return this;
+  }
+
+  private CssFingerprintVisitor append(List<Value> values) {
+    out.append('[');
+    for (Value value : values) {
+      append(value.getClass().getName()).append(value.toCss()).append(
+          value.getExpression());
+    }
+    out.append(']');
+    return this;
+  }
+
+  private void close() {
+    out.append(')');
+  }
+
+  private CssFingerprintVisitor open(String kind) {
+    out.append('(');
+    return append(kind);
+  }
+}
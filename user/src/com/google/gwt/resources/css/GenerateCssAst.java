@@ -17,6 +17,7 @@ package com.google.gwt.resources.css;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.resources.css.ast.CssDef;
 import com.google.gwt.resources.css.ast.CssEval;
 import com.google.gwt.resources.css.ast.CssExternalSelectors;
@@ -75,7 +76,7 @@ import java.lang.reflect.Method;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -83,6 +84,11 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -652,35 +658,51 @@ public class GenerateCssAst {
   }
 
   /**
-   * Associates a template CssStylesheet with a timestamp.
+   * Records whether anything worth reporting was logged while parsing ahead of
+   * time, in which case the result is not cached so that the messages are
+   * reported by a later call to {@link GenerateCssAst#exec}.
    */
-  private static class CachedStylesheet {
-    private final CssStylesheet sheet;
-    private final long timestamp;
+  private static class RecordingLogger extends TreeLogger {
+    private volatile boolean logged;
 
-    public CachedStylesheet(CssStylesheet sheet, long timestamp) {
-      this.sheet = sheet;
-      this.timestamp = timestamp;
+    @Override
+    public TreeLogger branch(Type type, String msg, Throwable caught,
+        HelpInfo helpInfo) {
+      log(type, msg, caught, helpInfo);
+      return this;
     }
 
-    public CssStylesheet getCopyOfStylesheet() {
-      return new CssStylesheet(sheet);
+    @Override
+    public boolean isLoggable(Type type) {
+      return !type.isLowerPriorityThan(TreeLogger.WARN);
     }
 
-    public long getTimestamp() {
-      return timestamp;
+    @Override
+    public void log(Type type, String msg, Throwable caught, HelpInfo helpInfo) {
+      if (isLoggable(type)) {
+        logged = true;
+      }
     }
   }
 
   private static final String LITERAL_FUNCTION_NAME = "literal";
+
+  /**
+   * Parses stylesheets for {@link #preparse}. One bounded pool is shared by
+   * every ClientBundle, and its idle threads exit.
+   */
+  private static final ThreadPoolExecutor PARSE_EXECUTOR = createParseExecutor();
+
   /**
    * We cache the stylesheets to prevent repeated parsing of the same source
    * material. This is a common case if the user is using UiBinder's implicit
-   * stylesheets. It is necessary to use the list of URLs passed to exec because
+   * stylesheets, and for every permutation of a ClientBundle. The key is the
+   * hash of the contents of all of the URLs passed to exec, in order, because
    * of the eager variable expansion performed by
-   * {@link GenerationHandler#parseDef(String)}.
+   * {@link GenerationHandler#parseDef(String)}. The cached sheets are templates
+   * that are copied before being returned.
    */
-  private static final Map<List<URL>, SoftReference<CachedStylesheet>> SHEETS = Collections.synchronizedMap(new HashMap<List<URL>, SoftReference<CachedStylesheet>>());
+  private static final Map<String, SoftReference<CssStylesheet>> SHEETS = Collections.synchronizedMap(new HashMap<String, SoftReference<CssStylesheet>>());
   private static final String VALUE_FUNCTION_NAME = "value";
 
   /**
@@ -690,73 +712,82 @@ public class GenerateCssAst {
    */
   public static CssStylesheet exec(TreeLogger logger, URL... stylesheets)
       throws UnableToCompleteException {
-
-    long mtime = 0;
-    for (URL url : stylesheets) {
-      long lastModified;
-      try {
-        lastModified = url.openConnection().getLastModified();
-      } catch (IOException e) {
-        // Non-fatal, assuming we can re-open the stream later
-        logger.log(TreeLogger.DEBUG, "Could not determine cached time", e);
-        lastModified = 0;
-      }
-      if (lastModified == 0) {
-        /*
-         * We have to refresh, since the modification date can't be determined,
-         * either due to IOException or getLastModified() not providing useful
-         * data.
-         */
-        mtime = Long.MAX_VALUE;
-        break;
-      } else {
-        mtime = Math.max(mtime, lastModified);
-      }
+    String key = contentKey(stylesheets);
+    CssStylesheet cached = getCachedSheet(key);
+    if (cached != null) {
+      logger.log(TreeLogger.DEBUG, "Using cached result");
+      return new CssStylesheet(cached);
     }
 
-    List<URL> sheets = Arrays.asList(stylesheets);
-    SoftReference<CachedStylesheet> ref = SHEETS.get(sheets);
-    CachedStylesheet toReturn = ref == null ? null : ref.get();
-    if (toReturn != null) {
-      if (mtime <= toReturn.getTimestamp()) {
-        logger.log(TreeLogger.DEBUG, "Using cached result");
-        return toReturn.getCopyOfStylesheet();
-      } else {
-        logger.log(TreeLogger.DEBUG, "Invalidating cached stylesheet");
-      }
+    CssStylesheet sheet = parse(logger, stylesheets);
+    if (key != null) {
+      SHEETS.put(key, new SoftReference<CssStylesheet>(sheet));
     }
+    return new CssStylesheet(sheet);
+  }
 
-    Parser p = new Parser();
-    Errors errors = new Errors(logger);
-    GenerationHandler g = new GenerationHandler(errors);
-    p.setDocumentHandler(g);
-    p.setErrorHandler(errors);
-
-    for (URL stylesheet : sheets) {
-      TreeLogger branchLogger = logger.branch(TreeLogger.DEBUG,
-          "Parsing CSS stylesheet " + stylesheet.toExternalForm());
-      try {
-        p.parseStyleSheet(stylesheet.toURI().toString());
-        continue;
-      } catch (CSSException e) {
-        branchLogger.log(TreeLogger.ERROR, "Unable to parse CSS", e);
-      } catch (IOException e) {
-        branchLogger.log(TreeLogger.ERROR, "Unable to parse CSS", e);
-      } catch (URISyntaxException e) {
-        branchLogger.log(TreeLogger.ERROR, "Unable to parse CSS", e);
-      }
-      throw new UnableToCompleteException();
+  /**
+   * Parses groups of stylesheets on several threads so that later calls to
+   * {@link #exec} for the same contents find them already parsed. Groups that
+   * fail to parse, or produce warnings, are left for exec to report.
+   */
+  public static void preparse(Collection<URL[]> stylesheetGroups) {
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (final URL[] stylesheets : stylesheetGroups) {
+      tasks.add(new Callable<Void>() {
+        public Void call() {
+          String key = contentKey(stylesheets);
+          if (key == null || getCachedSheet(key) != null) {
+            return null;
+          }
+          RecordingLogger logger = new RecordingLogger();
+          try {
+            CssStylesheet sheet = parse(logger, stylesheets);
+            if (!logger.logged) {
+              SHEETS.put(key, new SoftReference<CssStylesheet>(sheet));
+            }
+          } catch (UnableToCompleteException e) {
+            // Reported again when the stylesheet is prepared
+          }
+          return null;
+        }
+      });
     }
+    try {
+      PARSE_EXECUTOR.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
-    if (errors.fatalErrorEncountered) {
-      // Logging will have been performed by the Errors instance, just exit
-      throw new UnableToCompleteException();
+  /**
+   * Returns a hash of the contents of <code>stylesheets</code>, or
+   * <code>null</code> if any of them cannot be read.
+   */
+  private static String contentKey(URL[] stylesheets) {
+    byte[][] contents = new byte[stylesheets.length][];
+    for (int i = 0; i < stylesheets.length; i++) {
+      contents[i] = Util.readURLAsBytes(stylesheets[i]);
+      if (contents[i] == null) {
+        return null;
+      }
     }
+    return Util.computeStrongName(contents);
+  }
 
-    toReturn = new CachedStylesheet(g.css, mtime == Long.MAX_VALUE ? 0 : mtime);
-    SHEETS.put(new ArrayList<URL>(sheets), new SoftReference<CachedStylesheet>(
-        toReturn));
-    return toReturn.getCopyOfStylesheet();
+  private static ThreadPoolExecutor createParseExecutor() {
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "CSS parser");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   /**
@@ -860,6 +891,14 @@ public class GenerateCssAst {
     return null;
   }
 
+  private static CssStylesheet getCachedSheet(String key) {
+    if (key == null) {
+      return null;
+    }
+    SoftReference<CssStylesheet> ref = SHEETS.get(key);
+    return ref == null ? null : ref.get();
+  }
+
   /**
    * Return an integer value from 0-255 for a component of an RGB color.
    * 
@@ -912,6 +951,40 @@ public class GenerateCssAst {
     return s;
   }
 
+  /**
+   * Parses <code>stylesheets</code> as though they had been concatenated.
+   */
+  private static CssStylesheet parse(TreeLogger logger, URL[] stylesheets)
+      throws UnableToCompleteException {
+    Parser p = new Parser();
+    Errors errors = new Errors(logger);
+    GenerationHandler g = new GenerationHandler(errors);
+    p.setDocumentHandler(g);
+    p.setErrorHandler(errors);
+
+    for (URL stylesheet : stylesheets) {
+      TreeLogger branchLogger = logger.branch(TreeLogger.DEBUG,
+          "Parsing CSS stylesheet " + stylesheet.toExternalForm());
+      try {
+        p.parseStyleSheet(stylesheet.toURI().toString());
+        continue;
+      } catch (CSSException e) {
+        branchLogger.log(TreeLogger.ERROR, "Unable to parse CSS", e);
+      } catch (IOException e) {
+        branchLogger.log(TreeLogger.ERROR, "Unable to parse CSS", e);
+      } catch (URISyntaxException e) {
+        branchLogger.log(TreeLogger.ERROR, "Unable to parse CSS", e);
+      }
+      throw new UnableToCompleteException();
+    }
+
+    if (errors.fatalErrorEncountered) {
+      // Logging will have been performed by the Errors instance, just exit
+      throw new UnableToCompleteException();
+    }
+    return g.css;
+  }
+
   /**
    * Used when evaluating literal() rules.
    */
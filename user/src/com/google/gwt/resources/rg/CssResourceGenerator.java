@@ -38,6 +38,7 @@ import com.google.gwt.resources.client.CssResource.NotStrict;
 import com.google.gwt.resources.client.CssResource.Shared;
 import com.google.gwt.resources.client.CssResourceBase;
 import com.google.gwt.resources.css.ClassRenamer;
+import com.google.gwt.resources.css.CssFingerprintVisitor;
 import com.google.gwt.resources.css.CssGenerationVisitor;
 import com.google.gwt.resources.css.DefsCollector;
 import com.google.gwt.resources.css.ExternalClassesCollector;
@@ -74,9 +75,11 @@ import com.google.gwt.user.rebind.SourceWriter;
 import com.google.gwt.user.rebind.StringSourceWriter;
 
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -135,6 +138,14 @@ public class CssResourceGenerator extends AbstractResourceGenerator
   private static final String KEY_SHARED_METHODS = "sharedMethods";
   private static final String KEY_STYLE = "CssResource.style";
 
+  /**
+   * Merged rules keyed by the {@link CssFingerprintVisitor fingerprint} of the
+   * stylesheet they were computed from. Permutations that evaluate to the same
+   * stylesheet share the result instead of merging it again.
+   */
+  private static final Map<String, SoftReference<CssStylesheet>> MERGED_SHEETS =
+      Collections.synchronizedMap(new HashMap<String, SoftReference<CssStylesheet>>());
+
   /**
    * This character must not appear in {@link #BASE32_CHARS}.
    */
@@ -394,6 +405,27 @@ public class CssResourceGenerator extends AbstractResourceGenerator
     return null;
   }
 
+  /**
+   * Combines rules with identical selectors or identical contents, reusing the
+   * result of an earlier merge of a structurally identical stylesheet.
+   */
+  static void mergeRules(CssStylesheet sheet) {
+    String key = CssFingerprintVisitor.exec(sheet);
+    SoftReference<CssStylesheet> ref = MERGED_SHEETS.get(key);
+    CssStylesheet merged = ref == null ? null : ref.get();
+    if (merged != null) {
+      sheet.getNodes().clear();
+      sheet.append(merged);
+      return;
+    }
+
+    (new SplitRulesVisitor()).accept(sheet);
+    (new MergeIdenticalSelectorsVisitor()).accept(sheet);
+    (new MergeRulesByContentVisitor()).accept(sheet);
+    MERGED_SHEETS.put(key, new SoftReference<CssStylesheet>(
+        new CssStylesheet(sheet)));
+  }
+
   /**
    * This function validates any context-sensitive Values.
    */
@@ -491,6 +523,7 @@ public class CssResourceGenerator extends AbstractResourceGenerator
     SortedSet<JClassType> cssResourceSubtypes =
       computeOperableTypes(logger, baseInterface);
     initReplacements(logger, context, classPrefix, cssResourceSubtypes);
+    preparseStylesheets(context, superInterface);
   }
 
   @Override
@@ -997,14 +1030,37 @@ public class CssResourceGenerator extends AbstractResourceGenerator
 
     // Combine rules with identical selectors
     if (enableMerge) {
-      (new SplitRulesVisitor()).accept(sheet);
-      (new MergeIdenticalSelectorsVisitor()).accept(sheet);
-      (new MergeRulesByContentVisitor()).accept(sheet);
+      mergeRules(sheet);
     } 
     
     return actualReplacements;
   }
 
+  /**
+   * Parses the stylesheets of every CssResource method in the bundle in
+   * parallel, so that {@link #prepare} finds them already parsed. Problems are
+   * ignored here and reported when each method is prepared.
+   */
+  private void preparseStylesheets(ResourceContext context,
+      JClassType cssResourceType) {
+    List<URL[]> groups = new ArrayList<URL[]>();
+    for (JMethod m : context.getClientBundleType().getOverridableMethods()) {
+      JClassType returnType = m.getReturnType().isInterface();
+      if (returnType == null || !cssResourceType.isAssignableFrom(returnType)) {
+        continue;
+      }
+      try {
+        URL[] resources = getResources(TreeLogger.NULL, context, m);
+        if (resources.length > 0) {
+          groups.add(resources);
+        }
+      } catch (UnableToCompleteException e) {
+        // Reported by prepare()
+      }
+    }
+    GenerateCssAst.preparse(groups);
+  }
+
   /**
    * Process the Import annotation on the associated JMethod and return a map of
    * prefixes to JMethods to locally obfuscated names.
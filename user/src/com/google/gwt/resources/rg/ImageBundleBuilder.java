@@ -17,6 +17,7 @@ package com.google.gwt.resources.rg;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
 import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
@@ -26,11 +27,18 @@ import org.w3c.dom.Node;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -42,6 +50,12 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
@@ -216,6 +230,20 @@ class ImageBundleBuilder {
     }
   }
 
+  /**
+   * The images read from an image file, which are shared by every
+   * {@link ImageRect} made from files with the same contents.
+   */
+  static class DecodedImage {
+    final BufferedImage[] images;
+    final boolean lossy;
+
+    DecodedImage(BufferedImage[] images, boolean lossy) {
+      this.images = images;
+      this.lossy = lossy;
+    }
+  }
+
   /**
    * Performs a simple horizontal arrangement of rectangles. Images will be
    * tiled vertically to fill to fill the full height of the image.
@@ -271,6 +299,7 @@ class ImageBundleBuilder {
    */
   static class ImageRect {
 
+    private String contentHash;
     private boolean hasBeenPositioned, lossy;
     private int height, width;
     private final int intrinsicHeight, intrinsicWidth;
@@ -291,6 +320,7 @@ class ImageBundleBuilder {
       this.top = other.getTop();
       this.intrinsicHeight = other.intrinsicHeight;
       this.intrinsicWidth = other.intrinsicWidth;
+      this.contentHash = other.contentHash;
       setTransform(other.getTransform());
     }
 
@@ -302,6 +332,14 @@ class ImageBundleBuilder {
       this.height = this.width = -1;
     }
 
+    /**
+     * Returns the strong name of the image file, or <code>null</code> if the
+     * image was not read from a file.
+     */
+    public String getContentHash() {
+      return contentHash;
+    }
+
     public int getHeight() {
       return height > 0 ? height : intrinsicHeight;
     }
@@ -346,6 +384,10 @@ class ImageBundleBuilder {
       return lossy;
     }
 
+    public void setContentHash(String contentHash) {
+      this.contentHash = contentHash;
+    }
+
     public void setHeight(int height) {
       this.height = height;
       if (width <= 0) {
@@ -431,6 +473,19 @@ class ImageBundleBuilder {
     }
   }
 
+  /**
+   * A rendered composite image and where each image was placed in it.
+   */
+  static class Sprite {
+    final byte[] bytes;
+    final Map<String, int[]> positions;
+
+    Sprite(byte[] bytes, Map<String, int[]> positions) {
+      this.bytes = bytes;
+      this.positions = positions;
+    }
+  }
+
   /**
    * Performs a simple vertical arrangement of rectangles. Images will be tiled
    * horizontally to fill the full width of the image.
@@ -468,9 +523,38 @@ class ImageBundleBuilder {
    */
   static final String BUNDLE_FILE_TYPE = "png";
   static final String BUNDLE_MIME_TYPE = "image/png";
+  /**
+   * Decodes images for {@link #predecode}, shared by all callers so that
+   * concurrent generators do not each start a thread per processor.
+   */
+  private static final ThreadPoolExecutor DECODE_EXECUTOR = createDecodeExecutor();
   private static final int IMAGE_MAX_SIZE = Integer.getInteger(
       "gwt.imageResource.maxBundleSize", 256);
 
+  /**
+   * Images decoded so far, by the strong name of their file contents.
+   */
+  private static final Map<String, SoftReference<DecodedImage>> decodedImages =
+      Collections.synchronizedMap(new HashMap<String, SoftReference<DecodedImage>>());
+
+  /**
+   * Where rendered composite images are kept between compiles, if anywhere.
+   */
+  private static final String SPRITE_CACHE_DIR = System.getProperty(
+      "gwt.imageResource.spriteCacheDir");
+
+  /**
+   * Bump this whenever rendering changes, to invalidate cached composite
+   * images.
+   */
+  private static final int SPRITE_CACHE_VERSION = 1;
+
+  /**
+   * Composite images rendered so far, by {@link #spriteKey}.
+   */
+  private static final Map<String, SoftReference<Sprite>> sprites =
+      Collections.synchronizedMap(new HashMap<String, SoftReference<Sprite>>());
+
   public static void main(String[] args) {
     final TreeLogger logger = new PrintWriterTreeLogger(new PrintWriter(
         System.out));
@@ -526,6 +610,36 @@ class ImageBundleBuilder {
     System.exit(0);
   }
 
+  /**
+   * Decode image files on several threads, so that a later
+   * {@link #assimilate} of any of them finds its images already decoded.
+   * Files that cannot be decoded are skipped; {@link #assimilate} reports the
+   * problem.
+   */
+  public static void predecode(Collection<URL> urls) {
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (final URL url : urls) {
+      tasks.add(new Callable<Void>() {
+        public Void call() {
+          byte[] bytes = Util.readURLAsBytes(url);
+          if (bytes != null) {
+            try {
+              getDecodedImage(TreeLogger.NULL, url.getPath(), bytes, Util.computeStrongName(bytes));
+            } catch (UnableToCompleteException e) {
+              // Reported again when the image is assimilated
+            }
+          }
+          return null;
+        }
+      });
+    }
+    try {
+      DECODE_EXECUTOR.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   public static byte[] toPng(TreeLogger logger, ImageRect rect)
       throws UnableToCompleteException {
     // Create the bundled image.
@@ -545,6 +659,106 @@ class ImageBundleBuilder {
     return imageBytes;
   }
 
+  /**
+   * Returns the composite image cached under <code>key</code>, in memory or
+   * in <code>cacheDir</code> if that is not <code>null</code>.
+   */
+  static Sprite getCachedSprite(File cacheDir, String key) {
+    SoftReference<Sprite> ref = sprites.get(key);
+    Sprite sprite = ref == null ? null : ref.get();
+    if (sprite == null && cacheDir != null) {
+      sprite = readSprite(new File(cacheDir, key + ".sprite"));
+      if (sprite != null) {
+        sprites.put(key, new SoftReference<Sprite>(sprite));
+      }
+    }
+    return sprite;
+  }
+
+  /**
+   * Returns the images in a file with the given contents, decoding them only
+   * if no file with the same contents has been decoded before.
+   */
+  static DecodedImage getDecodedImage(TreeLogger logger, String imageName, byte[] bytes,
+      String contentHash) throws UnableToCompleteException {
+    SoftReference<DecodedImage> ref = decodedImages.get(contentHash);
+    DecodedImage decoded = ref == null ? null : ref.get();
+    if (decoded == null) {
+      decoded = decode(logger, imageName, bytes);
+      decodedImages.put(contentHash, new SoftReference<DecodedImage>(decoded));
+    }
+    return decoded;
+  }
+
+  /**
+   * Caches a composite image under <code>key</code>, in memory and in
+   * <code>cacheDir</code> if that is not <code>null</code>.
+   */
+  static void putCachedSprite(File cacheDir, String key, Sprite sprite) {
+    sprites.put(key, new SoftReference<Sprite>(sprite));
+    if (cacheDir != null && (cacheDir.isDirectory() || cacheDir.mkdirs())) {
+      writeSprite(new File(cacheDir, key + ".sprite"), sprite);
+    }
+  }
+
+  /**
+   * Reads a composite image written by {@link #writeSprite}. Returns
+   * <code>null</code> if the file is missing or damaged.
+   */
+  static Sprite readSprite(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        Map<String, int[]> positions = new HashMap<String, int[]>();
+        for (int i = in.readInt(); i > 0; i--) {
+          positions.put(in.readUTF(), new int[] {in.readInt(), in.readInt()});
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new Sprite(bytes, positions);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      // Treat a damaged file as missing
+      return null;
+    }
+  }
+
+  /**
+   * Writes a composite image to <code>file</code>, replacing it atomically.
+   * Failures are ignored, because the file is only a cache.
+   */
+  static void writeSprite(File file, Sprite sprite) {
+    File tempFile = new File(file.getPath() + ".tmp" + Thread.currentThread().getId());
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(tempFile)));
+      try {
+        out.writeInt(sprite.positions.size());
+        for (Map.Entry<String, int[]> entry : sprite.positions.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeInt(entry.getValue()[0]);
+          out.writeInt(entry.getValue()[1]);
+        }
+        out.writeInt(sprite.bytes.length);
+        out.write(sprite.bytes);
+      } finally {
+        out.close();
+      }
+      // Another compile may have written it first, which is just as good
+      if (!tempFile.renameTo(file)) {
+        tempFile.delete();
+      }
+    } catch (IOException e) {
+      // The cache is only an optimization
+      tempFile.delete();
+    }
+  }
+
   /**
    * Write the bundled image into a byte array, so that we can compute its
    * strong name.
@@ -571,6 +785,126 @@ class ImageBundleBuilder {
     return imageBytes;
   }
 
+  /**
+   * Creates the pool of daemon threads behind {@link #DECODE_EXECUTOR}.
+   */
+  private static ThreadPoolExecutor createDecodeExecutor() {
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Image decoder");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Read the images in an image file.
+   */
+  private static DecodedImage decode(TreeLogger logger, String imageName, byte[] bytes)
+      throws UnableToCompleteException {
+    BufferedImage image = null;
+    // Be safe by default and assume that the incoming image is lossy
+    boolean lossy = true;
+    // Load the image
+    try {
+      /*
+       * ImageIO uses an SPI pattern API. We don't care about the particulars of
+       * the implementation, so just choose the first ImageReader.
+       */
+      MemoryCacheImageInputStream input = new MemoryCacheImageInputStream(
+          new ByteArrayInputStream(bytes));
+      Iterator<ImageReader> it = ImageIO.getImageReaders(input);
+      readers : while (it.hasNext()) {
+        ImageReader reader = it.next();
+        reader.setInput(input);
+
+        int numImages = reader.getNumImages(true);
+        if (numImages == 0) {
+          // Fall through
+
+        } else if (numImages == 1) {
+          try {
+            image = reader.read(0);
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata != null
+                && metadata.isStandardMetadataFormatSupported()) {
+              // http://java.sun.com/j2se/1.5.0/docs/api/javax/imageio/metadata/doc-files/standard_metadata.html
+              Node data = metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+              metadata : for (int i = 0, j = data.getChildNodes().getLength(); i < j; i++) {
+                Node child = data.getChildNodes().item(i);
+                if (child.getLocalName().equalsIgnoreCase("compression")) {
+                  for (int k = 0, l = child.getChildNodes().getLength(); k < l; k++) {
+                    Node child2 = child.getChildNodes().item(k);
+                    if (child2.getLocalName().equalsIgnoreCase("lossless")) {
+                      Node value = child2.getAttributes().getNamedItem("value");
+                      if (value == null) {
+                        // The default is true, according to the DTD
+                        lossy = false;
+                      } else {
+                        lossy = !Boolean.parseBoolean(value.getNodeValue());
+                      }
+                      break metadata;
+                    }
+                  }
+                }
+              }
+            }
+          } catch (Exception e) {
+            // Hope we have another reader that can handle the image
+            continue readers;
+          }
+
+        } else {
+          // Read all contained images
+          BufferedImage[] images = new BufferedImage[numImages];
+
+          try {
+            for (int i = 0; i < numImages; i++) {
+              images[i] = reader.read(i);
+            }
+          } catch (Exception e) {
+            // Hope we have another reader that can handle the image
+            continue readers;
+          }
+
+          return new DecodedImage(images, false);
+        }
+      }
+    } catch (IllegalArgumentException iex) {
+      if (imageName.toLowerCase().endsWith("png")
+          && iex.getMessage() != null
+          && iex.getStackTrace()[0].getClassName().equals(
+              "javax.imageio.ImageTypeSpecifier$Indexed")) {
+        logger.log(TreeLogger.ERROR,
+            "Unable to read image. The image may not be in valid PNG format. "
+                + "This problem may also be due to a bug in versions of the "
+                + "JRE prior to 1.6. See "
+                + "http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5098176 "
+                + "for more information. If this bug is the cause of the "
+                + "error, try resaving the image using a different image "
+                + "program, or upgrade to a newer JRE.", null);
+        throw new UnableToCompleteException();
+      } else {
+        throw iex;
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.ERROR, "Unable to read image resource", e);
+      throw new UnableToCompleteException();
+    }
+
+    if (image == null) {
+      logger.log(TreeLogger.ERROR, "Unrecognized image file format", null);
+      throw new UnableToCompleteException();
+    }
+    return new DecodedImage(new BufferedImage[] {image}, lossy);
+  }
+
   /**
    * Compute the greatest common denominator of two numbers.
    */
@@ -593,6 +927,10 @@ class ImageBundleBuilder {
     return b / gcd(a, b) * a;
   }
 
+  private static File spriteCacheDir() {
+    return SPRITE_CACHE_DIR == null ? null : new File(SPRITE_CACHE_DIR);
+  }
+
   private final Map<String, ImageRect> imageNameToImageRectMap = new HashMap<String, ImageRect>();
 
   public ImageBundleBuilder() {
@@ -664,11 +1002,31 @@ class ImageBundleBuilder {
       return null;
     }
 
+    String key = spriteKey(arranger);
+    Sprite sprite = key == null ? null : getCachedSprite(spriteCacheDir(), key);
+    if (sprite != null && sprite.positions.keySet().equals(imageNameToImageRectMap.keySet())) {
+      logger.log(TreeLogger.DEBUG, "Reusing a previously rendered composite image");
+      for (Map.Entry<String, ImageRect> entry : imageNameToImageRectMap.entrySet()) {
+        int[] position = sprite.positions.get(entry.getKey());
+        entry.getValue().setPosition(position[0], position[1]);
+      }
+      return sprite.bytes;
+    }
+
     // Create the bundled image from all of the constituent images.
     BufferedImage bundledImage = drawBundledImage(arranger);
 
     byte[] imageBytes = createImageBytes(logger, bundledImage);
 
+    if (key != null) {
+      Map<String, int[]> positions = new HashMap<String, int[]>();
+      for (Map.Entry<String, ImageRect> entry : imageNameToImageRectMap.entrySet()) {
+        ImageRect rect = entry.getValue();
+        positions.put(entry.getKey(), new int[] {rect.getLeft(), rect.getTop()});
+      }
+      putCachedSprite(spriteCacheDir(), key, new Sprite(imageBytes, positions));
+    }
+
     return imageBytes;
   }
 
@@ -678,107 +1036,26 @@ class ImageBundleBuilder {
     logger = logger.branch(TreeLogger.TRACE,
         "Adding image '" + imageName + "'", null);
 
-    BufferedImage image = null;
-    // Be safe by default and assume that the incoming image is lossy
-    boolean lossy = true;
-    // Load the image
-    try {
-      /*
-       * ImageIO uses an SPI pattern API. We don't care about the particulars of
-       * the implementation, so just choose the first ImageReader.
-       */
-      MemoryCacheImageInputStream input = new MemoryCacheImageInputStream(
-          imageUrl.openStream());
-      Iterator<ImageReader> it = ImageIO.getImageReaders(input);
-      readers : while (it.hasNext()) {
-        ImageReader reader = it.next();
-        reader.setInput(input);
-
-        int numImages = reader.getNumImages(true);
-        if (numImages == 0) {
-          // Fall through
-
-        } else if (numImages == 1) {
-          try {
-            image = reader.read(0);
-            IIOMetadata metadata = reader.getImageMetadata(0);
-            if (metadata != null
-                && metadata.isStandardMetadataFormatSupported()) {
-              // http://java.sun.com/j2se/1.5.0/docs/api/javax/imageio/metadata/doc-files/standard_metadata.html
-              Node data = metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
-              metadata : for (int i = 0, j = data.getChildNodes().getLength(); i < j; i++) {
-                Node child = data.getChildNodes().item(i);
-                if (child.getLocalName().equalsIgnoreCase("compression")) {
-                  for (int k = 0, l = child.getChildNodes().getLength(); k < l; k++) {
-                    Node child2 = child.getChildNodes().item(k);
-                    if (child2.getLocalName().equalsIgnoreCase("lossless")) {
-                      Node value = child2.getAttributes().getNamedItem("value");
-                      if (value == null) {
-                        // The default is true, according to the DTD
-                        lossy = false;
-                      } else {
-                        lossy = !Boolean.parseBoolean(value.getNodeValue());
-                      }
-                      break metadata;
-                    }
-                  }
-                }
-              }
-            }
-          } catch (Exception e) {
-            // Hope we have another reader that can handle the image
-            continue readers;
-          }
-
-        } else {
-          // Read all contained images
-          BufferedImage[] images = new BufferedImage[numImages];
-
-          try {
-            for (int i = 0; i < numImages; i++) {
-              images[i] = reader.read(i);
-            }
-          } catch (Exception e) {
-            // Hope we have another reader that can handle the image
-            continue readers;
-          }
-
-          ImageRect rect = new ImageRect(imageName, images);
-          throw new UnsuitableForStripException(rect);
-        }
-      }
-    } catch (IllegalArgumentException iex) {
-      if (imageName.toLowerCase().endsWith("png")
-          && iex.getMessage() != null
-          && iex.getStackTrace()[0].getClassName().equals(
-              "javax.imageio.ImageTypeSpecifier$Indexed")) {
-        logger.log(TreeLogger.ERROR,
-            "Unable to read image. The image may not be in valid PNG format. "
-                + "This problem may also be due to a bug in versions of the "
-                + "JRE prior to 1.6. See "
-                + "http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5098176 "
-                + "for more information. If this bug is the cause of the "
-                + "error, try resaving the image using a different image "
-                + "program, or upgrade to a newer JRE.", null);
-        throw new UnableToCompleteException();
-      } else {
-        throw iex;
-      }
-    } catch (IOException e) {
-      logger.log(TreeLogger.ERROR, "Unable to read image resource", e);
+    byte[] bytes = Util.readURLAsBytes(imageUrl);
+    if (bytes == null) {
+      logger.log(TreeLogger.ERROR, "Unable to read image resource", null);
       throw new UnableToCompleteException();
     }
+    String contentHash = Util.computeStrongName(bytes);
+    DecodedImage decoded = getDecodedImage(logger, imageName, bytes, contentHash);
 
-    if (image == null) {
-      logger.log(TreeLogger.ERROR, "Unrecognized image file format", null);
-      throw new UnableToCompleteException();
+    if (decoded.images.length > 1) {
+      ImageRect rect = new ImageRect(imageName, decoded.images);
+      rect.setContentHash(contentHash);
+      throw new UnsuitableForStripException(rect);
     }
 
-    ImageRect toReturn = new ImageRect(imageName, image);
-    toReturn.setLossy(lossy);
+    ImageRect toReturn = new ImageRect(imageName, decoded.images[0]);
+    toReturn.setLossy(decoded.lossy);
+    toReturn.setContentHash(contentHash);
 
     // Don't composite the image if it's lossy or if it is too big
-    if (lossy || toReturn.getHeight() > IMAGE_MAX_SIZE
+    if (decoded.lossy || toReturn.getHeight() > IMAGE_MAX_SIZE
         || toReturn.getWidth() > IMAGE_MAX_SIZE) {
       throw new UnsuitableForStripException(toReturn);
     }
@@ -827,4 +1104,34 @@ class ImageBundleBuilder {
 
     return bundledImage;
   }
+
+  /**
+   * Computes a key that identifies the composite image this builder would
+   * render with <code>arranger</code>, from the contents of the images and how
+   * they are transformed. Returns <code>null</code> if some image's contents
+   * are unknown.
+   */
+  private String spriteKey(Arranger arranger) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(SPRITE_CACHE_VERSION).append(':').append(arranger.getClass().getName());
+    boolean keepsPositions = arranger instanceof IdentityArranger;
+    double[] matrix = new double[6];
+    for (Map.Entry<String, ImageRect> entry : new TreeMap<String, ImageRect>(
+        imageNameToImageRectMap).entrySet()) {
+      ImageRect rect = entry.getValue();
+      if (rect.getContentHash() == null) {
+        return null;
+      }
+      sb.append('\n').append(entry.getKey()).append(':').append(rect.getContentHash());
+      sb.append(':').append(rect.getWidth()).append('x').append(rect.getHeight());
+      rect.getTransform().getMatrix(matrix);
+      for (double d : matrix) {
+        sb.append(':').append(d);
+      }
+      if (keepsPositions) {
+        sb.append('@').append(rect.getLeft()).append(',').append(rect.getTop());
+      }
+    }
+    return Util.computeStrongName(Util.getBytes(sb.toString()));
+  }
 }
@@ -20,10 +20,12 @@ import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.gwt.dev.util.StringKey;
 import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.Maps;
 import com.google.gwt.dev.util.collect.Sets;
+import com.google.gwt.resources.client.ImageResource;
 import com.google.gwt.resources.client.ImageResource.ImageOptions;
 import com.google.gwt.resources.client.ImageResource.RepeatStyle;
 import com.google.gwt.resources.client.impl.ImageResourcePrototype;
@@ -43,7 +45,9 @@ import java.awt.geom.AffineTransform;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -514,6 +518,7 @@ public final class ImageResourceGenerator extends AbstractResourceGenerator
     } else {
       shared = new CachedState();
       context.putCachedData(key, shared);
+      predecodeImages(context);
     }
   }
 
@@ -632,6 +637,35 @@ public final class ImageResourceGenerator extends AbstractResourceGenerator
     return toReturn;
   }
 
+  /**
+   * Decode the images of the ClientBundle on several threads, before
+   * {@link #prepare} asks for them one at a time.
+   */
+  private void predecodeImages(ResourceContext context) {
+    TypeOracle typeOracle = context.getGeneratorContext().getTypeOracle();
+    JClassType imageResourceType = typeOracle.findType(ImageResource.class.getCanonicalName());
+    if (imageResourceType == null) {
+      return;
+    }
+
+    List<URL> urls = new ArrayList<URL>();
+    for (JMethod method : context.getClientBundleType().getOverridableMethods()) {
+      JClassType returnType = method.getReturnType().isClassOrInterface();
+      if (returnType == null || !returnType.isAssignableTo(imageResourceType)) {
+        continue;
+      }
+      try {
+        URL[] resources = ResourceGeneratorUtil.findResources(TreeLogger.NULL, context, method);
+        if (resources.length == 1) {
+          urls.add(resources[0]);
+        }
+      } catch (UnableToCompleteException e) {
+        // prepare() reports it
+      }
+    }
+    ImageBundleBuilder.predecode(urls);
+  }
+
   /**
    * Re-encode an image as a PNG to strip random header data.
    */
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.storage.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.prefetch.LoadSequencePredictor;
+
+/**
+ * Keeps the split point requests recorded by
+ * {@link com.google.gwt.core.client.prefetch.Prefetcher#predict(LoadSequencePredictor.Store)}
+ * in localStorage. Split point numbers are only meaningful for one compilation,
+ * so the record is kept per permutation, and records of other permutations of
+ * the module are removed.
+ *
+ * <p>
+ * <span style="color:red">Experimental API: This API is still under development
+ * and is subject to change. </span>
+ * </p>
+ */
+public class StorageLoadSequenceStore implements LoadSequencePredictor.Store {
+
+  private static final String KEY_PREFIX = "gwt.prefetch.";
+
+  /**
+   * Returns a store in localStorage, or <code>null</code> if localStorage is
+   * not supported.
+   */
+  public static StorageLoadSequenceStore createIfSupported() {
+    Storage storage = Storage.getLocalStorageIfSupported();
+    if (storage == null) {
+      return null;
+    }
+    return new StorageLoadSequenceStore(storage);
+  }
+
+  private final String key;
+
+  private final Storage storage;
+
+  private StorageLoadSequenceStore(Storage storage) {
+    this.storage = storage;
+    this.key = KEY_PREFIX + GWT.getModuleName() + "/" + GWT.getPermutationStrongName();
+  }
+
+  public String load() {
+    String modulePrefix = KEY_PREFIX + GWT.getModuleName() + "/";
+    for (int i = storage.getLength() - 1; i >= 0; i--) {
+      String otherKey = storage.key(i);
+      if (otherKey != null && otherKey.startsWith(modulePrefix) && !otherKey.equals(key)) {
+        storage.removeItem(otherKey);
+      }
+    }
+    return storage.getItem(key);
+  }
+
+  public void save(String data) {
+    storage.setItem(key, data);
+  }
+}
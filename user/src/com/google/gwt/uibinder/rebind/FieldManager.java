@@ -29,8 +29,10 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
@@ -148,6 +150,21 @@ public class FieldManager {
     return fieldReferences.get(converted);
   }
 
+  /**
+   * Returns the types of all registered fields, including the types of fields
+   * that have been generated.
+   */
+  public Set<JClassType> getFieldTypes() {
+    Set<JClassType> types = new LinkedHashSet<JClassType>();
+    for (FieldWriter field : fieldsMap.values()) {
+      types.add(field.getAssignableType());
+      if (field.getInstantiableType() != null) {
+        types.add(field.getInstantiableType());
+      }
+    }
+    return types;
+  }
+
   /**
    * Initialize with field builders the generated <b>Widgets</b> inner class.
    * {@see com.google.gwt.uibinder.rebind.FieldWriter#writeFieldBuilder}.
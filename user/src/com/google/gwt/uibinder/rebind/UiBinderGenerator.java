@@ -16,12 +16,19 @@
 package com.google.gwt.uibinder.rebind;
 
 import com.google.gwt.core.ext.BadPropertyValueException;
-import com.google.gwt.core.ext.Generator;
+import com.google.gwt.core.ext.CachedGeneratorResult;
+import com.google.gwt.core.ext.CachedPropertyInformation;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.IncrementalGenerator;
 import com.google.gwt.core.ext.PropertyOracle;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JRealClassType;
 import com.google.gwt.core.ext.typeinfo.NotFoundException;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.gwt.dev.resource.Resource;
@@ -30,22 +37,46 @@ import com.google.gwt.dev.util.Util;
 import com.google.gwt.uibinder.client.UiTemplate;
 import com.google.gwt.uibinder.rebind.messages.MessagesWriter;
 import com.google.gwt.uibinder.rebind.model.ImplicitClientBundle;
+import com.google.gwt.uibinder.rebind.model.ImplicitCssResource;
 
 import org.w3c.dom.Document;
 import org.xml.sax.SAXParseException;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * Generator for implementations of
  * {@link com.google.gwt.uibinder.client.UiBinder}.
  */
-public class UiBinderGenerator extends Generator {
+public class UiBinderGenerator extends IncrementalGenerator {
 
   private static final String BINDER_URI = "urn:ui:com.google.gwt.uibinder";
 
+  private static final String CACHED_PROPERTY_INFORMATION = "cached-property-info";
+  private static final String CACHED_RESOURCE_INFORMATION = "cached-resource-info";
+  private static final String CACHED_TEMPLATE_HASH = "cached-template-hash";
+  private static final String CACHED_TYPE_INFORMATION = "cached-type-info";
+
+  /*
+   * A version id. Increment this as needed, when structural changes are made to
+   * the generated output, specifically with respect to it's effect on the
+   * caching and reuse of previous generator results. Previously cached
+   * generator results will be invalidated automatically if they were generated
+   * by a version of this generator with a different version id.
+   */
+  private static final long GENERATOR_VERSION_ID = 1L;
+
   private static final String TEMPLATE_SUFFIX = ".ui.xml";
 
   private static final String XSS_SAFE_CONFIG_PROPERTY = "UiBinder.useSafeHtmlTemplates";
@@ -97,7 +128,7 @@ public class UiBinderGenerator extends Generator {
   private final UiBinderContext uiBinderCtx = new UiBinderContext();
 
   @Override
-  public String generate(TreeLogger logger, GeneratorContext genCtx,
+  public RebindResult generateIncrementally(TreeLogger logger, GeneratorContext genCtx,
       String fqInterfaceName) throws UnableToCompleteException {
     TypeOracle oracle = genCtx.getTypeOracle();
     ResourceOracle resourceOracle = genCtx.getResourcesOracle();
@@ -120,15 +151,150 @@ public class UiBinderGenerator extends Generator {
     implName = designTime.getImplName(implName);
 
     String packageName = interfaceType.getPackage().getName();
+    String qualifiedImplName = packageName + "." + implName;
+
+    /*
+     * Reuse the previous result if the template text, the types the generated
+     * code was derived from and the external stylesheets are all unchanged.
+     * Design time rendering always regenerates, since it substitutes its own
+     * template content.
+     */
+    MortalLogger mortalLogger = new MortalLogger(logger);
+    String templatePath = deduceTemplateFile(mortalLogger, interfaceType);
+    String templateContent = null;
+    boolean canBeCacheable = genCtx.isGeneratorResultCachingEnabled()
+        && designTime == DesignTimeUtilsStub.EMPTY;
+    if (canBeCacheable) {
+      templateContent = readTemplate(mortalLogger, designTime, resourceOracle, templatePath);
+      if (checkCachedGeneratorResult(logger, genCtx, templateContent)) {
+        if (logger.isLoggable(TreeLogger.TRACE)) {
+          logger.log(TreeLogger.TRACE, "Reusing cached UiBinder for " + fqInterfaceName);
+        }
+        return new RebindResult(RebindMode.USE_ALL_CACHED, qualifiedImplName);
+      }
+    }
+
     PrintWriterManager writers = new PrintWriterManager(genCtx, logger,
         packageName);
     PrintWriter printWriter = writers.tryToMakePrintWriterFor(implName);
 
-    if (printWriter != null) {
-      generateOnce(interfaceType, implName, printWriter, logger, oracle,
-          resourceOracle, genCtx.getPropertyOracle(), writers, designTime);
+    if (printWriter == null) {
+      return new RebindResult(RebindMode.USE_EXISTING, qualifiedImplName);
+    }
+
+    if (templateContent == null) {
+      templateContent = readTemplate(mortalLogger, designTime, resourceOracle, templatePath);
+    }
+    UiBinderWriter uiBinderWriter = generateOnce(interfaceType, implName, printWriter,
+        mortalLogger, oracle, resourceOracle, genCtx.getPropertyOracle(), writers, designTime,
+        templatePath, templateContent);
+
+    if (!canBeCacheable) {
+      return new RebindResult(RebindMode.USE_ALL_NEW_WITH_NO_CACHING, qualifiedImplName);
+    }
+
+    RebindResult result = new RebindResult(RebindMode.USE_ALL_NEW, qualifiedImplName);
+    result.putClientData(CACHED_PROPERTY_INFORMATION, new CachedPropertyInformation(logger,
+        genCtx.getPropertyOracle(), Collections.<String> emptyList(), Arrays.asList(
+            XSS_SAFE_CONFIG_PROPERTY, LAZY_WIDGET_BUILDERS_PROPERTY)));
+    result.putClientData(CACHED_TEMPLATE_HASH, computeTemplateHash(templateContent));
+    result.putClientData(CACHED_TYPE_INFORMATION,
+        (Serializable) getTypeLastModifiedTimes(oracle, interfaceType, uiBinderWriter));
+    result.putClientData(CACHED_RESOURCE_INFORMATION,
+        (Serializable) getExternalCssResources(uiBinderWriter));
+    return result;
+  }
+
+  @Override
+  public long getVersionId() {
+    return GENERATOR_VERSION_ID;
+  }
+
+  /**
+   * Checks whether the cached result for this binder, if any, was generated
+   * from the same template text, dependent types, external stylesheets and
+   * configuration properties.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean checkCachedGeneratorResult(TreeLogger logger, GeneratorContext genCtx,
+      String templateContent) {
+    CachedGeneratorResult lastResult = genCtx.getCachedGeneratorResult();
+    if (lastResult == null || !genCtx.isGeneratorResultCachingEnabled()) {
+      return false;
+    }
+
+    CachedPropertyInformation cpi =
+        (CachedPropertyInformation) lastResult.getClientData(CACHED_PROPERTY_INFORMATION);
+    if (cpi == null || !cpi.checkPropertiesWithPropertyOracle(logger, genCtx.getPropertyOracle())) {
+      return false;
+    }
+
+    String templateHash = (String) lastResult.getClientData(CACHED_TEMPLATE_HASH);
+    if (templateHash == null || !templateHash.equals(computeTemplateHash(templateContent))) {
+      logger.log(TreeLogger.TRACE, "Found template that has changed");
+      return false;
+    }
+
+    Map<String, Long> typeLastModifiedTimes =
+        (Map<String, Long>) lastResult.getClientData(CACHED_TYPE_INFORMATION);
+    if (typeLastModifiedTimes == null
+        || !checkCachedTypeLastModifiedTimes(logger, genCtx.getTypeOracle(),
+            typeLastModifiedTimes)) {
+      return false;
+    }
+
+    Map<String, URL> externalCss =
+        (Map<String, URL>) lastResult.getClientData(CACHED_RESOURCE_INFORMATION);
+    return externalCss != null
+        && checkCachedExternalCss(logger, externalCss, lastResult.getTimeGenerated());
+  }
+
+  /**
+   * Check that the external stylesheets have not moved or been modified since
+   * the cached result was generated.
+   */
+  private boolean checkCachedExternalCss(TreeLogger logger, Map<String, URL> externalCss,
+      long lastTimeGenerated) {
+    for (Entry<String, URL> entry : externalCss.entrySet()) {
+      URL currentUrl = ImplicitCssResource.findExternalCss(entry.getKey());
+      if (currentUrl == null
+          || !currentUrl.toExternalForm().equals(entry.getValue().toExternalForm())) {
+        logger.log(TreeLogger.TRACE,
+            "Found stylesheet that has moved or no longer exists: " + entry.getKey());
+        return false;
+      }
+      long modifiedTime = Util.getResourceModifiedTime(currentUrl);
+      if (modifiedTime == 0L || modifiedTime > lastTimeGenerated) {
+        logger.log(TreeLogger.TRACE, "Found stylesheet that has changed: " + entry.getKey());
+        return false;
+      }
     }
-    return packageName + "." + implName;
+    return true;
+  }
+
+  /**
+   * Check that the cached last modified times match those from the current
+   * typeOracle.
+   */
+  private boolean checkCachedTypeLastModifiedTimes(TreeLogger logger, TypeOracle oracle,
+      Map<String, Long> typeLastModifiedTimes) {
+    for (Entry<String, Long> entry : typeLastModifiedTimes.entrySet()) {
+      JClassType type = oracle.findType(entry.getKey());
+      if (!(type instanceof JRealClassType)) {
+        logger.log(TreeLogger.TRACE,
+            "Found previously dependent type that's no longer present: " + entry.getKey());
+        return false;
+      }
+      if (((JRealClassType) type).getLastModifiedTime() != entry.getValue()) {
+        logger.log(TreeLogger.TRACE, "Found dependent type that has changed: " + entry.getKey());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String computeTemplateHash(String templateContent) {
+    return Util.computeStrongName(Util.getBytes(templateContent));
   }
 
   private Boolean extractConfigProperty(MortalLogger logger,
@@ -151,14 +317,12 @@ public class UiBinderGenerator extends Generator {
     return Boolean.valueOf(value);
   }
 
-  private void generateOnce(JClassType interfaceType, String implName,
-      PrintWriter binderPrintWriter, TreeLogger treeLogger, TypeOracle oracle,
+  private UiBinderWriter generateOnce(JClassType interfaceType, String implName,
+      PrintWriter binderPrintWriter, MortalLogger logger, TypeOracle oracle,
       ResourceOracle resourceOracle, PropertyOracle propertyOracle,
-      PrintWriterManager writerManager,  DesignTimeUtils designTime)
-  throws UnableToCompleteException {
+      PrintWriterManager writerManager, DesignTimeUtils designTime, String templatePath,
+      String templateContent) throws UnableToCompleteException {
 
-    MortalLogger logger = new MortalLogger(treeLogger);
-    String templatePath = deduceTemplateFile(logger, interfaceType);
     MessagesWriter messages = new MessagesWriter(oracle, BINDER_URI, logger,
         templatePath, interfaceType.getPackage().getName(), implName);
 
@@ -169,7 +333,7 @@ public class UiBinderGenerator extends Generator {
         templatePath, oracle, logger, fieldManager, messages, designTime, uiBinderCtx,
         useSafeHtmlTemplates(logger, propertyOracle), useLazyWidgetBuilders, BINDER_URI);
 
-    Document doc = getW3cDoc(logger, designTime, resourceOracle, templatePath);
+    Document doc = getW3cDoc(logger, resourceOracle, templatePath, templateContent);
     designTime.rememberPathForElements(doc);
 
     uiBinderWriter.parseDocument(doc, binderPrintWriter);
@@ -182,27 +346,72 @@ public class UiBinderGenerator extends Generator {
     new BundleWriter(bundleClass, writerManager, oracle, logger).write();
 
     writerManager.commit();
+    return uiBinderWriter;
   }
 
-  private Document getW3cDoc(MortalLogger logger, DesignTimeUtils designTime,
-      ResourceOracle resourceOracle, String templatePath)
-      throws UnableToCompleteException {
+  /**
+   * Returns the locations of the external stylesheets whose class names the
+   * generated code depends upon, keyed by resource path.
+   */
+  private Map<String, URL> getExternalCssResources(UiBinderWriter uiBinderWriter) {
+    Map<String, URL> externalCss = new HashMap<String, URL>();
+    for (ImplicitCssResource css : uiBinderWriter.getBundleClass().getCssMethods()) {
+      for (String resourcePath : css.getExternalCssPaths()) {
+        externalCss.put(resourcePath, ImplicitCssResource.findExternalCss(resourcePath));
+      }
+    }
+    return externalCss;
+  }
 
-    Resource resource = resourceOracle.getResourceMap().get(templatePath);
-    if (null == resource) {
-      logger.die("Unable to find resource: " + templatePath);
+  /**
+   * Returns the last modified times of the types the generated code was
+   * derived from: the binder interface, the owner class, the field types,
+   * the event types of the handler methods and the interfaces of the
+   * generated CssResources, along with all of their supertypes.
+   */
+  private Map<String, Long> getTypeLastModifiedTimes(TypeOracle oracle,
+      JClassType interfaceType, UiBinderWriter uiBinderWriter) {
+    Set<JClassType> dependencies = new LinkedHashSet<JClassType>();
+    dependencies.add(interfaceType);
+    dependencies.add(uiBinderWriter.getOwnerClass().getOwnerType());
+    dependencies.addAll(uiBinderWriter.getFieldManager().getFieldTypes());
+    for (JMethod handler : uiBinderWriter.getOwnerClass().getUiHandlers()) {
+      for (JParameter parameter : handler.getParameters()) {
+        dependencies.add(parameter.getType().isClassOrInterface());
+      }
+    }
+    for (ImplicitCssResource css : uiBinderWriter.getBundleClass().getCssMethods()) {
+      dependencies.add(css.getExtendedInterface());
+      dependencies.addAll(css.getImports());
     }
 
+    Map<String, Long> typeLastModifiedTimes = new HashMap<String, Long>();
+    for (JClassType dependency : dependencies) {
+      if (dependency == null) {
+        continue;
+      }
+      for (JClassType type : dependency.getFlattenedSupertypeHierarchy()) {
+        String typeName = type.getErasedType().getQualifiedSourceName();
+        if (!typeLastModifiedTimes.containsKey(typeName)) {
+          JClassType realType = oracle.findType(typeName);
+          // Types generated by this rebind are not in the type oracle yet.
+          if (realType instanceof JRealClassType) {
+            typeLastModifiedTimes.put(typeName,
+                ((JRealClassType) realType).getLastModifiedTime());
+          }
+        }
+      }
+    }
+    return typeLastModifiedTimes;
+  }
+
+  private Document getW3cDoc(MortalLogger logger, ResourceOracle resourceOracle,
+      String templatePath, String templateContent) throws UnableToCompleteException {
+    Resource resource = resourceOracle.getResourceMap().get(templatePath);
     Document doc = null;
     try {
-      String content = designTime.getTemplateContent(templatePath);
-      if (content == null) {
-        content = Util.readStreamAsString(resource.openContents());
-      }
       doc = new W3cDomHelper(logger.getTreeLogger(), resourceOracle).documentFor(
-          content, resource.getPath());
-    } catch (IOException iex) {
-      logger.die("Error opening resource:" + resource.getLocation(), iex);
+          templateContent, resource.getPath());
     } catch (SAXParseException e) {
       logger.die(
           "Error parsing XML (line " + e.getLineNumber() + "): "
@@ -211,6 +420,24 @@ public class UiBinderGenerator extends Generator {
     return doc;
   }
 
+  private String readTemplate(MortalLogger logger, DesignTimeUtils designTime,
+      ResourceOracle resourceOracle, String templatePath) throws UnableToCompleteException {
+    Resource resource = resourceOracle.getResourceMap().get(templatePath);
+    if (null == resource) {
+      logger.die("Unable to find resource: " + templatePath);
+    }
+
+    String content = designTime.getTemplateContent(templatePath);
+    if (content == null) {
+      try {
+        content = Util.readStreamAsString(resource.openContents());
+      } catch (IOException iex) {
+        logger.die("Error opening resource:" + resource.getLocation(), iex);
+      }
+    }
+    return content;
+  }
+
   private Boolean useLazyWidgetBuilders(MortalLogger logger, PropertyOracle propertyOracle) {
     return extractConfigProperty(logger, propertyOracle, LAZY_WIDGET_BUILDERS_PROPERTY, false);
   }
@@ -43,6 +43,18 @@ import java.util.Set;
  */
 public class ImplicitCssResource {
   private static final CssNameConverter nameConverter = new CssNameConverter();
+
+  /**
+   * Finds an external .css file by its resource path.
+   *
+   * TODO(rjrjr,bobv) refactor ResourceGeneratorUtil.findResources so we can
+   * find them the same way ClientBundle does. For now, just use this class's
+   * loader.
+   */
+  public static URL findExternalCss(String resourcePath) {
+    return ImplicitCssResource.class.getClassLoader().getResource(resourcePath);
+  }
+
   private final String packageName;
   private final String className;
   private final String name;
@@ -106,6 +118,19 @@ public class ImplicitCssResource {
     return cssClassNames;
   }
 
+  /**
+   * Returns the resource paths of the external .css files, which are
+   * relative to this resource's package.
+   */
+  public List<String> getExternalCssPaths() {
+    String path = packageName.replace(".", "/");
+    List<String> paths = new ArrayList<String>(sources.size());
+    for (String s : sources) {
+      paths.add(path + '/' + s);
+    }
+    return paths;
+  }
+
   /**
    * Returns the public interface that this CssResource implements.
    */
@@ -180,20 +205,10 @@ public class ImplicitCssResource {
   }
 
   private List<URL> getExternalCss() throws UnableToCompleteException {
-    /*
-     * TODO(rjrjr,bobv) refactor ResourceGeneratorUtil.findResources so we can
-     * find them the same way ClientBundle does. For now, just look relative to
-     * this package
-     */
-
-    ClassLoader classLoader = ImplicitCssResource.class.getClassLoader();
-    String path = packageName.replace(".", "/");
-
     List<URL> urls = new ArrayList<URL>();
 
-    for (String s : sources) {
-      String resourcePath = path + '/' + s;
-      URL found = classLoader.getResource(resourcePath);
+    for (String resourcePath : getExternalCssPaths()) {
+      URL found = findExternalCss(resourcePath);
       if (null == found) {
         logger.die("Unable to find resource: " + resourcePath);
       }
@@ -20,6 +20,7 @@ import com.google.web.bindery.autobean.shared.AutoBean.PropertyName;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.List;
 
 /**
  * Breakout of method types that an AutoBean shim interface can implement. The
@@ -173,14 +174,35 @@ public enum BeanMethod {
 
   private static final Object[] EMPTY_OBJECT = new Object[0];
 
-  static Method findMethod(SimpleBeanHandler<?> handler, Method method) {
+  /**
+   * Returns the first value, other than {@link #CALL}, that matches the method.
+   * These matches do not depend on the state of any particular bean, so the
+   * result may be memoized. If no other value matches, {@link #CALL} is
+   * returned and the caller must still check
+   * {@link #matches(SimpleBeanHandler, Method)}.
+   */
+  static BeanMethod classify(Method method) {
+    for (BeanMethod type : values()) {
+      if (!CALL.equals(type) && type.matches(null, method)) {
+        return type;
+      }
+    }
+    return CALL;
+  }
+
+  /**
+   * Search the given category types for a static implementation of a method.
+   * This is an expensive, reflective operation whose result is memoized by
+   * {@link ProxyAutoBean#getCategoryMethod(Method)}.
+   */
+  static Method findCategoryMethod(List<Class<?>> categories, Class<?> autoBeanType,
+      Method method) {
     Class<?>[] declaredParams = method.getParameterTypes();
     Class<?>[] searchParams = new Class<?>[declaredParams.length + 1];
     searchParams[0] = AutoBean.class;
     System.arraycopy(declaredParams, 0, searchParams, 1, declaredParams.length);
-    Class<?> autoBeanType = handler.getBean().getType();
 
-    for (Class<?> clazz : handler.getBean().getConfiguration().getCategories()) {
+    for (Class<?> clazz : categories) {
       try {
         Method found = clazz.getMethod(method.getName(), searchParams);
         if (!Modifier.isStatic(found.getModifiers())) {
@@ -202,6 +224,10 @@ public enum BeanMethod {
     return null;
   }
 
+  static Method findMethod(SimpleBeanHandler<?> handler, Method method) {
+    return handler.getBean().getCategoryMethod(method);
+  }
+
   /**
    * Private equivalent of Introspector.decapitalize(String) since
    * java.beans.Introspector is not available in Android 2.2.
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.autobean.vm.impl;
+
+import com.google.web.bindery.autobean.shared.Splittable;
+import com.google.web.bindery.autobean.shared.impl.StringQuoter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes {@link Splittable} trees, such as those produced by
+ * {@link com.google.web.bindery.autobean.shared.AutoBeanCodex AutoBeanCodex},
+ * into a compact binary form for JVM-to-JVM communication. Integral numbers are
+ * written as variable-length integers and repeated strings, such as property
+ * names, are written as back-references into a per-message string table.
+ */
+public class BinaryCodex {
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * The largest magnitude at which every integer is exactly representable as a
+   * double.
+   */
+  private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+  private static final int TAG_NULL = 0;
+  private static final int TAG_FALSE = 1;
+  private static final int TAG_TRUE = 2;
+  private static final int TAG_INTEGER = 3;
+  private static final int TAG_DOUBLE = 4;
+  private static final int TAG_STRING = 5;
+  private static final int TAG_STRING_REF = 6;
+  private static final int TAG_INDEXED = 7;
+  private static final int TAG_KEYED = 8;
+
+  /**
+   * Decode a message previously produced by {@link #encode(Splittable)}.
+   */
+  public static Splittable decode(byte[] bytes) {
+    try {
+      return decode(new ByteArrayInputStream(bytes));
+    } catch (IOException e) {
+      throw new RuntimeException("Could not decode payload", e);
+    }
+  }
+
+  /**
+   * Decode a message previously produced by
+   * {@link #encode(Splittable, OutputStream)}.
+   */
+  public static Splittable decode(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    int version = data.readUnsignedByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported binary payload version " + version);
+    }
+    Object value = new BinaryCodex().read(data);
+    if (value == null) {
+      return null;
+    } else if (value instanceof JSONObject) {
+      return JsonSplittable.create((JSONObject) value);
+    } else if (value instanceof JSONArray) {
+      return JsonSplittable.create((JSONArray) value);
+    } else if (value instanceof String) {
+      return StringQuoter.create((String) value);
+    } else if (value instanceof Boolean) {
+      return StringQuoter.create((Boolean) value);
+    } else {
+      return StringQuoter.create(((Number) value).doubleValue());
+    }
+  }
+
+  /**
+   * Encode a Splittable into a byte array.
+   */
+  public static byte[] encode(Splittable split) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      encode(split, bytes);
+    } catch (IOException e) {
+      // Should never happen
+      throw new RuntimeException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encode a Splittable onto a stream. The stream is not closed.
+   */
+  public static void encode(Splittable split, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeByte(FORMAT_VERSION);
+    new BinaryCodex().write(data, split);
+    data.flush();
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long toReturn = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      toReturn |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return toReturn;
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.writeByte((int) (value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /**
+   * Strings seen while decoding, indexed by order of first appearance.
+   */
+  private final List<String> decodedStrings = new ArrayList<String>();
+
+  /**
+   * Strings seen while encoding, mapped to their order of first appearance.
+   */
+  private final Map<String, Integer> encodedStrings = new HashMap<String, Integer>();
+
+  private BinaryCodex() {
+  }
+
+  /**
+   * Returns a JSONObject, JSONArray, String, Boolean, Number, or {@code null}.
+   */
+  private Object read(DataInputStream in) throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_FALSE:
+        return false;
+      case TAG_TRUE:
+        return true;
+      case TAG_INTEGER: {
+        long zigzag = readVarLong(in);
+        long value = (zigzag >>> 1) ^ -(zigzag & 1);
+        if (value == (int) value) {
+          return (int) value;
+        }
+        return value;
+      }
+      case TAG_DOUBLE:
+        return in.readDouble();
+      case TAG_STRING:
+      case TAG_STRING_REF:
+        return readString(in, tag);
+      case TAG_INDEXED: {
+        int size = (int) readVarLong(in);
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < size; i++) {
+          Object value = read(in);
+          array.put(value == null ? JSONObject.NULL : value);
+        }
+        return array;
+      }
+      case TAG_KEYED: {
+        int size = (int) readVarLong(in);
+        JSONObject obj = new JSONObject();
+        try {
+          for (int i = 0; i < size; i++) {
+            String key = readString(in, in.readUnsignedByte());
+            Object value = read(in);
+            obj.put(key, value == null ? JSONObject.NULL : value);
+          }
+        } catch (JSONException e) {
+          throw new IOException(e.getMessage());
+        }
+        return obj;
+      }
+      default:
+        throw new IOException("Unknown tag " + tag);
+    }
+  }
+
+  private String readString(DataInputStream in, int tag) throws IOException {
+    if (tag == TAG_STRING_REF) {
+      return decodedStrings.get((int) readVarLong(in));
+    }
+    if (tag != TAG_STRING) {
+      throw new IOException("Expecting a string, found tag " + tag);
+    }
+    byte[] bytes = new byte[(int) readVarLong(in)];
+    in.readFully(bytes);
+    String toReturn = new String(bytes, "UTF-8");
+    decodedStrings.add(toReturn);
+    return toReturn;
+  }
+
+  private void write(DataOutputStream out, Splittable split) throws IOException {
+    if (split == null) {
+      out.writeByte(TAG_NULL);
+    } else if (split.isString()) {
+      writeString(out, split.asString());
+    } else if (split.isBoolean()) {
+      out.writeByte(split.asBoolean() ? TAG_TRUE : TAG_FALSE);
+    } else if (split.isNumber()) {
+      double d = split.asNumber();
+      long l = (long) d;
+      // Excludes -0.0 and values that cannot be represented exactly
+      if (l == d && Math.abs(d) <= MAX_EXACT_INTEGER && (l != 0 || 1 / d > 0)) {
+        out.writeByte(TAG_INTEGER);
+        writeVarLong(out, (l << 1) ^ (l >> 63));
+      } else {
+        out.writeByte(TAG_DOUBLE);
+        out.writeDouble(d);
+      }
+    } else if (split.isIndexed()) {
+      int size = split.size();
+      out.writeByte(TAG_INDEXED);
+      writeVarLong(out, size);
+      for (int i = 0; i < size; i++) {
+        write(out, split.isNull(i) ? null : split.get(i));
+      }
+    } else if (split.isKeyed()) {
+      /*
+       * Null values are kept, because RequestFactory clears a property by
+       * sending an explicit null and only applies properties that are present.
+       */
+      List<String> keys = split.getPropertyKeys();
+      out.writeByte(TAG_KEYED);
+      writeVarLong(out, keys.size());
+      for (String key : keys) {
+        writeString(out, key);
+        write(out, split.isNull(key) ? null : split.get(key));
+      }
+    } else {
+      // JsonSplittable.createNull()
+      out.writeByte(TAG_NULL);
+    }
+  }
+
+  private void writeString(DataOutputStream out, String value) throws IOException {
+    Integer index = encodedStrings.get(value);
+    if (index != null) {
+      out.writeByte(TAG_STRING_REF);
+      writeVarLong(out, index);
+      return;
+    }
+    encodedStrings.put(value, encodedStrings.size());
+    byte[] bytes = value.getBytes("UTF-8");
+    out.writeByte(TAG_STRING);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+}
@@ -82,6 +82,20 @@ public class JsonSplittable implements Splittable, HasSplittable {
     return new JsonSplittable();
   }
 
+  /**
+   * Wrap an already-constructed JSONArray.
+   */
+  static Splittable create(JSONArray array) {
+    return new JsonSplittable(array);
+  }
+
+  /**
+   * Wrap an already-constructed JSONObject.
+   */
+  static Splittable create(JSONObject obj) {
+    return new JsonSplittable(obj);
+  }
+
   /**
    * Private equivalent of org.json.JSONObject.getNames(JSONObject) since that
    * method is not available in Android 2.2. Used to represent a null value.
@@ -29,11 +29,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An implementation of an AutoBean that uses reflection.
@@ -45,6 +47,20 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     final List<Method> getters = new ArrayList<Method>();
     final List<String> getterNames = new ArrayList<String>();
     final List<PropertyType> propertyType = new ArrayList<PropertyType>();
+    /**
+     * Memoizes {@link BeanMethod#classify(Method)}.
+     */
+    final Map<Method, BeanMethod> beanMethods = new ConcurrentHashMap<Method, BeanMethod>();
+    /**
+     * Memoizes category method lookups, keyed by a list of the categories and
+     * the method. Misses are recorded as {@link ProxyAutoBean#NO_METHOD}.
+     */
+    final Map<List<?>, Object> categoryMethods = new ConcurrentHashMap<List<?>, Object>();
+    /**
+     * Memoizes the {@code __intercept} method, keyed by the categories.
+     */
+    final Map<List<Class<?>>, Object> interceptors =
+        new ConcurrentHashMap<List<Class<?>>, Object>();
   }
 
   private enum PropertyType {
@@ -53,6 +69,11 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
 
   private static final Map<Class<?>, Data> cache = new WeakHashMap<Class<?>, Data>();
 
+  /**
+   * A sentinel value to allow reflective misses to be memoized.
+   */
+  private static final Object NO_METHOD = new Object();
+
   /**
    * Utility method to crete a new {@link Proxy} instance.
    * 
@@ -337,6 +358,59 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     return beanType;
   }
 
+  /**
+   * Returns the handler-independent classification of a method declared by
+   * the bean type.
+   * 
+   * @see BeanMethod#classify(Method)
+   */
+  BeanMethod getBeanMethod(Method method) {
+    BeanMethod toReturn = data.beanMethods.get(method);
+    if (toReturn == null) {
+      toReturn = BeanMethod.classify(method);
+      data.beanMethods.put(method, toReturn);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Returns the static category implementation of a method, or {@code null}
+   * if none of the configured categories implement it.
+   */
+  Method getCategoryMethod(Method method) {
+    List<Class<?>> categories = configuration.getCategories();
+    List<?> key = Arrays.asList(categories, method);
+    Object toReturn = data.categoryMethods.get(key);
+    if (toReturn == null) {
+      Method found = BeanMethod.findCategoryMethod(categories, beanType, method);
+      toReturn = found == null ? NO_METHOD : found;
+      data.categoryMethods.put(key, toReturn);
+    }
+    return toReturn == NO_METHOD ? null : (Method) toReturn;
+  }
+
+  /**
+   * Returns the {@code __intercept} method provided by the configured
+   * categories, or {@code null} if there is none.
+   */
+  Method getInterceptor() {
+    List<Class<?>> categories = configuration.getCategories();
+    Object toReturn = data.interceptors.get(categories);
+    if (toReturn == null) {
+      toReturn = NO_METHOD;
+      for (Class<?> clazz : categories) {
+        try {
+          toReturn = clazz.getMethod("__intercept", AutoBean.class, Object.class);
+          break;
+        } catch (SecurityException expected) {
+        } catch (NoSuchMethodException expected) {
+        }
+      }
+      data.interceptors.put(categories, toReturn);
+    }
+    return toReturn == NO_METHOD ? null : (Method) toReturn;
+  }
+
   private T createShim() {
     T toReturn = ProxyAutoBean.makeProxy(beanType, new ShimHandler<T>(this, getWrapped()));
     WeakMapping.setWeak(toReturn, AutoBean.class.getName(), this);
@@ -35,17 +35,7 @@ class ShimHandler<T> implements InvocationHandler {
 
   public ShimHandler(ProxyAutoBean<T> bean, T toWrap) {
     this.bean = bean;
-
-    Method maybe = null;
-    for (Class<?> clazz : bean.getConfiguration().getCategories()) {
-      try {
-        maybe = clazz.getMethod("__intercept", AutoBean.class, Object.class);
-        break;
-      } catch (SecurityException expected) {
-      } catch (NoSuchMethodException expected) {
-      }
-    }
-    interceptor = maybe;
+    this.interceptor = bean.getInterceptor();
   }
 
   @Override
@@ -70,14 +60,14 @@ class ShimHandler<T> implements InvocationHandler {
     method.setAccessible(true);
     Object toReturn;
     String name = method.getName();
-    method.setAccessible(true);
+    BeanMethod type = bean.getBeanMethod(method);
     try {
-      if (BeanMethod.OBJECT.matches(method)) {
+      if (BeanMethod.OBJECT.equals(type)) {
         return method.invoke(this, args);
-      } else if (BeanMethod.GET.matches(method)) {
+      } else if (BeanMethod.GET.equals(type)) {
         toReturn = method.invoke(bean.getWrapped(), args);
         toReturn = bean.get(name, toReturn);
-      } else if (BeanMethod.SET.matches(method) || BeanMethod.SET_BUILDER.matches(method)) {
+      } else if (BeanMethod.SET.equals(type) || BeanMethod.SET_BUILDER.equals(type)) {
         toReturn = method.invoke(bean.getWrapped(), args);
         bean.set(name, args[0]);
       } else {
@@ -38,13 +38,11 @@ class SimpleBeanHandler<T> implements InvocationHandler {
    * Delegates most work to {@link BeanMethod}.
    */
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    for (BeanMethod type : BeanMethod.values()) {
-      if (type.matches(this, method)) {
-        Object toReturn = type.invoke(this, method, args);
-        return toReturn;
-      }
+    BeanMethod type = bean.getBeanMethod(method);
+    if (BeanMethod.CALL.equals(type) && !type.matches(this, method)) {
+      throw new RuntimeException("Unhandled invocation " + method.getName());
     }
-    throw new RuntimeException("Unhandled invocation " + method.getName());
+    return type.invoke(this, method, args);
   }
   
   /**
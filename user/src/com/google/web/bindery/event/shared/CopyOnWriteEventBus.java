@@ -0,0 +1,214 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared;
+
+import com.google.web.bindery.event.shared.Event.Type;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An implementation of {@link EventBus} that keeps the handlers for each event
+ * type and source in an array which is replaced, rather than modified, when a
+ * handler is added or removed. Firing an event iterates over the arrays that
+ * are current when the event is fired, so dispatch does not allocate unless a
+ * handler throws an exception.
+ * <p>
+ * Unlike {@link SimpleEventBus}, handlers that are added or removed while an
+ * event is being dispatched take effect immediately for every event fired
+ * afterwards, including events fired by other handlers. An event that has
+ * already been fired is always delivered to exactly those handlers that were
+ * registered when it was fired.
+ */
+public class CopyOnWriteEventBus extends EventBus {
+  private static final Object[] EMPTY = new Object[0];
+
+  /**
+   * Map of event type to the handlers registered without a source.
+   */
+  private final Map<Event.Type<?>, Object[]> globalHandlers =
+      new HashMap<Event.Type<?>, Object[]>();
+
+  /**
+   * Map of event type to map of event source to the handlers registered for
+   * that source.
+   */
+  private final Map<Event.Type<?>, Map<Object, Object[]>> sourceHandlers =
+      new HashMap<Event.Type<?>, Map<Object, Object[]>>();
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    return doAdd(type, null, handler);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    if (source == null) {
+      throw new NullPointerException("Cannot add a handler with a null source");
+    }
+    return doAdd(type, source, handler);
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    doFire(event, null);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    if (source == null) {
+      throw new NullPointerException("Cannot fire from a null source");
+    }
+    doFire(event, source);
+  }
+
+  /**
+   * Returns the number of handlers that will receive events of the given type
+   * fired without a source.
+   */
+  public int getHandlerCount(Event.Type<?> type) {
+    return getHandlers(type, null).length;
+  }
+
+  /**
+   * Dispatch an event to an array of handlers, accumulating any exceptions
+   * into {@code causes}, which is allocated lazily.
+   */
+  private <H> Set<Throwable> dispatch(Event<H> event, Object[] handlers, Set<Throwable> causes) {
+    for (int i = 0, j = handlers.length; i < j; i++) {
+      // safe, we control the adds.
+      @SuppressWarnings("unchecked")
+      H handler = (H) handlers[i];
+      try {
+        dispatchEvent(event, handler);
+      } catch (Throwable e) {
+        if (causes == null) {
+          causes = new HashSet<Throwable>();
+        }
+        causes.add(e);
+      }
+    }
+    return causes;
+  }
+
+  private <H> HandlerRegistration doAdd(final Event.Type<H> type, final Object source,
+      final H handler) {
+    if (type == null) {
+      throw new NullPointerException("Cannot add a handler with a null type");
+    }
+    if (handler == null) {
+      throw new NullPointerException("Cannot add a null handler");
+    }
+
+    Object[] existing = getHandlers(type, source);
+    Object[] updated = new Object[existing.length + 1];
+    System.arraycopy(existing, 0, updated, 0, existing.length);
+    updated[existing.length] = handler;
+    setHandlers(type, source, updated);
+
+    return new HandlerRegistration() {
+      public void removeHandler() {
+        doRemove(type, source, handler);
+      }
+    };
+  }
+
+  private <H> void doFire(Event<H> event, Object source) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+    if (source != null) {
+      setSourceOfEvent(event, source);
+    }
+
+    // Capture both arrays before any handler has a chance to replace them
+    Event.Type<H> type = event.getAssociatedType();
+    Object[] direct = source == null ? EMPTY : getHandlers(type, source);
+    Object[] global = getHandlers(type, null);
+
+    Set<Throwable> causes = dispatch(event, direct, null);
+    causes = dispatch(event, global, causes);
+    if (causes != null) {
+      throw new UmbrellaException(causes);
+    }
+  }
+
+  private <H> void doRemove(Event.Type<H> type, Object source, H handler) {
+    Object[] existing = getHandlers(type, source);
+    int index = -1;
+    for (int i = 0, j = existing.length; i < j; i++) {
+      if (existing[i].equals(handler)) {
+        index = i;
+        break;
+      }
+    }
+    assert index >= 0 : "redundant remove call";
+    if (index < 0) {
+      return;
+    }
+
+    Object[] updated = EMPTY;
+    if (existing.length > 1) {
+      updated = new Object[existing.length - 1];
+      System.arraycopy(existing, 0, updated, 0, index);
+      System.arraycopy(existing, index + 1, updated, index, updated.length - index);
+    }
+    setHandlers(type, source, updated);
+  }
+
+  private Object[] getHandlers(Event.Type<?> type, Object source) {
+    Object[] toReturn;
+    if (source == null) {
+      toReturn = globalHandlers.get(type);
+    } else {
+      Map<Object, Object[]> sourceMap = sourceHandlers.get(type);
+      toReturn = sourceMap == null ? null : sourceMap.get(source);
+    }
+    return toReturn == null ? EMPTY : toReturn;
+  }
+
+  /**
+   * Replace the handlers for a type and source, pruning empty entries.
+   */
+  private void setHandlers(Event.Type<?> type, Object source, Object[] handlers) {
+    if (source == null) {
+      if (handlers.length == 0) {
+        globalHandlers.remove(type);
+      } else {
+        globalHandlers.put(type, handlers);
+      }
+      return;
+    }
+
+    Map<Object, Object[]> sourceMap = sourceHandlers.get(type);
+    if (handlers.length == 0) {
+      if (sourceMap != null) {
+        sourceMap.remove(source);
+        if (sourceMap.isEmpty()) {
+          sourceHandlers.remove(type);
+        }
+      }
+      return;
+    }
+    if (sourceMap == null) {
+      sourceMap = new HashMap<Object, Object[]>();
+      sourceHandlers.put(type, sourceMap);
+    }
+    sourceMap.put(source, handlers);
+  }
+}
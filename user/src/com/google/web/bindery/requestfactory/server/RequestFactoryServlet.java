@@ -16,10 +16,18 @@
 package com.google.web.bindery.requestfactory.server;
 
 import com.google.gwt.user.server.rpc.RPCServletUtils;
+import com.google.web.bindery.autobean.shared.Splittable;
+import com.google.web.bindery.autobean.shared.impl.StringQuoter;
+import com.google.web.bindery.autobean.vm.impl.BinaryCodex;
 import com.google.web.bindery.requestfactory.shared.RequestFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,11 +38,21 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Handles GWT RequestFactory JSON requests.
+ * Handles GWT RequestFactory JSON requests. JVM-based clients may negotiate the
+ * use of a compact binary payload format by including
+ * {@link RequestFactory#BINARY_CONTENT_TYPE} in the {@code Accept} header.
  */
 @SuppressWarnings("serial")
 public class RequestFactoryServlet extends HttpServlet {
 
+  /**
+   * The name of an optional servlet init-param that sets the number of threads
+   * used to run {@link SideEffectFree} service methods concurrently.
+   * 
+   * @see SimpleRequestProcessor#setInvocationExecutor(java.util.concurrent.Executor)
+   */
+  public static final String PARALLEL_INVOCATION_THREADS = "parallelInvocationThreads";
+
   private static final boolean DUMP_PAYLOAD = Boolean.getBoolean("gwt.rpc.dumpPayload");
   private static final String JSON_CHARSET = "UTF-8";
   private static final String JSON_CONTENT_TYPE = "application/json";
@@ -79,6 +97,36 @@ public class RequestFactoryServlet extends HttpServlet {
     return perThreadContext.get();
   }
 
+  /**
+   * Returns a Callable that installs the calling thread's HTTP transaction
+   * ThreadLocals around the execution of {@code callable}, allowing service
+   * methods to call {@link #getThreadLocalRequest()} from another thread.
+   */
+  static <T> Callable<T> withThreadLocals(final Callable<T> callable) {
+    final ServletContext context = perThreadContext.get();
+    final HttpServletRequest request = perThreadRequest.get();
+    final HttpServletResponse response = perThreadResponse.get();
+    return new Callable<T>() {
+      public T call() throws Exception {
+        // Restore rather than clear, in case this runs on the calling thread
+        ServletContext previousContext = perThreadContext.get();
+        HttpServletRequest previousRequest = perThreadRequest.get();
+        HttpServletResponse previousResponse = perThreadResponse.get();
+        perThreadContext.set(context);
+        perThreadRequest.set(request);
+        perThreadResponse.set(response);
+        try {
+          return callable.call();
+        } finally {
+          perThreadContext.set(previousContext);
+          perThreadRequest.set(previousRequest);
+          perThreadResponse.set(previousResponse);
+        }
+      }
+    };
+  }
+
+  private ExecutorService invocationExecutor;
   private final SimpleRequestProcessor processor;
 
   /**
@@ -104,6 +152,37 @@ public class RequestFactoryServlet extends HttpServlet {
     processor.setExceptionHandler(exceptionHandler);
   }
 
+  @Override
+  public void destroy() {
+    if (invocationExecutor != null) {
+      invocationExecutor.shutdown();
+      invocationExecutor = null;
+    }
+    super.destroy();
+  }
+
+  /**
+   * Reads the {@value #PARALLEL_INVOCATION_THREADS} init-param.
+   */
+  @Override
+  public void init() throws ServletException {
+    String threads = getServletConfig().getInitParameter(PARALLEL_INVOCATION_THREADS);
+    if (threads == null) {
+      return;
+    }
+    int count;
+    try {
+      count = Integer.parseInt(threads.trim());
+    } catch (NumberFormatException e) {
+      throw new ServletException("Bad value for " + PARALLEL_INVOCATION_THREADS + ": " + threads,
+          e);
+    }
+    if (count > 0) {
+      invocationExecutor = Executors.newFixedThreadPool(count);
+      processor.setInvocationExecutor(invocationExecutor);
+    }
+  }
+
   /**
    * Processes a POST to the server.
    * 
@@ -123,6 +202,11 @@ public class RequestFactoryServlet extends HttpServlet {
     // No new code should be placed outside of this try block.
     try {
       ensureConfig();
+      if (isBinaryRequest(request) || acceptsBinary(request)) {
+        doPostBinary(request, response);
+        return;
+      }
+
       String jsonRequestString =
           RPCServletUtils.readContent(request, JSON_CONTENT_TYPE, JSON_CHARSET);
       if (DUMP_PAYLOAD) {
@@ -151,10 +235,65 @@ public class RequestFactoryServlet extends HttpServlet {
     }
   }
 
+  /**
+   * Returns {@code true} if the client has indicated that it can receive the
+   * binary payload format.
+   */
+  private boolean acceptsBinary(HttpServletRequest request) {
+    String accept = request.getHeader("Accept");
+    return accept != null && accept.contains(RequestFactory.BINARY_CONTENT_TYPE);
+  }
+
+  /**
+   * Services a request from a client that has negotiated the binary payload
+   * format. The request body may be either JSON or binary, but the response is
+   * always binary.
+   */
+  private void doPostBinary(HttpServletRequest request, HttpServletResponse response)
+      throws IOException, ServletException {
+    Splittable requestPayload;
+    if (isBinaryRequest(request)) {
+      InputStream in = request.getInputStream();
+      try {
+        requestPayload = BinaryCodex.decode(in);
+      } finally {
+        in.close();
+      }
+    } else {
+      requestPayload =
+          StringQuoter.split(RPCServletUtils.readContent(request, JSON_CONTENT_TYPE, JSON_CHARSET));
+    }
+    if (DUMP_PAYLOAD) {
+      System.out.println(">>> " + requestPayload.getPayload());
+    }
+
+    try {
+      Splittable payload = processor.process(requestPayload);
+      if (DUMP_PAYLOAD) {
+        System.out.println("<<< " + payload.getPayload());
+      }
+      byte[] bytes = BinaryCodex.encode(payload);
+      response.setStatus(HttpServletResponse.SC_OK);
+      response.setContentType(RequestFactory.BINARY_CONTENT_TYPE);
+      response.setContentLength(bytes.length);
+      OutputStream out = response.getOutputStream();
+      out.write(bytes);
+      out.flush();
+    } catch (RuntimeException e) {
+      response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      log.log(Level.SEVERE, "Unexpected error", e);
+    }
+  }
+
   private void ensureConfig() {
     String symbolMapsDirectory = getServletConfig().getInitParameter("symbolMapsDirectory");
     if (symbolMapsDirectory != null) {
       Logging.setSymbolMapsDirectory(symbolMapsDirectory);
     }
   }
+
+  private boolean isBinaryRequest(HttpServletRequest request) {
+    String contentType = request.getContentType();
+    return contentType != null && contentType.startsWith(RequestFactory.BINARY_CONTENT_TYPE);
+  }
 }
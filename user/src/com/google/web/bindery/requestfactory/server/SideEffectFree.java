@@ -0,0 +1,42 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.server;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a domain service method as having no side-effects that are visible to
+ * other service methods invoked in the same request. If the
+ * {@link SimpleRequestProcessor} has been given an
+ * {@link SimpleRequestProcessor#setInvocationExecutor(java.util.concurrent.Executor)
+ * invocation Executor}, consecutive invocations of such methods may execute
+ * concurrently. Invocations of unannotated methods are never reordered with
+ * respect to any other invocation.
+ * <p>
+ * Annotated methods may execute on a thread other than the one servicing the
+ * HTTP request. The values returned by
+ * {@link RequestFactoryServlet#getThreadLocalRequest()} and related methods are
+ * made available to those threads for the duration of the invocation.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SideEffectFree {
+}
@@ -22,6 +22,7 @@ import com.google.web.bindery.autobean.shared.AutoBeanUtils;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor;
 import com.google.web.bindery.autobean.shared.Splittable;
 import com.google.web.bindery.autobean.shared.ValueCodex;
+import com.google.web.bindery.autobean.shared.impl.StringQuoter;
 import com.google.web.bindery.autobean.vm.AutoBeanFactorySource;
 import com.google.web.bindery.autobean.vm.Configuration;
 import com.google.web.bindery.autobean.vm.impl.TypeUtils;
@@ -41,6 +42,7 @@ import com.google.web.bindery.requestfactory.shared.impl.ValueProxyCategory;
 import com.google.web.bindery.requestfactory.shared.messages.IdMessage;
 import com.google.web.bindery.requestfactory.shared.messages.IdMessage.Strength;
 import com.google.web.bindery.requestfactory.shared.messages.InvocationMessage;
+import com.google.web.bindery.requestfactory.shared.messages.KnownVersionMessage;
 import com.google.web.bindery.requestfactory.shared.messages.MessageFactory;
 import com.google.web.bindery.requestfactory.shared.messages.OperationMessage;
 import com.google.web.bindery.requestfactory.shared.messages.RequestMessage;
@@ -55,6 +57,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -62,6 +65,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.validation.ConstraintViolation;
 
@@ -99,6 +107,14 @@ public class SimpleRequestProcessor {
     }
   }
 
+  /**
+   * Computes the key used to match a {@link KnownVersionMessage} against a
+   * returned entity.
+   */
+  static String knownVersionKey(String typeToken, String serverIdB64) {
+    return typeToken + "@" + serverIdB64;
+  }
+
   static String toBase64(String data) {
     try {
       return Base64Utils.toBase64(data.getBytes("UTF-8"));
@@ -108,6 +124,7 @@ public class SimpleRequestProcessor {
   }
 
   private ExceptionHandler exceptionHandler = new DefaultExceptionHandler();
+  private volatile Executor invocationExecutor;
   private final ServiceLayer service;
 
   public SimpleRequestProcessor(ServiceLayer serviceLayer) {
@@ -121,6 +138,19 @@ public class SimpleRequestProcessor {
    * @return a payload to return to the client
    */
   public String process(String payload) {
+    // Return a JSON-formatted payload
+    return process(StringQuoter.split(payload)).getPayload();
+  }
+
+  /**
+   * Process an already-decoded payload sent by a RequestFactory client. This
+   * allows payloads to be exchanged in formats other than JSON text.
+   * 
+   * @param payload the payload sent by the client
+   * @return a payload to return to the client
+   * @see com.google.web.bindery.autobean.vm.impl.BinaryCodex
+   */
+  public Splittable process(Splittable payload) {
     RequestMessage req = AutoBeanCodex.decode(FACTORY, RequestMessage.class, payload).as();
     AutoBean<ResponseMessage> responseBean = FACTORY.response();
     try {
@@ -130,14 +160,28 @@ public class SimpleRequestProcessor {
       responseBean = FACTORY.response();
       responseBean.as().setGeneralFailure(createFailureMessage(e).as());
     }
-    // Return a JSON-formatted payload
-    return AutoBeanCodex.encode(responseBean).getPayload();
+    return AutoBeanCodex.encode(responseBean);
   }
 
   public void setExceptionHandler(ExceptionHandler exceptionHandler) {
     this.exceptionHandler = exceptionHandler;
   }
 
+  /**
+   * Enables the concurrent execution of domain methods annotated with
+   * {@link SideEffectFree}. Consecutive invocations of such methods within a
+   * request are submitted to the Executor, while all other invocations run on
+   * the calling thread only once every earlier invocation has completed. The
+   * results are returned to the client in the order in which the invocations
+   * were made. A {@code null} value, which is the default, causes all
+   * invocations to run sequentially on the calling thread.
+   * 
+   * @param executor the Executor that will run side-effect-free invocations
+   */
+  public void setInvocationExecutor(Executor executor) {
+    this.invocationExecutor = executor;
+  }
+
   /**
    * Encode a list of objects into a self-contained message that can be used for
    * out-of-band communication.
@@ -163,7 +207,7 @@ public class SimpleRequestProcessor {
     IdToEntityMap map = new IdToEntityMap();
     map.putAll(state.beans);
     List<OperationMessage> operations = new ArrayList<OperationMessage>();
-    createReturnOperations(operations, state, map);
+    createReturnOperations(operations, state, map, null);
 
     InvocationMessage invocation = FACTORY.invocation().as();
     invocation.setParameters(encodedValues);
@@ -229,7 +273,7 @@ public class SimpleRequestProcessor {
     IdToEntityMap toProcess = new IdToEntityMap();
     toProcess.putAll(source.beans);
     toProcess.putAll(returnState.beans);
-    createReturnOperations(operations, returnState, toProcess);
+    createReturnOperations(operations, returnState, toProcess, getKnownVersions(req));
 
     assert invocationResults.size() == invocationSuccess.size();
     if (!invocationResults.isEmpty()) {
@@ -241,6 +285,40 @@ public class SimpleRequestProcessor {
     }
   }
 
+  /**
+   * Wait for the side-effect-free invocations that are still running, storing
+   * their results in place of the placeholders in {@code invocationResults}.
+   */
+  private void awaitInvocations(Map<Integer, Future<Object>> pending,
+      List<Object> invocationResults, List<Boolean> success) {
+    try {
+      for (Map.Entry<Integer, Future<Object>> entry : pending.entrySet()) {
+        int idx = entry.getKey();
+        try {
+          invocationResults.set(idx, entry.getValue().get());
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof ReportableException) {
+            invocationResults.set(idx, AutoBeanCodex
+                .encode(createFailureMessage((ReportableException) cause)));
+            success.set(idx, false);
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          } else {
+            throw new UnexpectedException("Unexpected exception from invocation", cause);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new UnexpectedException("Interrupted while waiting for an invocation", e);
+        }
+      }
+    } finally {
+      pending.clear();
+    }
+  }
+
   private AutoBean<ServerFailureMessage> createFailureMessage(ReportableException e) {
     ServerFailure failure =
         exceptionHandler.createServerFailure(e.getCause() == null ? e : e.getCause());
@@ -253,8 +331,14 @@ public class SimpleRequestProcessor {
     return bean;
   }
 
+  /**
+   * Create the operations that describe the entities in the return graph.
+   * 
+   * @param knownVersions maps {@link #knownVersionKey} to the versions already
+   *          held by the client, may be {@code null}
+   */
   private void createReturnOperations(List<OperationMessage> operations, RequestState returnState,
-      IdToEntityMap toProcess) {
+      IdToEntityMap toProcess, Map<String, String> knownVersions) {
     for (Map.Entry<SimpleProxyId<?>, AutoBean<? extends BaseProxy>> entry : toProcess.entrySet()) {
       SimpleProxyId<?> id = entry.getKey();
 
@@ -295,12 +379,28 @@ public class SimpleRequestProcessor {
 
       boolean inResponse = bean.getTag(Constants.IN_RESPONSE) != null;
 
+      /*
+       * Determine if the client has advertised that it already holds the
+       * current version of the entity.
+       */
+      boolean clientHasVersion = false;
+      if (WriteOperation.UPDATE.equals(writeOperation) && knownVersions != null) {
+        String knownVersion =
+            knownVersions.get(knownVersionKey(service.resolveTypeToken(id.getProxyClass()),
+                toBase64(id.getServerId())));
+        clientHasVersion =
+            knownVersion != null && version.getPayload().equals(fromBase64(knownVersion));
+      }
+
       /*
        * Don't send any data back to the client for an update on an object that
        * isn't part of the response payload when the client's version matches
        * the domain version.
        */
       if (WriteOperation.UPDATE.equals(writeOperation) && !inResponse) {
+        if (clientHasVersion) {
+          continue;
+        }
         String previousVersion = bean.<String> getTag(Constants.VERSION_PROPERTY_B64);
         if (version != null && previousVersion != null
             && version.equals(fromBase64(previousVersion))) {
@@ -322,12 +422,30 @@ public class SimpleRequestProcessor {
 
       // Only send properties for entities that are part of the return graph
       if (inResponse) {
+        /*
+         * The client retains the value properties of entities whose versions it
+         * advertised, so only the reference properties, which depend on the
+         * requested property paths, need to be sent.
+         */
+        final Set<String> omitted = new HashSet<String>();
+        if (clientHasVersion) {
+          op.setUnchanged(true);
+          bean.accept(new AutoBeanVisitor() {
+            @Override
+            public boolean visitValueProperty(String propertyName, Object value,
+                PropertyContext ctx) {
+              omitted.add(propertyName);
+              return false;
+            }
+          });
+        }
+
         Map<String, Splittable> propertyMap = new LinkedHashMap<String, Splittable>();
         // Add all non-null properties to the serialized form
         Map<String, Object> diff = AutoBeanUtils.getAllProperties(bean);
         for (Map.Entry<String, Object> d : diff.entrySet()) {
           Object value = d.getValue();
-          if (value != null) {
+          if (value != null && !omitted.contains(d.getKey())) {
             propertyMap.put(d.getKey(), EntityCodex.encode(returnState, value));
           }
         }
@@ -415,6 +533,23 @@ public class SimpleRequestProcessor {
     return args;
   }
 
+  /**
+   * Collect the entity versions advertised by a client that has enabled
+   * delta-encoded responses.
+   */
+  private Map<String, String> getKnownVersions(RequestMessage req) {
+    List<KnownVersionMessage> messages = req.getKnownVersions();
+    if (messages == null) {
+      return null;
+    }
+    Map<String, String> toReturn = new HashMap<String, String>(messages.size());
+    for (KnownVersionMessage message : messages) {
+      toReturn.put(knownVersionKey(message.getTypeToken(), message.getServerId()), message
+          .getVersion());
+    }
+    return toReturn;
+  }
+
   private void processInvocationMessages(RequestState state, RequestMessage req,
       List<Splittable> results, List<Boolean> success, RequestState returnState) {
     List<InvocationMessage> invocations = req.getInvocations();
@@ -425,6 +560,9 @@ public class SimpleRequestProcessor {
     List<Method> contextMethods = new ArrayList<Method>(invocations.size());
     List<Object> invocationResults = new ArrayList<Object>(invocations.size());
     Map<Object, SortedSet<String>> allPropertyRefs = new HashMap<Object, SortedSet<String>>();
+    Executor executor = invocationExecutor;
+    // Maps indexes in invocationResults to side-effect-free invocations
+    Map<Integer, Future<Object>> pending = new LinkedHashMap<Integer, Future<Object>>();
     for (InvocationMessage invocation : invocations) {
       Object domainReturnValue;
       boolean ok;
@@ -452,14 +590,14 @@ public class SimpleRequestProcessor {
           args.add(0, serviceInstance);
         }
         // Invoke it
-        domainReturnValue = service.invoke(domainMethod, args.toArray());
-        if (invocation.getPropertyRefs() != null) {
-          SortedSet<String> paths = allPropertyRefs.get(domainReturnValue);
-          if (paths == null) {
-            paths = new TreeSet<String>();
-            allPropertyRefs.put(domainReturnValue, paths);
-          }
-          paths.addAll(invocation.getPropertyRefs());
+        if (executor != null && domainMethod.isAnnotationPresent(SideEffectFree.class)) {
+          pending.put(invocationResults.size(), submitInvocation(executor, domainMethod, args
+              .toArray()));
+          domainReturnValue = null;
+        } else {
+          // Don't reorder invocations that may have side-effects
+          awaitInvocations(pending, invocationResults, success);
+          domainReturnValue = service.invoke(domainMethod, args.toArray());
         }
         ok = true;
       } catch (ReportableException e) {
@@ -469,6 +607,24 @@ public class SimpleRequestProcessor {
       invocationResults.add(domainReturnValue);
       success.add(ok);
     }
+    awaitInvocations(pending, invocationResults, success);
+
+    // Record the requested property paths for each returned object
+    Iterator<InvocationMessage> invocationIt = invocations.iterator();
+    Iterator<Object> resultIt = invocationResults.iterator();
+    for (boolean ok : success) {
+      InvocationMessage invocation = invocationIt.next();
+      Object domainReturnValue = resultIt.next();
+      if (ok && invocation.getPropertyRefs() != null) {
+        SortedSet<String> paths = allPropertyRefs.get(domainReturnValue);
+        if (paths == null) {
+          paths = new TreeSet<String>();
+          allPropertyRefs.put(domainReturnValue, paths);
+        }
+        paths.addAll(invocation.getPropertyRefs());
+      }
+    }
+
     Iterator<Method> contextMethodIt = contextMethods.iterator();
     Iterator<Object> objects = invocationResults.iterator();
     Iterator<Boolean> successes = success.iterator();
@@ -548,6 +704,22 @@ public class SimpleRequestProcessor {
     }
   }
 
+  /**
+   * Begin a side-effect-free invocation on the given Executor. The task sees
+   * the HTTP transaction ThreadLocals of the calling thread.
+   */
+  private Future<Object> submitInvocation(Executor executor, final Method domainMethod,
+      final Object[] args) {
+    FutureTask<Object> task =
+        new FutureTask<Object>(RequestFactoryServlet.withThreadLocals(new Callable<Object>() {
+          public Object call() {
+            return service.invoke(domainMethod, args);
+          }
+        }));
+    executor.execute(task);
+    return task;
+  }
+
   /**
    * Validate all of the entities referenced in a RequestState.
    */
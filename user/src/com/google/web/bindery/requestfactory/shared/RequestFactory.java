@@ -44,6 +44,12 @@ import com.google.web.bindery.event.shared.EventBus;
  * @see com.google.web.bindery.requestfactory.server.testing.InProcessRequestTransport
  */
 public interface RequestFactory {
+  /**
+   * The content type of the compact binary payload format, which may be
+   * negotiated by JVM-based clients in place of JSON.
+   */
+  String BINARY_CONTENT_TYPE = "application/x-gwt-requestfactory";
+
   /**
    * The JSON content type String.
    */
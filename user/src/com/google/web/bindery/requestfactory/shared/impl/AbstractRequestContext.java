@@ -46,6 +46,7 @@ import com.google.web.bindery.requestfactory.shared.messages.IdMessage;
 import com.google.web.bindery.requestfactory.shared.messages.IdMessage.Strength;
 import com.google.web.bindery.requestfactory.shared.messages.InvocationMessage;
 import com.google.web.bindery.requestfactory.shared.messages.JsonRpcRequest;
+import com.google.web.bindery.requestfactory.shared.messages.KnownVersionMessage;
 import com.google.web.bindery.requestfactory.shared.messages.MessageFactory;
 import com.google.web.bindery.requestfactory.shared.messages.OperationMessage;
 import com.google.web.bindery.requestfactory.shared.messages.RequestMessage;
@@ -114,6 +115,11 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
      */
     public boolean fireDisabled;
     public final List<AbstractRequest<?>> invocations = new ArrayList<AbstractRequest<?>>();
+    /**
+     * The ProxyVersionCache entries whose versions were advertised to the
+     * server, retained in case they are evicted before the response arrives.
+     */
+    Map<String, ProxyVersionCache.Entry> knownVersions;
 
     public boolean locked;
     /**
@@ -305,6 +311,7 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
 
       List<OperationMessage> operations = makePayloadOperations();
       List<InvocationMessage> invocationMessages = makePayloadInvocations();
+      List<KnownVersionMessage> knownVersions = makePayloadKnownVersions();
 
       // Create the outer envelope message
       AutoBean<RequestMessage> bean = f.request();
@@ -316,6 +323,9 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
       if (!operations.isEmpty()) {
         requestMessage.setOperations(operations);
       }
+      if (!knownVersions.isEmpty()) {
+        requestMessage.setKnownVersions(knownVersions);
+      }
       return AutoBeanCodex.encode(bean).getPayload();
     }
 
@@ -382,6 +392,7 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
       state.editedProxies.clear();
       state.invocations.clear();
       state.returnedProxies.clear();
+      state.knownVersions = null;
 
       if (causes != null) {
         throw new UmbrellaException(causes);
@@ -869,6 +880,16 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
    */
   <Q extends BaseProxy> Q processReturnOperation(SimpleProxyId<Q> id, OperationMessage op,
       WriteOperation... operations) {
+    return processReturnOperation(id, op, null, operations);
+  }
+
+  /**
+   * Like {@link #processReturnOperation(SimpleProxyId, OperationMessage, WriteOperation...)},
+   * but also records the encoded value properties that were applied to the
+   * object into {@code valueSink}, if it is non-null.
+   */
+  <Q extends BaseProxy> Q processReturnOperation(SimpleProxyId<Q> id, OperationMessage op,
+      final Map<String, Splittable> valueSink, WriteOperation... operations) {
 
     AutoBean<Q> toMutate = getProxyForReturnPayloadGraph(id);
     toMutate.setTag(Constants.VERSION_PROPERTY_B64, op.getVersion());
@@ -899,6 +920,9 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
           if (ctx.canSet()) {
             if (properties.containsKey(propertyName)) {
               Splittable raw = properties.get(propertyName);
+              if (valueSink != null) {
+                valueSink.put(propertyName, raw);
+              }
               Object decoded = ValueCodex.decode(ctx.getType(), raw);
               /*
                * Hack for Date subtypes, consider generalizing for
@@ -1166,6 +1190,29 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
     return invocationMessages;
   }
 
+  /**
+   * Advertise the versions of the entities held in the factory's
+   * ProxyVersionCache, if delta-encoded responses are enabled.
+   */
+  private List<KnownVersionMessage> makePayloadKnownVersions() {
+    ProxyVersionCache cache = state.requestFactory.getProxyVersionCache();
+    if (cache == null) {
+      return Collections.emptyList();
+    }
+
+    MessageFactory f = MessageFactoryHolder.FACTORY;
+    state.knownVersions = cache.getEntries();
+    List<KnownVersionMessage> toReturn = new ArrayList<KnownVersionMessage>();
+    for (Map.Entry<String, ProxyVersionCache.Entry> entry : state.knownVersions.entrySet()) {
+      KnownVersionMessage message = f.knownVersion().as();
+      message.setServerId(IdUtil.getServerId(entry.getKey()));
+      message.setTypeToken(IdUtil.getTypeToken(entry.getKey()));
+      message.setVersion(entry.getValue().getVersion());
+      toReturn.add(message);
+    }
+    return toReturn;
+  }
+
   /**
    * Compute deltas for each entity seen by the context.
    */
@@ -1190,6 +1237,7 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
       return;
     }
 
+    ProxyVersionCache cache = state.requestFactory.getProxyVersionCache();
     for (OperationMessage op : ops) {
       SimpleProxyId<?> id = getId(op);
       WriteOperation[] toPropagate = null;
@@ -1212,7 +1260,41 @@ public abstract class AbstractRequestContext implements RequestContext, EntityCo
             throw new RuntimeException(effect.toString());
         }
       }
-      processReturnOperation(id, op, toPropagate);
+      if (cache == null || id.isEphemeral() || id.isSynthetic()) {
+        processReturnOperation(id, op, toPropagate);
+        continue;
+      }
+
+      String historyToken = state.requestFactory.getHistoryToken(id);
+      if (WriteOperation.DELETE.equals(effect) || op.getVersion() == null) {
+        cache.remove(historyToken);
+        processReturnOperation(id, op, toPropagate);
+        continue;
+      }
+
+      if (op.isUnchanged()) {
+        // Restore the value properties that the server omitted
+        ProxyVersionCache.Entry known =
+            state.knownVersions == null ? null : state.knownVersions.get(historyToken);
+        if (known == null || !known.getVersion().equals(op.getVersion())) {
+          throw new IllegalStateException("No cached data for " + historyToken + " at version "
+              + op.getVersion());
+        }
+        Map<String, Splittable> merged = new HashMap<String, Splittable>(known.getValues());
+        if (op.getPropertyMap() != null) {
+          merged.putAll(op.getPropertyMap());
+        }
+        op.setPropertyMap(merged);
+      }
+
+      if (op.getPropertyMap() == null) {
+        // Nothing to retain from an update outside of the return graph
+        processReturnOperation(id, op, toPropagate);
+      } else {
+        Map<String, Splittable> values = new HashMap<String, Splittable>();
+        processReturnOperation(id, op, values, toPropagate);
+        cache.put(historyToken, op.getVersion(), values);
+      }
     }
   }
 
@@ -37,6 +37,11 @@ public abstract class AbstractRequestFactory extends IdFactory implements Reques
 
   private EventBus eventBus;
 
+  /**
+   * Non-null when delta-encoded responses have been enabled.
+   */
+  private ProxyVersionCache proxyVersionCache;
+
   @SuppressWarnings("serial")
   private final Map<String, String> version = new LinkedHashMap<String, String>(16, 0.75f, true) {
     @Override
@@ -101,6 +106,23 @@ public abstract class AbstractRequestFactory extends IdFactory implements Reques
     return new ProxySerializerImpl(this, store);
   }
 
+  /**
+   * Enables delta-encoded responses. The client will retain the value
+   * properties of up to {@code maxEntities} persisted entities returned by the
+   * server and will advertise their versions in each request. The server may
+   * then omit the value properties of any returned entity whose version has not
+   * changed. A value of {@code 0} disables delta-encoded responses, which is
+   * the default.
+   * 
+   * @param maxEntities the maximum number of entities to retain
+   */
+  public void setProxyVersionCacheSize(int maxEntities) {
+    if (maxEntities < 0) {
+      throw new IllegalArgumentException("maxEntities");
+    }
+    proxyVersionCache = maxEntities == 0 ? null : new ProxyVersionCache(maxEntities);
+  }
+
   /**
    * The choice of a default request transport is runtime-specific.
    */
@@ -125,7 +147,7 @@ public abstract class AbstractRequestFactory extends IdFactory implements Reques
    * Used by {@link AbstractRequestContext} to quiesce update events for objects
    * that haven't truly changed.
    */
-  protected boolean hasVersionChanged(SimpleProxyId<?> id, String observedVersion) {
+  protected synchronized boolean hasVersionChanged(SimpleProxyId<?> id, String observedVersion) {
     assert id != null : "id";
     assert observedVersion != null : "observedVersion";
     String key = getHistoryToken(id);
@@ -137,4 +159,12 @@ public abstract class AbstractRequestFactory extends IdFactory implements Reques
     }
     return toReturn;
   }
+
+  /**
+   * Returns the store used by {@link AbstractRequestContext} for delta-encoded
+   * responses, or {@code null} if they have not been enabled.
+   */
+  ProxyVersionCache getProxyVersionCache() {
+    return proxyVersionCache;
+  }
 }
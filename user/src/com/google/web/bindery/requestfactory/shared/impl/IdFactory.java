@@ -24,6 +24,10 @@ import java.util.Map;
 
 /**
  * Handles common code for creating SimpleProxyIds.
+ * <p>
+ * Methods that read or update the canonicalizing id map are synchronized so
+ * that a single RequestFactory may be shared by many threads in a JVM. The
+ * modifier has no effect in translated code.
  */
 public abstract class IdFactory {
   /**
@@ -37,7 +41,7 @@ public abstract class IdFactory {
    * Allocates an ephemeral proxy id. This object is only valid for the lifetime
    * of the RequestFactory.
    */
-  public <P extends BaseProxy> SimpleProxyId<P> allocateId(Class<P> clazz) {
+  public synchronized <P extends BaseProxy> SimpleProxyId<P> allocateId(Class<P> clazz) {
     SimpleProxyId<P> toReturn = createId(clazz, ephemeralIds.size() + 1);
     ephemeralIds.put(getHistoryToken(toReturn), toReturn);
     return toReturn;
@@ -78,7 +82,7 @@ public abstract class IdFactory {
     return (Class<P>) clazz;
   }
 
-  public <P extends BaseProxy> SimpleProxyId<P> getBaseProxyId(
+  public synchronized <P extends BaseProxy> SimpleProxyId<P> getBaseProxyId(
       String historyToken) {
     assert !IdUtil.isSynthetic(historyToken) : "Synthetic id resolution"
         + " should be handled by AbstractRequestContext";
@@ -142,7 +146,7 @@ public abstract class IdFactory {
    * are specified and the id is ephemeral, it will be updated with the server
    * id.
    */
-  public <P extends BaseProxy> SimpleProxyId<P> getId(String typeToken,
+  public synchronized <P extends BaseProxy> SimpleProxyId<P> getId(String typeToken,
       String serverId, int clientId) {
     /*
      * If there's a clientId, that probably means we've just created a brand-new
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.shared.impl;
+
+import com.google.web.bindery.autobean.shared.Splittable;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, most-recently-used store of the value properties of persisted
+ * entities returned by the server, keyed by history token. The
+ * {@link AbstractRequestContext} advertises the versions held in this cache
+ * so that the server may omit the value properties of unchanged entities.
+ * <p>
+ * Instances are shared by every RequestContext created by a RequestFactory, so
+ * all access is synchronized for the benefit of multi-threaded JVM clients.
+ */
+class ProxyVersionCache {
+  /**
+   * A snapshot of the encoded value properties of an entity at a particular
+   * version.
+   */
+  static class Entry {
+    private final String version;
+    private final Map<String, Splittable> values;
+
+    Entry(String version, Map<String, Splittable> values) {
+      this.version = version;
+      this.values = values;
+    }
+
+    public Map<String, Splittable> getValues() {
+      return values;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+  }
+
+  private final int maxSize;
+
+  @SuppressWarnings("serial")
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  public ProxyVersionCache(int maxSize) {
+    assert maxSize > 0 : "maxSize";
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns a copy of the map of history tokens to cache entries.
+   */
+  public synchronized Map<String, Entry> getEntries() {
+    return new HashMap<String, Entry>(entries);
+  }
+
+  public synchronized void put(String historyToken, String version, Map<String, Splittable> values) {
+    entries.put(historyToken, new Entry(version, values));
+  }
+
+  public synchronized void remove(String historyToken) {
+    entries.remove(historyToken);
+  }
+}
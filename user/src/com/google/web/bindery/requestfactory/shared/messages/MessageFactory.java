@@ -30,6 +30,8 @@ public interface MessageFactory extends AutoBeanFactory {
   
   AutoBean<JsonRpcRequest> jsonRpcRequest();
 
+  AutoBean<KnownVersionMessage> knownVersion();
+
   AutoBean<OperationMessage> operation();
 
   AutoBean<RequestMessage> request();
@@ -27,6 +27,7 @@ import java.util.Map;
 public interface OperationMessage extends IdMessage, VersionedMessage {
   String OPERATION = "O";
   String PROPERTY_MAP = "P";
+  String UNCHANGED = "U";
 
   @PropertyName(OPERATION)
   WriteOperation getOperation();
@@ -34,9 +35,20 @@ public interface OperationMessage extends IdMessage, VersionedMessage {
   @PropertyName(PROPERTY_MAP)
   Map<String, Splittable> getPropertyMap();
 
+  /**
+   * Indicates that the entity's version matches the version advertised by the
+   * client in a {@link KnownVersionMessage}, so its value properties have been
+   * omitted from the property map.
+   */
+  @PropertyName(UNCHANGED)
+  boolean isUnchanged();
+
   @PropertyName(OPERATION)
   void setOperation(WriteOperation value);
 
   @PropertyName(PROPERTY_MAP)
   void setPropertyMap(Map<String, Splittable> map);
+
+  @PropertyName(UNCHANGED)
+  void setUnchanged(boolean value);
 }
@@ -25,11 +25,15 @@ import java.util.List;
 public interface RequestMessage extends VersionedMessage {
   String FACTORY = "F";
   String INVOCATION = "I";
+  String KNOWN_VERSIONS = "K";
   String OPERATIONS = "O";
 
   @PropertyName(INVOCATION)
   List<InvocationMessage> getInvocations();
 
+  @PropertyName(KNOWN_VERSIONS)
+  List<KnownVersionMessage> getKnownVersions();
+
   @PropertyName(OPERATIONS)
   List<OperationMessage> getOperations();
 
@@ -39,6 +43,9 @@ public interface RequestMessage extends VersionedMessage {
   @PropertyName(INVOCATION)
   void setInvocations(List<InvocationMessage> value);
 
+  @PropertyName(KNOWN_VERSIONS)
+  void setKnownVersions(List<KnownVersionMessage> value);
+
   @PropertyName(OPERATIONS)
   void setOperations(List<OperationMessage> value);
 
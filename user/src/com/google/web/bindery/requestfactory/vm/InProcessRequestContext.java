@@ -31,7 +31,6 @@ import com.google.web.bindery.requestfactory.shared.impl.AbstractRequestContext;
 import com.google.web.bindery.requestfactory.shared.impl.RequestData;
 import com.google.web.bindery.requestfactory.shared.impl.SimpleProxyId;
 import com.google.web.bindery.requestfactory.vm.impl.Deobfuscator;
-import com.google.web.bindery.requestfactory.vm.impl.OperationKey;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
@@ -98,16 +97,9 @@ class InProcessRequestContext extends AbstractRequestContext {
 
       final RequestData data;
       if (dialect.equals(Dialect.STANDARD)) {
-        StringBuilder descriptor = new StringBuilder("(");
-        for (Class<?> param : method.getParameterTypes()) {
-          descriptor.append(com.google.gwt.dev.asm.Type.getDescriptor(param));
-        }
-        // Don't care about the return type
-        descriptor.append(")V");
-        OperationKey operation =
-            new OperationKey(context.getName(), method.getName(), descriptor.toString());
-
-        data = new RequestData(operation.get(), actualArgs, returnType, elementType);
+        String operation =
+            ((InProcessRequestFactory) getRequestFactory()).getOperation(context, method);
+        data = new RequestData(operation, actualArgs, returnType, elementType);
       } else {
         // Calculate request metadata
         JsonRpcWireName wireInfo = method.getReturnType().getAnnotation(JsonRpcWireName.class);
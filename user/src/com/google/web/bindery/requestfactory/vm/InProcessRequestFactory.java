@@ -15,6 +15,7 @@
  */
 package com.google.web.bindery.requestfactory.vm;
 
+import com.google.gwt.dev.asm.Type;
 import com.google.web.bindery.autobean.shared.AutoBeanFactory;
 import com.google.web.bindery.autobean.vm.AutoBeanFactorySource;
 import com.google.web.bindery.event.shared.EventBus;
@@ -38,9 +39,14 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A JRE-compatible implementation of RequestFactory.
+ * A JRE-compatible implementation of RequestFactory. Instances may be shared by
+ * multiple threads, each of which may create and fire its own RequestContexts.
  */
 class InProcessRequestFactory extends AbstractRequestFactory {
   @AutoBeanFactory.Category(value = {
@@ -67,19 +73,35 @@ class InProcessRequestFactory extends AbstractRequestFactory {
               : Dialect.STANDARD;
       RequestContextHandler handler =
           new InProcessRequestContext(InProcessRequestFactory.this, dialect, context).new RequestContextHandler();
-      return context.cast(Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(),
-          new Class<?>[] {context}, handler));
+      return context.cast(Proxy.newProxyInstance(classLoader, new Class<?>[] {context}, handler));
     }
   }
 
-  private final Class<? extends RequestFactory> requestFactoryInterface;
+  private final AutoBeanFactory autoBeanFactory = AutoBeanFactorySource.create(Factory.class);
+  /**
+   * Captured at construction so that the factory may be used from threads
+   * whose context ClassLoader differs, such as those of an Executor.
+   */
+  private final ClassLoader classLoader;
   private final Deobfuscator deobfuscator;
+  /**
+   * Memoizes {@link #getOperation(Class, Method)}.
+   */
+  private final Map<List<?>, String> operations = new ConcurrentHashMap<List<?>, String>();
+  private final Class<? extends RequestFactory> requestFactoryInterface;
+  /**
+   * Memoizes {@link #getTypeFromToken(String)}.
+   */
+  private final Map<String, Class<?>> tokensToTypes = new ConcurrentHashMap<String, Class<?>>();
+  /**
+   * Memoizes {@link #getTypeToken(Class)}, which computes a hash.
+   */
+  private final Map<Class<?>, String> typesToTokens = new ConcurrentHashMap<Class<?>, String>();
 
   public InProcessRequestFactory(Class<? extends RequestFactory> requestFactoryInterface) {
     this.requestFactoryInterface = requestFactoryInterface;
-    deobfuscator =
-        Deobfuscator.Builder.load(requestFactoryInterface,
-            Thread.currentThread().getContextClassLoader()).build();
+    classLoader = Thread.currentThread().getContextClassLoader();
+    deobfuscator = Deobfuscator.Builder.load(requestFactoryInterface, classLoader).build();
   }
 
   public Deobfuscator getDeobfuscator() {
@@ -106,22 +128,30 @@ class InProcessRequestFactory extends AbstractRequestFactory {
     return ValueProxy.class.isAssignableFrom(clazz);
   }
 
+  /**
+   * The AutoBeanFactory is stateless, so a single instance is shared by all
+   * RequestContexts created by this factory.
+   */
   @Override
   protected AutoBeanFactory getAutoBeanFactory() {
-    return AutoBeanFactorySource.create(Factory.class);
+    return autoBeanFactory;
   }
 
   @Override
   @SuppressWarnings("unchecked")
   protected <P extends BaseProxy> Class<P> getTypeFromToken(String typeToken) {
+    Class<?> toReturn = tokensToTypes.get(typeToken);
+    if (toReturn != null) {
+      return (Class<P>) toReturn;
+    }
     String deobfuscated = deobfuscator.getTypeFromToken(typeToken);
     if (deobfuscated == null) {
       throw new RuntimeException("Did not have deobfuscation data for " + typeToken);
     }
     try {
       Class<? extends BaseProxy> found =
-          Class.forName(deobfuscated, false, Thread.currentThread().getContextClassLoader())
-              .asSubclass(BaseProxy.class);
+          Class.forName(deobfuscated, false, classLoader).asSubclass(BaseProxy.class);
+      tokensToTypes.put(typeToken, found);
       return (Class<P>) found;
     } catch (ClassNotFoundException e) {
       return null;
@@ -130,6 +160,31 @@ class InProcessRequestFactory extends AbstractRequestFactory {
 
   @Override
   protected String getTypeToken(Class<? extends BaseProxy> clazz) {
-    return isEntityType(clazz) || isValueType(clazz) ? OperationKey.hash(clazz.getName()) : null;
+    String toReturn = typesToTokens.get(clazz);
+    if (toReturn == null && (isEntityType(clazz) || isValueType(clazz))) {
+      toReturn = OperationKey.hash(clazz.getName());
+      typesToTokens.put(clazz, toReturn);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Returns the operation name used by the standard dialect for a method
+   * declared in, or inherited by, a RequestContext type.
+   */
+  String getOperation(Class<? extends RequestContext> context, Method method) {
+    List<?> key = Arrays.asList(context, method);
+    String toReturn = operations.get(key);
+    if (toReturn == null) {
+      StringBuilder descriptor = new StringBuilder("(");
+      for (Class<?> param : method.getParameterTypes()) {
+        descriptor.append(Type.getDescriptor(param));
+      }
+      // Don't care about the return type
+      descriptor.append(")V");
+      toReturn = new OperationKey(context.getName(), method.getName(), descriptor.toString()).get();
+      operations.put(key, toReturn);
+    }
+    return toReturn;
   }
 }
@@ -33,6 +33,11 @@ public class RequestFactorySource {
    * RequestTransport} via the
    * {@link RequestFactory#initialize(com.google.web.bindery.event.shared.EventBus, com.google.web.bindery.requestfactory.shared.RequestTransport)
    * initialize(EventBus, RequestTransport} method.
+   * <p>
+   * The returned RequestFactory may be shared by multiple threads. Each thread
+   * should create its own RequestContexts, which are not thread-safe. The
+   * RequestTransport must tolerate concurrent use and events will be fired on
+   * whichever thread receives the server's response.
    * 
    * @param <T> the RequestFactory type
    * @param requestFactory the RequestFactory type
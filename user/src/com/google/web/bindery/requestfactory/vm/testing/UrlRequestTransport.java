@@ -15,6 +15,9 @@
  */
 package com.google.web.bindery.requestfactory.vm.testing;
 
+import com.google.web.bindery.autobean.shared.Splittable;
+import com.google.web.bindery.autobean.shared.impl.StringQuoter;
+import com.google.web.bindery.autobean.vm.impl.BinaryCodex;
 import com.google.web.bindery.requestfactory.shared.RequestFactory;
 import com.google.web.bindery.requestfactory.shared.RequestTransport;
 import com.google.web.bindery.requestfactory.shared.ServerFailure;
@@ -29,9 +32,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterInputStream;
 
@@ -44,6 +48,20 @@ import java.util.zip.InflaterInputStream;
  * primitive support for recording and playing back cookies, but does not
  * implement expiration processing.
  * <p>
+ * When {@link #setBinaryPayloadsEnabled(boolean) binary payloads} are enabled,
+ * the transport advertises {@link RequestFactory#BINARY_CONTENT_TYPE} to the
+ * server and, once the server has replied in that format, sends subsequent
+ * requests in that format as well.
+ * <p>
+ * By default, {@link #send(String, TransportReceiver)} blocks the calling
+ * thread until the response has been received. If an {@link Executor} is
+ * {@link #setExecutor(Executor) provided}, requests are instead sent from the
+ * Executor's threads and the receiver is notified on those threads, which
+ * allows many {@code RequestContext.fire()} calls to be in flight at once from
+ * a single thread. Instances of this class may be shared between threads and
+ * successful connections are left open for reuse by the JRE's HTTP keep-alive
+ * cache.
+ * <p>
  * Developers who wish to build a more production-ready client should consider
  * using a RequestTRansport based around Apache HttpClient instead.
  */
@@ -51,7 +69,13 @@ public class UrlRequestTransport implements RequestTransport {
   private static final int CONNECT_TIMEOUT = 30000;
   private static final int READ_TIMEOUT = 60000;
 
-  private final Map<String, String> cookies = new HashMap<String, String>();
+  private volatile boolean binaryPayloadsEnabled;
+  private final Map<String, String> cookies = new ConcurrentHashMap<String, String>();
+  private volatile Executor executor;
+  /**
+   * Set once the server has responded with a binary payload.
+   */
+  private volatile boolean serverAcceptsBinary;
   private final URL url;
 
   /**
@@ -76,15 +100,71 @@ public class UrlRequestTransport implements RequestTransport {
     return cookies;
   }
 
+  /**
+   * Returns the Executor used to send requests, or {@code null} if requests are
+   * sent from the calling thread.
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Returns {@code true} if the binary payload format will be negotiated with
+   * the server.
+   */
+  public boolean isBinaryPayloadsEnabled() {
+    return binaryPayloadsEnabled;
+  }
+
   @Override
-  public void send(String payload, TransportReceiver receiver) {
+  public void send(final String payload, final TransportReceiver receiver) {
+    Executor exec = executor;
+    if (exec == null) {
+      doSend(payload, receiver);
+      return;
+    }
+    exec.execute(new Runnable() {
+      public void run() {
+        doSend(payload, receiver);
+      }
+    });
+  }
+
+  /**
+   * Controls whether or not the transport will negotiate the use of the binary
+   * payload format with the server. The default is {@code false}.
+   */
+  public void setBinaryPayloadsEnabled(boolean enabled) {
+    this.binaryPayloadsEnabled = enabled;
+  }
+
+  /**
+   * Sets the Executor used to send requests. A {@code null} value, which is the
+   * default, causes requests to be sent synchronously from the thread that
+   * calls {@link #send(String, TransportReceiver)}.
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  protected void doSend(String payload, TransportReceiver receiver) {
     HttpURLConnection connection = null;
+    // Only a fully-consumed connection may be returned to the keep-alive cache
+    boolean reusable = false;
     try {
       connection = (HttpURLConnection) url.openConnection();
       configureConnection(connection);
 
+      boolean sendBinary = binaryPayloadsEnabled && serverAcceptsBinary;
+      if (sendBinary) {
+        connection.setRequestProperty("Content-Type", RequestFactory.BINARY_CONTENT_TYPE);
+      }
       OutputStream out = connection.getOutputStream();
-      out.write(payload.getBytes("UTF-8"));
+      if (sendBinary) {
+        BinaryCodex.encode(StringQuoter.split(payload), out);
+      } else {
+        out.write(payload.getBytes("UTF-8"));
+      }
       out.close();
 
       int status = connection.getResponseCode();
@@ -124,6 +204,21 @@ public class UrlRequestTransport implements RequestTransport {
         return;
       }
 
+      String contentType = connection.getContentType();
+      if (binaryPayloadsEnabled && contentType != null
+          && contentType.startsWith(RequestFactory.BINARY_CONTENT_TYPE)) {
+        serverAcceptsBinary = true;
+        Splittable received;
+        try {
+          received = BinaryCodex.decode(in);
+        } finally {
+          in.close();
+        }
+        reusable = true;
+        receiver.onTransportSuccess(received.getPayload());
+        return;
+      }
+
       ByteArrayOutputStream bytes = new ByteArrayOutputStream();
       byte[] buffer = new byte[4096];
       int read = in.read(buffer);
@@ -132,6 +227,7 @@ public class UrlRequestTransport implements RequestTransport {
         read = in.read(buffer);
       }
       in.close();
+      reusable = true;
 
       String received = new String(bytes.toByteArray(), "UTF-8");
       receiver.onTransportSuccess(received);
@@ -139,7 +235,7 @@ public class UrlRequestTransport implements RequestTransport {
       ServerFailure failure = new ServerFailure(e.getMessage(), e.getClass().getName(), null, true);
       receiver.onTransportFailure(failure);
     } finally {
-      if (connection != null) {
+      if (connection != null && !reusable) {
         connection.disconnect();
       }
     }
@@ -152,6 +248,10 @@ public class UrlRequestTransport implements RequestTransport {
     connection.setUseCaches(false);
     connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
     connection.setRequestProperty("Content-Type", RequestFactory.JSON_CONTENT_TYPE_UTF8);
+    if (binaryPayloadsEnabled) {
+      connection.setRequestProperty("Accept", RequestFactory.BINARY_CONTENT_TYPE + ", "
+          + RequestFactory.JSON_CONTENT_TYPE_UTF8);
+    }
     connection.setRequestProperty("Host", url.getHost());
     connection.setRequestProperty("User-Agent", UrlRequestTransport.class.getCanonicalName());
     connection.setConnectTimeout(CONNECT_TIMEOUT);
@@ -18,10 +18,12 @@ package com.google.gwt.core.client.impl;
 import com.google.gwt.core.client.impl.AsyncFragmentLoader.LoadTerminatedHandler;
 import com.google.gwt.core.client.impl.AsyncFragmentLoader.LoadingStrategy;
 import com.google.gwt.core.client.impl.AsyncFragmentLoader.Logger;
+import com.google.gwt.core.client.impl.AsyncFragmentLoader.RequestObserver;
 
 import junit.framework.TestCase;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -421,6 +423,48 @@ public class AsyncFragmentLoaderTest extends TestCase {
     progress.assertNoEvents();
   }
 
+  /**
+   * Check that split points whose code was merged into another fragment load
+   * that fragment instead of their own.
+   */
+  public void testMergedFragments() {
+    MockLoadStrategy reqs = new MockLoadStrategy();
+    MockProgressLogger progress = new MockProgressLogger();
+    int numEntries = 6;
+    AsyncFragmentLoader loader = new AsyncFragmentLoader(numEntries,
+        new int[] {}, reqs, progress);
+
+    loader.inject(3, NULL_ERROR_HANDLER);
+    reqs.assertFragmentsRequested(numEntries);
+    progress.assertEvent(LEFTOVERS_DOWNLOAD, BEGIN, numEntries);
+
+    // The leftovers fragment installs the merged split points
+    loader.setFragmentForSplitPointImpl(3, 2);
+    loader.leftoversFragmentHasLoaded();
+    reqs.assertFragmentsRequested(2);
+    progress.assertEvent(LEFTOVERS_DOWNLOAD, END, numEntries);
+    progress.assertEvent("download2", BEGIN, 2);
+
+    loader.fragmentHasLoaded(2);
+    progress.assertEvent("download2", END, 2);
+    reqs.assertFragmentsRequested();
+    assertTrue(loader.isAlreadyLoaded(2));
+    assertTrue(loader.isAlreadyLoaded(3));
+
+    // Already loaded along with fragment 2
+    loader.inject(3, NULL_ERROR_HANDLER);
+    reqs.assertFragmentsRequested();
+
+    loader.inject(4, NULL_ERROR_HANDLER);
+    reqs.assertFragmentsRequested(4);
+    progress.assertEvent("download4", BEGIN, 4);
+
+    loader.fragmentHasLoaded(4);
+    progress.assertEvent("download4", END, 4);
+
+    progress.assertNoEvents();
+  }
+
   /**
    * This test catches a case in an earlier version of AsyncFragmentLoader where
    * AsyncFragmentLoader.waitingForInitialFragments could exhaust its available
@@ -670,6 +714,29 @@ public class AsyncFragmentLoaderTest extends TestCase {
     progress.assertNoEvents();
   }
 
+  /**
+   * Check that the request observer hears about requests for split points
+   * outside the initial load sequence.
+   */
+  public void testRequestObserver() {
+    MockLoadStrategy reqs = new MockLoadStrategy();
+    MockProgressLogger progress = new MockProgressLogger();
+    int numEntries = 5;
+    AsyncFragmentLoader loader = new AsyncFragmentLoader(numEntries,
+        new int[] {1}, reqs, progress);
+    final List<Integer> observed = new ArrayList<Integer>();
+    loader.setRequestObserver(new RequestObserver() {
+      public void splitPointRequested(int splitPoint) {
+        observed.add(splitPoint);
+      }
+    });
+
+    loader.inject(1, NULL_ERROR_HANDLER);
+    loader.inject(3, NULL_ERROR_HANDLER);
+    loader.inject(2, NULL_ERROR_HANDLER);
+    assertEquals(Arrays.asList(3, 2), observed);
+  }
+
   /**
    * A thorough exercise of loading with an initial load sequence specified.
    */
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.client.prefetch;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests {@link LoadSequencePredictor}.
+ */
+public class LoadSequencePredictorTest extends TestCase {
+
+  public void testAging() {
+    LoadSequencePredictor predictor = new LoadSequencePredictor();
+    for (int i = 1; i < LoadSequencePredictor.MAX_COUNT; i++) {
+      predictor = visit(predictor, 1);
+    }
+    predictor = visit(predictor, 2);
+    assertEquals("0>1=255,0>2=1", predictor.serialize());
+
+    predictor = visit(predictor, 1);
+    assertEquals("0>1=128", predictor.serialize());
+  }
+
+  public void testLikelySequence() {
+    LoadSequencePredictor predictor = new LoadSequencePredictor();
+    predictor = visit(predictor, 2, 3, 1);
+    predictor = visit(predictor, 2, 3);
+    predictor = visit(predictor, 1, 2);
+    assertSequence(predictor.getLikelySequence(5), 2, 3, 1);
+    assertSequence(predictor.getLikelySequence(2), 2, 3);
+  }
+
+  public void testMalformedData() {
+    assertEquals("", new LoadSequencePredictor(null).serialize());
+    assertEquals("0>1=2", new LoadSequencePredictor("0>1=2,x>1=1,1>=2,2>3,1>0=1,-1>2=3")
+        .serialize());
+  }
+
+  public void testPredictNext() {
+    LoadSequencePredictor predictor = new LoadSequencePredictor();
+    predictor = visit(predictor, 1, 2);
+    predictor = visit(predictor, 1, 3);
+    predictor = visit(predictor, 1, 3, 2);
+
+    predictor = new LoadSequencePredictor(predictor.serialize());
+    assertSequence(predictor.predictNext(2), 1);
+    predictor.record(1);
+    assertSequence(predictor.predictNext(2), 3, 2);
+    assertSequence(predictor.predictNext(1), 3);
+
+    // Requested split points are not predicted again
+    predictor.record(3);
+    assertSequence(predictor.predictNext(2));
+    predictor.record(1);
+    assertSequence(predictor.predictNext(2));
+  }
+
+  public void testSerialize() {
+    LoadSequencePredictor predictor = new LoadSequencePredictor();
+    predictor = visit(predictor, 1, 2);
+    predictor = visit(predictor, 1, 3);
+    assertEquals("0>1=2,1>2=1,1>3=1", predictor.serialize());
+  }
+
+  private void assertSequence(int[] actual, int... expected) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+
+  /**
+   * Simulates a visit that requests <code>splitPoints</code> in order, using
+   * the saved counts of <code>predictor</code>.
+   */
+  private LoadSequencePredictor visit(LoadSequencePredictor predictor, int... splitPoints) {
+    LoadSequencePredictor visit = new LoadSequencePredictor(predictor.serialize());
+    for (int splitPoint : splitPoints) {
+      visit.record(splitPoint);
+    }
+    return visit;
+  }
+}
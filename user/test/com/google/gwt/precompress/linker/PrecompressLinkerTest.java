@@ -84,8 +84,12 @@ public class PrecompressLinkerTest extends TestCase {
 
   private class MockLinkerContext implements LinkerContext {
     public SortedSet<ConfigurationProperty> getConfigurationProperties() {
-      return new TreeSet<ConfigurationProperty>(Arrays.asList(
+      SortedSet<ConfigurationProperty> props = new TreeSet<ConfigurationProperty>(Arrays.asList(
           propLeaveOriginals, propPathRegexes));
+      if (propEncoders != null) {
+        props.add(propEncoders);
+      }
+      return props;
     }
 
     public String getModuleFunctionName() {
@@ -113,6 +117,19 @@ public class PrecompressLinkerTest extends TestCase {
     }
   }
 
+  /**
+   * An encoder that keeps the first half of the contents.
+   */
+  public static class TruncatingEncoder implements PrecompressEncoder {
+    public byte[] encode(byte[] contents) {
+      return Arrays.copyOf(contents, contents.length / 2);
+    }
+
+    public String getSuffix() {
+      return ".half";
+    }
+  }
+
   private static void assertEqualBytes(byte[] expected, byte[] actual) {
     assertEquals(expected.length, actual.length);
     for (int i = 0; i < expected.length; i++) {
@@ -224,6 +241,8 @@ public class PrecompressLinkerTest extends TestCase {
   private ArtifactSet artifacts;
   private LinkerContext context = new MockLinkerContext();
 
+  private MockConfigurationProperty propEncoders;
+
   private MockConfigurationProperty propLeaveOriginals;
 
   private MockConfigurationProperty propPathRegexes;
@@ -267,6 +286,60 @@ public class PrecompressLinkerTest extends TestCase {
     assertNull("foo.js should not have been compressed", fooGz);
   }
 
+  /**
+   * Test that every configured encoder is applied.
+   */
+  public void testEncoders() throws UnableToCompleteException, IOException {
+    propEncoders = new MockConfigurationProperty("precompress.encoders", true);
+    propEncoders.values.add(IterativeGzipEncoder.class.getName());
+    propEncoders.values.add(TruncatingEncoder.class.getName());
+    ArtifactSet updated = linkArtifacts();
+
+    byte[] foo = contents(findArtifact(updated, "foo.js"));
+    assertEqualBytes(foo, decompress(contents(findArtifact(updated, "foo.js.gz"))));
+    assertEquals(foo.length / 2, contents(findArtifact(updated, "foo.js.half")).length);
+    assertNull(findArtifact(updated, "stuff.txt.half"));
+  }
+
+  /**
+   * Test that encoders with the same suffix are rejected.
+   */
+  public void testEncodersWithSameSuffix() {
+    propEncoders = new MockConfigurationProperty("precompress.encoders", true);
+    propEncoders.values.add(GzipEncoder.class.getName());
+    propEncoders.values.add(IterativeGzipEncoder.class.getName());
+    try {
+      linkArtifacts();
+      fail("Expected UnableToCompleteException");
+    } catch (UnableToCompleteException expected) {
+    }
+  }
+
+  /**
+   * Test that the gzip encoder does at least as well as the default settings.
+   */
+  public void testGzipEncoder() throws IOException {
+    byte[] content = fooFileContents().getBytes("UTF-8");
+    byte[] encoded = new GzipEncoder().encode(content);
+    assertEqualBytes(content, decompress(encoded));
+    assertTrue(encoded.length <= compress(content).length);
+  }
+
+  /**
+   * Test that the iterative gzip encoder writes valid gzip, and does at least as
+   * well as the gzip encoder.
+   */
+  public void testIterativeGzipEncoder() throws IOException {
+    byte[] text = fooFileContents().getBytes("UTF-8");
+    byte[][] contents = {new byte[0], text, uncompressibleContent()};
+    for (byte[] content : contents) {
+      assertEqualBytes(content, decompress(IterativeGzipEncoder.gzip(content)));
+      byte[] encoded = new IterativeGzipEncoder().encode(content);
+      assertEqualBytes(content, decompress(encoded));
+      assertTrue(encoded.length <= new GzipEncoder().encode(content).length);
+    }
+  }
+
   /**
    * Tests that if precompress.leave.original if false, the originals are
    * removed.
@@ -30,9 +30,12 @@ import com.google.gwt.resources.css.CssNodeClonerTest;
 import com.google.gwt.resources.css.CssReorderTest;
 import com.google.gwt.resources.css.CssRtlTest;
 import com.google.gwt.resources.css.ExtractClassNamesVisitorTest;
+import com.google.gwt.resources.css.GenerateCssAstTest;
 import com.google.gwt.resources.css.UnknownAtRuleTest;
 import com.google.gwt.resources.ext.ResourceGeneratorUtilTest;
 import com.google.gwt.resources.rg.CssClassNamesTestCase;
+import com.google.gwt.resources.rg.CssMergeRulesTest;
+import com.google.gwt.resources.rg.ImageBundleBuilderTest;
 
 import junit.framework.Test;
 
@@ -45,6 +48,7 @@ public class ResourcesSuite {
     GWTTestSuite suite = new GWTTestSuite("Test for com.google.gwt.resources");
     suite.addTestSuite(CssClassNamesTestCase.class);
     suite.addTestSuite(CssExternalTest.class);
+    suite.addTestSuite(CssMergeRulesTest.class);
     suite.addTestSuite(CssNodeClonerTest.class);
     suite.addTestSuite(CssReorderTest.class);
     suite.addTestSuite(CSSResourceTest.class);
@@ -54,6 +58,8 @@ public class ResourcesSuite {
     suite.addTestSuite(ExternalTextResourceJsonpTest.class);
     suite.addTestSuite(ExternalTextResourceTest.class);
     suite.addTestSuite(ExtractClassNamesVisitorTest.class);
+    suite.addTestSuite(GenerateCssAstTest.class);
+    suite.addTestSuite(ImageBundleBuilderTest.class);
     suite.addTestSuite(ImageResourceNoInliningTest.class);
     suite.addTestSuite(ImageResourceTest.class);
     suite.addTestSuite(NestedBundleTest.class);
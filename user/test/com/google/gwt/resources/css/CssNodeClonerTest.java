@@ -17,6 +17,7 @@ package com.google.gwt.resources.css;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.resources.css.ast.CssMediaRule;
 import com.google.gwt.resources.css.ast.CssNode;
 import com.google.gwt.resources.css.ast.CssNodeCloner;
 import com.google.gwt.resources.css.ast.CssProperty;
@@ -56,6 +57,30 @@ public class CssNodeClonerTest extends CssTestCase {
     }
   }
 
+  public void testCloneMatchesFingerprint() throws UnableToCompleteException {
+    CssStylesheet sheet = GenerateCssAst.exec(TreeLogger.NULL,
+        getClass().getClassLoader().getResource(
+            "com/google/gwt/resources/client/test.css"));
+
+    CssStylesheet cloned = CssNodeCloner.clone(CssStylesheet.class, sheet);
+    assertEquals(CssFingerprintVisitor.exec(sheet),
+        CssFingerprintVisitor.exec(cloned));
+
+    cloned.getNodes().remove(0);
+    assertFalse(CssFingerprintVisitor.exec(sheet).equals(
+        CssFingerprintVisitor.exec(cloned)));
+  }
+
+  public void testCloneMediaRule() {
+    CssMediaRule rule = new CssMediaRule();
+    rule.getMedias().add("print");
+
+    CssMediaRule clone = CssNodeCloner.clone(CssMediaRule.class, rule);
+
+    assertNotSame(rule, clone);
+    assertEquals(rule.getMedias(), clone.getMedias());
+  }
+
   public void testCloneProperty() {
     CssProperty.IdentValue value = new CssProperty.IdentValue("value");
     CssProperty p = new CssProperty("name", value, true);
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.css;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.resources.css.ast.CssRule;
+import com.google.gwt.resources.css.ast.CssStylesheet;
+import com.google.gwt.resources.rg.CssTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the stylesheet cache of {@link GenerateCssAst}.
+ */
+public class GenerateCssAstTest extends CssTestCase {
+
+  /**
+   * Records the messages logged to it.
+   */
+  private static class RecordingLogger extends TreeLogger {
+    private final List<String> messages = new ArrayList<String>();
+    private boolean warned;
+
+    @Override
+    public TreeLogger branch(Type type, String msg, Throwable caught,
+        HelpInfo helpInfo) {
+      log(type, msg, caught, helpInfo);
+      return this;
+    }
+
+    @Override
+    public boolean isLoggable(Type type) {
+      return true;
+    }
+
+    @Override
+    public synchronized void log(Type type, String msg, Throwable caught,
+        HelpInfo helpInfo) {
+      messages.add(msg);
+      if (!type.isLowerPriorityThan(TreeLogger.WARN)) {
+        warned = true;
+      }
+    }
+
+    boolean usedCache() {
+      return messages.contains("Using cached result");
+    }
+  }
+
+  private static int counter;
+
+  /**
+   * Returns a class selector that no other test stylesheet uses, so that each
+   * test starts with nothing cached.
+   */
+  private static synchronized String uniqueClass() {
+    return "c" + System.nanoTime() + "x" + (counter++);
+  }
+
+  public void testChangedContentIsParsedAgain()
+      throws IOException, UnableToCompleteException {
+    String before = uniqueClass();
+    String after = uniqueClass();
+    File file = writeCss("." + before + " {color: red;}");
+    URL url = file.toURI().toURL();
+    GenerateCssAst.exec(TreeLogger.NULL, url);
+
+    Util.writeStringAsFile(file, "." + after + " {color: red;}");
+    RecordingLogger logger = new RecordingLogger();
+    CssStylesheet sheet = GenerateCssAst.exec(logger, url);
+
+    assertFalse(logger.usedCache());
+    CssRule rule = (CssRule) sheet.getNodes().get(0);
+    assertEquals("." + after, rule.getSelectors().get(0).getSelector());
+  }
+
+  public void testPreparseSkipsSheetsWithWarnings()
+      throws IOException, UnableToCompleteException {
+    URL clean = writeCss("." + uniqueClass() + " {color: red;}").toURI().toURL();
+    URL warning = writeCss("@if " + uniqueClass() + " {.a {color: red;}}")
+        .toURI().toURL();
+    GenerateCssAst.preparse(Arrays.asList(new URL[] {clean},
+        new URL[] {warning}));
+
+    RecordingLogger logger = new RecordingLogger();
+    GenerateCssAst.exec(logger, clean);
+    assertTrue(logger.usedCache());
+
+    // The warning is reported by exec, not swallowed by preparse
+    logger = new RecordingLogger();
+    GenerateCssAst.exec(logger, warning);
+    assertFalse(logger.usedCache());
+    assertTrue(logger.warned);
+  }
+
+  public void testSameContentAtDifferentUrlsIsParsedOnce()
+      throws IOException, UnableToCompleteException {
+    String css = "." + uniqueClass() + " {color: red;}";
+    URL first = writeCss(css).toURI().toURL();
+    URL second = writeCss(css).toURI().toURL();
+
+    RecordingLogger logger = new RecordingLogger();
+    CssStylesheet firstSheet = GenerateCssAst.exec(logger, first);
+    assertFalse(logger.usedCache());
+
+    logger = new RecordingLogger();
+    CssStylesheet secondSheet = GenerateCssAst.exec(logger, second);
+    assertTrue(logger.usedCache());
+    assertNotSame(firstSheet, secondSheet);
+    assertEquals(TreeLogger.NULL, firstSheet, secondSheet);
+    assertNoAliasing(secondSheet);
+  }
+
+  private File writeCss(String css) throws IOException {
+    File file = File.createTempFile("GenerateCssAstTest", ".css");
+    file.deleteOnExit();
+    Util.writeStringAsFile(file, css);
+    return file;
+  }
+}
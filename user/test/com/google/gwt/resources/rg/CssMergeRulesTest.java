@@ -0,0 +1,69 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.resources.css.GenerateCssAst;
+import com.google.gwt.resources.css.MergeIdenticalSelectorsVisitor;
+import com.google.gwt.resources.css.MergeRulesByContentVisitor;
+import com.google.gwt.resources.css.SplitRulesVisitor;
+import com.google.gwt.resources.css.ast.CssStylesheet;
+
+import java.net.URL;
+
+/**
+ * Tests that the memoized rule merging of {@link CssResourceGenerator} gives
+ * the same result as running the merge visitors.
+ */
+public class CssMergeRulesTest extends CssTestCase {
+
+  public void testPropertyMerging() throws UnableToCompleteException {
+    checkCachedMerge("propertyMerging_test.css");
+  }
+
+  public void testSelectorMerging() throws UnableToCompleteException {
+    checkCachedMerge("selectorMerging_test.css");
+  }
+
+  private void checkCachedMerge(String fileName)
+      throws UnableToCompleteException {
+    URL url = getClass().getClassLoader().getResource(
+        "com/google/gwt/resources/css/" + fileName);
+    assertNotNull("Could not find " + fileName, url);
+
+    CssStylesheet expected = GenerateCssAst.exec(TreeLogger.NULL, url);
+    (new SplitRulesVisitor()).accept(expected);
+    (new MergeIdenticalSelectorsVisitor()).accept(expected);
+    (new MergeRulesByContentVisitor()).accept(expected);
+
+    // The first merge may or may not be cached; the second one is
+    CssStylesheet first = GenerateCssAst.exec(TreeLogger.NULL, url);
+    CssResourceGenerator.mergeRules(first);
+    assertEquals(TreeLogger.NULL, expected, first);
+
+    CssStylesheet second = GenerateCssAst.exec(TreeLogger.NULL, url);
+    CssResourceGenerator.mergeRules(second);
+    assertEquals(TreeLogger.NULL, expected, second);
+    assertNoAliasing(second);
+
+    // Changing a merged sheet must not change the cached merge
+    second.getNodes().clear();
+    CssStylesheet third = GenerateCssAst.exec(TreeLogger.NULL, url);
+    CssResourceGenerator.mergeRules(third);
+    assertEquals(TreeLogger.NULL, expected, third);
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.resources.rg.ImageBundleBuilder.BestFitArranger;
+import com.google.gwt.resources.rg.ImageBundleBuilder.DecodedImage;
+import com.google.gwt.resources.rg.ImageBundleBuilder.Sprite;
+
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Tests the decoded image and composite image caches of
+ * {@link ImageBundleBuilder}.
+ */
+public class ImageBundleBuilderTest extends TestCase {
+
+  private static final Random random = new Random();
+
+  public void testDecodedImagesAreShared() throws Exception {
+    byte[] bytes = Util.readFileAsBytes(writePng(4, 3));
+    String hash = Util.computeStrongName(bytes);
+
+    DecodedImage first = ImageBundleBuilder.getDecodedImage(TreeLogger.NULL,
+        "first", bytes, hash);
+    DecodedImage second = ImageBundleBuilder.getDecodedImage(TreeLogger.NULL,
+        "second", bytes.clone(), hash);
+
+    assertSame(first, second);
+    assertEquals(4, first.images[0].getWidth());
+    assertEquals(3, first.images[0].getHeight());
+  }
+
+  public void testPredecodeFillsCache() throws Exception {
+    File file = writePng(5, 2);
+    byte[] bytes = Util.readFileAsBytes(file);
+    ImageBundleBuilder.predecode(Collections.singletonList(
+        file.toURI().toURL()));
+
+    // These bytes cannot be decoded, so the image must come from the cache
+    DecodedImage decoded = ImageBundleBuilder.getDecodedImage(TreeLogger.NULL,
+        "image", new byte[0], Util.computeStrongName(bytes));
+    assertEquals(5, decoded.images[0].getWidth());
+  }
+
+  public void testRenderReusesAndInvalidatesCompositeImage() throws Exception {
+    File file = writePng(6, 6);
+    URL url = file.toURI().toURL();
+
+    byte[] first = render(url);
+    byte[] second = render(url);
+    assertSame(first, second);
+
+    writePng(file, 6, 6);
+    byte[] changed = render(url);
+    assertNotSame(first, changed);
+    assertFalse(Arrays.equals(first, changed));
+  }
+
+  public void testSpriteCacheDirectory() throws IOException {
+    File dir = createTempDir();
+    String key = "key" + random.nextLong();
+    ImageBundleBuilder.writeSprite(new File(dir, key + ".sprite"),
+        makeSprite());
+
+    Sprite sprite = ImageBundleBuilder.getCachedSprite(dir, key);
+    assertNotNull(sprite);
+    assertSame(sprite, ImageBundleBuilder.getCachedSprite(null, key));
+    assertNull(ImageBundleBuilder.getCachedSprite(dir, key + "-other"));
+
+    String putKey = "key" + random.nextLong();
+    ImageBundleBuilder.putCachedSprite(dir, putKey, makeSprite());
+    assertNotNull(ImageBundleBuilder.readSprite(new File(dir, putKey
+        + ".sprite")));
+  }
+
+  public void testSpriteFileRoundTrip() throws IOException {
+    File file = new File(createTempDir(), "test.sprite");
+    Sprite sprite = makeSprite();
+    ImageBundleBuilder.writeSprite(file, sprite);
+
+    Sprite read = ImageBundleBuilder.readSprite(file);
+    assertNotNull(read);
+    assertTrue(Arrays.equals(sprite.bytes, read.bytes));
+    assertEquals(sprite.positions.keySet(), read.positions.keySet());
+    for (String name : sprite.positions.keySet()) {
+      assertTrue(Arrays.equals(sprite.positions.get(name),
+          read.positions.get(name)));
+    }
+  }
+
+  public void testSpriteFileDamagedOrMissing() throws IOException {
+    File file = new File(createTempDir(), "test.sprite");
+    assertNull(ImageBundleBuilder.readSprite(file));
+
+    ImageBundleBuilder.writeSprite(file, makeSprite());
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(raf.length() - 1);
+    } finally {
+      raf.close();
+    }
+    assertNull(ImageBundleBuilder.readSprite(file));
+  }
+
+  private File createTempDir() throws IOException {
+    File dir = File.createTempFile("ImageBundleBuilderTest", "");
+    assertTrue(dir.delete());
+    assertTrue(dir.mkdir());
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  private Sprite makeSprite() {
+    Map<String, int[]> positions = new HashMap<String, int[]>();
+    positions.put("a", new int[] {0, 0});
+    positions.put("b", new int[] {16, 4});
+    byte[] bytes = new byte[64];
+    random.nextBytes(bytes);
+    return new Sprite(bytes, positions);
+  }
+
+  private byte[] render(URL url) throws Exception {
+    ImageBundleBuilder builder = new ImageBundleBuilder();
+    builder.assimilate(TreeLogger.NULL, "image", url);
+    return builder.render(TreeLogger.NULL, new BestFitArranger());
+  }
+
+  /**
+   * Writes a PNG of random pixels, so that no other test has decoded it.
+   */
+  private File writePng(int width, int height) throws IOException {
+    File file = File.createTempFile("ImageBundleBuilderTest", ".png");
+    file.deleteOnExit();
+    writePng(file, width, height);
+    return file;
+  }
+
+  private void writePng(File file, int width, int height) throws IOException {
+    BufferedImage image = new BufferedImage(width, height,
+        BufferedImage.TYPE_INT_ARGB);
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        image.setRGB(x, y, random.nextInt() | 0xff000000);
+      }
+    }
+    assertTrue(ImageIO.write(image, "png", file));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.user.benchmarks;
+
+import com.google.gwt.benchmarks.client.Benchmark;
+import com.google.gwt.benchmarks.client.IntRange;
+import com.google.gwt.benchmarks.client.Operator;
+import com.google.gwt.benchmarks.client.RangeEnum;
+import com.google.gwt.benchmarks.client.RangeField;
+import com.google.gwt.benchmarks.client.Setup;
+import com.google.web.bindery.event.shared.CopyOnWriteEventBus;
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+
+/**
+ * Compares the cost of firing events through the {@link EventBus}
+ * implementations as the number of registered handlers grows.
+ */
+public class EventBusBenchmark extends Benchmark {
+
+  /**
+   * The EventBus implementations to compare.
+   */
+  protected enum Implementation {
+    COPY_ON_WRITE, SIMPLE;
+  }
+
+  interface Handler {
+    void onTick(TickEvent event);
+  }
+
+  static class TickEvent extends Event<Handler> {
+    static final Type<Handler> TYPE = new Type<Handler>();
+
+    @Override
+    public Type<Handler> getAssociatedType() {
+      return TYPE;
+    }
+
+    @Override
+    protected void dispatch(Handler handler) {
+      handler.onTick(this);
+    }
+  }
+
+  /**
+   * The number of events fired by each benchmark iteration.
+   */
+  private static final int EVENTS = 10000;
+
+  private static final Object SOURCE = new Object();
+
+  protected final IntRange handlerRange = new IntRange(1, 100, Operator.MULTIPLY, 10);
+
+  private EventBus eventBus;
+
+  private final TickEvent event = new TickEvent();
+
+  private int ticks;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.user.UserBenchmarks";
+  }
+
+  // Required for JUnit
+  public void testFireEvent() {
+  }
+
+  @Setup("reset")
+  public void testFireEvent(@RangeEnum(Implementation.class) Implementation implementation,
+      @RangeField("handlerRange") Integer numHandlers) {
+    for (int i = 0; i < EVENTS; i++) {
+      eventBus.fireEvent(event);
+    }
+  }
+
+  // Required for JUnit
+  public void testFireEventFromSource() {
+  }
+
+  @Setup("reset")
+  public void testFireEventFromSource(
+      @RangeEnum(Implementation.class) Implementation implementation,
+      @RangeField("handlerRange") Integer numHandlers) {
+    for (int i = 0; i < EVENTS; i++) {
+      eventBus.fireEventFromSource(event, SOURCE);
+    }
+  }
+
+  void reset(Implementation implementation, Integer numHandlers) {
+    eventBus =
+        Implementation.SIMPLE.equals(implementation) ? new SimpleEventBus()
+            : new CopyOnWriteEventBus();
+    ticks = 0;
+
+    Handler handler = new Handler() {
+      public void onTick(TickEvent event) {
+        ticks++;
+      }
+    };
+    // Split the handlers between the source and global registrations
+    for (int i = 0, j = numHandlers; i < j; i++) {
+      if (i % 2 == 0) {
+        eventBus.addHandler(TickEvent.TYPE, handler);
+      } else {
+        eventBus.addHandlerToSource(TickEvent.TYPE, SOURCE, handler);
+      }
+    }
+  }
+}
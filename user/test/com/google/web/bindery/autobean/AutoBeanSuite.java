@@ -20,6 +20,7 @@ import com.google.web.bindery.autobean.shared.AutoBeanCodexTest;
 import com.google.web.bindery.autobean.shared.SplittableTest;
 import com.google.web.bindery.autobean.vm.AutoBeanCodexJreTest;
 import com.google.web.bindery.autobean.vm.AutoBeanJreTest;
+import com.google.web.bindery.autobean.vm.BinaryCodexJreTest;
 import com.google.web.bindery.autobean.vm.SplittableJreTest;
 import com.google.gwt.junit.tools.GWTTestSuite;
 
@@ -36,6 +37,7 @@ public class AutoBeanSuite {
     suite.addTestSuite(AutoBeanCodexTest.class);
     suite.addTestSuite(AutoBeanJreTest.class);
     suite.addTestSuite(AutoBeanTest.class);
+    suite.addTestSuite(BinaryCodexJreTest.class);
     suite.addTestSuite(SplittableJreTest.class);
     suite.addTestSuite(SplittableTest.class);
     return suite;
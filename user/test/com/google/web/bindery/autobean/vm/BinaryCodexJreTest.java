@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.autobean.vm;
+
+import com.google.web.bindery.autobean.shared.Splittable;
+import com.google.web.bindery.autobean.shared.impl.StringQuoter;
+import com.google.web.bindery.autobean.vm.impl.BinaryCodex;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the binary encoding of Splittables.
+ */
+public class BinaryCodexJreTest extends TestCase {
+
+  public void testBasicProperties() {
+    Splittable data =
+        roundTrip("{\"a\":true, \"b\":3, \"c\":\"string\", \"d\":null, \"e\":-1.5, "
+            + "\"f\":false, \"g\":1e300}");
+    assertTrue(data.get("a").asBoolean());
+    assertEquals(3.0, data.get("b").asNumber());
+    assertEquals("string", data.get("c").asString());
+    assertTrue(data.isNull("d"));
+    assertEquals(-1.5, data.get("e").asNumber());
+    assertFalse(data.get("f").asBoolean());
+    assertEquals(1e300, data.get("g").asNumber());
+  }
+
+  public void testIndexed() {
+    Splittable data = roundTrip("[1, null, \"x\", [], {}]");
+    assertTrue(data.isIndexed());
+    assertEquals(5, data.size());
+    assertEquals(1.0, data.get(0).asNumber());
+    assertTrue(data.isNull(1));
+    assertEquals("x", data.get(2).asString());
+    assertEquals(0, data.get(3).size());
+    assertTrue(data.get(4).isKeyed());
+  }
+
+  public void testNullPropertiesAreKept() {
+    Splittable data = roundTrip("{\"a\":null}");
+    assertEquals(1, data.getPropertyKeys().size());
+    assertFalse(data.isUndefined("a"));
+    assertTrue(data.isNull("a"));
+  }
+
+  public void testRepeatedStringsAreShared() {
+    String element = "{\"property\":\"value\"}";
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < 100; i++) {
+      if (i > 0) {
+        sb.append(",");
+      }
+      sb.append(element);
+    }
+    sb.append("]");
+    Splittable data = StringQuoter.split(sb.toString());
+    byte[] bytes = BinaryCodex.encode(data);
+    assertTrue(bytes.length < sb.length() / 4);
+
+    Splittable decoded = BinaryCodex.decode(bytes);
+    assertEquals(100, decoded.size());
+    assertEquals("value", decoded.get(99).get("property").asString());
+  }
+
+  public void testUnicode() {
+    Splittable data = roundTrip("{\"\\u1234\":\"\\u0000\\ud834\\udd1e\"}");
+    assertEquals("\u0000\ud834\udd1e", data.get("\u1234").asString());
+  }
+
+  private Splittable roundTrip(String json) {
+    Splittable data = StringQuoter.split(json);
+    return BinaryCodex.decode(BinaryCodex.encode(data));
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared;
+
+import java.util.Set;
+
+/**
+ * Eponymous unit test.
+ */
+public class CopyOnWriteEventBusTest extends EventBusTestBase {
+
+  static class ThrowingHandler implements FooEvent.Handler {
+    private final RuntimeException e;
+
+    public ThrowingHandler(RuntimeException e) {
+      this.e = e;
+    }
+
+    public void onFoo(FooEvent event) {
+      throw e;
+    }
+  }
+
+  public void testAddAndRemoveHandlers() {
+    CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    FooEvent.register(eventBus, fooHandler1);
+    HandlerRegistration reg1 = FooEvent.register(eventBus, adaptor1);
+    HandlerRegistration reg2 = FooEvent.register(eventBus, adaptor1);
+    eventBus.addHandler(BarEvent.TYPE, barHandler1);
+    assertEquals(3, eventBus.getHandlerCount(FooEvent.TYPE));
+    assertEquals(1, eventBus.getHandlerCount(BarEvent.TYPE));
+
+    eventBus.fireEvent(new FooEvent());
+    assertFired(fooHandler1, adaptor1);
+    assertNotFired(barHandler1);
+
+    // Duplicate handlers are removed one at a time
+    reg1.removeHandler();
+    assertEquals(2, eventBus.getHandlerCount(FooEvent.TYPE));
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(fooHandler1, adaptor1);
+
+    reg2.removeHandler();
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(fooHandler1);
+    assertNotFired(adaptor1);
+  }
+
+  public void testAddDuringDispatch() {
+    final CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    final FooEvent.Handler two = new FooEvent.Handler() {
+      public void onFoo(FooEvent event) {
+        add(this);
+      }
+    };
+    FooEvent.Handler one = new FooEvent.Handler() {
+      public void onFoo(FooEvent event) {
+        FooEvent.register(eventBus, two);
+        add(this);
+      }
+    };
+    FooEvent.register(eventBus, one);
+    FooEvent.register(eventBus, fooHandler1);
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one, fooHandler1);
+    assertNotFired(two);
+
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one, two, fooHandler1);
+  }
+
+  public void testAddDuringDispatchIsVisibleToNestedFire() {
+    final CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    FooEvent.Handler one = new FooEvent.Handler() {
+      public void onFoo(FooEvent event) {
+        eventBus.addHandler(BarEvent.TYPE, barHandler1);
+        eventBus.fireEvent(new BarEvent());
+        add(this);
+      }
+    };
+    FooEvent.register(eventBus, one);
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one, barHandler1);
+  }
+
+  public void testFromSource() {
+    CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    FooEvent.register(eventBus, fooHandler1);
+    FooEvent.register(eventBus, "able", fooHandler2);
+    FooEvent.register(eventBus, "baker", fooHandler3);
+
+    FooEvent event = new FooEvent();
+    eventBus.fireEventFromSource(event, "able");
+    assertEquals("able", event.getSource());
+    assertFired(fooHandler1, fooHandler2);
+    assertNotFired(fooHandler3);
+
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(fooHandler1);
+    assertNotFired(fooHandler2, fooHandler3);
+  }
+
+  public void testHandlersThrow() {
+    RuntimeException exception1 = new RuntimeException("first exception");
+    RuntimeException exception2 = new RuntimeException("second exception");
+
+    CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    FooEvent.register(eventBus, fooHandler1);
+    FooEvent.register(eventBus, new ThrowingHandler(exception1));
+    FooEvent.register(eventBus, fooHandler2);
+    FooEvent.register(eventBus, new ThrowingHandler(exception2));
+
+    try {
+      eventBus.fireEvent(new FooEvent());
+      fail("eventBus should have thrown");
+    } catch (UmbrellaException e) {
+      Set<Throwable> causes = e.getCauses();
+      assertEquals(2, causes.size());
+      assertTrue(causes.contains(exception1));
+      assertTrue(causes.contains(exception2));
+    }
+    assertFired(fooHandler1, fooHandler2);
+  }
+
+  public void testNoDoubleRemove() {
+    CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    HandlerRegistration reg = FooEvent.register(eventBus, fooHandler1);
+    reg.removeHandler();
+    assertEquals(0, eventBus.getHandlerCount(FooEvent.TYPE));
+
+    if (getClass().desiredAssertionStatus()) {
+      try {
+        reg.removeHandler();
+        fail("Should have thrown on remove");
+      } catch (AssertionError e) { /* pass */
+      }
+    } else {
+      reg.removeHandler();
+    }
+  }
+
+  public void testNullChecks() {
+    CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    try {
+      eventBus.addHandler(null, fooHandler1);
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) { /* pass */
+    }
+    try {
+      FooEvent.register(eventBus, null, fooHandler1);
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) { /* pass */
+    }
+    try {
+      eventBus.fireEvent(null);
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) { /* pass */
+    }
+    try {
+      eventBus.fireEventFromSource(new FooEvent(), null);
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) { /* pass */
+    }
+  }
+
+  public void testRemoveDuringDispatch() {
+    final CopyOnWriteEventBus eventBus = new CopyOnWriteEventBus();
+    final HandlerRegistration[] reg = new HandlerRegistration[1];
+    FooEvent.Handler one = new FooEvent.Handler() {
+      public void onFoo(FooEvent event) {
+        if (reg[0] != null) {
+          reg[0].removeHandler();
+          reg[0] = null;
+        }
+        add(this);
+      }
+    };
+    FooEvent.register(eventBus, one);
+    reg[0] = FooEvent.register(eventBus, fooHandler1);
+
+    // Removal does not affect the event being dispatched
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one, fooHandler1);
+
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one);
+    assertNotFired(fooHandler1);
+  }
+}
@@ -25,6 +25,7 @@ public class EventSharedSuite {
   public static Test suite() {
     TestSuite suite = new TestSuite("Tests of shared Event code");
     
+    suite.addTestSuite(CopyOnWriteEventBusTest.class);
     suite.addTestSuite(SimpleEventBusTest.class);
     suite.addTestSuite(ResettableEventBusTest.class);
     
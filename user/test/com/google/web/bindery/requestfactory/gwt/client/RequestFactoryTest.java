@@ -34,8 +34,10 @@ import com.google.web.bindery.requestfactory.shared.SimpleFooProxy;
 import com.google.web.bindery.requestfactory.shared.SimpleFooRequest;
 import com.google.web.bindery.requestfactory.shared.SimpleValueContext;
 import com.google.web.bindery.requestfactory.shared.SimpleValueProxy;
+import com.google.web.bindery.requestfactory.shared.impl.AbstractRequestFactory;
 import com.google.web.bindery.requestfactory.shared.impl.MessageFactoryHolder;
 import com.google.web.bindery.requestfactory.shared.impl.SimpleEntityProxyId;
+import com.google.web.bindery.requestfactory.shared.messages.OperationMessage;
 import com.google.web.bindery.requestfactory.shared.messages.ResponseMessage;
 import com.google.web.bindery.requestfactory.shared.messages.ServerFailureMessage;
 
@@ -614,6 +616,65 @@ public class RequestFactoryTest extends RequestFactoryTestBase {
         });
   }
 
+  /**
+   * Tests that entities already held by a client with delta-encoded responses
+   * enabled are returned without their value properties, and that the client
+   * restores them from its cache.
+   */
+  public void testFetchEntityWithProxyVersionCache() {
+    delayTestFinish(DELAY_TEST_FINISH);
+    final List<String> responses = new ArrayList<String>();
+    final RequestTransport transport = req.getRequestTransport();
+    req.initialize(req.getEventBus(), new RequestTransport() {
+      public void send(String payload, final TransportReceiver receiver) {
+        transport.send(payload, new TransportReceiver() {
+          public void onTransportFailure(ServerFailure failure) {
+            receiver.onTransportFailure(failure);
+          }
+
+          public void onTransportSuccess(String payload) {
+            responses.add(payload);
+            receiver.onTransportSuccess(payload);
+          }
+        });
+      }
+    });
+    ((AbstractRequestFactory) req).setProxyVersionCacheSize(10);
+
+    simpleFooRequest().findSimpleFooById(999L).fire(new Receiver<SimpleFooProxy>() {
+      @Override
+      public void onSuccess(SimpleFooProxy response) {
+        assertEquals("GWT", response.getUserName());
+
+        simpleFooRequest().findSimpleFooById(999L).with("barField").fire(
+            new Receiver<SimpleFooProxy>() {
+              @Override
+              public void onSuccess(SimpleFooProxy response) {
+                assertEquals(42, (int) response.getIntId());
+                assertEquals("GWT", response.getUserName());
+                assertEquals(8L, (long) response.getLongField());
+                assertEquals(SimpleEnum.FOO, response.getEnumField());
+                assertNotNull(response.getBarField());
+
+                assertEquals(2, responses.size());
+                ResponseMessage resp =
+                    AutoBeanCodex.decode(MessageFactoryHolder.FACTORY, ResponseMessage.class,
+                        responses.get(1)).as();
+                boolean sawUnchanged = false;
+                for (OperationMessage op : resp.getOperations()) {
+                  if (op.isUnchanged()) {
+                    sawUnchanged = true;
+                    assertFalse(op.getPropertyMap().containsKey("userName"));
+                  }
+                }
+                assertTrue(sawUnchanged);
+                finishTestAndReset();
+              }
+            });
+      }
+    });
+  }
+
   public void testFetchList() {
     delayTestFinish(DELAY_TEST_FINISH);
     simpleFooRequest().findAll().fire(new Receiver<List<SimpleFooProxy>>() {
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.server;
+
+import com.google.web.bindery.requestfactory.shared.EntityProxyId;
+import com.google.web.bindery.requestfactory.shared.Receiver;
+import com.google.web.bindery.requestfactory.shared.ServerFailure;
+import com.google.web.bindery.requestfactory.shared.SimpleFooProxy;
+import com.google.web.bindery.requestfactory.shared.SimpleRequestFactory;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verifies that a single JRE RequestFactory may be shared by many threads that
+ * fire requests concurrently.
+ */
+public class ConcurrentRequestFactoryJreTest extends TestCase {
+  private static final int REQUESTS = 200;
+  private static final int THREADS = 8;
+
+  public void testConcurrentFire() throws Exception {
+    final SimpleRequestFactory factory =
+        RequestFactoryJreTest.createInProcess(SimpleRequestFactory.class);
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<EntityProxyId<SimpleFooProxy>>> results =
+          new ArrayList<Future<EntityProxyId<SimpleFooProxy>>>();
+      for (int i = 0; i < REQUESTS; i++) {
+        results.add(executor.submit(new Callable<EntityProxyId<SimpleFooProxy>>() {
+          public EntityProxyId<SimpleFooProxy> call() {
+            final List<EntityProxyId<SimpleFooProxy>> found =
+                new ArrayList<EntityProxyId<SimpleFooProxy>>();
+            factory.simpleFooRequest().findSimpleFooById(999L).fire(
+                new Receiver<SimpleFooProxy>() {
+                  @Override
+                  public void onFailure(ServerFailure error) {
+                    fail(error.getMessage());
+                  }
+
+                  @Override
+                  public void onSuccess(SimpleFooProxy response) {
+                    assertEquals("GWT", response.getUserName());
+                    found.add(response.stableId());
+                  }
+                });
+            assertEquals(1, found.size());
+            return found.get(0);
+          }
+        }));
+      }
+
+      // All requests should resolve to the same canonical id
+      EntityProxyId<SimpleFooProxy> expected = results.get(0).get();
+      for (Future<EntityProxyId<SimpleFooProxy>> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
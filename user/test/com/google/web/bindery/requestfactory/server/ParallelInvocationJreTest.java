@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.server;
+
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.requestfactory.server.testing.InProcessRequestTransport;
+import com.google.web.bindery.requestfactory.shared.Receiver;
+import com.google.web.bindery.requestfactory.shared.SimpleFooProxy;
+import com.google.web.bindery.requestfactory.shared.SimpleFooRequest;
+import com.google.web.bindery.requestfactory.shared.SimpleRequestFactory;
+import com.google.web.bindery.requestfactory.vm.RequestFactorySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the RequestFactory tests in-process with {@link SideEffectFree}
+ * invocations executing concurrently.
+ */
+public class ParallelInvocationJreTest extends RequestFactoryJreTest {
+  private static final int DELAY_TEST_FINISH = 30 * 1000;
+
+  private ExecutorService executor;
+
+  @Override
+  public void gwtSetUp() {
+    executor = Executors.newFixedThreadPool(4);
+    super.gwtSetUp();
+  }
+
+  /**
+   * Interleaves side-effect-free finders with a write to ensure that the
+   * results are returned in order and that reads observe earlier writes.
+   */
+  public void testParallelInvocationOrdering() {
+    delayTestFinish(DELAY_TEST_FINISH);
+    final List<Object> results = new ArrayList<Object>();
+    SimpleFooRequest context = simpleFooRequest();
+    context.countSimpleFoo().to(new Receiver<Long>() {
+      @Override
+      public void onSuccess(Long response) {
+        results.add(response);
+      }
+    });
+    context.findSimpleFooById(999L).to(new Receiver<SimpleFooProxy>() {
+      @Override
+      public void onSuccess(SimpleFooProxy response) {
+        results.add(response.getUserName());
+      }
+    });
+    SimpleFooProxy newFoo = context.create(SimpleFooProxy.class);
+    context.persist().using(newFoo);
+    context.countSimpleFoo().to(new Receiver<Long>() {
+      @Override
+      public void onSuccess(Long response) {
+        results.add(response);
+      }
+    });
+    context.fire(new Receiver<Void>() {
+      @Override
+      public void onSuccess(Void response) {
+        assertEquals(3, results.size());
+        assertEquals("GWT", results.get(1));
+        assertEquals((Long) results.get(0) + 1, results.get(2));
+        finishTestAndReset();
+      }
+    });
+  }
+
+  @Override
+  protected SimpleRequestFactory createFactory() {
+    SimpleRequestProcessor processor = new SimpleRequestProcessor(ServiceLayer.create());
+    processor.setInvocationExecutor(executor);
+    SimpleRequestFactory req = RequestFactorySource.create(SimpleRequestFactory.class);
+    req.initialize(new SimpleEventBus(), new InProcessRequestTransport(processor));
+    return req;
+  }
+
+  @Override
+  protected void gwtTearDown() throws Exception {
+    super.gwtTearDown();
+    executor.shutdown();
+  }
+}
@@ -54,6 +54,7 @@ public class SimpleFoo {
     return a + b;
   }
 
+  @SideEffectFree
   public static Long countSimpleFoo() {
     return (long) get().size();
   }
@@ -77,6 +78,7 @@ public class SimpleFoo {
     return foo;
   }
 
+  @SideEffectFree
   public static List<SimpleFoo> findAll() {
     return new ArrayList<SimpleFoo>(get().values());
   }
@@ -85,6 +87,7 @@ public class SimpleFoo {
     return findSimpleFooById(id);
   }
 
+  @SideEffectFree
   public static SimpleFoo findSimpleFooById(Long id) {
     return get().get(id);
   }